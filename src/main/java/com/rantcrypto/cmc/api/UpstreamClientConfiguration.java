@@ -0,0 +1,109 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * <p>Builds the single HTTP client used to reach the CoinMarketCap API. Every
+ * {@link com.rantcrypto.cmc.api.service.CoinMarketCapService } shares this client, so connections
+ * (and their TLS sessions) are pooled and kept alive between requests instead of being opened
+ * for every call.</p>
+ *
+ * <p>Pool sizes, timeouts, keep-alive and idle eviction are configured in application.properties
+ * under <code>com.rantcrypto.cmc.api.v1.http.*</code>. All times are in milliseconds.</p>
+ */
+@Configuration
+public class UpstreamClientConfiguration {
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.max-connections:50}")
+	private Integer HTTP_MAX_CONNECTIONS;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.max-connections-per-route:20}")
+	private Integer HTTP_MAX_CONNECTIONS_PER_ROUTE;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.connect-timeout:5000}")
+	private Integer HTTP_CONNECT_TIMEOUT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.connection-request-timeout:5000}")
+	private Integer HTTP_CONNECTION_REQUEST_TIMEOUT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.read-timeout:30000}")
+	private Integer HTTP_READ_TIMEOUT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.keep-alive-time:60000}")
+	private Long HTTP_KEEP_ALIVE_TIME;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.idle-eviction-time:30000}")
+	private Long HTTP_IDLE_EVICTION_TIME;
+
+	@Value("${com.rantcrypto.cmc.api.v1.http.validate-after-inactivity:2000}")
+	private Integer HTTP_VALIDATE_AFTER_INACTIVITY;
+
+
+	/**
+	 * Pooled HTTP client for the CoinMarketCap API. Connections are bounded per route and in total,
+	 * kept alive for as long as the server allows (or the configured keep-alive time when the server
+	 * does not say), and closed by a background evictor once they sit idle or expire.
+	 *
+	 * @return Shared, pooled HTTP client
+	 */
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient coinMarketCapHttpClient() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(HTTP_MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(HTTP_MAX_CONNECTIONS_PER_ROUTE);
+		connectionManager.setValidateAfterInactivity(HTTP_VALIDATE_AFTER_INACTIVITY);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(HTTP_CONNECT_TIMEOUT)
+				.setConnectionRequestTimeout(HTTP_CONNECTION_REQUEST_TIMEOUT)
+				.setSocketTimeout(HTTP_READ_TIMEOUT)
+				.build();
+
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(this.getKeepAliveStrategy())
+				.evictExpiredConnections()
+				.evictIdleConnections(HTTP_IDLE_EVICTION_TIME.longValue(), TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * RestTemplate backed by the pooled HTTP client. Injected into every CoinMarketCap service.
+	 *
+	 * @param coinMarketCapHttpClient Shared, pooled HTTP client
+	 *
+	 * @return Shared RestTemplate for the CoinMarketCap API
+	 */
+	@Bean
+	public RestTemplate coinMarketCapRestTemplate(CloseableHttpClient coinMarketCapHttpClient) {
+		return new RestTemplate(new HttpComponentsClientHttpRequestFactory(coinMarketCapHttpClient));
+	}
+
+	/**
+	 * Honors the Keep-Alive header sent by the server. If the server does not send one, the
+	 * connection is kept alive for the configured keep-alive time.
+	 *
+	 * @return Keep-alive strategy for pooled connections
+	 */
+	private ConnectionKeepAliveStrategy getKeepAliveStrategy() {
+		return (response, context) -> {
+			long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return (keepAlive > 0 ? keepAlive : HTTP_KEEP_ALIVE_TIME);
+		};
+	}
+}
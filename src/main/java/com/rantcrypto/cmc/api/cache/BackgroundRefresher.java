@@ -0,0 +1,132 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <p>Refreshes stale cache entries in the background, so requests can be answered with the stale
+ * response right away. At most one refresh runs per key at a time; further refresh requests for
+ * a key that is already being refreshed are ignored.</p>
+ *
+ * <p>Counts are published as <code>cmc.response.stale</code> (stale responses served) and
+ * <code>cmc.response.refreshes</code> (background refreshes started).</p>
+ */
+@Component
+public class BackgroundRefresher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundRefresher.class);
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.refresh-threads:2}")
+	private Integer CACHE_REFRESH_THREADS;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.refresh-queue-size:1000}")
+	private Integer CACHE_REFRESH_QUEUE_SIZE;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentHashMap<CacheKey, Boolean> refreshing = new ConcurrentHashMap<CacheKey, Boolean>();
+
+	private final LongAdder staleCount = new LongAdder();
+	private final LongAdder refreshCount = new LongAdder();
+
+	private ThreadPoolExecutor executor;
+
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(CACHE_REFRESH_THREADS, CACHE_REFRESH_THREADS, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(CACHE_REFRESH_QUEUE_SIZE), runnable -> {
+					Thread thread = new Thread(runnable, "cmc-refresh-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		if (meterRegistry != null) {
+			FunctionCounter.builder("cmc.response.stale", staleCount, LongAdder::sum)
+					.description("Stale responses served while a refresh was pending")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.response.refreshes", refreshCount, LongAdder::sum)
+					.description("Background refreshes of stale responses")
+					.register(meterRegistry);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Records that a stale response was served for the given key and starts a refresh for it,
+	 * unless one is already running or queued.
+	 *
+	 * @param key Key of the stale response
+	 * @param refresh Fetches and caches a fresh response
+	 */
+	public void refresh(CacheKey key, Runnable refresh) {
+		staleCount.increment();
+
+		if (refreshing.putIfAbsent(key, Boolean.TRUE) != null)
+			return;
+
+		try {
+			executor.execute(() -> {
+				try {
+					refresh.run();
+				} catch (RuntimeException exception) {
+					LOGGER.warn("Background refresh of {} failed: {}", key, exception.getMessage());
+				} finally {
+					refreshing.remove(key);
+				}
+			});
+			refreshCount.increment();
+		} catch (RejectedExecutionException exception) {
+			// the stale response is still served; a later request will try again
+			refreshing.remove(key);
+		}
+	}
+
+	/**
+	 * @return Number of stale responses served
+	 */
+	public long getStaleCount() {
+		return staleCount.sum();
+	}
+
+	/**
+	 * @return Number of background refreshes started
+	 */
+	public long getRefreshCount() {
+		return refreshCount.sum();
+	}
+
+	/**
+	 * @param key Key of a cached response
+	 *
+	 * @return True if a refresh for the key is running or queued
+	 */
+	public boolean isRefreshing(CacheKey key) {
+		return refreshing.containsKey(key);
+	}
+}
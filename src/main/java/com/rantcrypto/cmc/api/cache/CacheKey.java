@@ -0,0 +1,109 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Identifies a cached response by its endpoint and query parameters. Parameters are sorted by
+ * name and empty values are dropped, so the same request always maps to the same key no matter
+ * the order its parameters were added in.
+ */
+public final class CacheKey {
+
+	private final String endpoint;
+	private final String params;
+
+
+	private CacheKey(String endpoint, String params) {
+		this.endpoint = endpoint;
+		this.params = params;
+	}
+
+	/**
+	 * Builds the key for a request to the given endpoint with the given query parameters.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters, may be null
+	 *
+	 * @return Key for the request
+	 */
+	public static CacheKey of(String endpoint, Map<String, String> paramMap) {
+		StringBuilder paramStringBuilder = new StringBuilder();
+
+		if (paramMap != null) {
+			for (Map.Entry<String, String> entry : new TreeMap<String, String>(paramMap).entrySet()) {
+				String key = entry.getKey();
+				String value = entry.getValue();
+
+				if (key != null && !key.isEmpty() && value != null && !value.isEmpty()) {
+					paramStringBuilder.append(paramStringBuilder.length() == 0 ? "" : "&")
+							.append(key).append("=").append(value);
+				}
+			}
+		}
+		return new CacheKey(endpoint, paramStringBuilder.toString());
+	}
+
+	/**
+	 * Builds the key of one entity of a multi-id request (see {@link EntityResponse }). Entity keys
+	 * never equal the key of a whole response.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters, may be null
+	 * @param id Id of the entity, replacing the request's id parameter
+	 *
+	 * @return Key for the entity
+	 */
+	public static CacheKey ofEntity(String endpoint, Map<String, String> paramMap, String id) {
+		Map<String, String> entityParams = new TreeMap<String, String>();
+		if (paramMap != null)
+			entityParams.putAll(paramMap);
+		entityParams.put("id", id);
+		return of(endpoint + "#entity", entityParams);
+	}
+
+	/**
+	 * Parses a key from its String form, as returned by {@link #toString() }.
+	 *
+	 * @param key Endpoint, optionally followed by ? and sorted query parameters
+	 *
+	 * @return Key for the request
+	 */
+	public static CacheKey parse(String key) {
+		int separator = key.indexOf('?');
+		if (separator < 0)
+			return new CacheKey(key, "");
+		return new CacheKey(key.substring(0, separator), key.substring(separator + 1));
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public String getParams() {
+		return params;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof CacheKey))
+			return false;
+
+		CacheKey otherKey = (CacheKey) other;
+		return endpoint.equals(otherKey.endpoint) && params.equals(otherKey.params);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * endpoint.hashCode() + params.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return params.isEmpty() ? endpoint : endpoint + "?" + params;
+	}
+}
@@ -0,0 +1,423 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>The JSON body of a cached response. A body is held either as the String it was received as,
+ * or as UTF-8 bytes that may be gzip compressed. Bytes are held on the heap or off-heap in a direct
+ * buffer; off-heap bodies keep large responses out of the old generation, since only this small
+ * wrapper stays on the heap.</p>
+ *
+ * <p>Compressed bodies are compressed once, when they are cached. They are written to clients that
+ * accept gzip as they are, and decompressed while they are written for clients that do not. See
+ * {@link CachedBodyHttpMessageConverter }.</p>
+ *
+ * <p>Every body has a weak ETag, computed once from its content. The top-level
+ * <code>status</code> object (which carries the time of the upstream request) is left out, so a
+ * refreshed response whose data did not change keeps the same ETag. The ETag is weak because
+ * bodies that differ in their status, or in their content encoding, share it.</p>
+ */
+public final class CachedBody {
+
+	public static final String GZIP = "gzip";
+
+	private static final String WEAK_PREFIX = "W/";
+
+	private final String text;
+	private final ByteBuffer buffer;
+	private final boolean compressed;
+	private final long length;
+	private volatile String eTag;
+
+
+	private CachedBody(String text, ByteBuffer buffer, boolean compressed, long length, String eTag) {
+		this.text = text;
+		this.buffer = buffer;
+		this.compressed = compressed;
+		this.length = length;
+		this.eTag = eTag;
+	}
+
+	/**
+	 * @param text Response body
+	 *
+	 * @return A body held on the heap as the given String
+	 */
+	public static CachedBody onHeap(String text) {
+		return new CachedBody(text, null, false, -1L, null);
+	}
+
+	/**
+	 * @param text Response body
+	 *
+	 * @return A body held as uncompressed UTF-8 bytes in a direct buffer
+	 */
+	public static CachedBody offHeap(String text) {
+		return of(text, false, true);
+	}
+
+	/**
+	 * @param text Response body
+	 * @param compressed Whether to gzip the body
+	 * @param offHeap Whether to hold the body in a direct buffer instead of on the heap
+	 *
+	 * @return A body held as UTF-8 bytes
+	 */
+	public static CachedBody of(String text, boolean compressed, boolean offHeap) {
+		if (!compressed && !offHeap)
+			return onHeap(text);
+
+		byte[] bytes = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+		byte[] stored = compressed ? gzip(bytes) : bytes;
+
+		ByteBuffer buffer;
+		if (offHeap) {
+			buffer = ByteBuffer.allocateDirect(stored.length);
+			buffer.put(stored);
+			((Buffer) buffer).flip();
+		} else {
+			buffer = ByteBuffer.wrap(stored);
+		}
+
+		return new CachedBody(null, buffer.asReadOnlyBuffer(), compressed, bytes.length, getETag(bytes));
+	}
+
+	/**
+	 * Wraps bytes that are already held, e.g. in a memory-mapped segment file, without copying them.
+	 *
+	 * @param bytes Held bytes, positioned at the first byte; the view is not copied
+	 * @param compressed Whether the bytes are gzip compressed
+	 * @param length Number of uncompressed UTF-8 bytes
+	 * @param eTag Quoted ETag of the content, weak or not
+	 *
+	 * @return A body held as the given bytes
+	 */
+	public static CachedBody ofBytes(ByteBuffer bytes, boolean compressed, long length, String eTag) {
+		// records written before ETags were weak hold them without the prefix
+		String weakETag = eTag == null || eTag.startsWith(WEAK_PREFIX) ? eTag : WEAK_PREFIX + eTag;
+		return new CachedBody(null, bytes.asReadOnlyBuffer(), compressed, length, weakETag);
+	}
+
+	/**
+	 * @param compressed Whether the body should be held gzip compressed
+	 * @param offHeap Whether the body should be held in a direct buffer
+	 *
+	 * @return This body, or a copy of it held as requested. Bytes that are already encoded as
+	 * requested are copied as they are, without decoding them.
+	 */
+	public CachedBody hold(boolean compressed, boolean offHeap) {
+		if (!compressed && !offHeap)
+			return isString() ? this : onHeap(toString());
+		if (isString() || this.compressed != compressed)
+			return of(toString(), compressed, offHeap);
+		if (isOffHeap() == offHeap)
+			return this;
+
+		ByteBuffer source = buffer.duplicate();
+		ByteBuffer copy = offHeap ? ByteBuffer.allocateDirect(source.remaining()) : ByteBuffer.allocate(source.remaining());
+		copy.put(source);
+		((Buffer) copy).flip();
+		return new CachedBody(null, copy.asReadOnlyBuffer(), compressed, length, getETag());
+	}
+
+	/**
+	 * @return True if this body is held as the String it was received as
+	 */
+	public boolean isString() {
+		return buffer == null;
+	}
+
+	/**
+	 * @return True if this body is held in a direct buffer
+	 */
+	public boolean isOffHeap() {
+		return buffer != null && buffer.isDirect();
+	}
+
+	/**
+	 * @return True if this body is held gzip compressed
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
+	/**
+	 * @return Content-Encoding of the held bytes, or null if they are not compressed
+	 */
+	public String getContentEncoding() {
+		return compressed ? GZIP : null;
+	}
+
+	/**
+	 * @return Weak ETag of this body's content, excluding its top-level status object
+	 */
+	public String getETag() {
+		String eTag = this.eTag;
+		if (eTag == null) {
+			eTag = getETag((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+			this.eTag = eTag;
+		}
+		return eTag;
+	}
+
+	/**
+	 * @return Number of uncompressed UTF-8 bytes in this body, or -1 if it is held as a String
+	 */
+	public long getLength() {
+		if (buffer == null)
+			return -1L;
+		return length;
+	}
+
+	/**
+	 * @return Number of bytes held by this body, on or off the heap. Strings are counted as two
+	 * bytes per character, which is their worst-case size.
+	 */
+	public long getWeight() {
+		if (buffer != null)
+			return buffer.capacity();
+		return text != null ? 2L * text.length() : 0L;
+	}
+
+	/**
+	 * @return A read-only view of the held bytes, compressed if this body is compressed,
+	 * positioned at the first byte
+	 */
+	public ByteBuffer getBytes() {
+		if (buffer != null)
+			return buffer.duplicate();
+		return ByteBuffer.wrap(toString().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Writes the held bytes to the given stream as they are, compressed if this body is
+	 * compressed. Off-heap bodies are copied to the stream in small chunks, without materializing
+	 * the whole body on the heap.
+	 *
+	 * @param outputStream Stream to write to; it is not closed
+	 *
+	 * @throws IOException If the stream cannot be written to
+	 */
+	public void writeEncodedTo(OutputStream outputStream) throws IOException {
+		if (buffer != null)
+			Channels.newChannel(outputStream).write(buffer.duplicate());
+		else if (text != null)
+			outputStream.write(text.getBytes(StandardCharsets.UTF_8));
+		outputStream.flush();
+	}
+
+	/**
+	 * Writes the uncompressed UTF-8 bytes of this body to the given stream, decompressing them
+	 * while they are written if needed.
+	 *
+	 * @param outputStream Stream to write to; it is not closed
+	 *
+	 * @throws IOException If the stream cannot be written to
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		if (!compressed) {
+			writeEncodedTo(outputStream);
+			return;
+		}
+
+		try (InputStream inputStream = new GZIPInputStream(new ByteBufferInputStream(buffer.duplicate()))) {
+			byte[] chunk = new byte[8192];
+			int read;
+			while ((read = inputStream.read(chunk)) != -1)
+				outputStream.write(chunk, 0, read);
+		}
+		outputStream.flush();
+	}
+
+	/**
+	 * @return The body as a String. Bodies held as bytes are decoded, and decompressed, on every
+	 * call.
+	 */
+	@Override
+	public String toString() {
+		if (buffer == null)
+			return text;
+		if (!compressed)
+			return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, length));
+		try {
+			writeTo(outputStream);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gzip(byte[] bytes) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 8192)) {
+			gzipStream.write(bytes);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * @param bytes UTF-8 bytes of a JSON body
+	 *
+	 * @return Weak ETag of the bytes: their quoted MD5 hex digest, skipping the value of the
+	 * top-level status member
+	 */
+	private static String getETag(byte[] bytes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException exception) {
+			throw new IllegalStateException(exception);
+		}
+
+		int[] status = findStatusValue(bytes);
+		if (status == null) {
+			digest.update(bytes);
+		} else {
+			digest.update(bytes, 0, status[0]);
+			digest.update(bytes, status[1], bytes.length - status[1]);
+		}
+
+		StringBuilder builder = new StringBuilder(36).append(WEAK_PREFIX).append('"');
+		for (byte value : digest.digest()) {
+			builder.append(Character.forDigit((value >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(value & 0xF, 16));
+		}
+		return builder.append('"').toString();
+	}
+
+	/**
+	 * Finds the value of the <code>"status"</code> member of the top-level JSON object.
+	 *
+	 * @param bytes UTF-8 bytes of a JSON body
+	 *
+	 * @return Start (inclusive) and end (exclusive) of the value, or null if there is none
+	 */
+	private static int[] findStatusValue(byte[] bytes) {
+		byte[] key = "\"status\"".getBytes(StandardCharsets.UTF_8);
+		int depth = 0;
+		int i = 0;
+
+		while (i < bytes.length) {
+			byte value = bytes[i];
+			if (value == '"') {
+				int end = skipString(bytes, i);
+				if (depth == 1 && end - i == key.length && regionMatches(bytes, i, key)) {
+					int colon = skipWhitespace(bytes, end);
+					if (colon < bytes.length && bytes[colon] == ':') {
+						int start = skipWhitespace(bytes, colon + 1);
+						return new int[] { start, skipValue(bytes, start) };
+					}
+				}
+				i = end;
+				continue;
+			}
+
+			if (value == '{' || value == '[')
+				depth++;
+			else if (value == '}' || value == ']')
+				depth--;
+			i++;
+		}
+		return null;
+	}
+
+	private static int skipValue(byte[] bytes, int start) {
+		int depth = 0;
+		int i = start;
+
+		while (i < bytes.length) {
+			byte value = bytes[i];
+			if (value == '"') {
+				i = skipString(bytes, i);
+				if (depth == 0)
+					return i;
+				continue;
+			}
+
+			if (value == '{' || value == '[') {
+				depth++;
+			} else if (value == '}' || value == ']') {
+				if (depth == 0)
+					return i;
+				if (--depth == 0)
+					return i + 1;
+			} else if (value == ',' && depth == 0) {
+				return i;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipString(byte[] bytes, int start) {
+		int i = start + 1;
+		while (i < bytes.length && bytes[i] != '"')
+			i += bytes[i] == '\\' ? 2 : 1;
+		return Math.min(bytes.length, i + 1);
+	}
+
+	private static int skipWhitespace(byte[] bytes, int start) {
+		int i = start;
+		while (i < bytes.length && (bytes[i] == ' ' || bytes[i] == '\n' || bytes[i] == '\r' || bytes[i] == '\t'))
+			i++;
+		return i;
+	}
+
+	private static boolean regionMatches(byte[] bytes, int offset, byte[] region) {
+		for (int i = 0; i < region.length; i++) {
+			if (bytes[offset + i] != region[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a buffer without copying it to the heap first.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining())
+				return -1;
+
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
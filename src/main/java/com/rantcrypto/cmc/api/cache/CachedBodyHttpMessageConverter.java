@@ -0,0 +1,127 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * <p>Writes a {@link CachedBody } returned by a controller straight to the servlet output, so
+ * bodies held as bytes are never decoded into a String. Spring Boot registers every converter bean
+ * ahead of its default converters.</p>
+ *
+ * <p>Compressed bodies are written as they are, with <code>Content-Encoding: gzip</code>, when the
+ * current request accepts gzip, and decompressed while they are written otherwise.</p>
+ */
+@Component
+public class CachedBodyHttpMessageConverter extends AbstractHttpMessageConverter<CachedBody> {
+
+	public CachedBodyHttpMessageConverter() {
+		super(MediaType.APPLICATION_JSON, MediaType.ALL);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return CachedBody.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	protected boolean canRead(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected CachedBody readInternal(Class<? extends CachedBody> clazz, HttpInputMessage inputMessage)
+			throws IOException, HttpMessageNotReadableException {
+		throw new HttpMessageNotReadableException("Cached bodies are only written", inputMessage);
+	}
+
+	@Override
+	protected void addDefaultHeaders(HttpHeaders headers, CachedBody body, MediaType contentType) throws IOException {
+		super.addDefaultHeaders(headers, body, contentType);
+
+		if (body.isCompressed()) {
+			headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			if (acceptsEncoding(getAcceptEncoding(), body.getContentEncoding())) {
+				headers.set(HttpHeaders.CONTENT_ENCODING, body.getContentEncoding());
+				headers.setContentLength(body.getWeight());
+			}
+		}
+	}
+
+	@Override
+	protected Long getContentLength(CachedBody body, MediaType contentType) {
+		return body.getLength() >= 0L ? Long.valueOf(body.getLength()) : null;
+	}
+
+	@Override
+	protected void writeInternal(CachedBody body, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		String contentEncoding = outputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+
+		if (body.isCompressed() && body.getContentEncoding().equals(contentEncoding))
+			body.writeEncodedTo(outputMessage.getBody());
+		else
+			body.writeTo(outputMessage.getBody());
+	}
+
+	/**
+	 * @param acceptEncoding Accept-Encoding header of a request, may be null
+	 * @param encoding Content coding to look for (e.g. gzip)
+	 *
+	 * @return True if the header accepts the coding with a non-zero quality, either by name or, if
+	 * it is not named, through *
+	 */
+	public static boolean acceptsEncoding(String acceptEncoding, String encoding) {
+		if (acceptEncoding == null || encoding == null)
+			return false;
+
+		Boolean wildcard = null;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			String name = parts[0].trim();
+			
+			if (name.equalsIgnoreCase(encoding))
+				return hasNonZeroQuality(parts);
+			if (name.equals("*"))
+				wildcard = hasNonZeroQuality(parts);
+		}
+		return Boolean.TRUE.equals(wildcard);
+	}
+
+	private static boolean hasNonZeroQuality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2)) > 0D;
+				} catch (NumberFormatException exception) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static String getAcceptEncoding() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (!(attributes instanceof ServletRequestAttributes))
+			return null;
+
+		HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+		return request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+	}
+}
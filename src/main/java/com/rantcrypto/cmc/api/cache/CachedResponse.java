@@ -0,0 +1,113 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+/**
+ * A successful CoinMarketCap API response held in the {@link ResponseCache }, along with the
+ * time it was stored, the time it expires, and the time until which it may still be served stale
+ * while it is refreshed (all in epoch milliseconds). The body is held on or off the heap; see
+ * {@link CachedBody }.
+ */
+public class CachedResponse {
+
+	private final CachedBody body;
+	private final long createdAt;
+	private final long expiresAt;
+	private final long staleUntil;
+	private volatile boolean read;
+
+
+	public CachedResponse(String body, long createdAt, long expiresAt) {
+		this(body, createdAt, expiresAt, expiresAt);
+	}
+
+	public CachedResponse(String body, long createdAt, long expiresAt, long staleUntil) {
+		this(CachedBody.onHeap(body), createdAt, expiresAt, staleUntil);
+	}
+
+	public CachedResponse(CachedBody body, long createdAt, long expiresAt, long staleUntil) {
+		this.body = body;
+		this.createdAt = createdAt;
+		this.expiresAt = expiresAt;
+		this.staleUntil = Math.max(expiresAt, staleUntil);
+	}
+
+	/**
+	 * @return The body as a String. Off-heap bodies are decoded on every call; prefer
+	 * {@link #getCachedBody() } to serve them.
+	 */
+	public String getBody() {
+		return body.toString();
+	}
+
+	public CachedBody getCachedBody() {
+		return body;
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public long getStaleUntil() {
+		return staleUntil;
+	}
+
+	/**
+	 * @param now Current time in epoch milliseconds
+	 *
+	 * @return True if this response is past its cache-time and should be refreshed
+	 */
+	public boolean isExpired(long now) {
+		return now >= expiresAt;
+	}
+
+	/**
+	 * @param now Current time in epoch milliseconds
+	 *
+	 * @return True if this response may still be served, fresh or stale
+	 */
+	public boolean isServable(long now) {
+		return now < staleUntil;
+	}
+
+	/**
+	 * Marks this response as having been served at least once.
+	 */
+	public void markRead() {
+		this.read = true;
+	}
+
+	/**
+	 * @return True if this response has been served from the cache at least once
+	 */
+	public boolean wasRead() {
+		return read;
+	}
+
+	/**
+	 * @param compressed Whether the body should be held gzip compressed
+	 * @param offHeap Whether the body should be held in a direct buffer
+	 *
+	 * @return This response, or a copy of it with its body held as requested
+	 */
+	public CachedResponse withBodyHeld(boolean compressed, boolean offHeap) {
+		CachedBody heldBody = body.hold(compressed, offHeap);
+		if (heldBody == body)
+			return this;
+		return new CachedResponse(heldBody, createdAt, expiresAt, staleUntil);
+	}
+
+	/**
+	 * Approximate number of bytes held by this response, on or off the heap. Java strings are 
+	 * counted as two bytes per character, which is their worst-case size.
+	 *
+	 * @return Approximate size in bytes
+	 */
+	public long getWeight() {
+		return 32L + body.getWeight();
+	}
+}
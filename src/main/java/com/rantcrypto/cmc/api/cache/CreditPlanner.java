@@ -0,0 +1,310 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <p>Plans upstream requests of multi-id endpoints along their credit boundaries. The CoinMarketCap
+ * API charges bundled endpoints per started block of ids (1 credit per 100 on /cryptocurrency/info
+ * and /cryptocurrency/quotes/latest, 1 per 200 on /cryptocurrency/listings/latest), so a request
+ * for 101 ids costs as much as one for 200. The planner pads such a request with up to 99 ids
+ * that were recently requested with the same other parameters, preferring those whose cached
+ * entities expire first. Their entities are refreshed without any extra credits, and later
+ * requests for them are served from cache.</p>
+ *
+ * <p>Batches are merged by {@link RequestBatcher }, whose <code>batch.max-ids</code> should be a
+ * multiple of the credit block. In dry-run mode, requests are planned and reported but sent
+ * without padding. The most recent plans are kept for {@link #getPlans() }, and every plan is
+ * logged at debug level.</p>
+ *
+ * <p>Counts are published as <code>cmc.packing.credits</code> (credits used by planned requests)
+ * and <code>cmc.packing.ids</code>, tagged <code>kind=requested</code> or <code>kind=padded</code>.</p>
+ */
+@Component
+public class CreditPlanner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CreditPlanner.class);
+	private static final int MAX_GROUPS = 100;
+	private static final int MAX_PLANS = 100;
+
+	@Value("${com.rantcrypto.cmc.api.v1.packing.enabled:false}")
+	private Boolean PACKING_ENABLED;
+
+	@Value("${com.rantcrypto.cmc.api.v1.packing.dry-run:false}")
+	private Boolean PACKING_DRY_RUN;
+
+	@Value("${com.rantcrypto.cmc.api.v1.packing.recent-ids:1000}")
+	private Integer PACKING_RECENT_IDS;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final Map<CacheKey, LinkedHashMap<String, Boolean>> recentIds = new LinkedHashMap<CacheKey, LinkedHashMap<String, Boolean>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CacheKey, LinkedHashMap<String, Boolean>> eldest) {
+			return size() > MAX_GROUPS;
+		}
+	};
+	private final Deque<CreditPlan> plans = new ArrayDeque<CreditPlan>();
+
+	private final LongAdder creditCount = new LongAdder();
+	private final LongAdder requestedCount = new LongAdder();
+	private final LongAdder paddedCount = new LongAdder();
+
+
+	@PostConstruct
+	public void init() {
+		if (meterRegistry != null) {
+			FunctionCounter.builder("cmc.packing.credits", creditCount, LongAdder::sum)
+					.description("Credits used by requests planned along credit boundaries")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.packing.ids", requestedCount, LongAdder::sum)
+					.tag("kind", "requested")
+					.description("Ids requested by planned requests")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.packing.ids", paddedCount, LongAdder::sum)
+					.tag("kind", "padded")
+					.description("Ids added to planned requests to fill their last credit")
+					.register(meterRegistry);
+		}
+	}
+
+	/**
+	 * @return True if requests are planned along credit boundaries
+	 */
+	public boolean isEnabled() {
+		return Boolean.TRUE.equals(PACKING_ENABLED);
+	}
+
+	/**
+	 * @return True if plans are only reported, and requests are sent without padding
+	 */
+	public boolean isDryRun() {
+		return Boolean.TRUE.equals(PACKING_DRY_RUN);
+	}
+
+	/**
+	 * Remembers ids that were successfully requested with the given other parameters, as
+	 * candidates to pad later requests with.
+	 *
+	 * @param groupKey Key of the request without its ids
+	 * @param ids Ids that were answered
+	 */
+	public void touch(CacheKey groupKey, List<String> ids) {
+		int maxIds = PACKING_RECENT_IDS != null && PACKING_RECENT_IDS > 0 ? PACKING_RECENT_IDS : 1000;
+		synchronized (recentIds) {
+			LinkedHashMap<String, Boolean> group = recentIds.get(groupKey);
+			if (group == null) {
+				group = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+				recentIds.put(groupKey, group);
+			}
+			for (String id : ids)
+				group.put(id, Boolean.TRUE);
+
+			while (group.size() > maxIds)
+				group.remove(group.keySet().iterator().next());
+		}
+	}
+
+	/**
+	 * Stops padding requests with the given ids, e.g. after a request they padded failed.
+	 *
+	 * @param groupKey Key of the request without its ids
+	 * @param ids Ids to forget
+	 */
+	public void forget(CacheKey groupKey, List<String> ids) {
+		synchronized (recentIds) {
+			LinkedHashMap<String, Boolean> group = recentIds.get(groupKey);
+			if (group != null)
+				group.keySet().removeAll(ids);
+		}
+	}
+
+	/**
+	 * Plans the upstream request for the given ids.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param groupKey Key of the request without its ids
+	 * @param ids Ids that have to be requested
+	 * @param converts Number of convert options of the request
+	 * @param expiresAt Time the cached entity of an id expires at, in epoch milliseconds, 0 if it
+	 * is not cached
+	 *
+	 * @return Ids to request: the given ids, followed by the ids padding the last credit unless
+	 * this is a dry run
+	 */
+	public List<String> plan(String endpoint, CacheKey groupKey, List<String> ids, int converts, ToLongFunction<String> expiresAt) {
+		int blockSize = getBlockSize(endpoint);
+		long credits = getCredits(endpoint, ids.size(), converts);
+		int freeIds = (ids.size() + blockSize - 1) / blockSize * blockSize - ids.size();
+
+		List<String> padding = new ArrayList<String>();
+		if (freeIds > 0) {
+			Set<String> requested = new HashSet<String>(ids);
+			List<String> candidates = new ArrayList<String>();
+			synchronized (recentIds) {
+				LinkedHashMap<String, Boolean> group = recentIds.get(groupKey);
+				if (group != null) {
+					for (String id : group.keySet()) {
+						if (!requested.contains(id))
+							candidates.add(id);
+					}
+				}
+			}
+
+			// the entities expiring first, then the most recently requested (the sort is stable)
+			List<String> byRecency = new ArrayList<String>(candidates.size());
+			for (int i = candidates.size() - 1; i >= 0; i--)
+				byRecency.add(candidates.get(i));
+			byRecency.sort(Comparator.comparingLong(expiresAt));
+			padding.addAll(byRecency.subList(0, Math.min(freeIds, byRecency.size())));
+		}
+
+		CreditPlan plan = new CreditPlan(endpoint, ids.size(), padding.size(), credits, isDryRun());
+		record(plan);
+		if (isDryRun() || padding.isEmpty())
+			return ids;
+
+		List<String> plannedIds = new ArrayList<String>(ids);
+		plannedIds.addAll(padding);
+		return plannedIds;
+	}
+
+	/**
+	 * @return The most recent plans, oldest first
+	 */
+	public List<CreditPlan> getPlans() {
+		synchronized (plans) {
+			return new ArrayList<CreditPlan>(plans);
+		}
+	}
+
+	/**
+	 * @return Credits used by planned requests
+	 */
+	public long getCreditCount() {
+		return creditCount.sum();
+	}
+
+	/**
+	 * @return Ids added to planned requests to fill their last credit
+	 */
+	public long getPaddedCount() {
+		return paddedCount.sum();
+	}
+
+	/**
+	 * Estimates the credits a request costs under the CoinMarketCap API's published rates.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param count Number of ids (or listed entries) requested
+	 * @param converts Number of convert options
+	 *
+	 * @return Credits of the request
+	 */
+	public static long getCredits(String endpoint, int count, int converts) {
+		int blockSize = getBlockSize(endpoint);
+		long blocks = Math.max(1L, (count + blockSize - 1L) / blockSize);
+		return blocks + Math.max(0, converts - 1);
+	}
+
+	/**
+	 * @return Number of ids or entries covered by one credit of the endpoint
+	 */
+	private static int getBlockSize(String endpoint) {
+		return endpoint.endsWith("/listings/latest") && endpoint.contains("/cryptocurrency/") ? 200 : 100;
+	}
+
+	private void record(CreditPlan plan) {
+		creditCount.add(plan.getCredits());
+		requestedCount.add(plan.getRequestedIds());
+		if (!plan.isDryRun())
+			paddedCount.add(plan.getPaddedIds());
+
+		synchronized (plans) {
+			plans.addLast(plan);
+			if (plans.size() > MAX_PLANS)
+				plans.removeFirst();
+		}
+		LOGGER.debug("{}", plan);
+	}
+
+	/**
+	 * Planned cost of one upstream request.
+	 */
+	public static final class CreditPlan {
+
+		private final String endpoint;
+		private final int requestedIds;
+		private final int paddedIds;
+		private final long credits;
+		private final boolean dryRun;
+
+		private CreditPlan(String endpoint, int requestedIds, int paddedIds, long credits, boolean dryRun) {
+			this.endpoint = endpoint;
+			this.requestedIds = requestedIds;
+			this.paddedIds = paddedIds;
+			this.credits = credits;
+			this.dryRun = dryRun;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * @return Number of ids that had to be requested
+		 */
+		public int getRequestedIds() {
+			return requestedIds;
+		}
+
+		/**
+		 * @return Number of ids padding the last credit, planned but not sent in a dry run
+		 */
+		public int getPaddedIds() {
+			return paddedIds;
+		}
+
+		/**
+		 * @return Credits of the request, the same with or without its padding
+		 */
+		public long getCredits() {
+			return credits;
+		}
+
+		public boolean isDryRun() {
+			return dryRun;
+		}
+
+		@Override
+		public String toString() {
+			return (dryRun ? "Dry run: " : "") + endpoint + " for " + requestedIds + " ids costs " + credits
+					+ " credits, padded with " + paddedIds + " recent ids";
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A response of a multi-id endpoint (e.g. /cryptocurrency/info), split into the JSON of each
+ * entity in its <code>data</code> object. Entities are cached separately, so a request can be
+ * assembled from entities cached by other requests that overlap with it.
+ */
+public final class EntityResponse {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final String status;
+	private final Map<String, String> entities;
+
+
+	private EntityResponse(String status, Map<String, String> entities) {
+		this.status = status;
+		this.entities = entities;
+	}
+
+	/**
+	 * Splits a successful response whose <code>data</code> object is keyed by id.
+	 *
+	 * @param body JSON response
+	 *
+	 * @return The split response, or null if its data is not an object
+	 *
+	 * @throws IOException If the body is not JSON
+	 */
+	public static EntityResponse parse(String body) throws IOException {
+		JsonNode root = OBJECT_MAPPER.readTree(body);
+		JsonNode data = root.path("data");
+		if (!data.isObject())
+			return null;
+
+		Map<String, String> entities = new LinkedHashMap<String, String>();
+		Iterator<Map.Entry<String, JsonNode>> fields = data.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			entities.put(field.getKey(), OBJECT_MAPPER.writeValueAsString(field.getValue()));
+		}
+
+		JsonNode status = root.get("status");
+		return new EntityResponse(status != null ? OBJECT_MAPPER.writeValueAsString(status) : null, entities);
+	}
+
+	/**
+	 * Assembles a response from the JSON of its entities.
+	 *
+	 * @param status JSON of the status object, or null for a status without any credits used
+	 * @param ids Ids to write, in order; ids without an entity are left out
+	 * @param entities JSON of each entity by id
+	 *
+	 * @return JSON response
+	 */
+	public static String assemble(String status, Collection<String> ids, Map<String, String> entities) {
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer);
+			generator.writeStartObject();
+			generator.writeFieldName("status");
+			if (status != null) {
+				generator.writeRawValue(status);
+			} else {
+				generator.writeStartObject();
+				generator.writeStringField("timestamp", Instant.ofEpochMilli(System.currentTimeMillis()).toString());
+				generator.writeNumberField("error_code", 0);
+				generator.writeNullField("error_message");
+				generator.writeNumberField("elapsed", 0);
+				generator.writeNumberField("credit_count", 0);
+				generator.writeNullField("notice");
+				generator.writeEndObject();
+			}
+
+			generator.writeObjectFieldStart("data");
+			for (String id : ids) {
+				String entity = entities.get(id);
+				if (entity != null) {
+					generator.writeFieldName(id);
+					generator.writeRawValue(entity);
+				}
+			}
+			generator.writeEndObject();
+			generator.writeEndObject();
+			generator.close();
+			return writer.toString();
+		} catch (IOException exception) {
+			throw new IllegalStateException("Entity response could not be written", exception);
+		}
+	}
+
+	/**
+	 * @return JSON of the status object, or null if the response had none
+	 */
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return JSON of each entity by id, in response order
+	 */
+	public Map<String, String> getEntities() {
+		return entities;
+	}
+}
@@ -0,0 +1,107 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <p>Coalesces identical concurrent requests to the CoinMarketCap API. The first request for a
+ * key is sent upstream; requests for the same key that arrive while it is still in flight wait
+ * for it and receive its result instead of sending their own.</p>
+ *
+ * <p>Counts are published as <code>cmc.upstream.requests</code> (requests that were sent) and
+ * <code>cmc.upstream.coalesced</code> (requests that shared another request's result).</p>
+ */
+@Component
+public class InFlightRequests {
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<CacheKey, CompletableFuture<Object>> inFlight =
+			new ConcurrentHashMap<CacheKey, CompletableFuture<Object>>();
+
+	private final LongAdder sentCount = new LongAdder();
+	private final LongAdder coalescedCount = new LongAdder();
+
+
+	@PostConstruct
+	public void init() {
+		if (meterRegistry != null) {
+			FunctionCounter.builder("cmc.upstream.requests", sentCount, LongAdder::sum)
+					.description("Requests sent to the CoinMarketCap API")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.upstream.coalesced", coalescedCount, LongAdder::sum)
+					.description("Requests that shared the result of an identical in-flight request")
+					.register(meterRegistry);
+		}
+	}
+
+	/**
+	 * Runs the request for the given key, unless an identical request is already in flight, in
+	 * which case this waits for and returns that request's result. Exceptions thrown by the
+	 * request are rethrown to every caller that waited on it.
+	 *
+	 * @param key Key of the request
+	 * @param request Sends the request upstream
+	 *
+	 * @return Result of the request
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(CacheKey key, Supplier<T> request) {
+		CompletableFuture<Object> future = new CompletableFuture<Object>();
+		CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+
+		if (existing != null) {
+			coalescedCount.increment();
+			try {
+				return (T) existing.join();
+			} catch (CompletionException exception) {
+				if (exception.getCause() instanceof RuntimeException)
+					throw (RuntimeException) exception.getCause();
+				if (exception.getCause() instanceof Error)
+					throw (Error) exception.getCause();
+				throw exception;
+			}
+		}
+
+		sentCount.increment();
+		try {
+			T result = request.get();
+			future.complete(result);
+			return result;
+		} catch (RuntimeException | Error exception) {
+			future.completeExceptionally(exception);
+			throw exception;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * @return Number of requests that were sent upstream
+	 */
+	public long getSentCount() {
+		return sentCount.sum();
+	}
+
+	/**
+	 * @return Number of requests that shared the result of an identical in-flight request
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.sum();
+	}
+}
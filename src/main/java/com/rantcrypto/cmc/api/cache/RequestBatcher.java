@@ -0,0 +1,195 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <p>Merges concurrent requests for different ids of a multi-id endpoint into one upstream
+ * request. The first request for a key opens a batch and waits for the batch window; requests
+ * for the same key that arrive within the window add their ids to the batch and wait for its
+ * result. The batch is sent early once it holds <code>batch.max-ids</code> ids.</p>
+ *
+ * <p>Requests whose batch fails (e.g. because another request's id is invalid) are sent again on
+ * their own, so a request never fails because of the ids of another.</p>
+ *
+ * <p>Counts are published as <code>cmc.upstream.batches</code> (batched requests that were sent)
+ * and <code>cmc.upstream.batched</code> (requests that joined another request's batch).</p>
+ */
+@Component
+public class RequestBatcher {
+
+	@Value("${com.rantcrypto.cmc.api.v1.batch.max-ids:100}")
+	private Integer BATCH_MAX_IDS;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<CacheKey, Batch> openBatches = new ConcurrentHashMap<CacheKey, Batch>();
+
+	private final LongAdder batchCount = new LongAdder();
+	private final LongAdder batchedCount = new LongAdder();
+
+
+	@PostConstruct
+	public void init() {
+		if (meterRegistry != null) {
+			FunctionCounter.builder("cmc.upstream.batches", batchCount, LongAdder::sum)
+					.description("Batched requests sent to the CoinMarketCap API")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.upstream.batched", batchedCount, LongAdder::sum)
+					.description("Requests that joined the batch of another request")
+					.register(meterRegistry);
+		}
+	}
+
+	/**
+	 * Adds the ids to the open batch for the key, or opens one, and returns the result of the
+	 * batch once it has been sent. Exceptions thrown by the request are rethrown to every caller
+	 * of the batch.
+	 *
+	 * @param key Key of the request without its ids; only requests with equal keys are merged
+	 * @param ids Ids of this request
+	 * @param windowMillis Milliseconds to wait for other requests before the batch is sent; below
+	 * 1, the request is sent right away
+	 * @param request Sends the request for the given ids upstream
+	 * @param failed Tests whether a result failed, in which case a request that shared its batch
+	 * is sent again on its own
+	 *
+	 * @return Result of the request for every id in the batch
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(CacheKey key, Collection<String> ids, long windowMillis, Function<List<String>, T> request,
+			Predicate<T> failed) {
+		if (windowMillis < 1L)
+			return request.apply(new ArrayList<String>(ids));
+
+		Batch batch;
+		boolean leader;
+		while (true) {
+			Batch newBatch = new Batch();
+			Batch existing = openBatches.putIfAbsent(key, newBatch);
+			batch = existing != null ? existing : newBatch;
+			leader = existing == null;
+
+			synchronized (batch) {
+				if (!batch.closed && (leader || batch.fits(ids, getMaxIds()))) {
+					batch.ids.addAll(ids);
+					batch.callers++;
+					if (batch.ids.size() >= getMaxIds())
+						batch.close(openBatches, key);
+					break;
+				}
+				// the open batch has no room left, so it is sent now and a new one is opened
+				batch.close(openBatches, key);
+			}
+		}
+
+		if (!leader) {
+			batchedCount.increment();
+			T result;
+			try {
+				result = (T) batch.result.join();
+			} catch (CompletionException exception) {
+				if (exception.getCause() instanceof RuntimeException)
+					throw (RuntimeException) exception.getCause();
+				if (exception.getCause() instanceof Error)
+					throw (Error) exception.getCause();
+				throw exception;
+			}
+			return failed.test(result) ? request.apply(new ArrayList<String>(ids)) : result;
+		}
+
+		try {
+			batch.full.await(windowMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+
+		List<String> batchIds;
+		boolean shared;
+		synchronized (batch) {
+			batch.close(openBatches, key);
+			batchIds = new ArrayList<String>(batch.ids);
+			shared = batch.callers > 1;
+		}
+
+		batchCount.increment();
+		T result;
+		try {
+			result = request.apply(batchIds);
+			batch.result.complete(result);
+		} catch (RuntimeException | Error exception) {
+			batch.result.completeExceptionally(exception);
+			throw exception;
+		}
+		return shared && failed.test(result) ? request.apply(new ArrayList<String>(ids)) : result;
+	}
+
+	/**
+	 * @return Number of batched requests that were sent upstream
+	 */
+	public long getBatchCount() {
+		return batchCount.sum();
+	}
+
+	/**
+	 * @return Number of requests that joined the batch of another request
+	 */
+	public long getBatchedCount() {
+		return batchedCount.sum();
+	}
+
+	private int getMaxIds() {
+		return BATCH_MAX_IDS != null && BATCH_MAX_IDS > 0 ? BATCH_MAX_IDS : 100;
+	}
+
+	/**
+	 * Ids collected for one upstream request. Guarded by its own lock.
+	 */
+	private static final class Batch {
+
+		private final Set<String> ids = new LinkedHashSet<String>();
+		private final CountDownLatch full = new CountDownLatch(1);
+		private final CompletableFuture<Object> result = new CompletableFuture<Object>();
+		private int callers;
+		private boolean closed;
+
+		private boolean fits(Collection<String> newIds, int maxIds) {
+			int size = ids.size();
+			for (String id : newIds) {
+				if (!ids.contains(id))
+					size++;
+			}
+			return size <= maxIds;
+		}
+
+		private void close(ConcurrentMap<CacheKey, Batch> openBatches, CacheKey key) {
+			closed = true;
+			openBatches.remove(key, this);
+			full.countDown();
+		}
+	}
+}
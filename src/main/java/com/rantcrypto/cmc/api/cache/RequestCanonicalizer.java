@@ -0,0 +1,134 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Rewrites the query parameters of a request into a canonical form, so that requests the
+ * CoinMarketCap API answers identically share one cache entry and one in-flight call.
+ *
+ * <p>Parameters are sorted by name and empty values are dropped. Comma-separated lists whose order
+ * does not change the response (ids, slugs, symbols, convert options, aux fields, ...) are trimmed,
+ * deduplicated and sorted, and slugs are lowercased. Parameters equal to their documented default
+ * are dropped. Defaults are only known for the default endpoint paths; requests to other
+ * endpoints keep every parameter.</p>
+ *
+ * <p>Symbols and convert options keep their case, because responses are keyed by them as they
+ * were requested.</p>
+ */
+public final class RequestCanonicalizer {
+
+	private static final TreeSet<String> LIST_PARAMS = new TreeSet<String>(Arrays.asList(
+			"id", "slug", "symbol", "convert", "convert_id", "aux", "matched_id", "matched_symbol",
+			"listing_status", "time_period"));
+
+	private static final Map<String, String> GLOBAL_DEFAULTS = new HashMap<String, String>();
+	private static final Map<String, Map<String, String>> ENDPOINT_DEFAULTS = new HashMap<String, Map<String, String>>();
+
+	static {
+		GLOBAL_DEFAULTS.put("start", "1");
+		GLOBAL_DEFAULTS.put("convert", "USD");
+		GLOBAL_DEFAULTS.put("skip_invalid", "false");
+
+		defaults("/v1/cryptocurrency/map", "listing_status", "active", "sort", "id",
+				"aux", "platform,first_historical_data,last_historical_data,is_active");
+		defaults("/v1/cryptocurrency/info",
+				"aux", "urls,logo,description,tags,platform,date_added,notice");
+		defaults("/v1/cryptocurrency/listings/latest", "limit", "100", "sort", "market_cap",
+				"cryptocurrency_type", "all", "tag", "all",
+				"aux", "num_market_pairs,cmc_rank,date_added,tags,platform,max_supply,circulating_supply,total_supply");
+		defaults("/v1/cryptocurrency/listings/historical", "sort", "cmc_rank", "cryptocurrency_type", "all",
+				"aux", "num_market_pairs,cmc_rank,date_added,tags,platform,max_supply,circulating_supply,total_supply");
+		defaults("/v1/cryptocurrency/quotes/latest",
+				"aux", "num_market_pairs,cmc_rank,date_added,tags,platform,max_supply,circulating_supply,total_supply,is_active,is_fiat");
+		defaults("/v1/cryptocurrency/quotes/historical", "interval", "5m",
+				"aux", "price,volume,market_cap,quote_timestamp,is_active,is_fiat");
+		defaults("/v1/cryptocurrency/market-pairs/latest", "limit", "100", "sort_dir", "desc", "sort", "volume_24h_strict",
+				"category", "all", "fee_type", "all", "aux", "num_market_pairs,category,fee_type");
+		defaults("/v1/cryptocurrency/ohlcv/historical", "time_period", "daily", "count", "10", "interval", "daily");
+		defaults("/v1/cryptocurrency/price-performance-stats/latest", "time_period", "all_time");
+		defaults("/v1/exchange/map", "listing_status", "active", "sort", "id",
+				"aux", "first_historical_data,last_historical_data,is_active");
+		defaults("/v1/exchange/info", "aux", "urls,logo,description,date_launched,notice");
+		defaults("/v1/exchange/listings/latest", "limit", "100", "sort", "volume_24h", "market_type", "all",
+				"aux", "num_market_pairs");
+		defaults("/v1/exchange/market-pairs/latest", "limit", "100", "category", "all", "fee_type", "all",
+				"aux", "num_market_pairs,category,fee_type");
+		defaults("/v1/fiat/map", "sort", "id", "include_metals", "false");
+		defaults("/v1/global-metrics/quotes/historical", "count", "10", "interval", "1d",
+				"aux", "btc_dominance,active_cryptocurrencies,active_exchanges,active_market_pairs,total_volume_24h,"
+						+ "total_volume_24h_reported,altcoin_market_cap,altcoin_volume_24h,altcoin_volume_24h_reported");
+		defaults("/v1/partners/flipside-crypto/fcas/listings/latest", "limit", "100",
+				"aux", "point_change_24h,percent_change_24h");
+		defaults("/v1/partners/flipside-crypto/fcas/quotes/latest", "aux", "point_change_24h,percent_change_24h");
+	}
+
+
+	private RequestCanonicalizer() {
+	}
+
+	/**
+	 * Canonicalizes the query parameters of a request to the given endpoint. The parameters are
+	 * returned in name order, so the query string built from them is always the same.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters, may be null
+	 *
+	 * @return Canonical query parameters, null if paramMap is null
+	 */
+	public static LinkedHashMap<String, String> canonicalize(String endpoint, Map<String, String> paramMap) {
+		if (paramMap == null)
+			return null;
+
+		Map<String, String> endpointDefaults = ENDPOINT_DEFAULTS.get(endpoint);
+		TreeMap<String, String> sortedParams = new TreeMap<String, String>();
+		for (Map.Entry<String, String> entry : paramMap.entrySet()) {
+			String key = entry.getKey();
+			String value = entry.getValue();
+			if (key == null || key.isEmpty() || value == null || value.isEmpty())
+				continue;
+
+			if (LIST_PARAMS.contains(key))
+				value = canonicalizeList(key, value);
+			if (value.isEmpty() || value.equals(GLOBAL_DEFAULTS.get(key))
+					|| (endpointDefaults != null && value.equals(endpointDefaults.get(key))))
+				continue;
+			sortedParams.put(key, value);
+		}
+		return new LinkedHashMap<String, String>(sortedParams);
+	}
+
+	/**
+	 * @return The trimmed, deduplicated and sorted items of a comma-separated list
+	 */
+	private static String canonicalizeList(String key, String value) {
+		TreeSet<String> items = new TreeSet<String>();
+		for (String item : value.split(",")) {
+			String trimmed = item.trim();
+			if (trimmed.isEmpty())
+				continue;
+			items.add(key.equals("slug") || key.equals("aux") || key.equals("listing_status")
+					? trimmed.toLowerCase(Locale.ROOT) : trimmed);
+		}
+		return String.join(",", items);
+	}
+
+	/**
+	 * Registers the documented defaults of an endpoint, given as parameter name and value pairs.
+	 */
+	private static void defaults(String endpoint, String... pairs) {
+		Map<String, String> endpointDefaults = new HashMap<String, String>();
+		for (int i = 0; i < pairs.length; i += 2) {
+			String key = pairs[i];
+			endpointDefaults.put(key, LIST_PARAMS.contains(key) ? canonicalizeList(key, pairs[i + 1]) : pairs[i + 1]);
+		}
+		ENDPOINT_DEFAULTS.put(endpoint, endpointDefaults);
+	}
+}
@@ -0,0 +1,407 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * <p>In-process cache of successful CoinMarketCap API responses, shared by all services. Each
+ * entry is fresh for the <code>cache-time</code> of the endpoint it came from, then may be served
+ * stale for the endpoint's <code>stale-time</code> while it is refreshed in the background.</p>
+ *
+ * <p>The cache is bounded by the approximate number of bytes its responses hold
+ * (<code>com.rantcrypto.cmc.api.v1.cache.max-bytes</code>), not by the number of responses. When it
+ * is full, Caffeine's W-TinyLFU policy decides what to keep: a new response is only admitted if it
+ * has been requested more often than the response it would replace. A burst of large, one-off
+ * requests (e.g. historical queries) therefore cannot push out hot listings and quotes.</p>
+ *
+ * <p>Hit, miss and eviction counters are published as the <code>cmc.response</code> cache metrics
+ * (e.g. /actuator/metrics/cache.gets). Evictions by cause, responses rejected before they were ever
+ * read, and the bytes held are published as <code>cmc.response.evictions</code>,
+ * <code>cmc.response.rejections</code> and <code>cmc.response.bytes</code>.</p>
+ *
+ * <p>With <code>com.rantcrypto.cmc.api.v1.cache.off-heap=true</code>, response bodies are moved into
+ * direct buffers as they are cached, so only small index entries stay on the heap. The byte limit
+ * then applies to the direct buffers, which are published with the JVM's other buffer pools as
+ * <code>jvm.buffer.memory.used{id=direct}</code>.</p>
+ *
+ * <p>Response bodies are gzip compressed once, as they are cached, unless
+ * <code>com.rantcrypto.cmc.api.v1.cache.gzip=false</code>. The byte limit applies to the compressed
+ * bodies.</p>
+ *
+ * <p>If a {@link SegmentStore } is configured, the cache has two tiers. The memory tier described
+ * above holds the hot responses, and the much larger disk tier holds every cached response in
+ * memory-mapped segment files. The disk tier is write-through: every response is written to both
+ * tiers as it is cached, so a restarted instance serves from the disk tier right away. A memory
+ * miss is looked up on disk. A response read from disk
+ * <code>com.rantcrypto.cmc.api.v1.cache.disk.promote-reads</code> times is promoted to the memory
+ * tier. Since the disk already holds what memory evicts, an evicted response is only written to
+ * disk again if the disk has dropped it since (with its oldest segment, over the size limit); only
+ * these rewrites are counted as demotions, so the demotion count stays near zero while the disk
+ * tier keeps up. Per-tier hits are published as
+ * <code>cmc.response.tier.hits{tier=memory|disk}</code> and misses in both tiers as
+ * <code>cmc.response.tier.misses</code>.</p>
+ */
+@Component
+public class ResponseCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+	public static final String CACHE_NAME = "cmc.response";
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.max-bytes:67108864}")
+	private Long CACHE_MAX_BYTES;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.off-heap:false}")
+	private Boolean CACHE_OFF_HEAP = false;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.gzip:true}")
+	private Boolean CACHE_GZIP = true;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.disk.promote-reads:2}")
+	private Integer CACHE_DISK_PROMOTE_READS = 2;
+
+	@Autowired(required = false)
+	private SegmentStore segmentStore;
+
+	private Cache<CacheKey, CachedResponse> cache;
+
+	private final LongAdder sizeEvictionCount = new LongAdder();
+	private final LongAdder expiredEvictionCount = new LongAdder();
+	private final LongAdder rejectionCount = new LongAdder();
+	private final LongAdder evictedBytes = new LongAdder();
+	private final LongAdder memoryHitCount = new LongAdder();
+	private final LongAdder diskHitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder promotionCount = new LongAdder();
+	private final LongAdder demotionCount = new LongAdder();
+
+
+	@PostConstruct
+	public void init() {
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(CACHE_MAX_BYTES)
+				.weigher((CacheKey key, CachedResponse response) -> getWeight(key, response))
+				.expireAfter(new ResponseExpiry())
+				.removalListener((CacheKey key, CachedResponse response, RemovalCause cause) -> 
+						this.onRemoval(key, response, cause))
+				.recordStats()
+				.build();
+
+		if (isTiered())
+			LOGGER.info("Serving {} cached responses from disk", segmentStore.getSize());
+
+		if (meterRegistry != null) {
+			CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+			
+			FunctionCounter.builder(CACHE_NAME + ".evictions", sizeEvictionCount, LongAdder::sum)
+					.tag("cause", "size")
+					.description("Responses evicted to stay within the byte limit")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".evictions", expiredEvictionCount, LongAdder::sum)
+					.tag("cause", "expired")
+					.description("Responses removed after their cache-time and stale-time passed")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".rejections", rejectionCount, LongAdder::sum)
+					.description("Responses evicted for size before they were ever read")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".evicted.bytes", evictedBytes, LongAdder::sum)
+					.description("Bytes evicted to stay within the byte limit")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".tier.hits", memoryHitCount, LongAdder::sum)
+					.tag("tier", "memory")
+					.description("Responses served from the memory tier")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".tier.hits", diskHitCount, LongAdder::sum)
+					.tag("tier", "disk")
+					.description("Responses served from the disk tier after a memory miss")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".tier.misses", missCount, LongAdder::sum)
+					.description("Lookups that missed every tier")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".tier.promotions", promotionCount, LongAdder::sum)
+					.description("Responses promoted from the disk tier to the memory tier")
+					.register(meterRegistry);
+			FunctionCounter.builder(CACHE_NAME + ".tier.demotions", demotionCount, LongAdder::sum)
+					.description("Responses evicted from memory and written again to a disk tier that had dropped them")
+					.register(meterRegistry);
+			Gauge.builder(CACHE_NAME + ".tier.hit.ratio", this, cache -> cache.getHitRate(false))
+					.tag("tier", "memory")
+					.description("Share of lookups served from the memory tier")
+					.register(meterRegistry);
+			Gauge.builder(CACHE_NAME + ".tier.hit.ratio", this, cache -> cache.getHitRate(true))
+					.tag("tier", "disk")
+					.description("Share of memory misses served from the disk tier")
+					.register(meterRegistry);
+			if (isTiered()) {
+				Gauge.builder(CACHE_NAME + ".disk.bytes", segmentStore, SegmentStore::getLiveBytes)
+						.description("Bytes held by live records in the disk tier")
+						.register(meterRegistry);
+				FunctionCounter.builder(CACHE_NAME + ".disk.compactions", segmentStore, SegmentStore::getCompactionCount)
+						.description("Disk segments compacted")
+						.register(meterRegistry);
+			}
+			Gauge.builder(CACHE_NAME + ".bytes", this, ResponseCache::getWeightedSize)
+					.tag("area", CACHE_OFF_HEAP ? "nonheap" : "heap")
+					.description("Approximate bytes held by cached responses")
+					.register(meterRegistry);
+		}
+	}
+
+	/**
+	 * Returns the cached response for the key if it may still be served. The response may be 
+	 * stale; check {@link CachedResponse#isExpired(long) } to decide whether to refresh it.
+	 * 
+	 * @param key Key of the request
+	 *
+	 * @return The cached response, or null if there is no servable response for the key
+	 */
+	public CachedResponse get(CacheKey key) {
+		CachedResponse response = cache.getIfPresent(key);
+		if (response != null && response.isServable(System.currentTimeMillis())) {
+			memoryHitCount.increment();
+			response.markRead();
+			return response;
+		}
+
+		response = isTiered() ? segmentStore.get(key) : null;
+		if (response == null) {
+			missCount.increment();
+			return null;
+		}
+
+		diskHitCount.increment();
+		if (segmentStore.getReadCount(key) >= CACHE_DISK_PROMOTE_READS) {
+			CachedResponse promotedResponse = response.withBodyHeld(CACHE_GZIP, CACHE_OFF_HEAP);
+			promotedResponse.markRead();
+			cache.put(key, promotedResponse);
+			promotionCount.increment();
+		}
+		return response;
+	}
+
+	/**
+	 * Returns the response held in memory for the key, without counting a hit or a miss and
+	 * without consulting the disk tier.
+	 *
+	 * @param key Key of the request
+	 *
+	 * @return The cached response, or null if memory holds no servable response for the key
+	 */
+	public CachedResponse peek(CacheKey key) {
+		CachedResponse response = cache.policy().getIfPresentQuietly(key);
+		return response != null && response.isServable(System.currentTimeMillis()) ? response : null;
+	}
+
+	/**
+	 * Caches the response, compressing its body and moving it off the heap first if the cache is
+	 * configured to do so. If the cache has a disk tier, the response is written to it as well.
+	 * 
+	 * @param key Key of the request
+	 * @param response Successful response to cache until it can no longer be served stale
+	 */
+	public void put(CacheKey key, CachedResponse response) {
+		CachedResponse heldResponse = response.withBodyHeld(CACHE_GZIP, CACHE_OFF_HEAP);
+		
+		if (isTiered())
+			segmentStore.append(key, heldResponse);
+		cache.put(key, heldResponse);
+	}
+
+	/**
+	 * @return True if the cache has a disk tier
+	 */
+	public boolean isTiered() {
+		return segmentStore != null && segmentStore.isEnabled();
+	}
+
+	/**
+	 * @param disk False for the memory tier, true for the disk tier
+	 * 
+	 * @return Share of lookups served by the memory tier, or share of memory misses served by the 
+	 * disk tier, between 0 and 1
+	 */
+	public double getHitRate(boolean disk) {
+		long memoryHits = memoryHitCount.sum();
+		long diskHits = diskHitCount.sum();
+		long misses = missCount.sum();
+		
+		long lookups = disk ? diskHits + misses : memoryHits + diskHits + misses;
+		return lookups == 0L ? 0D : (double) (disk ? diskHits : memoryHits) / lookups;
+	}
+
+	/**
+	 * @return Number of responses promoted from the disk tier to the memory tier
+	 */
+	public long getPromotionCount() {
+		return promotionCount.sum();
+	}
+
+	/**
+	 * @return Number of responses evicted from memory that were written to the disk tier again,
+	 * because it no longer held them. Responses the disk tier still held are not counted, since
+	 * they were written to it when they were cached.
+	 */
+	public long getDemotionCount() {
+		return demotionCount.sum();
+	}
+
+	/**
+	 * @return True if cached response bodies are held gzip compressed
+	 */
+	public boolean isCompressed() {
+		return CACHE_GZIP;
+	}
+
+	/**
+	 * @return True if cached response bodies are held off the heap
+	 */
+	public boolean isOffHeap() {
+		return CACHE_OFF_HEAP;
+	}
+
+	/**
+	 * Removes every cached response.
+	 */
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Runs any pending eviction and expiry work now instead of on the next cache access.
+	 */
+	public void cleanUp() {
+		cache.cleanUp();
+	}
+
+	/**
+	 * @return Hit, miss and eviction counts since startup
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * @return Approximate number of cached responses
+	 */
+	public long getSize() {
+		return cache.estimatedSize();
+	}
+
+	/**
+	 * @return Approximate number of bytes held by cached responses
+	 */
+	public long getWeightedSize() {
+		return cache.policy().eviction()
+				.map(eviction -> eviction.weightedSize().orElse(0L))
+				.orElse(0L);
+	}
+
+	/**
+	 * @return Number of responses evicted to stay within the byte limit
+	 */
+	public long getSizeEvictionCount() {
+		return sizeEvictionCount.sum();
+	}
+
+	/**
+	 * @return Number of responses removed after their cache-time and stale-time passed
+	 */
+	public long getExpiredEvictionCount() {
+		return expiredEvictionCount.sum();
+	}
+
+	/**
+	 * Responses that were evicted for size before they were ever read. These are mostly one-off 
+	 * responses that lost the frequency check against the responses already cached.
+	 * 
+	 * @return Number of responses evicted for size before they were ever read
+	 */
+	public long getRejectionCount() {
+		return rejectionCount.sum();
+	}
+
+	/**
+	 * @return Number of bytes evicted to stay within the byte limit
+	 */
+	public long getEvictedBytes() {
+		return evictedBytes.sum();
+	}
+
+	/**
+	 * Approximate number of bytes held by a cached response, including its key.
+	 * 
+	 * @param key Key of the response
+	 * @param response Cached response
+	 * 
+	 * @return Weight of the entry in bytes
+	 */
+	private static int getWeight(CacheKey key, CachedResponse response) {
+		return (int) Math.min(Integer.MAX_VALUE, response.getWeight() + 2L * key.toString().length());
+	}
+
+	private void onRemoval(CacheKey key, CachedResponse response, RemovalCause cause) {
+		if (cause == RemovalCause.SIZE) {
+			sizeEvictionCount.increment();
+			if (key != null && response != null) {
+				evictedBytes.add(getWeight(key, response));
+				if (!response.wasRead())
+					rejectionCount.increment();
+				
+				// the disk tier may have dropped the response along with an old segment
+				if (isTiered() && response.isServable(System.currentTimeMillis()) 
+						&& !segmentStore.contains(key, response.getCreatedAt())
+						&& segmentStore.append(key, response) != null)
+					demotionCount.increment();
+			}
+		} else if (cause == RemovalCause.EXPIRED) {
+			expiredEvictionCount.increment();
+		}
+	}
+
+	/**
+	 * Removes each entry once it can no longer be served stale, so every endpoint keeps its own 
+	 * cache-time and stale-time.
+	 */
+	private static class ResponseExpiry implements Expiry<CacheKey, CachedResponse> {
+
+		@Override
+		public long expireAfterCreate(CacheKey key, CachedResponse response, long currentTime) {
+			long timeToLive = response.getStaleUntil() - System.currentTimeMillis();
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeToLive));
+		}
+
+		@Override
+		public long expireAfterUpdate(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, response, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+}
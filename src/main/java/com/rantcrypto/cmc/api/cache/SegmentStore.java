@@ -0,0 +1,553 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Persists cached responses to local, memory-mapped segment files, so a restarted instance
+ * starts with the responses it had cached instead of refilling its cache from CoinMarketCap.
+ * Disabled unless <code>com.rantcrypto.cmc.api.v1.cache.disk.path</code> is set.</p>
+ *
+ * <p>Segments are fixed-size files that are only ever appended to. Each record holds one response
+ * with its key, ETag, timestamps and (usually compressed) body, followed by a CRC32 of the record,
+ * so a record torn by a crash is detected and ignored. The newest record for a key wins. When the
+ * active segment is full, a new one is started; once the segments exceed
+ * <code>com.rantcrypto.cmc.api.v1.cache.disk.max-bytes</code>, the oldest is deleted.</p>
+ *
+ * <p>Records are superseded whenever a response is refreshed, so older segments fill up with dead
+ * records. Whenever a new segment is started, every older segment whose live records take up less
+ * than <code>com.rantcrypto.cmc.api.v1.cache.disk.compaction-ratio</code> of it is compacted: its
+ * live records are copied to the active segment and the segment is deleted.</p>
+ *
+ * <p>Responses read from a segment are served straight from its mapping; their bodies are never
+ * copied to the heap.</p>
+ */
+@Component
+public class SegmentStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegmentStore.class);
+
+	private static final int RECORD_MAGIC = 0x434D4352;
+	private static final int RECORD_HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 1 + 2 + 2 + 4;
+	private static final int RECORD_TRAILER_BYTES = 4;
+	private static final byte FLAG_COMPRESSED = 1;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.disk.path:}")
+	private String CACHE_DISK_PATH;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.disk.segment-bytes:67108864}")
+	private Long CACHE_DISK_SEGMENT_BYTES;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.disk.max-bytes:1073741824}")
+	private Long CACHE_DISK_MAX_BYTES;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cache.disk.compaction-ratio:0.5}")
+	private Double CACHE_DISK_COMPACTION_RATIO = 0.5D;
+
+	private final Map<CacheKey, Location> index = new ConcurrentHashMap<CacheKey, Location>();
+	private final List<Segment> segments = new ArrayList<Segment>();
+	private final AtomicLong liveBytes = new AtomicLong();
+	private final AtomicLong compactionCount = new AtomicLong();
+	private final AtomicLong reclaimedBytes = new AtomicLong();
+
+	private File directory;
+	private Segment activeSegment;
+
+
+	@PostConstruct
+	public void init() {
+		if (CACHE_DISK_PATH == null || CACHE_DISK_PATH.trim().isEmpty())
+			return;
+
+		this.directory = new File(CACHE_DISK_PATH.trim());
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IllegalStateException("Cannot create cache directory " + directory.getAbsolutePath());
+
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		Arrays.sort(files);
+
+		long now = System.currentTimeMillis();
+		for (File file : files) {
+			try {
+				Segment segment = Segment.open(file, getSegmentId(file), CACHE_DISK_SEGMENT_BYTES);
+				segments.add(segment);
+				scan(segment, now);
+			} catch (IOException | RuntimeException exception) {
+				LOGGER.warn("Ignoring unreadable cache segment {}: {}", file, exception.getMessage());
+			}
+		}
+		LOGGER.info("Opened {} cache segments in {} with {} responses", segments.size(), directory, index.size());
+	}
+
+	@PreDestroy
+	public synchronized void close() {
+		for (Segment segment : segments)
+			segment.close();
+		segments.clear();
+		index.clear();
+		liveBytes.set(0L);
+		this.activeSegment = null;
+	}
+
+	/**
+	 * @return True if responses are persisted to disk
+	 */
+	public boolean isEnabled() {
+		return directory != null;
+	}
+
+	/**
+	 * Appends the response to the active segment, replacing any earlier record for the key.
+	 * Responses larger than a segment are not persisted.
+	 *
+	 * @param key Key of the response
+	 * @param response Response to persist
+	 *
+	 * @return The persisted response, with its body served from the segment, or null if it was not
+	 * persisted
+	 */
+	public synchronized CachedResponse append(CacheKey key, CachedResponse response) {
+		if (!isEnabled())
+			return null;
+
+		byte[] keyBytes = key.toString().getBytes(StandardCharsets.UTF_8);
+		CachedBody body = response.getCachedBody();
+		byte[] eTagBytes = body.getETag().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer bodyBytes = body.getBytes();
+		long length = body.isString() ? bodyBytes.remaining() : body.getLength();
+
+		int recordLength = RECORD_HEADER_BYTES + keyBytes.length + eTagBytes.length + bodyBytes.remaining() + RECORD_TRAILER_BYTES;
+		if (keyBytes.length > Short.MAX_VALUE || recordLength > CACHE_DISK_SEGMENT_BYTES)
+			return null;
+
+		try {
+			if (activeSegment == null || activeSegment.remaining() < recordLength) {
+				startSegment();
+				// the live records compacted into the new segment may leave no room for this one
+				if (activeSegment.remaining() < recordLength) {
+					openSegment();
+					dropOldestSegments();
+				}
+			}
+		} catch (IOException exception) {
+			LOGGER.warn("Cannot start a new cache segment: {}", exception.getMessage());
+			return null;
+		}
+
+		Segment segment = activeSegment;
+		int offset = segment.position;
+		ByteBuffer record = segment.slice(offset, recordLength);
+		record.putInt(RECORD_MAGIC)
+				.putInt(recordLength)
+				.putLong(response.getCreatedAt())
+				.putLong(response.getExpiresAt())
+				.putLong(response.getStaleUntil())
+				.putInt((int) length)
+				.put(body.isCompressed() ? FLAG_COMPRESSED : 0)
+				.putShort((short) keyBytes.length)
+				.putShort((short) eTagBytes.length)
+				.putInt(bodyBytes.remaining())
+				.put(keyBytes)
+				.put(eTagBytes)
+				.put(bodyBytes);
+
+		record.putInt(getChecksum(segment, offset, recordLength));
+		segment.position = offset + recordLength;
+
+		Location location = new Location(segment, offset, recordLength, response.getCreatedAt());
+		CachedResponse persisted = read(location);
+		index(key, location, persisted.getStaleUntil());
+		return persisted;
+	}
+
+	/**
+	 * Reads the persisted response for the key and counts the read.
+	 * 
+	 * @param key Key of a response
+	 *
+	 * @return The persisted response for the key if it may still be served, or null
+	 */
+	public CachedResponse get(CacheKey key) {
+		Location location = index.get(key);
+		if (location == null || System.currentTimeMillis() >= location.staleUntil)
+			return null;
+		
+		location.reads.incrementAndGet();
+		return read(location);
+	}
+
+	/**
+	 * @param key Key of a response
+	 *
+	 * @return Number of times the newest record for the key has been read since it was written or
+	 * the store was opened
+	 */
+	public int getReadCount(CacheKey key) {
+		Location location = index.get(key);
+		return location != null ? location.reads.get() : 0;
+	}
+
+	/**
+	 * @param key Key of a response
+	 * @param createdAt Time the response was stored, in epoch milliseconds
+	 *
+	 * @return True if the store holds this response, or a newer one, for the key
+	 */
+	public boolean contains(CacheKey key, long createdAt) {
+		Location location = index.get(key);
+		return location != null && location.createdAt >= createdAt;
+	}
+
+	/**
+	 * Deletes every segment.
+	 */
+	public synchronized void clear() {
+		for (Segment segment : new ArrayList<Segment>(segments))
+			delete(segment);
+		index.clear();
+		liveBytes.set(0L);
+	}
+
+	/**
+	 * @return Number of persisted responses
+	 */
+	public long getSize() {
+		return index.size();
+	}
+
+	/**
+	 * @return Number of bytes held by the newest record of every persisted response
+	 */
+	public long getLiveBytes() {
+		return liveBytes.get();
+	}
+
+	/**
+	 * @return Number of bytes reserved by segment files on disk
+	 */
+	public synchronized long getDiskBytes() {
+		return (long) segments.size() * CACHE_DISK_SEGMENT_BYTES;
+	}
+
+	/**
+	 * @return Number of segment files
+	 */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * @return Number of segments compacted since startup
+	 */
+	public long getCompactionCount() {
+		return compactionCount.get();
+	}
+
+	/**
+	 * @return Number of bytes of dead records reclaimed by compaction since startup
+	 */
+	public long getReclaimedBytes() {
+		return reclaimedBytes.get();
+	}
+
+	/**
+	 * Reads records from the start of a segment until its free space or a torn record.
+	 */
+	private void scan(Segment segment, long now) {
+		int offset = 0;
+		while (segment.capacity() - offset >= RECORD_HEADER_BYTES + RECORD_TRAILER_BYTES) {
+			ByteBuffer header = segment.slice(offset, RECORD_HEADER_BYTES);
+			if (header.getInt() != RECORD_MAGIC)
+				break;
+
+			int recordLength = header.getInt();
+			if (recordLength < RECORD_HEADER_BYTES + RECORD_TRAILER_BYTES || recordLength > segment.capacity() - offset)
+				break;
+
+			int checksum = segment.slice(offset + recordLength - RECORD_TRAILER_BYTES, RECORD_TRAILER_BYTES).getInt();
+			if (checksum != getChecksum(segment, offset, recordLength))
+				break;
+
+			Location location = new Location(segment, offset, recordLength, readCreatedAt(segment, offset));
+			long staleUntil = readStaleUntil(location);
+			CacheKey key = readKey(location);
+			if (now < staleUntil)
+				index(key, location, staleUntil);
+			else
+				unindex(key);
+
+			offset += recordLength;
+		}
+		segment.position = offset;
+		this.activeSegment = segment;
+	}
+
+	private void index(CacheKey key, Location location, long staleUntil) {
+		location.staleUntil = staleUntil;
+		Location previous = index.put(key, location);
+		location.segment.liveBytes += location.length;
+		liveBytes.addAndGet(location.length);
+
+		if (previous != null) {
+			previous.segment.liveBytes -= previous.length;
+			liveBytes.addAndGet(-previous.length);
+		}
+	}
+
+	private void unindex(CacheKey key) {
+		Location previous = index.remove(key);
+		if (previous != null) {
+			previous.segment.liveBytes -= previous.length;
+			liveBytes.addAndGet(-previous.length);
+		}
+	}
+
+	private void startSegment() throws IOException {
+		openSegment();
+		compact();
+		dropOldestSegments();
+	}
+
+	/**
+	 * Deletes the oldest segments, along with the responses they still hold, until the segments
+	 * fit into the size limit again.
+	 */
+	private void dropOldestSegments() {
+		while ((long) segments.size() * CACHE_DISK_SEGMENT_BYTES > CACHE_DISK_MAX_BYTES && segments.size() > 1)
+			delete(segments.get(0));
+	}
+
+	private void openSegment() throws IOException {
+		long nextId = segments.isEmpty() ? 1L : segments.get(segments.size() - 1).id + 1L;
+		File file = new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, nextId, SEGMENT_SUFFIX));
+
+		Segment segment = Segment.open(file, nextId, CACHE_DISK_SEGMENT_BYTES);
+		segments.add(segment);
+		this.activeSegment = segment;
+	}
+
+	/**
+	 * Copies the live records of every mostly dead segment, oldest first, to the active segment and 
+	 * deletes the segment. Records that can no longer be served are dropped.
+	 */
+	private void compact() throws IOException {
+		long now = System.currentTimeMillis();
+		
+		for (Segment segment : new ArrayList<Segment>(segments)) {
+			if (segment == activeSegment || segment.liveBytes >= segment.capacity() * CACHE_DISK_COMPACTION_RATIO)
+				continue;
+
+			List<Map.Entry<CacheKey, Location>> live = new ArrayList<Map.Entry<CacheKey, Location>>();
+			for (Map.Entry<CacheKey, Location> entry : index.entrySet()) {
+				if (entry.getValue().segment == segment && now < entry.getValue().staleUntil)
+					live.add(entry);
+			}
+			live.sort((first, second) -> first.getValue().compareTo(second.getValue()));
+
+			long movedBytes = 0L;
+			for (Map.Entry<CacheKey, Location> entry : live) {
+				Location from = entry.getValue();
+				if (activeSegment.remaining() < from.length)
+					openSegment();
+
+				Segment to = activeSegment;
+				int offset = to.position;
+				to.slice(offset, from.length).put(from.segment.slice(from.offset, from.length));
+				to.position = offset + from.length;
+
+				Location location = new Location(to, offset, from.length, from.createdAt);
+				location.staleUntil = from.staleUntil;
+				location.reads.set(from.reads.get());
+				index.put(entry.getKey(), location);
+				
+				segment.liveBytes -= from.length;
+				to.liveBytes += from.length;
+				movedBytes += from.length;
+			}
+
+			// records that were not moved can no longer be served and are dropped with the segment
+			reclaimedBytes.addAndGet(segment.position - movedBytes);
+			compactionCount.incrementAndGet();
+			delete(segment);
+		}
+	}
+
+	private void delete(Segment segment) {
+		index.entrySet().removeIf(entry -> {
+			if (entry.getValue().segment != segment)
+				return false;
+			liveBytes.addAndGet(-entry.getValue().length);
+			return true;
+		});
+		segments.remove(segment);
+		segment.close();
+		if (!segment.file.delete())
+			LOGGER.warn("Cannot delete cache segment {}", segment.file);
+		if (activeSegment == segment)
+			this.activeSegment = null;
+	}
+
+	private CachedResponse read(Location location) {
+		ByteBuffer record = location.segment.slice(location.offset + 8, location.length - 8);
+		long createdAt = record.getLong();
+		long expiresAt = record.getLong();
+		long staleUntil = record.getLong();
+		int length = record.getInt();
+		boolean compressed = (record.get() & FLAG_COMPRESSED) != 0;
+		int keyLength = record.getShort();
+		int eTagLength = record.getShort();
+		int bodyLength = record.getInt();
+
+		int eTagOffset = location.offset + RECORD_HEADER_BYTES + keyLength;
+		String eTag = new String(location.segment.array(eTagOffset, eTagLength), StandardCharsets.UTF_8);
+		ByteBuffer body = location.segment.slice(eTagOffset + eTagLength, bodyLength);
+
+		return new CachedResponse(CachedBody.ofBytes(body, compressed, length, eTag), createdAt, expiresAt, staleUntil);
+	}
+
+	/**
+	 * CRC32 of a record, from its first timestamp up to its trailer.
+	 */
+	private static int getChecksum(Segment segment, int offset, int recordLength) {
+		CRC32 crc = new CRC32();
+		crc.update(segment.slice(offset + 8, recordLength - 8 - RECORD_TRAILER_BYTES));
+		return (int) crc.getValue();
+	}
+
+	private static long readCreatedAt(Segment segment, int offset) {
+		return segment.slice(offset + 8, 8).getLong();
+	}
+
+	private static long readStaleUntil(Location location) {
+		return location.segment.slice(location.offset + 24, 8).getLong();
+	}
+
+	private static CacheKey readKey(Location location) {
+		int keyLength = location.segment.slice(location.offset + RECORD_HEADER_BYTES - 8, 2).getShort();
+		byte[] key = location.segment.array(location.offset + RECORD_HEADER_BYTES, keyLength);
+		return CacheKey.parse(new String(key, StandardCharsets.UTF_8));
+	}
+
+	private static long getSegmentId(File file) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/**
+	 * Position of a record within a segment.
+	 */
+	private static class Location implements Comparable<Location> {
+
+		private final Segment segment;
+		private final int offset;
+		private final int length;
+		private final long createdAt;
+		private final AtomicInteger reads = new AtomicInteger();
+		private volatile long staleUntil;
+
+		private Location(Segment segment, int offset, int length, long createdAt) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.createdAt = createdAt;
+		}
+
+		@Override
+		public int compareTo(Location other) {
+			int bySegment = Long.compare(segment.id, other.segment.id);
+			return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+		}
+	}
+
+	/**
+	 * A fixed-size, memory-mapped segment file.
+	 */
+	private static class Segment {
+
+		private final File file;
+		private final long id;
+		private final RandomAccessFile randomAccessFile;
+		private final MappedByteBuffer buffer;
+		private int position;
+		private long liveBytes;
+
+		private Segment(File file, long id, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+			this.file = file;
+			this.id = id;
+			this.randomAccessFile = randomAccessFile;
+			this.buffer = buffer;
+		}
+
+		private static Segment open(File file, long id, long size) throws IOException {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				if (randomAccessFile.length() < size)
+					randomAccessFile.setLength(size);
+				long mappedSize = Math.min(Integer.MAX_VALUE, randomAccessFile.length());
+				MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, mappedSize);
+				return new Segment(file, id, randomAccessFile, buffer);
+			} catch (IOException | RuntimeException exception) {
+				randomAccessFile.close();
+				throw exception;
+			}
+		}
+
+		private int capacity() {
+			return buffer.capacity();
+		}
+
+		private int remaining() {
+			return buffer.capacity() - position;
+		}
+
+		private ByteBuffer slice(int offset, int length) {
+			ByteBuffer slice = buffer.duplicate();
+			((Buffer) slice).position(offset);
+			((Buffer) slice).limit(offset + length);
+			return slice.slice();
+		}
+
+		private byte[] array(int offset, int length) {
+			byte[] bytes = new byte[length];
+			slice(offset, length).get(bytes);
+			return bytes;
+		}
+
+		private void close() {
+			try {
+				buffer.force();
+				randomAccessFile.close();
+			} catch (IOException | UncheckedIOException exception) {
+				LOGGER.warn("Cannot close cache segment {}: {}", file, exception.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,9 @@
+/**
+ * In-process caching of CoinMarketCap API responses. Responses are cached per endpoint and per
+ * set of query parameters, for as long as the endpoint's <code>cache-time</code> property allows.
+ * Caching is disabled for an endpoint when its <code>cache-time</code> is -1 (the default).
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+package com.rantcrypto.cmc.api.cache;
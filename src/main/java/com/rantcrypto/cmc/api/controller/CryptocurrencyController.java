@@ -163,6 +163,7 @@ public class CryptocurrencyController {
 	 * @param cryptocurrencyType The type of cryptocurrency to include. Default: "all". Valid values: "all", "coins", "tokens"
 	 * @param tag The tag of cryptocurrency to include. Default: "all". Valid values: "all", "defi"
 	 * @param aux Optionally specify a comma-separated list of supplemental data fields to return. Pass num_market_pairs, cmc_rank, date_added, tags, platform, max_supply, circulating_supply, total_supply, market_cap_by_total_supply, volume_24h_reported, volume_7d, volume_7d_reported, volume_30d, volume_30d_reported, is_market_cap_included_in_calc to include all auxiliary fields. Default: "num_market_pairs, cmc_rank, date_added, tags, platform, max_supply, circulating_supply, total_supply"
+	 * @param snapshotVersion Optionally pass the "snapshot_version" of a previous page to read this page from the same listings snapshot. Not sent upstream.
 	 * 
 	 * @return Paginated list of all active cryptocurrencies with latest market data.
 	 */
@@ -186,12 +187,13 @@ public class CryptocurrencyController {
 			@RequestParam(required = false, name = "sort_dir") String sortDir,
 			@RequestParam(required = false, name = "cryptocurrency_type") String cryptocurrencyType, 
 			@RequestParam(required = false) String tag,
-			@RequestParam(required = false) String aux) {
+			@RequestParam(required = false) String aux,
+			@RequestParam(required = false, name = "snapshot_version") Long snapshotVersion) {
 		return this.cryptocurrencyService.getListingsLatest(
 				start, limit, priceMin, priceMax, marketCapMin, marketCapMax, 
 				volume24hMin, volume24hMax, circulatingSupplyMin, circulatingSupplyMax, 
 				percentChange24hMin, percentChange24hMax, convert, convertId,
-				sort, sortDir, cryptocurrencyType, tag, aux);
+				sort, sortDir, cryptocurrencyType, tag, aux, snapshotVersion);
 	}
 	
 	/**
@@ -118,6 +118,7 @@ public class ExchangeController {
 	 * @param aux Optionally specify a comma-separated list of supplemental data fields to return. Pass num_market_pairs,date_launched to include all auxiliary fields. Default: "num_market_pairs"
 	 * @param convert Optionally calculate market quotes in up to 120 currencies at once by passing a comma-separated list of cryptocurrency or fiat currency symbols. Each additional convert option beyond the first requires an additional call credit. A list of supported fiat options can be found here. Each conversion is returned in its own "quote" object.
 	 * @param convertId Optionally calculate market quotes by CoinMarketCap ID instead of symbol. This option is identical to convert outside of ID format. Ex: convert_id=1,2781 would replace convert=BTC,USD in your query. This parameter cannot be used when convert is used.
+	 * @param snapshotVersion Optionally pass the "snapshot_version" of a previous page to read this page from the same exchange snapshot. Not sent upstream.
 	 * 
 	 * @return Paginated list of all cryptocurrency exchanges including the latest aggregate market data for each exchange.
 	 */
@@ -130,8 +131,9 @@ public class ExchangeController {
 			@RequestParam(required = false, name = "market_type") String marketType, 
 			@RequestParam(required = false) String aux,
 			@RequestParam(required = false) String convert, 
-			@RequestParam(required = false, name = "convert_id") String convertId) {
-		return this.exchangeService.getListingsLatest(start, limit, sort, sortDir, marketType, aux, convert, convertId);
+			@RequestParam(required = false, name = "convert_id") String convertId,
+			@RequestParam(required = false, name = "snapshot_version") Long snapshotVersion) {
+		return this.exchangeService.getListingsLatest(start, limit, sort, sortDir, marketType, aux, convert, convertId, snapshotVersion);
 	}
 	
 	/**
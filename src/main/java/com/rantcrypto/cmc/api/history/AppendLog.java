@@ -0,0 +1,186 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Memory-mapped file of records that are only ever appended. Each record holds a type, two
+ * numbers and a payload, followed by a CRC32 of the record, so a record torn by a crash is
+ * detected and the file is read up to it. The file is grown, and mapped again, as records are
+ * appended.</p>
+ *
+ * <p>Not thread-safe; its owner guards it.</p>
+ */
+final class AppendLog {
+
+	private static final int RECORD_MAGIC = 0x434D5453;
+	private static final int RECORD_HEADER_BYTES = 4 + 4 + 1 + 8 + 8;
+	private static final int RECORD_TRAILER_BYTES = 4;
+	private static final int INITIAL_BYTES = 64 * 1024;
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private MappedByteBuffer buffer;
+	private int position;
+
+	private AppendLog(File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+		this.file = file;
+		this.randomAccessFile = randomAccessFile;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Opens or creates a log and reads its records, in the order they were appended.
+	 *
+	 * @param file File of the log
+	 * @param visitor Receives every intact record
+	 *
+	 * @return The log, positioned after its last intact record
+	 *
+	 * @throws IOException If the file cannot be opened or mapped
+	 */
+	static AppendLog open(File file, RecordVisitor visitor) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			if (randomAccessFile.length() < INITIAL_BYTES)
+				randomAccessFile.setLength(INITIAL_BYTES);
+			long mappedSize = Math.min(Integer.MAX_VALUE, randomAccessFile.length());
+			AppendLog log = new AppendLog(file, randomAccessFile,
+					randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, mappedSize));
+			log.scan(visitor);
+			return log;
+		} catch (IOException | RuntimeException exception) {
+			randomAccessFile.close();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Appends a record.
+	 *
+	 * @return Offset of the record, to read its payload with
+	 *
+	 * @throws IOException If the file cannot be grown
+	 */
+	int append(byte type, long first, long second, byte[] payload) throws IOException {
+		int recordLength = RECORD_HEADER_BYTES + payload.length + RECORD_TRAILER_BYTES;
+		if (buffer.capacity() - position < recordLength)
+			grow(recordLength);
+
+		int offset = position;
+		ByteBuffer record = slice(offset, recordLength);
+		record.putInt(RECORD_MAGIC)
+				.putInt(recordLength)
+				.put(type)
+				.putLong(first)
+				.putLong(second)
+				.put(payload);
+		record.putInt(getChecksum(offset, recordLength));
+		position = offset + recordLength;
+		return offset;
+	}
+
+	/**
+	 * @param offset Offset of a record
+	 *
+	 * @return Payload of the record
+	 */
+	byte[] readPayload(int offset) {
+		int recordLength = slice(offset + 4, 4).getInt();
+		byte[] payload = new byte[recordLength - RECORD_HEADER_BYTES - RECORD_TRAILER_BYTES];
+		slice(offset + RECORD_HEADER_BYTES, payload.length).get(payload);
+		return payload;
+	}
+
+	/**
+	 * @return Number of bytes held by records
+	 */
+	int size() {
+		return position;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	void close() {
+		try {
+			buffer.force();
+			randomAccessFile.close();
+		} catch (IOException | UncheckedIOException exception) {
+			// the records were written to the mapping, which the OS flushes on its own
+		}
+	}
+
+	/**
+	 * Closes and deletes the log.
+	 *
+	 * @return True if the file was deleted
+	 */
+	boolean delete() {
+		close();
+		return file.delete();
+	}
+
+	private void scan(RecordVisitor visitor) {
+		int offset = 0;
+		while (buffer.capacity() - offset >= RECORD_HEADER_BYTES + RECORD_TRAILER_BYTES) {
+			ByteBuffer header = slice(offset, RECORD_HEADER_BYTES);
+			if (header.getInt() != RECORD_MAGIC)
+				break;
+
+			int recordLength = header.getInt();
+			if (recordLength < RECORD_HEADER_BYTES + RECORD_TRAILER_BYTES || recordLength > buffer.capacity() - offset)
+				break;
+			if (slice(offset + recordLength - RECORD_TRAILER_BYTES, RECORD_TRAILER_BYTES).getInt() != getChecksum(offset, recordLength))
+				break;
+
+			visitor.visit(this, header.get(), header.getLong(), header.getLong(), offset);
+			offset += recordLength;
+		}
+		position = offset;
+	}
+
+	private void grow(int recordLength) throws IOException {
+		long size = Math.max((long) buffer.capacity() * 2L, (long) position + recordLength);
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("History log " + file + " is full");
+
+		buffer.force();
+		randomAccessFile.setLength(size);
+		buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, size);
+	}
+
+	/**
+	 * CRC32 of a record, from its type up to its trailer.
+	 */
+	private int getChecksum(int offset, int recordLength) {
+		CRC32 crc = new CRC32();
+		crc.update(slice(offset + 8, recordLength - 8 - RECORD_TRAILER_BYTES));
+		return (int) crc.getValue();
+	}
+
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		((Buffer) slice).position(offset);
+		((Buffer) slice).limit(offset + length);
+		return slice.slice();
+	}
+
+	/**
+	 * Receives the records of a log as it is opened.
+	 */
+	interface RecordVisitor {
+
+		void visit(AppendLog log, byte type, long first, long second, int offset);
+	}
+}
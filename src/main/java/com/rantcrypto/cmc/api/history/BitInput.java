@@ -0,0 +1,59 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+/**
+ * Reads the bits written by a {@link BitOutput }.
+ */
+final class BitInput {
+
+	private final byte[] bytes;
+	private long bitIndex;
+
+	BitInput(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @param count Number of bits, 0 to 64
+	 *
+	 * @return The bits, right-aligned
+	 *
+	 * @throws IllegalArgumentException If fewer bits are left
+	 */
+	long read(int count) {
+		if (bitIndex + count > (long) bytes.length * 8L)
+			throw new IllegalArgumentException("Block ends before bit " + (bitIndex + count));
+
+		if (count > 56)
+			return (read(32) << (count - 32)) | read(count - 32);
+		if (count == 0)
+			return 0L;
+
+		// the bits span at most 8 bytes
+		int index = (int) (bitIndex >>> 3);
+		int skipped = (int) (bitIndex & 7L);
+		int byteCount = (skipped + count + 7) >>> 3;
+		long word = 0L;
+		for (int i = 0; i < byteCount; i++)
+			word = (word << 8) | (bytes[index + i] & 0xFFL);
+		bitIndex += count;
+		return (word >>> (byteCount * 8 - skipped - count)) & (-1L >>> (64 - count));
+	}
+
+	boolean readBit() {
+		return read(1) != 0L;
+	}
+
+	long readVarLong() {
+		long value = 0L;
+		int shift = 0;
+		boolean more;
+		do {
+			more = readBit();
+			value |= read(7) << shift;
+			shift += 7;
+		} while (more && shift < 64);
+		return value;
+	}
+}
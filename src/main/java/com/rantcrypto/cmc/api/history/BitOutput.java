@@ -0,0 +1,59 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer that is written one or more bits at a time, most significant bit first.
+ */
+final class BitOutput {
+
+	private byte[] bytes = new byte[256];
+	private long bitCount;
+
+	/**
+	 * Writes the lowest bits of a value.
+	 *
+	 * @param value Bits to write, right-aligned
+	 * @param count Number of bits, 0 to 64
+	 */
+	void write(long value, int count) {
+		for (int remaining = count; remaining > 0;) {
+			int index = (int) (bitCount >>> 3);
+			if (index == bytes.length)
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+
+			int free = 8 - (int) (bitCount & 7L);
+			int written = Math.min(free, remaining);
+			int bits = (int) (value >>> (remaining - written)) & ((1 << written) - 1);
+			bytes[index] |= (byte) (bits << (free - written));
+			remaining -= written;
+			bitCount += written;
+		}
+	}
+
+	void writeBit(boolean bit) {
+		write(bit ? 1L : 0L, 1);
+	}
+
+	/**
+	 * Writes a non-negative number in 7-bit groups, each preceded by a bit telling if another group
+	 * follows.
+	 */
+	void writeVarLong(long value) {
+		do {
+			long group = value & 0x7FL;
+			value >>>= 7;
+			writeBit(value != 0L);
+			write(group, 7);
+		} while (value != 0L);
+	}
+
+	/**
+	 * @return The bits written, padded with zeros to a whole byte
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, (int) ((bitCount + 7L) >>> 3));
+	}
+}
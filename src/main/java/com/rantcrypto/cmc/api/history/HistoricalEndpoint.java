@@ -0,0 +1,92 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+/**
+ * Historical endpoints whose responses are stored as time series, with the field that holds the
+ * time of each point, the documented default interval and whether <code>time_start</code> is
+ * exclusive.
+ */
+public enum HistoricalEndpoint {
+
+	CRYPTOCURRENCY_QUOTES("/cryptocurrency/quotes/historical", "cryptocurrency-quotes", "timestamp", "5m", true, false),
+	CRYPTOCURRENCY_OHLCV("/cryptocurrency/ohlcv/historical", "cryptocurrency-ohlcv", "time_open", "daily", true, true),
+	EXCHANGE_QUOTES("/exchange/quotes/historical", "exchange-quotes", "timestamp", "5m", true, false),
+	GLOBAL_METRICS_QUOTES("/global-metrics/quotes/historical", "global-metrics-quotes", "timestamp", "1d", false, false);
+
+	private final String path;
+	private final String name;
+	private final String timeField;
+	private final String defaultInterval;
+	private final boolean perAsset;
+	private final boolean startExclusive;
+
+	private HistoricalEndpoint(String path, String name, String timeField, String defaultInterval, boolean perAsset,
+			boolean startExclusive) {
+		this.path = path;
+		this.name = name;
+		this.timeField = timeField;
+		this.defaultInterval = defaultInterval;
+		this.perAsset = perAsset;
+		this.startExclusive = startExclusive;
+	}
+
+	/**
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 *
+	 * @return The historical endpoint, or null if the endpoint's responses are not stored
+	 */
+	public static HistoricalEndpoint of(String endpoint) {
+		if (endpoint == null)
+			return null;
+		for (HistoricalEndpoint historicalEndpoint : values()) {
+			if (endpoint.endsWith(historicalEndpoint.path))
+				return historicalEndpoint;
+		}
+		return null;
+	}
+
+	/**
+	 * @return Name of the endpoint's directory in the store
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Field of a point holding its time
+	 */
+	public String getTimeField() {
+		return timeField;
+	}
+
+	/**
+	 * @return Interval used when a request does not give one
+	 */
+	public String getDefaultInterval() {
+		return defaultInterval;
+	}
+
+	/**
+	 * @return True if the endpoint returns the series of one asset, requested by id
+	 */
+	public boolean isPerAsset() {
+		return perAsset;
+	}
+
+	/**
+	 * @return True if upstream returns only points after <code>time_start</code>
+	 */
+	public boolean isStartExclusive() {
+		return startExclusive;
+	}
+
+	/**
+	 * @param start Time of a request's <code>time_start</code>
+	 *
+	 * @return Time of the first point upstream can return for the start
+	 */
+	public long getFirstTime(long start) {
+		return startExclusive ? start + 1L : start;
+	}
+}
@@ -0,0 +1,634 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <p>Embedded, append-only store of historical time series, in memory-mapped files under
+ * <code>com.rantcrypto.cmc.api.v1.history.path</code>. Disabled unless the path is set.</p>
+ *
+ * <p>Every successful response of a {@link HistoricalEndpoint } for a single asset by id (or for
+ * global metrics) is recorded: its points are appended to the series of its endpoint, asset,
+ * interval and other parameters (see {@link SeriesKey }), and the time range the response
+ * answered in full is recorded as covered. Only points that are settled, older than one interval
+ * plus <code>history.settle-time</code> seconds, are stored, because the latest point may still
+ * change.</p>
+ *
+ * <p>A request with both <code>time_start</code> and <code>time_end</code> whose range is covered
+ * is answered from the store, in the format of the endpoint, without an API call. If the range is
+ * covered in part, only the missing sub-ranges are requested (see {@link #plan }) and the
+ * responses are merged with the stored points (see {@link #merge }).</p>
+ *
+ * <p>Series are kept in tiers (<code>history.tiers</code>, by default 5 minute points for 7 days,
+ * hourly points for 90 days and daily points forever). As a range of a series is stored in full,
+ * every bucket of the next coarser tier it completes is rolled up into a rollup series of that
+ * tier, which rolls up into the next tier in turn: quotes are sampled (the first point of each
+ * bucket is kept), and hourly OHLCV candles are aggregated into daily candles. A request for a
+ * tier's interval that the series of its own interval does not cover is answered from the
+ * rollup series, without reading finer points. Points of a tier older than its retention period
+ * are dropped when its series is opened or stored to, and every hour.</p>
+ *
+ * <p>Counts are published as <code>cmc.history.requests</code>, tagged <code>result=hit</code> or
+ * <code>result=miss</code>, <code>cmc.history.gaps</code> (requests sent for missing sub-ranges),
+ * <code>cmc.history.points</code> (points appended) and <code>cmc.history.rollups</code> (points
+ * rolled up).</p>
+ */
+@Component
+public class HistoryStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HistoryStore.class);
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/** Most points upstream returns for a range, whatever the count */
+	private static final long MAX_POINTS = 10000L;
+	private static final long DEFAULT_COUNT = 10L;
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+	private static final long RETENTION_INTERVAL = 60L * 60L * 1000L;
+
+	@Value("${com.rantcrypto.cmc.api.v1.history.path:}")
+	private String HISTORY_PATH;
+
+	@Value("${com.rantcrypto.cmc.api.v1.history.settle-time:300}")
+	private Long HISTORY_SETTLE_TIME = 300L;
+
+	@Value("${com.rantcrypto.cmc.api.v1.history.tiers:5m:7d,1h:90d,1d}")
+	private String HISTORY_TIERS;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<SeriesKey, TimeSeries> series = new ConcurrentHashMap<SeriesKey, TimeSeries>();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder gapCount = new LongAdder();
+	private final LongAdder pointCount = new LongAdder();
+	private final LongAdder rollupCount = new LongAdder();
+	private List<HistoryTier> tiers = Collections.emptyList();
+	private ScheduledExecutorService executor;
+	private File directory;
+
+
+	@PostConstruct
+	public void init() {
+		if (meterRegistry != null) {
+			FunctionCounter.builder("cmc.history.requests", hitCount, LongAdder::sum)
+					.tag("result", "hit")
+					.description("Historical requests answered from the local store")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.history.requests", missCount, LongAdder::sum)
+					.tag("result", "miss")
+					.description("Historical requests sent, in full or in part, to the CoinMarketCap API")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.history.gaps", gapCount, LongAdder::sum)
+					.description("Requests sent for the sub-ranges the local store does not hold")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.history.points", pointCount, LongAdder::sum)
+					.description("Points appended to the local store")
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.history.rollups", rollupCount, LongAdder::sum)
+					.description("Points rolled up from finer series")
+					.register(meterRegistry);
+		}
+
+		if (HISTORY_PATH == null || HISTORY_PATH.trim().isEmpty())
+			return;
+
+		File path = new File(HISTORY_PATH.trim());
+		if (!path.isDirectory() && !path.mkdirs())
+			throw new IllegalStateException("Cannot create history directory " + path.getAbsolutePath());
+		this.directory = path;
+		this.tiers = HistoryTier.parse(HISTORY_TIERS);
+		LOGGER.info("Storing historical time series in {} with tiers {}", directory, tiers);
+
+		if (tiers.stream().anyMatch(tier -> tier.getRetentionMillis() > 0L)) {
+			this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "cmc-history-retention");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.scheduleWithFixedDelay(this::applyRetention, RETENTION_INTERVAL, RETENTION_INTERVAL, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		if (executor != null)
+			executor.shutdownNow();
+		for (TimeSeries timeSeries : series.values())
+			timeSeries.close();
+		series.clear();
+	}
+
+	/**
+	 * @return True if historical responses are stored
+	 */
+	public boolean isEnabled() {
+		return directory != null;
+	}
+
+	/**
+	 * Answers a request from the store. Requests with a count are not answered, since the store
+	 * does not know which points of the range upstream would return: they are sent as they are.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param canonicalParams Canonical query parameters of the request
+	 *
+	 * @return JSON response, or null if the request has to be sent upstream
+	 */
+	public String getResponse(String endpoint, Map<String, String> canonicalParams) {
+		HistoricalEndpoint historicalEndpoint = HistoricalEndpoint.of(endpoint);
+		SeriesKey key = isEnabled() && historicalEndpoint != null && canonicalParams != null && !canonicalParams.containsKey("count")
+				? SeriesKey.of(historicalEndpoint, canonicalParams) : null;
+		if (key == null)
+			return null;
+
+		Long start = HistoryTime.parse(canonicalParams.get("time_start"));
+		Long end = HistoryTime.parse(canonicalParams.get("time_end"));
+		Long first = start != null ? historicalEndpoint.getFirstTime(start) : null;
+		TimeSeries timeSeries = first != null && end != null && first <= end ? getSeries(key, false) : null;
+		if (!answers(timeSeries, first, end)) {
+			// a coarser tier's interval may be rolled up from finer series
+			HistoryTier tier = getTier(HistoryTime.getMillis(key.getInterval()));
+			timeSeries = tier != null && first != null && end != null && first <= end
+					? getSeries(key.getRollup(tier.getInterval()), false) : null;
+		}
+		if (!answers(timeSeries, first, end)) {
+			missCount.increment();
+			return null;
+		}
+
+		hitCount.increment();
+		return timeSeries.getResponse(start, end);
+	}
+
+	/**
+	 * Plans the requests for the sub-ranges of a request's range that the store does not hold.
+	 * Requests with a count, or for a range the store holds none of, are not planned: they are sent
+	 * as they are.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param canonicalParams Canonical query parameters of the request
+	 *
+	 * @return The plan, or null if the request has to be sent as it is
+	 */
+	public RangePlan plan(String endpoint, Map<String, String> canonicalParams) {
+		HistoricalEndpoint historicalEndpoint = HistoricalEndpoint.of(endpoint);
+		SeriesKey key = isEnabled() && historicalEndpoint != null && canonicalParams != null && !canonicalParams.containsKey("count")
+				? SeriesKey.of(historicalEndpoint, canonicalParams) : null;
+		long intervalMillis = key != null ? HistoryTime.getMillis(key.getInterval()) : -1L;
+		if (intervalMillis < 1L)
+			return null;
+
+		Long start = HistoryTime.parse(canonicalParams.get("time_start"));
+		Long end = HistoryTime.parse(canonicalParams.get("time_end"));
+		Long first = start != null ? historicalEndpoint.getFirstTime(start) : null;
+		TimeSeries timeSeries = first != null && end != null && first <= end ? getSeries(key, false) : null;
+		List<long[]> gaps = timeSeries != null ? timeSeries.getGaps(first, end) : null;
+		if (gaps == null || gaps.isEmpty() || (gaps.size() == 1 && gaps.get(0)[0] == first && gaps.get(0)[1] == end))
+			return null;
+
+		// upstream returns at most MAX_POINTS points per request, and only points after an exclusive start
+		long span = intervalMillis * (MAX_POINTS - 1L);
+		long startOffset = historicalEndpoint.isStartExclusive() ? intervalMillis : 0L;
+		List<HashMap<String, String>> requests = new ArrayList<HashMap<String, String>>();
+		for (long[] gap : gaps) {
+			long from = gap[0];
+			while (true) {
+				long to = gap[1] - from > span ? from + span : gap[1];
+				HashMap<String, String> requestParams = new LinkedHashMap<String, String>(canonicalParams);
+				requestParams.put("time_start", Instant.ofEpochMilli(from - startOffset).toString());
+				requestParams.put("time_end", Instant.ofEpochMilli(to).toString());
+				requests.add(requestParams);
+				if (to == gap[1])
+					break;
+				from = to + 1L;
+			}
+		}
+		return new RangePlan(endpoint, key, start, end, requests);
+	}
+
+	/**
+	 * Stores the responses of a plan's requests, and merges their points with the stored points of
+	 * the planned range into one response in the format of the endpoint. Its credit count is the
+	 * sum of the responses'.
+	 *
+	 * @param plan Plan of the requests
+	 * @param bodies Successful JSON response of each request, in the plan's order
+	 *
+	 * @return JSON response, or null if a response cannot be read
+	 */
+	public String merge(RangePlan plan, List<String> bodies) {
+		TimeSeries timeSeries = getSeries(plan.getKey(), true);
+		if (timeSeries == null || bodies.size() != plan.getRequests().size())
+			return null;
+
+		String timeField = plan.getKey().getEndpoint().getTimeField();
+		NavigableMap<Long, String> fetched = new TreeMap<Long, String>();
+		String header = null;
+		int creditCount = 0;
+		try {
+			for (int i = 0; i < bodies.size(); i++) {
+				JsonNode root = OBJECT_MAPPER.readTree(bodies.get(i));
+				JsonNode data = getData(root, plan.getKey());
+				if (data == null)
+					return null;
+
+				for (JsonNode point : data.path("quotes")) {
+					Long time = HistoryTime.parse(point.path(timeField).asText(null));
+					if (time != null)
+						fetched.put(time, OBJECT_MAPPER.writeValueAsString(point));
+				}
+				header = getHeader(data);
+				creditCount += root.path("status").path("credit_count").asInt(0);
+				gapCount.increment();
+				store(timeSeries, plan.getRequests().get(i), data);
+			}
+		} catch (IOException | RuntimeException exception) {
+			LOGGER.warn("Cannot merge historical responses of {}: {}", plan.getKey(), exception.getMessage());
+			return null;
+		}
+		return timeSeries.getResponse(plan.getStart(), plan.getEnd(), fetched, header, creditCount);
+	}
+
+	/**
+	 * Stores the settled points of a successful response, and the range it answered in full.
+	 *
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param canonicalParams Canonical query parameters of the request
+	 * @param body JSON response
+	 */
+	public void record(String endpoint, Map<String, String> canonicalParams, String body) {
+		HistoricalEndpoint historicalEndpoint = HistoricalEndpoint.of(endpoint);
+		SeriesKey key = isEnabled() && historicalEndpoint != null && canonicalParams != null
+				? SeriesKey.of(historicalEndpoint, canonicalParams) : null;
+		if (key == null || HistoryTime.getMillis(key.getInterval()) < 1L)
+			return;
+
+		try {
+			JsonNode data = getData(OBJECT_MAPPER.readTree(body), key);
+			TimeSeries timeSeries = data != null ? getSeries(key, true) : null;
+			if (timeSeries != null)
+				store(timeSeries, canonicalParams, data);
+		} catch (IOException | RuntimeException exception) {
+			LOGGER.warn("Cannot store historical response of {}: {}", key, exception.getMessage());
+		}
+	}
+
+	/**
+	 * @return Number of requests answered from the store
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return Number of requests that could not be answered from the store
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return Number of requests sent for sub-ranges the store did not hold
+	 */
+	public long getGapCount() {
+		return gapCount.sum();
+	}
+
+	/**
+	 * @return Number of points rolled up since startup
+	 */
+	public long getRollupCount() {
+		return rollupCount.sum();
+	}
+
+	/**
+	 * Drops the points of every open series that are older than its tier's retention period.
+	 */
+	public void applyRetention() {
+		for (TimeSeries timeSeries : series.values())
+			applyRetention(timeSeries);
+	}
+
+	/**
+	 * @return Number of points appended since startup
+	 */
+	public long getPointCount() {
+		return pointCount.sum();
+	}
+
+	/**
+	 * @return Number of series opened since startup
+	 */
+	public int getSeriesCount() {
+		return series.size();
+	}
+
+	/**
+	 * Appends the settled points of a response's data to its series, and records the range it
+	 * answered in full.
+	 */
+	private void store(TimeSeries timeSeries, Map<String, String> canonicalParams, JsonNode data) throws IOException {
+		long intervalMillis = HistoryTime.getMillis(timeSeries.getKey().getInterval());
+		String timeField = timeSeries.getKey().getEndpoint().getTimeField();
+		long now = System.currentTimeMillis();
+		long settled = now - intervalMillis - HISTORY_SETTLE_TIME * 1000L;
+		long first = Long.MAX_VALUE;
+		long last = Long.MIN_VALUE;
+		int size = 0;
+		NavigableMap<Long, String> points = new TreeMap<Long, String>();
+
+		timeSeries.setHeader(getHeader(data));
+		for (JsonNode point : data.path("quotes")) {
+			Long time = HistoryTime.parse(point.path(timeField).asText(null));
+			if (time == null)
+				continue;
+			size++;
+			first = Math.min(first, time);
+			last = Math.max(last, time);
+			if (time <= settled)
+				points.put(time, OBJECT_MAPPER.writeValueAsString(point));
+		}
+		pointCount.add(timeSeries.append(points));
+
+		long[] range = getCoveredRange(timeSeries.getKey().getEndpoint(), canonicalParams, size, first, last, now);
+		if (range != null && range[0] <= Math.min(range[1], settled) && timeSeries.addCoverage(range[0], Math.min(range[1], settled)))
+			rollUp(timeSeries, range[0], Math.min(range[1], settled));
+		applyRetention(timeSeries);
+	}
+
+	/**
+	 * Rolls up the buckets of the next coarser tier that a newly covered range of a series
+	 * completes, and the buckets of the tiers after it that these complete in turn.
+	 *
+	 * @param source Series whose range from start to end (inclusive) was covered
+	 */
+	private void rollUp(TimeSeries source, long start, long end) throws IOException {
+		long sourceMillis = HistoryTime.getMillis(source.getKey().getInterval());
+		HistoryTier tier = null;
+		for (HistoryTier candidate : tiers) {
+			if (candidate.getIntervalMillis() > sourceMillis && candidate.getIntervalMillis() % sourceMillis == 0L) {
+				tier = candidate;
+				break;
+			}
+		}
+		if (tier == null)
+			return;
+
+		SeriesKey sourceKey = source.getKey();
+		boolean candles = sourceKey.getEndpoint() == HistoricalEndpoint.CRYPTOCURRENCY_OHLCV
+				&& "hourly".equals(sourceKey.getParam("time_period")) && tier.getIntervalMillis() >= DAY;
+		TimeSeries target = getSeries((candles ? sourceKey.withoutParam("time_period") : sourceKey).getRollup(tier.getInterval()), true);
+		if (target == null)
+			return;
+		if (source.getHeader() != null)
+			target.setHeader(source.getHeader());
+
+		long bucketMillis = tier.getIntervalMillis();
+		NavigableMap<Long, String> points = new TreeMap<Long, String>();
+		List<long[]> ranges = new ArrayList<long[]>();
+		for (long bucket = Math.floorDiv(start, bucketMillis) * bucketMillis; bucket <= end; bucket += bucketMillis) {
+			long bucketEnd = bucket + bucketMillis - 1L;
+			if (!source.covers(bucket, bucketEnd) || target.covers(bucket, bucketEnd))
+				continue;
+
+			NavigableMap<Long, String> bucketPoints = source.getPointsByTime(bucket, bucketEnd);
+			Map.Entry<Long, String> point = bucketPoints.isEmpty() ? null
+					: (candles ? aggregateCandles(bucketPoints) : bucketPoints.firstEntry());
+			if (point == null && !bucketPoints.isEmpty())
+				continue;
+			if (point != null)
+				points.put(point.getKey(), point.getValue());
+
+			if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[1] == bucket - 1L)
+				ranges.get(ranges.size() - 1)[1] = bucketEnd;
+			else
+				ranges.add(new long[] { bucket, bucketEnd });
+		}
+		if (ranges.isEmpty())
+			return;
+
+		rollupCount.add(target.append(points));
+		for (long[] range : ranges)
+			target.addCoverage(range[0], range[1]);
+		rollUp(target, ranges.get(0)[0], ranges.get(ranges.size() - 1)[1]);
+		applyRetention(target);
+	}
+
+	/**
+	 * Aggregates hourly OHLCV candles into one candle: opened by the first, closed by the last, with
+	 * the highest high, the lowest low and the sum of the volumes. Other fields are those of the
+	 * last candle.
+	 *
+	 * @param candles JSON of the candles, by time
+	 *
+	 * @return The candle and its time, or null if the candles have no common quotes
+	 */
+	private static Map.Entry<Long, String> aggregateCandles(NavigableMap<Long, String> candles) throws IOException {
+		List<JsonNode> nodes = new ArrayList<JsonNode>();
+		for (String candle : candles.values())
+			nodes.add(OBJECT_MAPPER.readTree(candle));
+		JsonNode first = nodes.get(0);
+		JsonNode last = nodes.get(nodes.size() - 1);
+		ObjectNode aggregate = (ObjectNode) first.deepCopy();
+		if (!first.path("quote").isObject() || first.path("quote").size() == 0)
+			return null;
+
+		Iterator<String> currencies = first.path("quote").fieldNames();
+		boolean primary = true;
+		while (currencies.hasNext()) {
+			String currency = currencies.next();
+			ObjectNode quote = (ObjectNode) aggregate.path("quote").path(currency);
+			JsonNode highest = null;
+			JsonNode lowest = null;
+			double volume = 0D;
+			boolean volumes = true;
+			for (JsonNode node : nodes) {
+				JsonNode candle = node.path("quote").path(currency);
+				if (!candle.path("high").isNumber() || !candle.path("low").isNumber())
+					return null;
+				if (highest == null || candle.path("high").asDouble() > highest.path("quote").path(currency).path("high").asDouble())
+					highest = node;
+				if (lowest == null || candle.path("low").asDouble() < lowest.path("quote").path(currency).path("low").asDouble())
+					lowest = node;
+				volumes &= candle.path("volume").isNumber();
+				volume += candle.path("volume").asDouble();
+			}
+
+			JsonNode lastQuote = last.path("quote").path(currency);
+			List<String> names = new ArrayList<String>();
+			quote.fieldNames().forEachRemaining(names::add);
+			for (String name : names) {
+				if (name.equals("high"))
+					quote.set(name, highest.path("quote").path(currency).path("high"));
+				else if (name.equals("low"))
+					quote.set(name, lowest.path("quote").path(currency).path("low"));
+				else if (name.equals("volume"))
+					quote.set(name, volumes ? OBJECT_MAPPER.getNodeFactory().numberNode(volume) : lastQuote.path(name));
+				else if (!name.equals("open") && lastQuote.has(name))
+					quote.set(name, lastQuote.path(name));
+			}
+
+			// times of the extremes are those of the first currency, as upstream
+			if (primary) {
+				if (aggregate.has("time_high"))
+					aggregate.set("time_high", highest.path("time_high"));
+				if (aggregate.has("time_low"))
+					aggregate.set("time_low", lowest.path("time_low"));
+				primary = false;
+			}
+		}
+		if (aggregate.has("time_close"))
+			aggregate.set("time_close", last.path("time_close"));
+		return new AbstractMap.SimpleImmutableEntry<Long, String>(candles.firstKey(), OBJECT_MAPPER.writeValueAsString(aggregate));
+	}
+
+	/**
+	 * Drops the points of a series that are older than its tier's retention period.
+	 */
+	private void applyRetention(TimeSeries timeSeries) {
+		HistoryTier tier = getTier(HistoryTime.getMillis(timeSeries.getKey().getInterval()));
+		if (tier == null || tier.getRetentionMillis() < 1L)
+			return;
+
+		try {
+			timeSeries.truncate(System.currentTimeMillis() - tier.getRetentionMillis());
+		} catch (IOException | RuntimeException exception) {
+			LOGGER.warn("Cannot drop expired points of {}: {}", timeSeries.getKey(), exception.getMessage());
+		}
+	}
+
+	/**
+	 * @return The tier of an interval, or null if the interval has no tier
+	 */
+	private HistoryTier getTier(long intervalMillis) {
+		for (HistoryTier tier : tiers) {
+			if (tier.getIntervalMillis() == intervalMillis)
+				return tier;
+		}
+		return null;
+	}
+
+	/**
+	 * @return True if the series holds every point from start to end (inclusive), and its header
+	 */
+	private static boolean answers(TimeSeries timeSeries, Long start, Long end) {
+		return timeSeries != null && start != null && end != null && timeSeries.covers(start, end)
+				&& (!timeSeries.getKey().getEndpoint().isPerAsset() || timeSeries.getHeader() != null);
+	}
+
+	/**
+	 * @return The data of a successful response that holds the series' points, or null
+	 */
+	private static JsonNode getData(JsonNode root, SeriesKey key) {
+		JsonNode data = root.path("data");
+		if (!data.path("quotes").isArray())
+			data = data.path(key.getAsset());
+		if (root.path("status").path("error_code").asInt(0) != 0 || !data.path("quotes").isArray())
+			return null;
+		return data;
+	}
+
+	/**
+	 * @return JSON of the data without its points
+	 */
+	private static String getHeader(JsonNode data) throws IOException {
+		ObjectNode header = ((ObjectNode) data).deepCopy();
+		header.remove("quotes");
+		return OBJECT_MAPPER.writeValueAsString(header);
+	}
+
+	/**
+	 * The range a response answered in full: the requested range, from the first time upstream can
+	 * return for its start, narrowed to its first or last point on the side where upstream stopped
+	 * at the count.
+	 *
+	 * @return Start and end (inclusive) of the range, or null if it is not known
+	 */
+	private static long[] getCoveredRange(HistoricalEndpoint historicalEndpoint, Map<String, String> canonicalParams, int size,
+			long first, long last, long now) {
+		Long start = HistoryTime.parse(canonicalParams.get("time_start"));
+		if (start != null)
+			start = historicalEndpoint.getFirstTime(start);
+		Long end = HistoryTime.parse(canonicalParams.get("time_end"));
+		long count = DEFAULT_COUNT;
+		try {
+			if (canonicalParams.containsKey("count"))
+				count = Long.parseLong(canonicalParams.get("count"));
+			else if (start != null && end != null)
+				count = MAX_POINTS;
+		} catch (NumberFormatException exception) {
+			return null;
+		}
+		boolean truncated = size >= Math.min(count, MAX_POINTS);
+
+		if (start != null)
+			return new long[] { start, truncated ? last : (end != null ? end : now) };
+		// without a start, upstream counts back from the end
+		return size > 0 ? new long[] { first, end != null ? end : now } : null;
+	}
+
+	/**
+	 * @param create True to create the series if it is not stored
+	 *
+	 * @return The series, or null if it is not stored or cannot be opened
+	 */
+	private TimeSeries getSeries(SeriesKey key, boolean create) {
+		TimeSeries timeSeries = series.get(key);
+		if (timeSeries != null)
+			return timeSeries;
+
+		File seriesDirectory = new File(directory, key.getPath());
+		if (!create && !seriesDirectory.isDirectory())
+			return null;
+
+		synchronized (series) {
+			timeSeries = series.get(key);
+			if (timeSeries == null) {
+				try {
+					timeSeries = TimeSeries.open(seriesDirectory, key, HistoryTime.getMillis(key.getInterval()));
+					series.put(key, timeSeries);
+					applyRetention(timeSeries);
+				} catch (IOException exception) {
+					LOGGER.warn("Cannot open historical series {}: {}", key, exception.getMessage());
+				}
+			}
+			return timeSeries;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One tier of the local history: an interval whose series are kept for a retention period, and
+ * rolled up from the next finer tier.
+ */
+final class HistoryTier {
+
+	private final String interval;
+	private final long intervalMillis;
+	private final long retentionMillis;
+
+	private HistoryTier(String interval, long intervalMillis, long retentionMillis) {
+		this.interval = interval;
+		this.intervalMillis = intervalMillis;
+		this.retentionMillis = retentionMillis;
+	}
+
+	/**
+	 * Parses a comma-separated list of tiers, each an interval optionally followed by a colon and a
+	 * retention period (e.g. <code>5m:7d,1h:90d,1d</code>). Tiers without a retention period are
+	 * kept forever.
+	 *
+	 * @return The tiers, finest first
+	 *
+	 * @throws IllegalArgumentException If an interval or retention period is not known
+	 */
+	static List<HistoryTier> parse(String tiers) {
+		List<HistoryTier> parsed = new ArrayList<HistoryTier>();
+		if (tiers == null)
+			return parsed;
+
+		for (String tier : tiers.split(",")) {
+			if (tier.trim().isEmpty())
+				continue;
+			String[] parts = tier.trim().toLowerCase(Locale.ROOT).split(":");
+			long intervalMillis = HistoryTime.getMillis(parts[0]);
+			long retentionMillis = parts.length > 1 ? HistoryTime.getMillis(parts[1]) : 0L;
+			if (parts.length > 2 || intervalMillis < 1L || retentionMillis < 0L || (parts.length > 1 && retentionMillis < intervalMillis))
+				throw new IllegalArgumentException("Invalid history tier " + tier.trim());
+			parsed.add(new HistoryTier(parts[0].trim(), intervalMillis, retentionMillis));
+		}
+		parsed.sort(Comparator.comparingLong(HistoryTier::getIntervalMillis));
+		return Collections.unmodifiableList(parsed);
+	}
+
+	/**
+	 * @return Interval of the tier's rollup series (e.g. 1h)
+	 */
+	String getInterval() {
+		return interval;
+	}
+
+	long getIntervalMillis() {
+		return intervalMillis;
+	}
+
+	/**
+	 * @return Milliseconds the tier's points are kept for, 0 to keep them forever
+	 */
+	long getRetentionMillis() {
+		return retentionMillis;
+	}
+
+	@Override
+	public String toString() {
+		return retentionMillis > 0L ? interval + ":" + (retentionMillis / 3600000L) + "h" : interval;
+	}
+}
@@ -0,0 +1,91 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the timestamps and intervals of historical requests and responses.
+ */
+public final class HistoryTime {
+
+	private static final Pattern INTERVAL = Pattern.compile("(\\d+)([mhd])");
+	private static final long MINUTE = 60L * 1000L;
+	private static final long HOUR = 60L * MINUTE;
+	private static final long DAY = 24L * HOUR;
+
+	private HistoryTime() {
+	}
+
+	/**
+	 * Parses a timestamp as the CoinMarketCap API accepts it: Unix seconds (or milliseconds) or
+	 * ISO 8601, as a date, a date and time in UTC, or a date and time with an offset.
+	 *
+	 * @param value Timestamp, may be null
+	 *
+	 * @return Milliseconds since the epoch, or null if the value is not a timestamp
+	 */
+	public static Long parse(String value) {
+		if (value == null || value.trim().isEmpty())
+			return null;
+
+		String time = value.trim();
+		try {
+			if (time.chars().allMatch(Character::isDigit)) {
+				long number = Long.parseLong(time);
+				return number < 100000000000L ? number * 1000L : number;
+			}
+			if (time.length() == 10)
+				return LocalDate.parse(time).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+			if (time.endsWith("Z") || time.endsWith("z"))
+				return Instant.parse(time.toUpperCase(Locale.ROOT)).toEpochMilli();
+			try {
+				return OffsetDateTime.parse(time).toInstant().toEpochMilli();
+			} catch (DateTimeParseException exception) {
+				return LocalDateTime.parse(time).toInstant(ZoneOffset.UTC).toEpochMilli();
+			}
+		} catch (DateTimeParseException | NumberFormatException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param interval Interval of a historical request (e.g. 5m, 1h, daily, 7d)
+	 *
+	 * @return Length of the interval in milliseconds (months and years as 30 and 365 days), or -1
+	 * if the interval is not known
+	 */
+	public static long getMillis(String interval) {
+		if (interval == null)
+			return -1L;
+
+		String name = interval.trim().toLowerCase(Locale.ROOT);
+		switch (name) {
+		case "hourly":
+			return HOUR;
+		case "daily":
+			return DAY;
+		case "weekly":
+			return 7L * DAY;
+		case "monthly":
+			return 30L * DAY;
+		case "yearly":
+			return 365L * DAY;
+		default:
+			Matcher matcher = INTERVAL.matcher(name);
+			if (!matcher.matches())
+				return -1L;
+			long count = Long.parseLong(matcher.group(1));
+			char unit = matcher.group(2).charAt(0);
+			return count * (unit == 'm' ? MINUTE : unit == 'h' ? HOUR : DAY);
+		}
+	}
+}
@@ -0,0 +1,567 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>Compact, columnar binary encoding of a block of points that share one JSON structure, in
+ * the style of Facebook's Gorilla: every leaf field of the points is a column, and the block is
+ * decoded on its own, without any other block.</p>
+ *
+ * <ul>
+ * 	<li>Times (of the points, and ISO 8601 fields such as <code>timestamp</code>) are stored as
+ * 	deltas of deltas in 1 to 68 bits, in seconds if they are all whole seconds, so evenly spaced
+ * 	times take one bit each and times a few seconds off their interval take 12.</li>
+ * 	<li>Floating point numbers are XORed with the previous value of their column, and only the
+ * 	bits that differ are stored, so repeated or close values take a few bits.</li>
+ * 	<li>Integer numbers are stored as deltas of deltas, like times.</li>
+ * 	<li>Any other value (strings, booleans, arrays) is stored as JSON, or as one bit when it
+ * 	repeats the previous value of its column.</li>
+ * </ul>
+ *
+ * <p>A decoded point is the JSON Jackson writes for the encoded point. Points that do not share a
+ * structure, or would not decode to the same JSON, are not encoded.</p>
+ */
+public final class PointBlock {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final int VERSION = 1;
+
+	private static final int TIME = 0;
+	private static final int NUMBER = 1;
+	private static final int LITERAL = 2;
+
+	private static final int NULLABLE = 1;
+	private static final int INTEGRAL = 2;
+	private static final int MIXED = 4;
+
+	private static final long MAX_EXACT_DOUBLE = 1L << 53;
+	private static final long SECOND = 1000L;
+	private static final long DAY = 86400000L;
+	/** Start of year 10000, from which times are written by the formats */
+	private static final long MAX_FAST_TIME = 253402300800000L;
+	private static final DateTimeFormatter[] TIME_FORMATS = {
+			DateTimeFormatter.ISO_INSTANT,
+			DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC) };
+
+	private PointBlock() {
+	}
+
+	/**
+	 * Encodes points that share one JSON structure.
+	 *
+	 * @param times Time of each point in epoch milliseconds, in ascending order
+	 * @param points The points
+	 *
+	 * @return The block, or null if the points cannot be encoded
+	 */
+	public static byte[] encode(long[] times, List<JsonNode> points) {
+		if (points.isEmpty() || times.length != points.size())
+			return null;
+
+		List<List<String>> paths = new ArrayList<List<String>>();
+		List<List<JsonNode>> columns = new ArrayList<List<JsonNode>>();
+		collectLeaves(points.get(0), new ArrayList<String>(), paths, columns);
+		for (int i = 1; i < points.size(); i++) {
+			List<List<String>> pointPaths = new ArrayList<List<String>>();
+			List<List<JsonNode>> pointColumns = new ArrayList<List<JsonNode>>();
+			collectLeaves(points.get(i), new ArrayList<String>(), pointPaths, pointColumns);
+			if (!pointPaths.equals(paths))
+				return null;
+			for (int column = 0; column < columns.size(); column++)
+				columns.get(column).add(pointColumns.get(column).get(0));
+		}
+
+		try {
+			BitOutput output = new BitOutput();
+			output.write(VERSION, 8);
+			output.writeVarLong(points.size());
+			output.writeVarLong(paths.size());
+
+			long timeUnit = getTimeUnit(times);
+			output.writeBit(timeUnit != 1L);
+			DeltaEncoder timeEncoder = new DeltaEncoder();
+			for (long time : times)
+				timeEncoder.write(output, time / timeUnit);
+
+			for (int column = 0; column < paths.size(); column++)
+				writeColumn(output, paths.get(column), columns.get(column));
+
+			byte[] block = output.toByteArray();
+			List<String> decoded = decode(block);
+			for (int i = 0; i < points.size(); i++) {
+				if (!decoded.get(i).equals(OBJECT_MAPPER.writeValueAsString(points.get(i))))
+					return null;
+			}
+			return block;
+		} catch (IOException | RuntimeException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return Time of each point of a block in epoch milliseconds, without decoding the points
+	 */
+	public static long[] decodeTimes(byte[] block) {
+		BitInput input = new BitInput(block);
+		if (input.read(8) != VERSION)
+			throw new IllegalArgumentException("Unknown block version");
+
+		long[] times = new long[(int) input.readVarLong()];
+		input.readVarLong();
+		long timeUnit = input.readBit() ? SECOND : 1L;
+		DeltaDecoder timeDecoder = new DeltaDecoder();
+		for (int i = 0; i < times.length; i++)
+			times[i] = timeDecoder.read(input) * timeUnit;
+		return times;
+	}
+
+	/**
+	 * @return JSON of each point of a block, in time order
+	 */
+	public static List<String> decode(byte[] block) {
+		BitInput input = new BitInput(block);
+		if (input.read(8) != VERSION)
+			throw new IllegalArgumentException("Unknown block version");
+
+		int size = (int) input.readVarLong();
+		int columnCount = (int) input.readVarLong();
+		input.readBit();
+		DeltaDecoder timeDecoder = new DeltaDecoder();
+		for (int i = 0; i < size; i++)
+			timeDecoder.read(input);
+
+		List<List<String>> paths = new ArrayList<List<String>>();
+		String[][] values = new String[columnCount][];
+		for (int column = 0; column < columnCount; column++) {
+			List<String> path = new ArrayList<String>();
+			int depth = (int) input.readVarLong();
+			for (int i = 0; i < depth; i++)
+				path.add(readString(input));
+			paths.add(path);
+			values[column] = readColumn(input, size);
+		}
+
+		// every point has the same structure, so the JSON between its values is the same too
+		String[] prefixes = new String[columnCount];
+		List<String> open = new ArrayList<String>();
+		boolean separate = false;
+		int length = 0;
+		for (int column = 0; column < columnCount; column++) {
+			List<String> path = paths.get(column);
+			StringBuilder prefix = new StringBuilder(column == 0 ? "{" : "");
+			int common = 0;
+			while (common < open.size() && common < path.size() - 1 && open.get(common).equals(path.get(common)))
+				common++;
+			while (open.size() > common) {
+				prefix.append('}');
+				open.remove(open.size() - 1);
+			}
+			for (int depth = common; depth < path.size() - 1; depth++) {
+				prefix.append(separate ? "," : "").append(quote(path.get(depth))).append(":{");
+				open.add(path.get(depth));
+				separate = false;
+			}
+			prefix.append(separate ? "," : "").append(quote(path.get(path.size() - 1))).append(':');
+			separate = true;
+			prefixes[column] = prefix.toString();
+			length += prefixes[column].length() + 16;
+		}
+		StringBuilder suffix = new StringBuilder(columnCount == 0 ? "{" : "");
+		for (int depth = open.size(); depth >= 0; depth--)
+			suffix.append('}');
+
+		List<String> points = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++) {
+			StringBuilder point = new StringBuilder(length);
+			for (int column = 0; column < columnCount; column++)
+				point.append(prefixes[column]).append(values[column][i]);
+			points.add(point.append(suffix).toString());
+		}
+		return points;
+	}
+
+	/**
+	 * @return A field name as JSON
+	 */
+	private static String quote(String name) {
+		try {
+			return OBJECT_MAPPER.writeValueAsString(name);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Field name could not be written", exception);
+		}
+	}
+
+	/**
+	 * Collects the leaves of a point in depth-first order: values that are not objects, and empty
+	 * objects.
+	 */
+	private static void collectLeaves(JsonNode node, List<String> path, List<List<String>> paths, List<List<JsonNode>> columns) {
+		Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			path.add(field.getKey());
+			if (field.getValue().isObject() && field.getValue().size() > 0) {
+				collectLeaves(field.getValue(), path, paths, columns);
+			} else {
+				paths.add(new ArrayList<String>(path));
+				columns.add(new ArrayList<JsonNode>(Arrays.asList(field.getValue())));
+			}
+			path.remove(path.size() - 1);
+		}
+	}
+
+	private static void writeColumn(BitOutput output, List<String> path, List<JsonNode> values) throws IOException {
+		boolean nullable = false;
+		boolean integral = true;
+		boolean floating = true;
+		boolean exact = true;
+		int timeFormat = -1;
+		boolean times = true;
+		boolean seconds = true;
+		int present = 0;
+		for (JsonNode value : values) {
+			if (value.isNull()) {
+				nullable = true;
+				continue;
+			}
+			present++;
+			integral &= value.isIntegralNumber() && value.canConvertToLong();
+			floating &= value.isDouble();
+			exact &= value.isDouble() || (value.isIntegralNumber() && value.canConvertToLong()
+					&& Math.abs(value.asLong()) <= MAX_EXACT_DOUBLE);
+			int format = value.isTextual() ? getTimeFormat(value.asText()) : -1;
+			if (timeFormat < 0)
+				timeFormat = format;
+			times &= format >= 0 && format == timeFormat;
+			seconds &= times && Instant.parse(value.asText()).toEpochMilli() % SECOND == 0L;
+		}
+
+		int kind = LITERAL;
+		int flags = 0;
+		if (present > 0 && times) {
+			kind = TIME;
+		} else if (present > 0 && (integral || exact)) {
+			kind = NUMBER;
+			flags = integral ? INTEGRAL : (floating ? 0 : MIXED);
+		}
+		if (nullable && kind != LITERAL)
+			flags |= NULLABLE;
+
+		output.writeVarLong(path.size());
+		for (String name : path)
+			writeString(output, name);
+		output.write(kind, 2);
+		output.write(flags, 3);
+		if (kind == TIME) {
+			output.write(timeFormat, 1);
+			output.writeBit(seconds);
+		}
+		long timeUnit = kind == TIME && seconds ? SECOND : 1L;
+
+		DeltaEncoder deltaEncoder = new DeltaEncoder();
+		XorEncoder xorEncoder = new XorEncoder();
+		String previous = null;
+		for (JsonNode value : values) {
+			if ((flags & NULLABLE) != 0) {
+				output.writeBit(!value.isNull());
+				if (value.isNull())
+					continue;
+			}
+			if (kind == TIME) {
+				deltaEncoder.write(output, Instant.parse(value.asText()).toEpochMilli() / timeUnit);
+			} else if (kind == NUMBER && (flags & INTEGRAL) != 0) {
+				deltaEncoder.write(output, value.asLong());
+			} else if (kind == NUMBER) {
+				if ((flags & MIXED) != 0)
+					output.writeBit(value.isIntegralNumber());
+				xorEncoder.write(output, Double.doubleToRawLongBits(value.asDouble()));
+			} else {
+				String json = OBJECT_MAPPER.writeValueAsString(value);
+				output.writeBit(json.equals(previous));
+				if (!json.equals(previous))
+					writeString(output, json);
+				previous = json;
+			}
+		}
+	}
+
+	/**
+	 * @return The values of a column as JSON
+	 */
+	private static String[] readColumn(BitInput input, int size) {
+		int kind = (int) input.read(2);
+		int flags = (int) input.read(3);
+		int timeFormat = kind == TIME ? (int) input.read(1) : -1;
+		long timeUnit = kind == TIME && input.readBit() ? SECOND : 1L;
+
+		String[] values = new String[size];
+		DeltaDecoder deltaDecoder = new DeltaDecoder();
+		XorDecoder xorDecoder = new XorDecoder();
+		String previous = null;
+		for (int i = 0; i < size; i++) {
+			if ((flags & NULLABLE) != 0 && !input.readBit()) {
+				values[i] = "null";
+			} else if (kind == TIME) {
+				values[i] = formatTime(deltaDecoder.read(input) * timeUnit, timeFormat);
+			} else if (kind == NUMBER && (flags & INTEGRAL) != 0) {
+				values[i] = Long.toString(deltaDecoder.read(input));
+			} else if (kind == NUMBER) {
+				boolean integral = (flags & MIXED) != 0 && input.readBit();
+				double value = Double.longBitsToDouble(xorDecoder.read(input));
+				values[i] = integral ? Long.toString((long) value) : Double.toString(value);
+			} else {
+				if (!input.readBit())
+					previous = readString(input);
+				values[i] = previous;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @return A second if every time is a whole second, else a millisecond
+	 */
+	private static long getTimeUnit(long[] times) {
+		for (long time : times) {
+			if (time % SECOND != 0L)
+				return 1L;
+		}
+		return SECOND;
+	}
+
+	/**
+	 * @return Index of the format that writes the text from its time exactly, -1 if there is none
+	 */
+	private static int getTimeFormat(String text) {
+		try {
+			Instant instant = Instant.parse(text);
+			if (instant.getNano() % 1000000 != 0)
+				return -1;
+			for (int format = 0; format < TIME_FORMATS.length; format++) {
+				if (TIME_FORMATS[format].format(instant).equals(text))
+					return format;
+			}
+		} catch (DateTimeParseException exception) {
+			// not a time
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes a time as a JSON string in one of the {@link #TIME_FORMATS }, faster than the format
+	 * does for years 1970 to 9999.
+	 */
+	private static String formatTime(long millis, int format) {
+		if (millis < 0L || millis >= MAX_FAST_TIME)
+			return '"' + TIME_FORMATS[format].format(Instant.ofEpochMilli(millis)) + '"';
+
+		long days = millis / DAY;
+		int millisOfDay = (int) (millis % DAY);
+		LocalDate date = LocalDate.ofEpochDay(days);
+		char[] text = new char[26];
+		text[0] = '"';
+		writeDigits(text, 1, date.getYear(), 4);
+		text[5] = '-';
+		writeDigits(text, 6, date.getMonthValue(), 2);
+		text[8] = '-';
+		writeDigits(text, 9, date.getDayOfMonth(), 2);
+		text[11] = 'T';
+		writeDigits(text, 12, millisOfDay / 3600000, 2);
+		text[14] = ':';
+		writeDigits(text, 15, millisOfDay / 60000 % 60, 2);
+		text[17] = ':';
+		writeDigits(text, 18, millisOfDay / 1000 % 60, 2);
+		int end = 20;
+		if (format == 1 || millisOfDay % 1000 != 0) {
+			text[20] = '.';
+			writeDigits(text, 21, millisOfDay % 1000, 3);
+			end = 24;
+		}
+		text[end] = 'Z';
+		text[end + 1] = '"';
+		return new String(text, 0, end + 2);
+	}
+
+	private static void writeDigits(char[] text, int offset, int value, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			text[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static void writeString(BitOutput output, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeVarLong(bytes.length);
+		for (byte b : bytes)
+			output.write(b, 8);
+	}
+
+	private static String readString(BitInput input) {
+		byte[] bytes = new byte[(int) input.readVarLong()];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) input.read(8);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the first value in 64 bits, the second as a delta and every other value as the change
+	 * of its delta: 0 as a single bit, others in 7, 9, 12 or 64 bits after a 2 to 4 bit prefix.
+	 */
+	private static final class DeltaEncoder {
+
+		private long previous;
+		private long previousDelta;
+		private int count;
+
+		void write(BitOutput output, long value) {
+			if (count == 0) {
+				output.write(value, 64);
+			} else if (count == 1) {
+				previousDelta = value - previous;
+				output.writeVarLong((previousDelta << 1) ^ (previousDelta >> 63));
+			} else {
+				long delta = value - previous;
+				long deltaOfDelta = delta - previousDelta;
+				if (deltaOfDelta == 0L) {
+					output.write(0L, 1);
+				} else if (deltaOfDelta >= -63L && deltaOfDelta <= 64L) {
+					output.write(0b10L, 2);
+					output.write(deltaOfDelta + 63L, 7);
+				} else if (deltaOfDelta >= -255L && deltaOfDelta <= 256L) {
+					output.write(0b110L, 3);
+					output.write(deltaOfDelta + 255L, 9);
+				} else if (deltaOfDelta >= -2047L && deltaOfDelta <= 2048L) {
+					output.write(0b1110L, 4);
+					output.write(deltaOfDelta + 2047L, 12);
+				} else {
+					output.write(0b1111L, 4);
+					output.write(deltaOfDelta, 64);
+				}
+				previousDelta = delta;
+			}
+			previous = value;
+			count++;
+		}
+	}
+
+	private static final class DeltaDecoder {
+
+		private long previous;
+		private long previousDelta;
+		private int count;
+
+		long read(BitInput input) {
+			long value;
+			if (count == 0) {
+				value = input.read(64);
+			} else if (count == 1) {
+				long zigzag = input.readVarLong();
+				previousDelta = (zigzag >>> 1) ^ -(zigzag & 1L);
+				value = previous + previousDelta;
+			} else {
+				long deltaOfDelta;
+				if (!input.readBit())
+					deltaOfDelta = 0L;
+				else if (!input.readBit())
+					deltaOfDelta = input.read(7) - 63L;
+				else if (!input.readBit())
+					deltaOfDelta = input.read(9) - 255L;
+				else if (!input.readBit())
+					deltaOfDelta = input.read(12) - 2047L;
+				else
+					deltaOfDelta = input.read(64);
+				previousDelta += deltaOfDelta;
+				value = previous + previousDelta;
+			}
+			previous = value;
+			count++;
+			return value;
+		}
+	}
+
+	/**
+	 * Writes the first value in 64 bits and every other value XORed with the previous one: 0 as a
+	 * single bit, others as their meaningful bits, within the previous window of leading and trailing
+	 * zeros if they fit it, else after a new window.
+	 */
+	private static final class XorEncoder {
+
+		private long previous;
+		private int leading = -1;
+		private int trailing;
+		private boolean first = true;
+
+		void write(BitOutput output, long value) {
+			if (first) {
+				output.write(value, 64);
+				first = false;
+				previous = value;
+				return;
+			}
+
+			long xor = value ^ previous;
+			previous = value;
+			if (xor == 0L) {
+				output.writeBit(false);
+				return;
+			}
+
+			output.writeBit(true);
+			int valueLeading = Math.min(31, Long.numberOfLeadingZeros(xor));
+			int valueTrailing = Long.numberOfTrailingZeros(xor);
+			if (leading >= 0 && valueLeading >= leading && valueTrailing >= trailing) {
+				output.writeBit(false);
+				output.write(xor >>> trailing, 64 - leading - trailing);
+			} else {
+				int meaningful = 64 - valueLeading - valueTrailing;
+				output.writeBit(true);
+				output.write(valueLeading, 5);
+				output.write(meaningful - 1, 6);
+				output.write(xor >>> valueTrailing, meaningful);
+				leading = valueLeading;
+				trailing = valueTrailing;
+			}
+		}
+	}
+
+	private static final class XorDecoder {
+
+		private long previous;
+		private int leading;
+		private int trailing;
+		private boolean first = true;
+
+		long read(BitInput input) {
+			if (first) {
+				first = false;
+				previous = input.read(64);
+				return previous;
+			}
+
+			if (input.readBit()) {
+				if (input.readBit()) {
+					leading = (int) input.read(5);
+					trailing = 64 - leading - ((int) input.read(6) + 1);
+				}
+				previous ^= input.read(64 - leading - trailing) << trailing;
+			}
+			return previous;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The upstream requests that fetch the parts of a historical range the store does not hold: one
+ * request per missing sub-range, split so that no request asks for more points than upstream
+ * returns at once. Built by {@link HistoryStore#plan }; the responses are merged with the stored
+ * points by {@link HistoryStore#merge }.
+ */
+public final class RangePlan {
+
+	private final String endpoint;
+	private final SeriesKey key;
+	private final long start;
+	private final long end;
+	private final List<HashMap<String, String>> requests;
+
+	RangePlan(String endpoint, SeriesKey key, long start, long end, List<HashMap<String, String>> requests) {
+		this.endpoint = endpoint;
+		this.key = key;
+		this.start = start;
+		this.end = end;
+		this.requests = Collections.unmodifiableList(requests);
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public SeriesKey getKey() {
+		return key;
+	}
+
+	/**
+	 * @return Start of the requested range in epoch milliseconds
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return End (inclusive) of the requested range in epoch milliseconds
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return Canonical query parameters of each missing sub-range, in time order
+	 */
+	public List<HashMap<String, String>> getRequests() {
+		return requests;
+	}
+}
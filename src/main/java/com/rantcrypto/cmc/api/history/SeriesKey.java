@@ -0,0 +1,162 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Identifies one stored time series: the endpoint, the asset, the interval of its points and every
+ * other parameter that changes their content (convert options, aux fields, time period). Time
+ * range and count parameters only select points of a series and are not part of its key.
+ *
+ * <p>Series of responses and rollup series, computed locally from finer series, have separate
+ * keys, so their points never mix.</p>
+ */
+public final class SeriesKey {
+
+	private final HistoricalEndpoint endpoint;
+	private final String asset;
+	private final String interval;
+	private final String params;
+	private final boolean rollup;
+
+	private SeriesKey(HistoricalEndpoint endpoint, String asset, String interval, String params, boolean rollup) {
+		this.endpoint = endpoint;
+		this.asset = asset;
+		this.interval = interval;
+		this.params = params;
+		this.rollup = rollup;
+	}
+
+	/**
+	 * @param endpoint Historical endpoint
+	 * @param canonicalParams Canonical query parameters of a request
+	 *
+	 * @return Key of the requested series, or null if the request is not for a single asset by id
+	 */
+	public static SeriesKey of(HistoricalEndpoint endpoint, Map<String, String> canonicalParams) {
+		String asset = "global";
+		if (endpoint.isPerAsset()) {
+			asset = canonicalParams.get("id");
+			if (asset == null || asset.isEmpty() || !asset.chars().allMatch(Character::isDigit)
+					|| canonicalParams.containsKey("slug") || canonicalParams.containsKey("symbol"))
+				return null;
+		}
+
+		String interval = canonicalParams.get("interval");
+		interval = interval != null ? interval.trim().toLowerCase(Locale.ROOT) : endpoint.getDefaultInterval();
+		if (!interval.chars().allMatch(Character::isLetterOrDigit))
+			return null;
+
+		StringBuilder params = new StringBuilder();
+		for (Map.Entry<String, String> entry : canonicalParams.entrySet()) {
+			String name = entry.getKey();
+			if (name.equals("id") || name.equals("interval") || name.equals("time_start") || name.equals("time_end")
+					|| name.equals("count"))
+				continue;
+			if (params.length() > 0)
+				params.append('&');
+			params.append(name).append('=').append(entry.getValue());
+		}
+		return new SeriesKey(endpoint, asset, interval, params.toString(), false);
+	}
+
+	/**
+	 * @param rollupInterval Interval of the rollup series
+	 *
+	 * @return Key of the rollup series of the same endpoint, asset and other parameters
+	 */
+	public SeriesKey getRollup(String rollupInterval) {
+		return new SeriesKey(endpoint, asset, rollupInterval, params, true);
+	}
+
+	/**
+	 * @return Key of the same series without the given parameter
+	 */
+	public SeriesKey withoutParam(String name) {
+		StringBuilder remaining = new StringBuilder();
+		for (String param : params.split("&")) {
+			if (param.isEmpty() || param.startsWith(name + "="))
+				continue;
+			if (remaining.length() > 0)
+				remaining.append('&');
+			remaining.append(param);
+		}
+		return new SeriesKey(endpoint, asset, interval, remaining.toString(), rollup);
+	}
+
+	/**
+	 * @return Value of one of the other parameters, or null if it is not given
+	 */
+	public String getParam(String name) {
+		for (String param : params.split("&")) {
+			if (param.startsWith(name + "="))
+				return param.substring(name.length() + 1);
+		}
+		return null;
+	}
+
+	public HistoricalEndpoint getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return CoinMarketCap ID of the asset, or "global" for series not of an asset
+	 */
+	public String getAsset() {
+		return asset;
+	}
+
+	public String getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return Canonical query string of the other parameters
+	 */
+	public String getParams() {
+		return params;
+	}
+
+	/**
+	 * @return True if the series is rolled up from a finer series
+	 */
+	public boolean isRollup() {
+		return rollup;
+	}
+
+	/**
+	 * @return Path of the series' directory, relative to the store: partitioned by endpoint, asset
+	 * and interval, with a hash of the other parameters
+	 */
+	public String getPath() {
+		CRC32 crc = new CRC32();
+		crc.update(params.getBytes(StandardCharsets.UTF_8));
+		return endpoint.getName() + "/" + asset + "/" + (rollup ? "rollup-" : "") + interval + "-" + String.format("%08x", crc.getValue());
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof SeriesKey))
+			return false;
+		SeriesKey key = (SeriesKey) other;
+		return endpoint == key.endpoint && asset.equals(key.asset) && interval.equals(key.interval) && params.equals(key.params)
+				&& rollup == key.rollup;
+	}
+
+	@Override
+	public int hashCode() {
+		return (((endpoint.hashCode() * 31 + asset.hashCode()) * 31 + interval.hashCode()) * 31 + params.hashCode()) * 2
+				+ (rollup ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return endpoint.getName() + "/" + asset + "/" + (rollup ? "rollup-" : "") + interval + "?" + params;
+	}
+}
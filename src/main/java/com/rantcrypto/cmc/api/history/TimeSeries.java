@@ -0,0 +1,485 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>One stored time series, in its own directory. The series log (<code>series.dat</code>) holds
+ * the series' key, the JSON of its header (the response's data without its points) and the time
+ * ranges that were fetched in full. Points are appended to partition files
+ * (<code>points-[start].dat</code>), each covering a fixed span of 288 intervals, so a range is
+ * read from the partitions it overlaps only.</p>
+ *
+ * <p>Points are appended in {@link PointBlock }s of up to 288 points, one per partition a batch
+ * of points falls in; points a block cannot encode are appended as JSON. A partition that was
+ * appended to in many small batches is compacted: its points are rewritten as full blocks to a new
+ * file, which replaces it.</p>
+ *
+ * <p>Points are indexed by time in memory, and a range is read by decoding only the blocks that
+ * hold its points. A point that is already stored is not appended again. Points older than a
+ * retention period are dropped a partition at a time. Thread-safe.</p>
+ */
+final class TimeSeries {
+
+	static final byte KEY = 1;
+	static final byte HEADER = 2;
+	static final byte COVERAGE = 3;
+	static final byte POINT = 4;
+	static final byte BLOCK = 5;
+	static final byte TRUNCATION = 6;
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final String SERIES_FILE = "series.dat";
+	private static final String PARTITION_PREFIX = "points-";
+	private static final String PARTITION_SUFFIX = ".dat";
+	private static final String COMPACTION_SUFFIX = ".tmp";
+	private static final long POINTS_PER_PARTITION = 288L;
+	private static final int BLOCK_POINTS = 288;
+	/** Records appended to a partition since it was compacted that trigger a compaction */
+	private static final int COMPACTION_RECORDS = 8;
+	/** Index of a point within its record, for points appended as JSON */
+	private static final int JSON_INDEX = 0xFFFF;
+
+	private final SeriesKey key;
+	private final File directory;
+	private final long partitionMillis;
+	private final TreeMap<Long, Long> coverage = new TreeMap<Long, Long>();
+	private final TreeMap<Long, Partition> partitions = new TreeMap<Long, Partition>();
+	private final AppendLog log;
+	private String header;
+	private String storedKey;
+
+	private TimeSeries(SeriesKey key, File directory, long intervalMillis) throws IOException {
+		this.key = key;
+		this.directory = directory;
+		this.partitionMillis = Math.max(1L, intervalMillis) * POINTS_PER_PARTITION;
+		this.log = AppendLog.open(new File(directory, SERIES_FILE), this::visitSeries);
+
+		if (storedKey != null && !storedKey.equals(key.toString())) {
+			log.close();
+			throw new IOException("Directory " + directory + " holds series " + storedKey);
+		}
+		if (storedKey == null)
+			log.append(KEY, 0L, 0L, key.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Opens or creates the series in its directory.
+	 *
+	 * @param directory Directory of the series
+	 * @param key Key of the series
+	 * @param intervalMillis Interval of the series' points in milliseconds
+	 *
+	 * @return The series
+	 *
+	 * @throws IOException If the series cannot be read, or the directory holds another series
+	 */
+	static TimeSeries open(File directory, SeriesKey key, long intervalMillis) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create history directory " + directory.getAbsolutePath());
+
+		TimeSeries series = new TimeSeries(key, directory, intervalMillis);
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(PARTITION_PREFIX));
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(COMPACTION_SUFFIX)) {
+				// left by a compaction that did not finish; the partition it compacted is intact
+				file.delete();
+			} else if (name.endsWith(PARTITION_SUFFIX)) {
+				long start = Long.parseLong(name.substring(PARTITION_PREFIX.length(), name.length() - PARTITION_SUFFIX.length()));
+				series.partitions.put(start, series.openPartition(file));
+			}
+		}
+		return series;
+	}
+
+	SeriesKey getKey() {
+		return key;
+	}
+
+	/**
+	 * @return JSON of the series' header, or null if none was stored
+	 */
+	synchronized String getHeader() {
+		return header;
+	}
+
+	/**
+	 * Stores the header of the series, if it changed.
+	 */
+	synchronized void setHeader(String json) throws IOException {
+		if (json.equals(header))
+			return;
+		log.append(HEADER, 0L, 0L, json.getBytes(StandardCharsets.UTF_8));
+		this.header = json;
+	}
+
+	/**
+	 * Appends points, except those whose time is already stored.
+	 *
+	 * @param points JSON of the points, by time in epoch milliseconds
+	 *
+	 * @return Number of points appended
+	 */
+	synchronized int append(NavigableMap<Long, String> points) throws IOException {
+		TreeMap<Long, NavigableMap<Long, String>> batches = new TreeMap<Long, NavigableMap<Long, String>>();
+		for (Map.Entry<Long, String> point : points.entrySet()) {
+			long start = getPartitionStart(point.getKey());
+			Partition partition = partitions.get(start);
+			if (partition == null || !partition.refs.containsKey(point.getKey()))
+				batches.computeIfAbsent(start, batchStart -> new TreeMap<Long, String>()).put(point.getKey(), point.getValue());
+		}
+
+		int appended = 0;
+		for (Map.Entry<Long, NavigableMap<Long, String>> batch : batches.entrySet()) {
+			Partition partition = partitions.get(batch.getKey());
+			if (partition == null) {
+				partition = openPartition(getPartitionFile(batch.getKey()));
+				partitions.put(batch.getKey(), partition);
+			}
+			appendBlocks(partition, batch.getValue());
+			appended += batch.getValue().size();
+
+			if (partition.records - partition.compactedRecords >= COMPACTION_RECORDS)
+				compact(batch.getKey(), partition);
+		}
+		return appended;
+	}
+
+	/**
+	 * Records that every point from start to end (inclusive) is stored.
+	 *
+	 * @return True if the range was not covered yet
+	 */
+	synchronized boolean addCoverage(long start, long end) throws IOException {
+		if (covers(start, end))
+			return false;
+		log.append(COVERAGE, start, end, new byte[0]);
+		merge(start, end);
+		return true;
+	}
+
+	/**
+	 * @return True if every point from start to end (inclusive) is stored
+	 */
+	synchronized boolean covers(long start, long end) {
+		Map.Entry<Long, Long> range = coverage.floorEntry(start);
+		return range != null && range.getValue() >= end;
+	}
+
+	/**
+	 * @return The ranges from start to end (inclusive) that are not covered, as start and end
+	 * (inclusive) pairs in time order
+	 */
+	synchronized List<long[]> getGaps(long start, long end) {
+		List<long[]> gaps = new ArrayList<long[]>();
+		long next = start;
+		Map.Entry<Long, Long> range = coverage.floorEntry(start);
+		if (range == null)
+			range = coverage.ceilingEntry(start);
+		while (range != null && next <= end && range.getKey() <= end) {
+			if (range.getKey() > next)
+				gaps.add(new long[] { next, range.getKey() - 1L });
+			if (range.getValue() >= end)
+				return gaps;
+			next = Math.max(next, range.getValue() + 1L);
+			range = coverage.higherEntry(range.getKey());
+		}
+		if (next <= end)
+			gaps.add(new long[] { next, end });
+		return gaps;
+	}
+
+	/**
+	 * Drops the points before a time: partitions that end before it are deleted, and the ranges
+	 * before it are no longer covered.
+	 *
+	 * @return True if anything was dropped
+	 */
+	synchronized boolean truncate(long before) throws IOException {
+		boolean dropped = false;
+		if (!coverage.isEmpty() && coverage.firstKey() < before) {
+			log.append(TRUNCATION, before, 0L, new byte[0]);
+			clip(before);
+			dropped = true;
+		}
+
+		Iterator<Partition> expired = partitions.headMap(before - partitionMillis, true).values().iterator();
+		while (expired.hasNext()) {
+			expired.next().log.delete();
+			expired.remove();
+			dropped = true;
+		}
+		return dropped;
+	}
+
+	/**
+	 * @return JSON of the stored points from start to end (inclusive), in time order
+	 */
+	synchronized List<String> getPoints(long start, long end) {
+		return new ArrayList<String>(getPointsByTime(start, end).values());
+	}
+
+	/**
+	 * Builds a response in the format of the endpoint from the header and the points of a request's
+	 * range, which excludes its start if the endpoint's start is exclusive.
+	 *
+	 * @return JSON response
+	 */
+	synchronized String getResponse(long start, long end) {
+		return getResponse(start, end, new TreeMap<Long, String>(), null, 0);
+	}
+
+	/**
+	 * Builds a response in the format of the endpoint from the stored points of a request's range,
+	 * which excludes its start if the endpoint's start is exclusive, and points that were just
+	 * fetched, which replace stored points of the same time.
+	 *
+	 * @param fetched JSON of the fetched points, by time
+	 * @param fetchedHeader JSON of the fetched header, null to use the stored one
+	 * @param creditCount Credits used to fetch the points
+	 *
+	 * @return JSON response
+	 */
+	synchronized String getResponse(long start, long end, NavigableMap<Long, String> fetched, String fetchedHeader,
+			int creditCount) {
+		long first = key.getEndpoint().getFirstTime(start);
+		NavigableMap<Long, String> points = new TreeMap<Long, String>();
+		if (first <= end) {
+			points = getPointsByTime(first, end);
+			points.putAll(fetched.subMap(first, true, end, true));
+		}
+		String responseHeader = fetchedHeader != null ? fetchedHeader : header;
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer);
+			generator.writeStartObject();
+			generator.writeObjectFieldStart("status");
+			generator.writeStringField("timestamp", Instant.ofEpochMilli(System.currentTimeMillis()).toString());
+			generator.writeNumberField("error_code", 0);
+			generator.writeNullField("error_message");
+			generator.writeNumberField("elapsed", 0);
+			generator.writeNumberField("credit_count", creditCount);
+			generator.writeNullField("notice");
+			generator.writeEndObject();
+
+			generator.writeObjectFieldStart("data");
+			if (responseHeader != null) {
+				Iterator<Map.Entry<String, JsonNode>> fields = OBJECT_MAPPER.readTree(responseHeader).fields();
+				while (fields.hasNext()) {
+					Map.Entry<String, JsonNode> field = fields.next();
+					generator.writeFieldName(field.getKey());
+					generator.writeTree(field.getValue());
+				}
+			}
+			generator.writeArrayFieldStart("quotes");
+			for (String point : points.values())
+				generator.writeRawValue(point);
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.writeEndObject();
+			generator.close();
+			return writer.toString();
+		} catch (IOException exception) {
+			throw new IllegalStateException("History response could not be written", exception);
+		}
+	}
+
+	/**
+	 * @return Number of stored points
+	 */
+	synchronized long getPointCount() {
+		long pointCount = 0L;
+		for (Partition partition : partitions.values())
+			pointCount += partition.refs.size();
+		return pointCount;
+	}
+
+	synchronized void close() {
+		log.close();
+		for (Partition partition : partitions.values())
+			partition.log.close();
+	}
+
+	/**
+	 * Reads the points from start to end (inclusive), decoding each block that holds any of them
+	 * once.
+	 *
+	 * @return JSON of the points, by time
+	 */
+	synchronized NavigableMap<Long, String> getPointsByTime(long start, long end) {
+		NavigableMap<Long, String> points = new TreeMap<Long, String>();
+		for (Partition partition : partitions.subMap(getPartitionStart(start), true, end, true).values()) {
+			Map<Integer, List<String>> blocks = new HashMap<Integer, List<String>>();
+			for (Map.Entry<Long, Long> ref : partition.refs.subMap(start, true, end, true).entrySet()) {
+				int offset = (int) (ref.getValue() >>> 16);
+				int index = (int) (ref.getValue() & 0xFFFFL);
+				if (index == JSON_INDEX) {
+					points.put(ref.getKey(), new String(partition.log.readPayload(offset), StandardCharsets.UTF_8));
+				} else {
+					List<String> block = blocks.computeIfAbsent(offset, blockOffset -> PointBlock.decode(partition.log.readPayload(blockOffset)));
+					points.put(ref.getKey(), block.get(index));
+				}
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Appends points to a partition in blocks of up to {@link #BLOCK_POINTS }, or as JSON if a
+	 * block cannot encode them.
+	 */
+	private static void appendBlocks(Partition partition, NavigableMap<Long, String> points) throws IOException {
+		List<Map.Entry<Long, String>> entries = new ArrayList<Map.Entry<Long, String>>(points.entrySet());
+		for (int from = 0; from < entries.size(); from += BLOCK_POINTS) {
+			List<Map.Entry<Long, String>> chunk = entries.subList(from, Math.min(entries.size(), from + BLOCK_POINTS));
+			long[] times = new long[chunk.size()];
+			List<JsonNode> nodes = new ArrayList<JsonNode>(chunk.size());
+			for (int i = 0; i < chunk.size(); i++) {
+				times[i] = chunk.get(i).getKey();
+				nodes.add(OBJECT_MAPPER.readTree(chunk.get(i).getValue()));
+			}
+
+			byte[] block = chunk.size() > 1 ? PointBlock.encode(times, nodes) : null;
+			if (block != null) {
+				int offset = partition.log.append(BLOCK, times[0], times[times.length - 1], block);
+				for (int i = 0; i < times.length; i++)
+					partition.refs.put(times[i], ((long) offset << 16) | i);
+				partition.records++;
+			} else {
+				for (Map.Entry<Long, String> point : chunk) {
+					int offset = partition.log.append(POINT, point.getKey(), 0L, point.getValue().getBytes(StandardCharsets.UTF_8));
+					partition.refs.put(point.getKey(), ((long) offset << 16) | JSON_INDEX);
+					partition.records++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the points of a partition as full blocks to a new file, which then replaces the
+	 * partition's file.
+	 */
+	private void compact(long start, Partition partition) throws IOException {
+		File file = getPartitionFile(start);
+		File compacted = new File(directory, file.getName() + COMPACTION_SUFFIX);
+		if (compacted.exists() && !compacted.delete())
+			throw new IOException("Cannot delete " + compacted);
+
+		NavigableMap<Long, String> points = getPointsByTime(start, start + partitionMillis - 1L);
+		Partition replacement = new Partition();
+		replacement.log = AppendLog.open(compacted, (partitionLog, type, first, second, offset) -> {
+		});
+		try {
+			appendBlocks(replacement, points);
+		} finally {
+			replacement.log.close();
+		}
+
+		partition.log.close();
+		Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		partitions.put(start, openPartition(file));
+	}
+
+	/**
+	 * Opens a partition file and indexes its points.
+	 */
+	private Partition openPartition(File file) throws IOException {
+		Partition partition = new Partition();
+		partition.log = AppendLog.open(file, (partitionLog, type, first, second, offset) -> {
+			if (type == POINT) {
+				partition.refs.putIfAbsent(first, ((long) offset << 16) | JSON_INDEX);
+				partition.records++;
+			} else if (type == BLOCK) {
+				long[] times = PointBlock.decodeTimes(partitionLog.readPayload(offset));
+				for (int i = 0; i < times.length; i++)
+					partition.refs.putIfAbsent(times[i], ((long) offset << 16) | i);
+				partition.records++;
+			}
+		});
+		partition.compactedRecords = partition.records;
+		return partition;
+	}
+
+	private long getPartitionStart(long time) {
+		return Math.floorDiv(time, partitionMillis) * partitionMillis;
+	}
+
+	private File getPartitionFile(long start) {
+		return new File(directory, PARTITION_PREFIX + start + PARTITION_SUFFIX);
+	}
+
+	private void visitSeries(AppendLog seriesLog, byte type, long first, long second, int offset) {
+		if (type == KEY)
+			storedKey = new String(seriesLog.readPayload(offset), StandardCharsets.UTF_8);
+		else if (type == HEADER)
+			header = new String(seriesLog.readPayload(offset), StandardCharsets.UTF_8);
+		else if (type == COVERAGE)
+			merge(first, second);
+		else if (type == TRUNCATION)
+			clip(first);
+	}
+
+	/**
+	 * Removes the covered ranges before a time.
+	 */
+	private void clip(long before) {
+		Iterator<Map.Entry<Long, Long>> ranges = coverage.headMap(before, false).entrySet().iterator();
+		long clippedEnd = Long.MIN_VALUE;
+		while (ranges.hasNext()) {
+			clippedEnd = Math.max(clippedEnd, ranges.next().getValue());
+			ranges.remove();
+		}
+		if (clippedEnd >= before)
+			coverage.put(before, clippedEnd);
+	}
+
+	/**
+	 * Adds a range to the covered ranges, merging it with those it overlaps or adjoins.
+	 */
+	private void merge(long start, long end) {
+		Map.Entry<Long, Long> previous = coverage.floorEntry(start);
+		if (previous != null && previous.getValue() >= start - 1L) {
+			start = previous.getKey();
+			end = Math.max(end, previous.getValue());
+			coverage.remove(previous.getKey());
+		}
+		Map.Entry<Long, Long> next = coverage.ceilingEntry(start);
+		while (next != null && next.getKey() <= end + 1L) {
+			end = Math.max(end, next.getValue());
+			coverage.remove(next.getKey());
+			next = coverage.ceilingEntry(start);
+		}
+		coverage.put(start, end);
+	}
+
+	/**
+	 * Points of one partition file, by time.
+	 */
+	private static final class Partition {
+
+		/** Offset of the record holding each point, and the point's index within it */
+		private final TreeMap<Long, Long> refs = new TreeMap<Long, Long>();
+		private AppendLog log;
+		private int records;
+		private int compactedRecords;
+	}
+}
@@ -0,0 +1,9 @@
+/**
+ * Local, append-only storage of historical CoinMarketCap data. Points of historical time series
+ * (quotes, OHLCV and global metrics) no longer change once their interval is in the past, so they
+ * are persisted once and requests for ranges that were already fetched are answered locally.
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+package com.rantcrypto.cmc.api.history;
@@ -23,6 +23,9 @@ public class BlockchainService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.blockchain.statistics-latest-endpoint.cache-time:-1}") 
 	protected Long BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.blockchain.statistics-latest-endpoint.stale-time:-1}") 
+	protected Long BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT_STALE_TIME;
+	
 	/**
 	 * <p>Returns the latest blockchain statistics data for 1 or more blockchains. Bitcoin, Litecoin, and Ethereum are currently supported. Additional blockchains will be made available on a regular basis.</p>
 	 * 
@@ -46,11 +49,6 @@ public class BlockchainService extends CoinMarketCapService {
 		paramMap.put("symbol", symbol);
 		paramMap.put("slug", slug);
 		
-		if (BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT_CACHE_TIME != -1L) {
-			return super.getResponseFromEndpoint(BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT, paramMap);
-		} else {
-			return super.getResponseFromEndpoint(BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT, paramMap);
-		}
-		
+		return super.getResponseFromEndpoint(BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT, paramMap, BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT_CACHE_TIME, BLOCKCHAIN_STATISTICS_LATEST_ENDPOINT_STALE_TIME);
 	}
 }
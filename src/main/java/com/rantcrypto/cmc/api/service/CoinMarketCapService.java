@@ -2,10 +2,16 @@
 
 package com.rantcrypto.cmc.api.service;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -17,6 +23,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import com.rantcrypto.cmc.api.cache.BackgroundRefresher;
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.CachedBody;
+import com.rantcrypto.cmc.api.cache.CachedResponse;
+import com.rantcrypto.cmc.api.cache.CreditPlanner;
+import com.rantcrypto.cmc.api.cache.EntityResponse;
+import com.rantcrypto.cmc.api.cache.InFlightRequests;
+import com.rantcrypto.cmc.api.cache.RequestBatcher;
+import com.rantcrypto.cmc.api.cache.RequestCanonicalizer;
+import com.rantcrypto.cmc.api.cache.ResponseCache;
+import com.rantcrypto.cmc.api.history.HistoryStore;
+import com.rantcrypto.cmc.api.history.RangePlan;
+
 /**
  * Parent to all services which act on data from the CoinMarketCap API. Holds convenience fields 
  * and methods that are used for different API endpoints.
@@ -35,13 +54,41 @@ public abstract class CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.api-key}")
 	private String CMC_API_KEY;
 	
+	@Autowired
+	private RestTemplate restTemplate;
+	
+	@Autowired
+	private ResponseCache responseCache;
+	
+	@Autowired
+	private InFlightRequests inFlightRequests;
+	
+	@Autowired
+	private BackgroundRefresher backgroundRefresher;
+	
+	@Autowired(required = false)
+	private RequestBatcher requestBatcher;
+	
+	@Autowired(required = false)
+	private CreditPlanner creditPlanner;
+	
+	@Autowired(required = false)
+	private HistoryStore historyStore;
+	
 	private HttpEntity<String> httpEntity;
 	
 	
 	/**
 	 * Sends a request to the CoinMarketCap REST API at the given endpoint. Endpoint string should 
 	 * begin with /v[version]/ (e.g. /v1/) and should not include query parameters. To include query 
-	 * parameters, supply a HashMap&lt;String, String&gt; HashMap of key-value pairs.
+	 * parameters, supply a HashMap&lt;String, String&gt; HashMap of key-value pairs. If an identical 
+	 * request is already in flight, its response is shared instead of sending another request.
+	 * 
+	 * <p>Successful responses carry a weak ETag (see {@link CachedBody#getETag() }), so requests 
+	 * with a matching If-None-Match header are answered with 304 Not Modified.</p>
+	 * 
+	 * <p>Query parameters are canonicalized first (see {@link RequestCanonicalizer }), so requests 
+	 * that only differ in list order or in parameters set to their defaults are sent once.</p>
 	 * 
 	 * @param endpoint Endpoint URI beginning with /v[version]/
 	 * @param paramMap Request query parameters
@@ -49,8 +96,38 @@ public abstract class CoinMarketCapService {
 	 * @return JSON response
 	 */
 	public ResponseEntity<Object> getResponseFromEndpoint(String endpoint, HashMap<String, String> paramMap) {
-		
-		
+		return this.sendSharedRequest(endpoint, RequestCanonicalizer.canonicalize(endpoint, paramMap));
+	}
+	
+	/**
+	 * Sends a request to the CoinMarketCap REST API, sharing the response of an identical request 
+	 * that is already in flight.
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Canonical request query parameters
+	 * 
+	 * @return JSON response
+	 */
+	private ResponseEntity<Object> sendSharedRequest(String endpoint, HashMap<String, String> paramMap) {
+		return this.inFlightRequests.execute(CacheKey.of(endpoint, paramMap), () -> {
+			ResponseEntity<Object> response = this.sendRequest(endpoint, paramMap);
+			
+			if (response.getStatusCode() == HttpStatus.OK)
+				return this.getResponseEntity(CachedBody.onHeap((String) response.getBody()));
+			return response;
+		});
+	}
+	
+	/**
+	 * Sends a request to the CoinMarketCap REST API at the given endpoint without consulting the 
+	 * cache or any identical request that is already in flight.
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters
+	 * 
+	 * @return JSON response
+	 */
+	private ResponseEntity<Object> sendRequest(String endpoint, HashMap<String, String> paramMap) {
 		if (this.httpEntity == null) {
 			HttpHeaders headers = new HttpHeaders();
 			headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
@@ -60,7 +137,6 @@ public abstract class CoinMarketCapService {
 			this.httpEntity = new HttpEntity<String>("parameters", headers);
 		}
 		
-		RestTemplate restTemplate = new RestTemplate();
 		ResponseEntity<String> response = null;
 		String formattedUrl = CMC_BASE_URL + endpoint;
 		
@@ -68,7 +144,7 @@ public abstract class CoinMarketCapService {
 			formattedUrl += this.getFormattedParams(paramMap);
 		
 		try {
-			response = restTemplate.exchange(
+			response = this.restTemplate.exchange(
 					formattedUrl, HttpMethod.GET, httpEntity, String.class);
 			
 		} catch (HttpStatusCodeException exception) {
@@ -78,6 +154,331 @@ public abstract class CoinMarketCapService {
 		return new ResponseEntity<Object>(response.getBody(), HttpStatus.OK);
 	}
 	
+	/**
+	 * Returns the cached response for the given endpoint and query parameters if one is still valid, 
+	 * otherwise sends the request to the CoinMarketCap REST API and caches a successful response 
+	 * for cacheTime seconds. A cacheTime of -1 (or any value below 1) disables caching.
+	 * 
+	 * <p>Once a cached response is older than cacheTime, it is still served for up to staleTime 
+	 * more seconds while a single background request refreshes it. A staleTime of -1 (or any value 
+	 * below 1) disables stale responses; expired responses are then fetched before responding.</p>
+	 * 
+	 * <p>Cached bodies held as bytes (compressed or off the heap) are returned as a 
+	 * {@link CachedBody }, which is written to the client without decoding it; all other bodies are 
+	 * returned as a String.</p>
+	 * 
+	 * <p>Query parameters are canonicalized before the cache is consulted (see 
+	 * {@link RequestCanonicalizer }).</p>
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters
+	 * @param cacheTime Number of seconds a successful response may be cached for
+	 * @param staleTime Number of seconds an expired response may be served while it is refreshed
+	 * 
+	 * @return JSON response
+	 */
+	public ResponseEntity<Object> getResponseFromEndpoint(String endpoint, HashMap<String, String> paramMap, Long cacheTime, 
+			Long staleTime) {
+		HashMap<String, String> canonicalParams = RequestCanonicalizer.canonicalize(endpoint, paramMap);
+		if (cacheTime == null || cacheTime < 1L)
+			return this.sendSharedRequest(endpoint, canonicalParams);
+		
+		CacheKey cacheKey = CacheKey.of(endpoint, canonicalParams);
+		CachedResponse cachedResponse = this.responseCache.get(cacheKey);
+		
+		if (cachedResponse != null) {
+			if (cachedResponse.isExpired(System.currentTimeMillis())) {
+				this.backgroundRefresher.refresh(cacheKey, 
+						() -> this.sendAndCacheRequest(cacheKey, endpoint, canonicalParams, cacheTime, staleTime));
+			}
+			return this.getResponseEntity(cachedResponse.getCachedBody());
+		}
+		
+		return this.sendAndCacheRequest(cacheKey, endpoint, canonicalParams, cacheTime, staleTime);
+	}
+	
+	/**
+	 * Returns the cached response for the given endpoint if one is still valid, otherwise sends the 
+	 * request to the CoinMarketCap REST API and caches a successful response for cacheTime seconds.
+	 * Expired responses are served for up to staleTime more seconds while they are refreshed.
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param cacheTime Number of seconds a successful response may be cached for
+	 * @param staleTime Number of seconds an expired response may be served while it is refreshed
+	 * 
+	 * @return JSON response
+	 */
+	public ResponseEntity<Object> getResponseFromEndpoint(String endpoint, Long cacheTime, Long staleTime) {
+		return getResponseFromEndpoint(endpoint, null, cacheTime, staleTime);
+	}
+	
+	/**
+	 * Returns the response of a multi-id endpoint (e.g. /cryptocurrency/info?id=1,2,3), caching each 
+	 * entity of its <code>data</code> object for cacheTime seconds instead of the whole response. 
+	 * Entities already cached by any request with the same other parameters are reused, and only 
+	 * the missing ids are sent upstream, in one request. The response is assembled in id order.
+	 * 
+	 * <p>Requests for a single id, by slug or symbol, or with caching disabled, are handled as by 
+	 * {@link #getResponseFromEndpoint(String, HashMap, Long, Long) }. Expired entities are fetched 
+	 * again with the missing ids; staleTime applies to whole responses only. A response served 
+	 * entirely from cache reports a credit_count of 0.</p>
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters
+	 * @param cacheTime Number of seconds each entity may be cached for
+	 * @param staleTime Number of seconds an expired response may be served while it is refreshed
+	 * 
+	 * @return JSON response
+	 */
+	public ResponseEntity<Object> getEntityResponseFromEndpoint(String endpoint, HashMap<String, String> paramMap, Long cacheTime, 
+			Long staleTime) {
+		return getEntityResponseFromEndpoint(endpoint, paramMap, cacheTime, staleTime, null);
+	}
+	
+	/**
+	 * Returns the response of a multi-id endpoint as {@link #getEntityResponseFromEndpoint(String, 
+	 * HashMap, Long, Long) } does, and merges the missing ids of concurrent requests with the same 
+	 * other parameters into one upstream request (see {@link RequestBatcher }). With a batchWindow, 
+	 * requests for a single id are batched too, whether or not caching is enabled.
+	 * 
+	 * <p>When caching is enabled, requests are planned along credit boundaries (see 
+	 * {@link CreditPlanner }).</p>
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters
+	 * @param cacheTime Number of seconds each entity may be cached for
+	 * @param staleTime Number of seconds an expired response may be served while it is refreshed
+	 * @param batchWindow Number of milliseconds to collect the ids of concurrent requests for; -1 
+	 * (or any value below 1) disables batching
+	 * 
+	 * @return JSON response
+	 */
+	public ResponseEntity<Object> getEntityResponseFromEndpoint(String endpoint, HashMap<String, String> paramMap, Long cacheTime, 
+			Long staleTime, Long batchWindow) {
+		HashMap<String, String> canonicalParams = RequestCanonicalizer.canonicalize(endpoint, paramMap);
+		List<String> ids = canonicalParams != null && canonicalParams.containsKey("id") 
+				? Arrays.asList(canonicalParams.get("id").split(",")) : null;
+		boolean cached = cacheTime != null && cacheTime >= 1L;
+		boolean batched = this.requestBatcher != null && batchWindow != null && batchWindow >= 1L;
+		if (ids == null || canonicalParams.containsKey("slug") || canonicalParams.containsKey("symbol") 
+				|| !(batched || (cached && ids.size() > 1)))
+			return getResponseFromEndpoint(endpoint, paramMap, cacheTime, staleTime);
+		
+		Map<String, String> entities = new HashMap<String, String>();
+		List<String> missingIds = new ArrayList<String>();
+		long now = System.currentTimeMillis();
+		
+		for (String id : ids) {
+			CachedResponse cachedEntity = cached ? this.responseCache.get(CacheKey.ofEntity(endpoint, canonicalParams, id)) : null;
+			if (cachedEntity != null && !cachedEntity.isExpired(now))
+				entities.put(id, cachedEntity.getBody());
+			else
+				missingIds.add(id);
+		}
+		
+		if (missingIds.isEmpty())
+			return this.getResponseEntity(CachedBody.onHeap(EntityResponse.assemble(null, ids, entities)));
+		
+		HashMap<String, String> groupParams = new LinkedHashMap<String, String>(canonicalParams);
+		groupParams.remove("id");
+		CacheKey groupKey = CacheKey.of(endpoint, groupParams);
+		boolean planned = cached && this.creditPlanner != null && this.creditPlanner.isEnabled();
+		
+		Function<List<String>, ResponseEntity<Object>> request = requestIds -> {
+			List<String> plannedIds = planned ? this.creditPlanner.plan(endpoint, groupKey, requestIds, getConvertCount(canonicalParams), 
+					id -> this.getEntityExpiry(endpoint, canonicalParams, id)) : requestIds;
+			ResponseEntity<Object> plannedResponse = this.sendEntityRequest(endpoint, canonicalParams, plannedIds, cacheTime);
+			
+			// an id added to fill the last credit may no longer be valid, so it is not padded with again
+			if (plannedIds.size() > requestIds.size() && !(plannedResponse.getBody() instanceof EntityResponse)) {
+				this.creditPlanner.forget(groupKey, plannedIds.subList(requestIds.size(), plannedIds.size()));
+				return this.sendEntityRequest(endpoint, canonicalParams, requestIds, cacheTime);
+			}
+			return plannedResponse;
+		};
+		ResponseEntity<Object> response;
+		if (batched) {
+			response = this.requestBatcher.execute(groupKey, missingIds, batchWindow, request, 
+					batchResponse -> !(batchResponse.getBody() instanceof EntityResponse));
+		} else {
+			response = request.apply(missingIds);
+		}
+		
+		if (!(response.getBody() instanceof EntityResponse))
+			return response;
+		
+		EntityResponse fetched = (EntityResponse) response.getBody();
+		entities.putAll(fetched.getEntities());
+		
+		// only ids that were answered are padded with later; invalid ids would fail those requests
+		if (planned) {
+			List<String> answeredIds = new ArrayList<String>(ids.size());
+			for (String id : ids) {
+				if (entities.containsKey(id))
+					answeredIds.add(id);
+			}
+			this.creditPlanner.touch(groupKey, answeredIds);
+		}
+		return this.getResponseEntity(CachedBody.onHeap(EntityResponse.assemble(fetched.getStatus(), ids, entities)));
+	}
+	
+	/**
+	 * Returns the response of a historical endpoint (e.g. /cryptocurrency/quotes/historical), 
+	 * answering it from the local history store when it holds the whole requested range. When it 
+	 * holds part of the range, only the missing sub-ranges are requested and merged with the stored 
+	 * points (see {@link HistoryStore#plan }). Otherwise the request is handled as by 
+	 * {@link #getResponseFromEndpoint(String, HashMap, Long, Long) }, and the settled points of a 
+	 * successful response are stored (see {@link HistoryStore }).
+	 * 
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters
+	 * @param cacheTime Number of seconds a successful response may be cached for
+	 * @param staleTime Number of seconds an expired response may be served while it is refreshed
+	 * 
+	 * @return JSON response
+	 */
+	public ResponseEntity<Object> getHistoricalResponseFromEndpoint(String endpoint, HashMap<String, String> paramMap, Long cacheTime, 
+			Long staleTime) {
+		if (this.historyStore == null || !this.historyStore.isEnabled())
+			return getResponseFromEndpoint(endpoint, paramMap, cacheTime, staleTime);
+		
+		HashMap<String, String> canonicalParams = RequestCanonicalizer.canonicalize(endpoint, paramMap);
+		String storedBody = this.historyStore.getResponse(endpoint, canonicalParams);
+		if (storedBody != null)
+			return this.getResponseEntity(CachedBody.onHeap(storedBody));
+		
+		RangePlan plan = this.historyStore.plan(endpoint, canonicalParams);
+		if (plan != null) {
+			List<String> bodies = new ArrayList<String>();
+			for (HashMap<String, String> requestParams : plan.getRequests()) {
+				ResponseEntity<Object> response = getResponseFromEndpoint(endpoint, requestParams, cacheTime, staleTime);
+				if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null)
+					return response;
+				bodies.add(response.getBody().toString());
+			}
+			
+			String mergedBody = this.historyStore.merge(plan, bodies);
+			if (mergedBody != null)
+				return this.getResponseEntity(CachedBody.onHeap(mergedBody));
+		}
+		
+		ResponseEntity<Object> response = getResponseFromEndpoint(endpoint, paramMap, cacheTime, staleTime);
+		if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null)
+			this.historyStore.record(endpoint, canonicalParams, response.getBody().toString());
+		return response;
+	}
+	
+	/**
+	 * Sends a request for the given ids of a multi-id request, sharing the response of an identical 
+	 * request that is already in flight.
+	 * 
+	 * @return See {@link #sendAndCacheEntities(String, HashMap, HashMap, Long) }
+	 */
+	private ResponseEntity<Object> sendEntityRequest(String endpoint, HashMap<String, String> canonicalParams, List<String> ids, 
+			Long cacheTime) {
+		HashMap<String, String> requestParams = new LinkedHashMap<String, String>(canonicalParams);
+		requestParams.put("id", String.join(",", ids));
+		return this.inFlightRequests.execute(CacheKey.of(endpoint, requestParams), 
+				() -> this.sendAndCacheEntities(endpoint, canonicalParams, requestParams, cacheTime));
+	}
+	
+	/**
+	 * @return Time the cached entity expires at, in epoch milliseconds, 0 if it is not cached
+	 */
+	private long getEntityExpiry(String endpoint, HashMap<String, String> canonicalParams, String id) {
+		CachedResponse cachedEntity = this.responseCache.peek(CacheKey.ofEntity(endpoint, canonicalParams, id));
+		return cachedEntity != null ? cachedEntity.getExpiresAt() : 0L;
+	}
+	
+	/**
+	 * @return Number of convert options of a request, 1 if it has none
+	 */
+	private static int getConvertCount(HashMap<String, String> canonicalParams) {
+		String convert = canonicalParams.containsKey("convert") ? canonicalParams.get("convert") : canonicalParams.get("convert_id");
+		return convert != null ? convert.split(",").length : 1;
+	}
+	
+	/**
+	 * Sends a request for the missing ids of a multi-id request and, if cacheTime is at least 1, 
+	 * caches each entity of a successful response before identical waiting requests are released.
+	 * 
+	 * @return The {@link EntityResponse } as body of a successful response whose data is keyed by 
+	 * id, otherwise the response as sent by the CoinMarketCap API
+	 */
+	private ResponseEntity<Object> sendAndCacheEntities(String endpoint, HashMap<String, String> canonicalParams, 
+			HashMap<String, String> missingParams, Long cacheTime) {
+		ResponseEntity<Object> response = this.sendRequest(endpoint, missingParams);
+		if (response.getStatusCode() != HttpStatus.OK)
+			return response;
+		
+		EntityResponse entityResponse;
+		try {
+			entityResponse = EntityResponse.parse((String) response.getBody());
+		} catch (IOException exception) {
+			entityResponse = null;
+		}
+		if (entityResponse == null)
+			return this.getResponseEntity(CachedBody.onHeap((String) response.getBody()));
+		
+		if (cacheTime == null || cacheTime < 1L)
+			return new ResponseEntity<Object>(entityResponse, HttpStatus.OK);
+		
+		long now = System.currentTimeMillis();
+		long expiresAt = now + cacheTime * 1000L;
+		for (Map.Entry<String, String> entity : entityResponse.getEntities().entrySet()) {
+			this.responseCache.put(CacheKey.ofEntity(endpoint, canonicalParams, entity.getKey()), 
+					new CachedResponse(entity.getValue(), now, expiresAt));
+		}
+		return new ResponseEntity<Object>(entityResponse, HttpStatus.OK);
+	}
+	
+	/**
+	 * Sends a request to the CoinMarketCap REST API, sharing the response of an identical request 
+	 * that is already in flight, and caches a successful response. The response is cached before 
+	 * identical waiting requests are released.
+	 * 
+	 * @param cacheKey Key of the request
+	 * @param endpoint Endpoint URI beginning with /v[version]/
+	 * @param paramMap Request query parameters
+	 * @param cacheTime Number of seconds a successful response may be cached for
+	 * @param staleTime Number of seconds an expired response may be served while it is refreshed
+	 * 
+	 * @return JSON response
+	 */
+	private ResponseEntity<Object> sendAndCacheRequest(CacheKey cacheKey, String endpoint, HashMap<String, String> paramMap, 
+			Long cacheTime, Long staleTime) {
+		return this.inFlightRequests.execute(cacheKey, () -> {
+			ResponseEntity<Object> response = this.sendRequest(endpoint, paramMap);
+			
+			if (response.getStatusCode() == HttpStatus.OK) {
+				long now = System.currentTimeMillis();
+				long expiresAt = now + cacheTime * 1000L;
+				long staleUntil = expiresAt + (staleTime != null && staleTime > 0L ? staleTime * 1000L : 0L);
+				
+				CachedResponse cachedResponse = new CachedResponse(
+						(String) response.getBody(), now, expiresAt, staleUntil);
+				
+				this.responseCache.put(cacheKey, cachedResponse);
+				return this.getResponseEntity(cachedResponse.getCachedBody());
+			}
+			return response;
+		});
+	}
+	
+	/**
+	 * Builds a successful response with the ETag of the given body. Bodies held as a String are 
+	 * returned as a String, all others as the {@link CachedBody } itself.
+	 * 
+	 * @param body Response body
+	 * 
+	 * @return JSON response
+	 */
+	protected ResponseEntity<Object> getResponseEntity(CachedBody body) {
+		return ResponseEntity.ok()
+				.eTag(body.getETag())
+				.body(body.isString() ? body.toString() : body);
+	}
+	
 	/**
 	 * Sends a request to the CoinMarketCap REST API at the given endpoint. Endpoint string should 
 	 * begin with /v[version]/ (e.g. /v1/) and should not include query parameters. To include query 
@@ -88,13 +489,14 @@ public abstract class CoinMarketCapService {
 	 * @return JSON response
 	 */
 	public ResponseEntity<Object> getResponseFromEndpoint(String endpoint) {
-		return getResponseFromEndpoint(endpoint, null);
+		return getResponseFromEndpoint(endpoint, (HashMap<String, String>) null);
 	}
 	
 	/**
 	 * Transforms a HashMap of REST endpoint query parameters into a properly formatted 
 	 * string of query parameters. The key of the HashMap is the key of the query parameter. 
-	 * The value of the HashMap is the value of the query parameter.
+	 * The value of the HashMap is the value of the query parameter. Parameters are appended in 
+	 * the HashMap's iteration order, which is name order for canonical parameters.
 	 * 
 	 * @param paramMap HashMap of key-value pairs
 	 * @return Formatted query parameters that can be appended to an endpoint
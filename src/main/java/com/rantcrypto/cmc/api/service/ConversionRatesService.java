@@ -0,0 +1,173 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.rantcrypto.cmc.api.snapshot.ConversionRates;
+import com.rantcrypto.cmc.api.snapshot.ListingsSnapshot;
+
+/**
+ * <p>Polls the quotes of a reference asset (Bitcoin by default) in the base currency and every
+ * configured currency, and keeps their cross rates in memory as {@link ConversionRates }. A request
+ * with several <code>convert</code> options is then sent upstream with the base currency only, and
+ * its other quotes are computed locally, saving the call credit CoinMarketCap charges per convert
+ * option beyond the first. The response keeps the shape of CoinMarketCap's <code>quote</code>
+ * map.</p>
+ *
+ * <p>Requests by <code>convert_id</code>, or for a currency the rates do not hold, are sent
+ * upstream as they are. Derived quotes are as current as the rates, so the refresh interval
+ * should not exceed the cache time of the quotes.</p>
+ *
+ * <p>With the listings snapshot enabled, latest-rate /tools/price-conversion requests from a
+ * listed cryptocurrency are computed from the rates and the listing's prices too (see
+ * {@link ConversionRates#getPriceConversion }).</p>
+ *
+ * <p>Conversion is disabled by default. Metrics are tagged <code>snapshot=rates</code> (see
+ * {@link SnapshotService }).</p>
+ *
+ * @author Phillip Groves
+ */
+@Service
+public class ConversionRatesService extends SnapshotService<ConversionRates> {
+
+	@Value("${com.rantcrypto.cmc.api.v1.conversion.enabled:false}")
+	private Boolean CONVERSION_ENABLED;
+
+	@Value("${com.rantcrypto.cmc.api.v1.conversion.refresh-interval:60}")
+	private Long CONVERSION_REFRESH_INTERVAL;
+
+	@Value("${com.rantcrypto.cmc.api.v1.conversion.max-age:300}")
+	private Long CONVERSION_MAX_AGE;
+
+	@Value("${com.rantcrypto.cmc.api.v1.conversion.base:USD}")
+	private String CONVERSION_BASE;
+
+	@Value("${com.rantcrypto.cmc.api.v1.conversion.currencies:EUR,GBP,JPY,BTC}")
+	private String CONVERSION_CURRENCIES;
+
+	@Value("${com.rantcrypto.cmc.api.v1.conversion.reference-id:1}")
+	private String CONVERSION_REFERENCE_ID;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-latest-endpoint:/v1/cryptocurrency/quotes/latest}")
+	private String CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT;
+
+	@Autowired(required = false)
+	private ListingsSnapshotService listingsSnapshotService;
+
+
+	@Override
+	protected String getName() {
+		return "rates";
+	}
+
+	@Override
+	protected String getEndpoint() {
+		return CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT;
+	}
+
+	@Override
+	protected HashMap<String, String> getParams() {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("id", CONVERSION_REFERENCE_ID);
+		paramMap.put("convert", getBase() + "," + CONVERSION_CURRENCIES);
+		return paramMap;
+	}
+
+	@Override
+	protected ConversionRates parse(String body, long version, long timestamp) throws IOException {
+		return ConversionRates.parse(body, CONVERSION_REFERENCE_ID, getBase(), version, timestamp);
+	}
+
+	/**
+	 * Answers a request with several convert options by requesting its quotes in the base
+	 * currency and converting them locally.
+	 *
+	 * @param convert Value of the convert parameter, may be null
+	 * @param convertId Value of the convert_id parameter, may be null
+	 * @param request Sends the request with the given convert option instead
+	 *
+	 * @return The response with a quote per convert option, the unsuccessful response of the
+	 * request in the base currency, or null if the request has to be sent as it was
+	 */
+	public ResponseEntity<Object> getConverted(String convert, String convertId, Function<String, ResponseEntity<Object>> request) {
+		if (isEmpty(convert) || !isEmpty(convertId))
+			return null;
+
+		List<String> currencies = new ArrayList<String>();
+		for (String currency : convert.split(",")) {
+			String symbol = currency.trim().toUpperCase(Locale.ROOT);
+			if (!symbol.isEmpty() && !currencies.contains(symbol))
+				currencies.add(symbol);
+		}
+		// the first convert option is free, so a single one is sent as it is
+		if (currencies.size() < 2)
+			return null;
+
+		ConversionRates current = getSnapshot();
+		if (current == null || !current.supports(currencies))
+			return getResponseEntity((String) null);
+
+		ResponseEntity<Object> response = request.apply(getBase());
+		if (response == null || response.getStatusCode() != HttpStatus.OK || response.getBody() == null)
+			return response;
+
+		String body;
+		try {
+			body = current.convert(response.getBody().toString(), currencies);
+		} catch (IOException exception) {
+			body = null;
+		}
+		return getResponseEntity(body);
+	}
+
+	/**
+	 * Answers a latest-rate /tools/price-conversion request from the rates and the listings
+	 * snapshot. See {@link ToolsService#getPriceConversion } for the parameters.
+	 *
+	 * @return The converted amount, or null if the request has to be sent upstream
+	 */
+	public ResponseEntity<Object> getPriceConversion(Double amount, String id, String symbol, String convert, String convertId) {
+		ConversionRates current = getSnapshot();
+		ListingsSnapshot listings = listingsSnapshotService != null && listingsSnapshotService.isEnabled()
+				? listingsSnapshotService.getSnapshot() : null;
+
+		// invalid options are sent upstream, which answers them with its own error
+		String body = null;
+		if (current != null && listings != null && amount != null && isEmpty(id) != isEmpty(symbol)
+				&& (isEmpty(convert) || isEmpty(convertId)))
+			body = current.getPriceConversion(listings, amount, id, symbol, convert, convertId);
+
+		return getResponseEntity(body);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return Boolean.TRUE.equals(CONVERSION_ENABLED);
+	}
+
+	@Override
+	protected long getRefreshInterval() {
+		return CONVERSION_REFRESH_INTERVAL;
+	}
+
+	@Override
+	protected long getMaxAge() {
+		return CONVERSION_MAX_AGE;
+	}
+
+	private String getBase() {
+		return CONVERSION_BASE.trim().toUpperCase(Locale.ROOT);
+	}
+}
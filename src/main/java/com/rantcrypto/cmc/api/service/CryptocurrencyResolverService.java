@@ -0,0 +1,180 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.rantcrypto.cmc.api.snapshot.CryptocurrencyMap;
+
+/**
+ * <p>Polls /cryptocurrency/map in the background and keeps it in memory as a
+ * {@link CryptocurrencyMap }, to resolve slugs, symbols and token addresses to CoinMarketCap IDs
+ * without an API call, and to answer /cryptocurrency/map itself.</p>
+ *
+ * <p>Requests by slug are rewritten to the IDs their slugs resolve to before they are cached or
+ * sent upstream, so requests by slug and by id share one cache entry. Requests by symbol are only
+ * rewritten for endpoints that return a single cryptocurrency, because the others key their
+ * response by the requested symbol. A request with an identifier the map does not hold is sent as
+ * it was.</p>
+ *
+ * <p>The resolver is disabled by default. Metrics are tagged <code>snapshot=map</code> (see
+ * {@link SnapshotService }).</p>
+ *
+ * @author Phillip Groves
+ */
+@Service
+public class CryptocurrencyResolverService extends SnapshotService<CryptocurrencyMap> {
+
+	@Value("${com.rantcrypto.cmc.api.v1.resolver.enabled:false}")
+	private Boolean RESOLVER_ENABLED;
+
+	@Value("${com.rantcrypto.cmc.api.v1.resolver.refresh-interval:300}")
+	private Long RESOLVER_REFRESH_INTERVAL;
+
+	@Value("${com.rantcrypto.cmc.api.v1.resolver.max-age:86400}")
+	private Long RESOLVER_MAX_AGE;
+
+	@Value("${com.rantcrypto.cmc.api.v1.resolver.listing-status:active}")
+	private String RESOLVER_LISTING_STATUS;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.map-endpoint:/v1/cryptocurrency/map}")
+	private String CRYPTOCURRENCY_MAP_ENDPOINT;
+
+
+	@Override
+	protected String getName() {
+		return "map";
+	}
+
+	@Override
+	protected String getEndpoint() {
+		return CRYPTOCURRENCY_MAP_ENDPOINT;
+	}
+
+	@Override
+	protected HashMap<String, String> getParams() {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("listing_status", RESOLVER_LISTING_STATUS);
+		return paramMap;
+	}
+
+	@Override
+	protected CryptocurrencyMap parse(String body, long version, long timestamp) throws IOException {
+		return CryptocurrencyMap.parse(body, RESOLVER_LISTING_STATUS, version, timestamp);
+	}
+
+	/**
+	 * Answers a /cryptocurrency/map request from the map. See
+	 * {@link CryptocurrencyService#getMap } for the parameters.
+	 *
+	 * @return The mapping, or null if the request has to be sent upstream
+	 */
+	public ResponseEntity<Object> getMap(String listingStatus, Long start, Long limit, String sort, String symbol, String aux) {
+		CryptocurrencyMap current = getSnapshot();
+		String sortName = isEmpty(sort) ? "id" : sort.trim().toLowerCase(Locale.ROOT);
+		long first = start != null ? start : 1L;
+
+		// invalid options are sent upstream, which answers them with its own error
+		String body = null;
+		if (current != null && current.hasListingStatus(listingStatus) && isEmpty(aux)
+				&& (sortName.equals("id") || sortName.equals("cmc_rank")) && first >= 1L && (limit == null || limit >= 1L))
+			body = current.getMap(sortName, first, limit, symbol);
+
+		return getResponseEntity(body);
+	}
+
+	/**
+	 * @param slugs Comma-separated slugs
+	 *
+	 * @return Comma-separated CoinMarketCap IDs of the slugs, or null if the map does not hold
+	 * every slug
+	 */
+	public String resolveSlugs(String slugs) {
+		CryptocurrencyMap current = getSnapshot();
+		if (current == null)
+			return null;
+
+		StringBuilder ids = new StringBuilder();
+		for (String slug : slugs.split(",")) {
+			Long id = current.resolveSlug(slug);
+			if (id == null)
+				return null;
+			if (ids.length() > 0)
+				ids.append(',');
+			ids.append(id);
+		}
+		return ids.toString();
+	}
+
+	/**
+	 * @param symbol A single symbol
+	 *
+	 * @return CoinMarketCap ID of the symbol's cryptocurrency with the best rank, or null if the
+	 * map does not hold the symbol
+	 */
+	public String resolveSymbol(String symbol) {
+		CryptocurrencyMap current = getSnapshot();
+		Long id = current != null && symbol.indexOf(',') < 0 ? current.resolveSymbol(symbol) : null;
+		return id != null ? Long.toString(id) : null;
+	}
+
+	/**
+	 * @param tokenAddress Contract address of a token
+	 *
+	 * @return CoinMarketCap ID of the token, or null if the map does not hold the address
+	 */
+	public Long resolveTokenAddress(String tokenAddress) {
+		CryptocurrencyMap current = getSnapshot();
+		return current != null ? current.resolveTokenAddress(tokenAddress) : null;
+	}
+
+	/**
+	 * Puts the identifier parameters of a request into its query parameters. A request by slug, or
+	 * by a single symbol if resolveSymbol is true, is rewritten to the CoinMarketCap ID it resolves
+	 * to. Requests by id, with more than one kind of identifier, or that do not resolve are put
+	 * unchanged.
+	 *
+	 * @param paramMap Query parameters of the request
+	 * @param id Value of the id parameter, may be null
+	 * @param slug Value of the slug parameter, may be null
+	 * @param symbol Value of the symbol parameter, may be null
+	 * @param resolveSymbol True if the endpoint's response does not depend on whether it was
+	 * requested by symbol or id
+	 */
+	public void putIdentifiers(HashMap<String, String> paramMap, String id, String slug, String symbol, boolean resolveSymbol) {
+		String resolvedId = null;
+		if (isEnabled() && isEmpty(id) && isEmpty(symbol) && !isEmpty(slug))
+			resolvedId = resolveSlugs(slug);
+		else if (isEnabled() && resolveSymbol && isEmpty(id) && isEmpty(slug) && !isEmpty(symbol))
+			resolvedId = resolveSymbol(symbol);
+
+		if (resolvedId != null) {
+			paramMap.put("id", resolvedId);
+			return;
+		}
+		paramMap.put("id", id);
+		paramMap.put("slug", slug);
+		paramMap.put("symbol", symbol);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return Boolean.TRUE.equals(RESOLVER_ENABLED);
+	}
+
+	@Override
+	protected long getRefreshInterval() {
+		return RESOLVER_REFRESH_INTERVAL;
+	}
+
+	@Override
+	protected long getMaxAge() {
+		return RESOLVER_MAX_AGE;
+	}
+}
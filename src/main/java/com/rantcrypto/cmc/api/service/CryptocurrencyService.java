@@ -4,6 +4,7 @@ package com.rantcrypto.cmc.api.service;
 
 import java.util.HashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -23,60 +24,102 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.map-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_MAP_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.map-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_MAP_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.info-endpoint:/v1/cryptocurrency/info}") 
 	private String CRYPTOCURRENCY_INFO_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.info-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_INFO_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.info-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_INFO_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-latest-endpoint:/v1/cryptocurrency/listings/latest}") 
 	private String CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-latest-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-latest-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-historical-endpoint:/v1/cryptocurrency/listings/historical}") 
 	private String CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-historical-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-historical-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-latest-endpoint:/v1/cryptocurrency/quotes/latest}") 
 	private String CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-latest-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-latest-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_STALE_TIME;
+	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-latest-endpoint.batch-window:-1}") 
+	private Long CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_BATCH_WINDOW;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-historical-endpoint:/v1/cryptocurrency/quotes/historical}") 
 	private String CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-historical-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.quotes-historical-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.market-pairs-latest-endpoint:/v1/cryptocurrency/market-pairs/latest}") 
 	private String CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.market-pairs-latest-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.market-pairs-latest-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.ohlcv-latest-endpoint:/v1/cryptocurrency/ohlcv/latest}") 
 	private String CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.ohlcv-latest-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.ohlcv-latest-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.ohlcv-historical-endpoint:/v1/cryptocurrency/ohlcv/historical}") 
 	private String CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.ohlcv-historical-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.ohlcv-historical-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.price-performance-stats-latest-endpoint:/v1/cryptocurrency/price-performance-stats/latest}") 
 	private String CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.price-performance-stats-latest-endpoint.cache-time:-1}") 
 	private Long CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.price-performance-stats-latest-endpoint.stale-time:-1}") 
+	private Long CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT_STALE_TIME;
+	
+	@Autowired(required = false)
+	private ListingsSnapshotService listingsSnapshotService;
+	
+	@Autowired(required = false)
+	private CryptocurrencyResolverService cryptocurrencyResolverService;
+	
+	@Autowired(required = false)
+	private ConversionRatesService conversionRatesService;
+	
 	
 	/**
 	 * <p>Returns a mapping of all cryptocurrencies to unique CoinMarketCap ids. Per CoinMarketCap Best Practices we recommend utilizing CMC ID instead of cryptocurrency symbols to securely identify cryptocurrencies with our other endpoints and in your own application logic. Each cryptocurrency returned includes typical identifiers such as name, symbol, and token_address for flexible mapping to id.</p>
@@ -95,6 +138,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Mapping data is updated only as needed, every 30 seconds.</p>
 	 * <p><b>Plan credit use:</b> 1 API call credit per request no matter query size.</p>
+	 * <p>When the identifier resolver is enabled, requests for its listing status with the default aux are served from memory without using any credits (see {@link CryptocurrencyResolverService }).</p>
 	 * 
 	 * @param listingStatus Only active cryptocurrencies are returned by default. Pass inactive to get a list of cryptocurrencies that are no longer active. Pass untracked to get a list of cryptocurrencies that are listed but do not yet meet methodology requirements to have tracked markets available. You may pass one or more comma-separated values. Default: "active"
 	 * @param start Optionally offset the start (1-based index) of the paginated list of items to return.
@@ -106,6 +150,12 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * @return A mapping of all cryptocurrencies to unique CoinMarketCap ids
 	 */
 	public ResponseEntity<Object> getMap(String listingStatus, Long start, Long limit, String sort, String symbol, String aux) {
+		if (cryptocurrencyResolverService != null && cryptocurrencyResolverService.isEnabled()) {
+			ResponseEntity<Object> mapResponse = cryptocurrencyResolverService.getMap(listingStatus, start, limit, sort, symbol, aux);
+			if (mapResponse != null)
+				return mapResponse;
+		}
+		
 		HashMap<String, String> paramMap = new HashMap<String, String>();
 		paramMap.put("listing_status", listingStatus);
 		paramMap.put("start", (start != null ? Long.toString(start) : null));
@@ -114,7 +164,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("symbol", symbol);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_MAP_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(CRYPTOCURRENCY_MAP_ENDPOINT, paramMap, CRYPTOCURRENCY_MAP_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_MAP_ENDPOINT_STALE_TIME);
 	}
 	
 	/**
@@ -142,12 +192,10 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 */
 	public ResponseEntity<Object> getInfo(String id, String slug, String symbol, String aux) {
 		HashMap<String, String> paramMap = new HashMap<String, String>();
-		paramMap.put("id", id);
-		paramMap.put("slug", slug);
-		paramMap.put("symbol", symbol);
+		putIdentifiers(paramMap, id, slug, symbol, false);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_INFO_ENDPOINT, paramMap);
+		return super.getEntityResponseFromEndpoint(CRYPTOCURRENCY_INFO_ENDPOINT, paramMap, CRYPTOCURRENCY_INFO_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_INFO_ENDPOINT_STALE_TIME);
 	}
 	
 	/**
@@ -187,6 +235,8 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Every 60 seconds.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per 200 cryptocurrencies returned (rounded up) and 1 call credit per convert option beyond the first.</p>
+	 * <p>When the listings snapshot is enabled, filters, sorting and pagination it can evaluate are served from memory without using any credits (see {@link ListingsSnapshotService }).</p>
+	 * <p>When conversion is enabled, requests with several convert options and no filters on quote values are sent with the base currency only, and the other quotes are computed locally (see {@link ConversionRatesService }).</p>
 	 * 
 	 * @param start Optionally offset the start (1-based index) of the paginated list of items to return.
 	 * @param limit Optionally specify the number of results to return. Use this parameter and the "start" parameter to determine your own pagination size.
@@ -207,10 +257,32 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * @param cryptocurrencyType The type of cryptocurrency to include. Default: "all". Valid values: "all", "coins", "tokens"
 	 * @param tag The tag of cryptocurrency to include. Default: "all". Valid values: "all", "defi"
 	 * @param aux Optionally specify a comma-separated list of supplemental data fields to return. Pass num_market_pairs, cmc_rank, date_added, tags, platform, max_supply, circulating_supply, total_supply, market_cap_by_total_supply, volume_24h_reported, volume_7d, volume_7d_reported, volume_30d, volume_30d_reported, is_market_cap_included_in_calc to include all auxiliary fields. Default: "num_market_pairs, cmc_rank, date_added, tags, platform, max_supply, circulating_supply, total_supply"
+	 * @param snapshotVersion Optionally pass the "snapshot_version" of a previous page to read this page from the same listings snapshot. Not sent upstream.
 	 * 
 	 * @return A paginated list of all active cryptocurrencies with latest market data.
 	 */
-	public ResponseEntity<Object> getListingsLatest(Long start, Long limit, Double priceMin, Double priceMax, Double marketCapMin, Double marketCapMax, Double volume24hMin, Double volume24hMax, Double circulatingSupplyMin, Double circulatingSupplyMax, Double percentChange24hMin, Double percentChange24hMax, String convert, String convertId, String sort, String sortDir, String cryptocurrencyType, String tag, String aux) {
+	public ResponseEntity<Object> getListingsLatest(Long start, Long limit, Double priceMin, Double priceMax, Double marketCapMin, Double marketCapMax, Double volume24hMin, Double volume24hMax, Double circulatingSupplyMin, Double circulatingSupplyMax, Double percentChange24hMin, Double percentChange24hMax, String convert, String convertId, String sort, String sortDir, String cryptocurrencyType, String tag, String aux, Long snapshotVersion) {
+		// filters on quote values are in the requested currency, so they cannot be applied to base quotes
+		if (conversionRatesService != null && conversionRatesService.isEnabled() && priceMin == null && priceMax == null 
+				&& marketCapMin == null && marketCapMax == null && volume24hMin == null && volume24hMax == null 
+				&& percentChange24hMin == null && percentChange24hMax == null) {
+			ResponseEntity<Object> convertedResponse = conversionRatesService.getConverted(convert, convertId, 
+					baseConvert -> getListingsLatest(start, limit, null, null, null, null, null, null, circulatingSupplyMin, 
+							circulatingSupplyMax, null, null, baseConvert, null, sort, sortDir, cryptocurrencyType, tag, aux, 
+							snapshotVersion));
+			if (convertedResponse != null)
+				return convertedResponse;
+		}
+		
+		if (listingsSnapshotService != null && listingsSnapshotService.isEnabled()) {
+			ResponseEntity<Object> snapshotResponse = listingsSnapshotService.getListingsLatest(start, limit, priceMin, priceMax, 
+					marketCapMin, marketCapMax, volume24hMin, volume24hMax, circulatingSupplyMin, circulatingSupplyMax, 
+					percentChange24hMin, percentChange24hMax, convert, convertId, sort, sortDir, cryptocurrencyType, tag, aux, 
+					snapshotVersion);
+			if (snapshotResponse != null)
+				return snapshotResponse;
+		}
+		
 		HashMap<String, String> paramMap = new HashMap<String, String>();
 		paramMap.put("start", (start != null ? Long.toString(start) : null));
 		paramMap.put("limit", (limit != null ? Long.toString(limit) : null));
@@ -232,7 +304,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("tag", tag);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT, paramMap, CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT_STALE_TIME);
 	}
 	
 	/**
@@ -297,7 +369,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("cryptocurrency_type", cryptocurrencyType);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT, paramMap, CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_LISTINGS_HISTORICAL_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -316,6 +388,9 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Every 60 seconds.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per 100 cryptocurrencies returned (rounded up) and 1 call credit per convert option beyond the first.</p>
+	 * <p>When the listings snapshot is enabled, requests it can answer are served from memory without using any credits (see {@link ListingsSnapshotService }).</p>
+	 * <p>When conversion is enabled, requests with several convert options are sent with the base currency only, and the other quotes are computed locally (see {@link ConversionRatesService }).</p>
+	 * <p>When a batch window is configured, requests by id that arrive within the window are sent upstream as one request (see {@link com.rantcrypto.cmc.api.cache.RequestBatcher }).</p>
 	 * 
 	 * @param id One or more comma-separated cryptocurrency CoinMarketCap IDs. Example: 1,2
 	 * @param slug Alternatively pass a comma-separated list of cryptocurrency slugs. Example: "bitcoin,ethereum"
@@ -329,16 +404,29 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 */
 	public ResponseEntity<Object> getQuotesLatest(String id, String slug, String symbol, String convert, String convertId, String aux,
 			Boolean skipInvalid) {
+		if (conversionRatesService != null && conversionRatesService.isEnabled()) {
+			ResponseEntity<Object> convertedResponse = conversionRatesService.getConverted(convert, convertId, 
+					baseConvert -> getQuotesLatest(id, slug, symbol, baseConvert, null, aux, skipInvalid));
+			if (convertedResponse != null)
+				return convertedResponse;
+		}
+		
+		if (listingsSnapshotService != null && listingsSnapshotService.isEnabled()) {
+			ResponseEntity<Object> snapshotResponse = listingsSnapshotService.getQuotesLatest(id, slug, symbol, convert, 
+					convertId, aux, skipInvalid);
+			if (snapshotResponse != null)
+				return snapshotResponse;
+		}
+		
 		HashMap<String, String> paramMap = new HashMap<String, String>();
-		paramMap.put("id", id);
-		paramMap.put("slug", slug);
-		paramMap.put("symbol", symbol);
+		putIdentifiers(paramMap, id, slug, symbol, false);
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		paramMap.put("aux", aux);
 		paramMap.put("skip_invalid", (skipInvalid != null ? Boolean.toString(skipInvalid) : null));
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT, paramMap);
+		return super.getEntityResponseFromEndpoint(CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT, paramMap, CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_STALE_TIME, 
+				CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_BATCH_WINDOW);
 	}
 
 	/**
@@ -387,6 +475,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Every 5 minutes.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per 100 historical data points returned (rounded up) and 1 call credit per convert option beyond the first.</p>
+	 * <p>When the history store is enabled, ranges that were already fetched are answered from local storage without using any credits, and only the missing parts of partly fetched ranges are requested (see {@link com.rantcrypto.cmc.api.history.HistoryStore }).</p>
 	 * 
 	 * @param id One or more comma-separated CoinMarketCap cryptocurrency IDs. Example: "1,2"
 	 * @param symbol Alternatively pass one or more comma-separated cryptocurrency symbols. Example: "BTC,ETH". At least one "id" or "symbol" is required for this request.
@@ -403,8 +492,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	public ResponseEntity<Object> getQuotesHistorical(String id, String symbol, String timeStart, String timeEnd, Long count,
 			String interval, String convert, String convertId, String aux) {
 		HashMap<String, String> paramMap = new HashMap<String, String>();
-		paramMap.put("id", id);
-		paramMap.put("symbol", symbol);
+		putIdentifiers(paramMap, id, null, symbol, true);
 		paramMap.put("time_start", timeStart);
 		paramMap.put("time_end", timeEnd);
 		paramMap.put("count", (count != null ? Long.toString(count) : null));
@@ -413,7 +501,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("convert_id", convertId);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT, paramMap);
+		return super.getHistoricalResponseFromEndpoint(CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT, paramMap, CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -450,9 +538,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 			String sort, String aux, String matchedId, String matchedSymbol, String category, String feeType,
 			String convert, String convertId) {
 		HashMap<String, String> paramMap = new HashMap<String, String>();
-		paramMap.put("id", id);
-		paramMap.put("slug", slug);
-		paramMap.put("symbol", symbol);
+		putIdentifiers(paramMap, id, slug, symbol, true);
 		paramMap.put("start", (start != null ? Long.toString(start) : null));
 		paramMap.put("limit", (limit != null ? Long.toString(limit) : null));
 		paramMap.put("sort_dir", sortDir);
@@ -465,7 +551,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT, paramMap, CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -497,7 +583,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("convert_id", convertId);
 		paramMap.put("skip_invalid", (skipInvalid != null ? Boolean.toString(skipInvalid) : null));
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT, paramMap);
+		return super.getEntityResponseFromEndpoint(CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT, paramMap, CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_OHLCV_LATEST_ENDPOINT_STALE_TIME);
 	}
 	
 	/**
@@ -549,6 +635,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Latest Daily OHLCV record is available ~5 to ~10 minutes after each midnight UTC. The latest hourly OHLCV record is available 5 minutes after each UTC hour.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per 100 OHLCV data points returned (rounded up) and 1 call credit per convert option beyond the first.</p>
+	 * <p>When the history store is enabled, ranges that were already fetched are answered from local storage without using any credits, and only the missing parts of partly fetched ranges are requested (see {@link com.rantcrypto.cmc.api.history.HistoryStore }).</p>
 	 * 
 	 * @param id One or more comma-separated CoinMarketCap cryptocurrency IDs. Example: "1,1027"
 	 * @param slug Alternatively pass a comma-separated list of cryptocurrency slugs. Example: "bitcoin,ethereum"
@@ -567,9 +654,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	public ResponseEntity<Object> getOhlcvHistorical(String id, String slug, String symbol, String timePeriod, String timeStart,
 			String timeEnd, Long count, String interval, String convert, String convertId, Boolean skipInvalid) {
 		HashMap<String, String> paramMap = new HashMap<String, String>();
-		paramMap.put("id", id);
-		paramMap.put("slug", slug);
-		paramMap.put("symbol", symbol);
+		putIdentifiers(paramMap, id, slug, symbol, true);
 		paramMap.put("time_period", timePeriod);
 		paramMap.put("time_start", timeStart);
 		paramMap.put("time_end", timeEnd);
@@ -579,7 +664,7 @@ public class CryptocurrencyService extends CoinMarketCapService {
 		paramMap.put("convert_id", convertId);
 		paramMap.put("skip_invalid", (skipInvalid != null ? Boolean.toString(skipInvalid) : null));
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT, paramMap);
+		return super.getHistoricalResponseFromEndpoint(CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT, paramMap, CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -610,13 +695,26 @@ public class CryptocurrencyService extends CoinMarketCapService {
 	public ResponseEntity<Object> getPricePerformanceStatsLatest(String id, String slug, String symbol, String timePeriod,
 			String convert, String convertId) {
 		HashMap<String, String> paramMap = new HashMap<String, String>();
-		paramMap.put("id", id);
-		paramMap.put("slug", slug);
-		paramMap.put("symbol", symbol);
+		putIdentifiers(paramMap, id, slug, symbol, false);
 		paramMap.put("time_period", timePeriod);
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT, paramMap, CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT_CACHE_TIME, CRYPTOCURRENCY_PRICE_PERFORMANCE_STATS_LATEST_ENDPOINT_STALE_TIME);
+	}
+	
+	/**
+	 * Puts the id, slug and symbol parameters of a request into paramMap, resolved to CoinMarketCap 
+	 * IDs when the resolver is enabled (see {@link CryptocurrencyResolverService#putIdentifiers }).
+	 */
+	private void putIdentifiers(HashMap<String, String> paramMap, String id, String slug, String symbol, boolean resolveSymbol) {
+		if (cryptocurrencyResolverService != null) {
+			cryptocurrencyResolverService.putIdentifiers(paramMap, id, slug, symbol, resolveSymbol);
+			return;
+		}
+		
+		paramMap.put("id", id);
+		paramMap.put("slug", slug);
+		paramMap.put("symbol", symbol);
 	}
 }
@@ -4,6 +4,7 @@ package com.rantcrypto.cmc.api.service;
 
 import java.util.HashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -23,42 +24,66 @@ public class ExchangeService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.map-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_MAP_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.map-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_MAP_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.info-endpoint:/v1/exchange/info}") 
 	private String EXCHANGE_INFO_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.info-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_INFO_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.info-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_INFO_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-latest-endpoint:/v1/exchange/listings/latest}") 
 	private String EXCHANGE_LISTINGS_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-latest-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_LISTINGS_LATEST_ENDPOINT_CACHE_TIME;
 	
-	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-latest-endpoint:/v1/exchange/listings/historical}") 
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-latest-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_LISTINGS_LATEST_ENDPOINT_STALE_TIME;
+	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-historical-endpoint:/v1/exchange/listings/historical}") 
 	private String EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT;
 	
-	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-latest-endpoint.cache-time:-1}") 
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-historical-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-historical-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.quotes-latest-endpoint:/v1/exchange/quotes/latest}") 
 	private String EXCHANGE_QUOTES_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.quotes-latest-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_QUOTES_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.quotes-latest-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_QUOTES_LATEST_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.quotes-historical-endpoint:/v1/exchange/quotes/historical}") 
 	private String EXCHANGE_QUOTES_HISTORICAL_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.quotes-historical-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.quotes-historical-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_QUOTES_HISTORICAL_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.market-pairs-latest-endpoint:/v1/exchange/market-pairs/latest}") 
 	private String EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.exchange.market-pairs-latest-endpoint.cache-time:-1}") 
 	private Long EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.market-pairs-latest-endpoint.stale-time:-1}") 
+	private Long EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT_STALE_TIME;
+	
+	@Autowired(required = false)
+	private ExchangeSnapshotService exchangeSnapshotService;
+	
 	
 	/**
 	 * <p>Returns a paginated list of all active cryptocurrency exchanges by CoinMarketCap ID. We recommend using this convenience endpoint to lookup and utilize our unique exchange id across all endpoints as typical exchange identifiers may change over time. As a convenience you may pass a comma-separated list of exchanges by slug to filter this list to only those you require or the aux parameter to slim down the payload.</p>
@@ -93,7 +118,7 @@ public class ExchangeService extends CoinMarketCapService {
 		paramMap.put("sort", sort);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(EXCHANGE_MAP_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(EXCHANGE_MAP_ENDPOINT, paramMap, EXCHANGE_MAP_ENDPOINT_CACHE_TIME, EXCHANGE_MAP_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -122,7 +147,7 @@ public class ExchangeService extends CoinMarketCapService {
 		paramMap.put("slug", slug);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(EXCHANGE_INFO_ENDPOINT, paramMap);
+		return super.getEntityResponseFromEndpoint(EXCHANGE_INFO_ENDPOINT, paramMap, EXCHANGE_INFO_ENDPOINT_CACHE_TIME, EXCHANGE_INFO_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -138,6 +163,7 @@ public class ExchangeService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Every 1 minute.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per 100 exchanges returned (rounded up) and 1 call credit per convert option beyond the first.</p>
+	 * <p>When the exchange snapshot is enabled, sorting and pagination it can evaluate are served from memory without using any credits (see {@link ExchangeSnapshotService }).</p>
 	 * 
 	 * @param start Optionally offset the start (1-based index) of the paginated list of items to return. Default: 1
 	 * @param limit Optionally specify the number of results to return. Use this parameter and the "start" parameter to determine your own pagination size. Default: 100
@@ -147,11 +173,19 @@ public class ExchangeService extends CoinMarketCapService {
 	 * @param aux Optionally specify a comma-separated list of supplemental data fields to return. Pass num_market_pairs,date_launched to include all auxiliary fields. Default: "num_market_pairs"
 	 * @param convert Optionally calculate market quotes in up to 120 currencies at once by passing a comma-separated list of cryptocurrency or fiat currency symbols. Each additional convert option beyond the first requires an additional call credit. A list of supported fiat options can be found here. Each conversion is returned in its own "quote" object.
 	 * @param convertId Optionally calculate market quotes by CoinMarketCap ID instead of symbol. This option is identical to convert outside of ID format. Ex: convert_id=1,2781 would replace convert=BTC,USD in your query. This parameter cannot be used when convert is used.
+	 * @param snapshotVersion Optionally pass the "snapshot_version" of a previous page to read this page from the same exchange snapshot. Not sent upstream.
 	 * 
 	 * @return A paginated list of all cryptocurrency exchanges including the latest aggregate market data for each exchange.
 	 */
 	public ResponseEntity<Object> getListingsLatest(Long start, Long limit, String sort, String sortDir, String marketType, String aux,
-			String convert, String convertId) {
+			String convert, String convertId, Long snapshotVersion) {
+		if (exchangeSnapshotService != null && exchangeSnapshotService.isEnabled()) {
+			ResponseEntity<Object> snapshotResponse = exchangeSnapshotService.getListingsLatest(start, limit, sort, sortDir, 
+					marketType, aux, convert, convertId, snapshotVersion);
+			if (snapshotResponse != null)
+				return snapshotResponse;
+		}
+		
 		HashMap<String, String> paramMap = new HashMap<String, String>();
 		paramMap.put("start", (start != null ? Long.toString(start) : null));
 		paramMap.put("limit", (limit != null ? Long.toString(limit) : null));
@@ -162,7 +196,7 @@ public class ExchangeService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(EXCHANGE_LISTINGS_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(EXCHANGE_LISTINGS_LATEST_ENDPOINT, paramMap, EXCHANGE_LISTINGS_LATEST_ENDPOINT_CACHE_TIME, EXCHANGE_LISTINGS_LATEST_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -172,7 +206,7 @@ public class ExchangeService extends CoinMarketCapService {
 	 * @return A paginated list of all cryptocurrency exchanges with historical market data for a given point in time.
 	 */
 	public ResponseEntity<Object> getListingsHistorical() {
-		return super.getResponseFromEndpoint(EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT);
+		return super.getResponseFromEndpoint(EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT, EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT_CACHE_TIME, EXCHANGE_LISTINGS_HISTORICAL_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -202,7 +236,7 @@ public class ExchangeService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(EXCHANGE_QUOTES_LATEST_ENDPOINT, paramMap);
+		return super.getEntityResponseFromEndpoint(EXCHANGE_QUOTES_LATEST_ENDPOINT, paramMap, EXCHANGE_QUOTES_LATEST_ENDPOINT_CACHE_TIME, EXCHANGE_QUOTES_LATEST_ENDPOINT_STALE_TIME);
 	}
 
 	public ResponseEntity<Object> getQuotesHistorical(String id, String slug, String timeStart, String timeEnd, Long count,
@@ -217,7 +251,7 @@ public class ExchangeService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(EXCHANGE_QUOTES_HISTORICAL_ENDPOINT, paramMap);
+		return super.getHistoricalResponseFromEndpoint(EXCHANGE_QUOTES_HISTORICAL_ENDPOINT, paramMap, EXCHANGE_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME, EXCHANGE_QUOTES_HISTORICAL_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -262,6 +296,6 @@ public class ExchangeService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT, paramMap, EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT_CACHE_TIME, EXCHANGE_MARKET_PAIRS_LATEST_ENDPOINT_STALE_TIME);
 	}
 }
@@ -0,0 +1,123 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.rantcrypto.cmc.api.snapshot.ExchangeListingsSnapshot;
+import com.rantcrypto.cmc.api.snapshot.ExchangeSort;
+
+/**
+ * <p>Polls /exchange/listings/latest in the background and keeps the listing in memory as an
+ * {@link ExchangeListingsSnapshot }, so /exchange/listings/latest can be answered for any sort and
+ * page without an API call.</p>
+ *
+ * <p>The snapshot is disabled by default, and needs a plan with access to /exchange/listings/latest.
+ * Requests it cannot answer exactly as the CoinMarketCap API would (other convert, convert_id, aux
+ * or market_type options, or a snapshot older than <code>max-age</code>) are sent upstream as
+ * before.</p>
+ *
+ * <p>Every refresh publishes a new snapshot version (see {@link SnapshotService }). Metrics are
+ * tagged <code>snapshot=exchanges</code>.</p>
+ *
+ * @author Phillip Groves
+ */
+@Service
+public class ExchangeSnapshotService extends SnapshotService<ExchangeListingsSnapshot> {
+
+	@Value("${com.rantcrypto.cmc.api.v1.exchange-snapshot.enabled:false}")
+	private Boolean EXCHANGE_SNAPSHOT_ENABLED;
+
+	@Value("${com.rantcrypto.cmc.api.v1.exchange-snapshot.refresh-interval:60}")
+	private Long EXCHANGE_SNAPSHOT_REFRESH_INTERVAL;
+
+	@Value("${com.rantcrypto.cmc.api.v1.exchange-snapshot.max-age:180}")
+	private Long EXCHANGE_SNAPSHOT_MAX_AGE;
+
+	@Value("${com.rantcrypto.cmc.api.v1.exchange-snapshot.limit:5000}")
+	private Long EXCHANGE_SNAPSHOT_LIMIT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.exchange-snapshot.convert:USD}")
+	private String EXCHANGE_SNAPSHOT_CONVERT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.exchange.listings-latest-endpoint:/v1/exchange/listings/latest}")
+	private String EXCHANGE_LISTINGS_LATEST_ENDPOINT;
+
+
+	@Override
+	protected String getName() {
+		return "exchanges";
+	}
+
+	@Override
+	protected String getEndpoint() {
+		return EXCHANGE_LISTINGS_LATEST_ENDPOINT;
+	}
+
+	@Override
+	protected HashMap<String, String> getParams() {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("start", "1");
+		paramMap.put("limit", Long.toString(EXCHANGE_SNAPSHOT_LIMIT));
+		paramMap.put("convert", EXCHANGE_SNAPSHOT_CONVERT);
+		return paramMap;
+	}
+
+	@Override
+	protected ExchangeListingsSnapshot parse(String body, long version, long timestamp) throws IOException {
+		return ExchangeListingsSnapshot.parse(body, EXCHANGE_SNAPSHOT_CONVERT, version, timestamp, EXCHANGE_SNAPSHOT_LIMIT);
+	}
+
+	/**
+	 * Answers an /exchange/listings/latest request from the snapshot. See
+	 * {@link ExchangeService#getListingsLatest } for the parameters.
+	 *
+	 * <p>A request with a snapshotVersion is answered from that version while it is retained, so
+	 * its pages stay consistent across refreshes.</p>
+	 *
+	 * @return A page of the sorted listing, 410 Gone if the requested version is no longer
+	 * retained, or null if the request has to be sent upstream
+	 */
+	public ResponseEntity<Object> getListingsLatest(Long start, Long limit, String sort, String sortDir, String marketType,
+			String aux, String convert, String convertId, Long snapshotVersion) {
+		if (snapshotVersion != null && getSnapshot(snapshotVersion) == null)
+			return getVersionGoneResponse(snapshotVersion);
+
+		ExchangeListingsSnapshot current = getSnapshot(snapshotVersion);
+		ExchangeSort exchangeSort = ExchangeSort.of(sort);
+		long first = start != null ? start : 1L;
+		long count = limit != null ? limit : 100L;
+		boolean validSortDir = isEmpty(sortDir) || sortDir.trim().equalsIgnoreCase("asc") || sortDir.trim().equalsIgnoreCase("desc");
+		boolean allMarkets = isEmpty(marketType) || marketType.trim().equalsIgnoreCase("all");
+		boolean sameConvert = isEmpty(convert) || (current != null && convert.trim().toUpperCase(Locale.ROOT).equals(current.getConvert()));
+
+		// invalid options are sent upstream, which answers them with its own error
+		String body = null;
+		if (current != null && exchangeSort != null && validSortDir && allMarkets && sameConvert && isEmpty(convertId)
+				&& isEmpty(aux) && first >= 1L && count >= 1L && count <= 5000L)
+			body = current.getListingsLatest(exchangeSort, exchangeSort.isDescending(sortDir), first, count);
+
+		return getResponseEntity(body);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return Boolean.TRUE.equals(EXCHANGE_SNAPSHOT_ENABLED);
+	}
+
+	@Override
+	protected long getRefreshInterval() {
+		return EXCHANGE_SNAPSHOT_REFRESH_INTERVAL;
+	}
+
+	@Override
+	protected long getMaxAge() {
+		return EXCHANGE_SNAPSHOT_MAX_AGE;
+	}
+}
@@ -20,9 +20,12 @@ public class FiatService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.fiat.map-endpoint:/v1/fiat/map}") 
 	private String FIAT_MAP_ENDPOINT;
 	
-	@Value("${com.rantcrypto.cmc.api.v1.fiat.map-endpoint:/v1/fiat/map.cache-time:-1}") 
+	@Value("${com.rantcrypto.cmc.api.v1.fiat.map-endpoint.cache-time:-1}") 
 	private Long FIAT_MAP_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.fiat.map-endpoint.stale-time:-1}") 
+	private Long FIAT_MAP_ENDPOINT_STALE_TIME;
+	
 
 	/**
 	 * <p>Returns a mapping of all supported fiat currencies to unique CoinMarketCap ids. Per CoinMarketCap Best Practices we recommend utilizing CMC ID instead of currency symbols to securely identify assets with our other endpoints and in your own application logic.</p>
@@ -54,6 +57,6 @@ public class FiatService extends CoinMarketCapService {
 		paramMap.put("sort", sort);
 		paramMap.put("include_metals", (includeMetals != null ? Boolean.toString(includeMetals) : null));
 		
-		return super.getResponseFromEndpoint(FIAT_MAP_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(FIAT_MAP_ENDPOINT, paramMap, FIAT_MAP_ENDPOINT_CACHE_TIME, FIAT_MAP_ENDPOINT_STALE_TIME);
 	}
 }
@@ -23,11 +23,17 @@ public class GlobalMetricsService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.global-metrics.quotes-latest-endpoint.cache-time:-1}") 
 	private Long GLOBAL_METRICS_QUOTES_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.global-metrics.quotes-latest-endpoint.stale-time:-1}") 
+	private Long GLOBAL_METRICS_QUOTES_LATEST_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.global-metrics.quotes-historical-endpoint:/v1/global-metrics/quotes/historical}") 
 	private String GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.global-metrics.quotes-historical-endpoint.cache-time:-1}") 
 	private Long GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME;
+	
+	@Value("${com.rantcrypto.cmc.api.v1.global-metrics.quotes-historical-endpoint.stale-time:-1}") 
+	private Long GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT_STALE_TIME;
 
 	
 	/**
@@ -56,7 +62,7 @@ public class GlobalMetricsService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(GLOBAL_METRICS_QUOTES_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(GLOBAL_METRICS_QUOTES_LATEST_ENDPOINT, paramMap, GLOBAL_METRICS_QUOTES_LATEST_ENDPOINT_CACHE_TIME, GLOBAL_METRICS_QUOTES_LATEST_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -99,6 +105,7 @@ public class GlobalMetricsService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Every 5 minutes.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per 100 historical data points returned (rounded up).</p>
+	 * <p>When the history store is enabled, ranges that were already fetched are answered from local storage without using any credits, and only the missing parts of partly fetched ranges are requested (see {@link com.rantcrypto.cmc.api.history.HistoryStore }).</p>
 	 * 
 	 * @param timeStart Timestamp (Unix or ISO 8601) to start returning quotes for. Optional, if not passed, we'll return quotes calculated in reverse from "time_end".
 	 * @param timeEnd Timestamp (Unix or ISO 8601) to stop returning quotes for (inclusive). Optional, if not passed, we'll default to the current time. If no "time_start" is passed, we return quotes in reverse order starting from this time.
@@ -121,6 +128,6 @@ public class GlobalMetricsService extends CoinMarketCapService {
 		paramMap.put("convert_id", convertId);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT, paramMap);
+		return super.getHistoricalResponseFromEndpoint(GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT, paramMap, GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME, GLOBAL_METRICS_QUOTES_HISTORICAL_ENDPOINT_STALE_TIME);
 	}
 }
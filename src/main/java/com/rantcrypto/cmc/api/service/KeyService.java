@@ -21,6 +21,9 @@ public class KeyService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.key.info-endpoint.cache-time:-1}") 
 	private Long KEY_INFO_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.key.info-endpoint.stale-time:-1}") 
+	private Long KEY_INFO_ENDPOINT_STALE_TIME;
+	
 	
 	/**
 	 * <p>Returns API key details and usage stats. This endpoint can be used to programmatically monitor your key usage compared to the rate limit and daily/monthly credit limits available to your API plan. You may use the Developer Portal's account dashboard as an alternative to this endpoint.</p>
@@ -41,6 +44,6 @@ public class KeyService extends CoinMarketCapService {
 	 * @return API key details and usage stats.
 	 */
 	public ResponseEntity<Object> getInfo() {	
-		return super.getResponseFromEndpoint(KEY_INFO_ENDPOINT);
+		return super.getResponseFromEndpoint(KEY_INFO_ENDPOINT, KEY_INFO_ENDPOINT_CACHE_TIME, KEY_INFO_ENDPOINT_STALE_TIME);
 	}
 }
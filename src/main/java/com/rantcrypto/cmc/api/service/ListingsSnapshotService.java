@@ -0,0 +1,156 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.rantcrypto.cmc.api.snapshot.ListingsFilter;
+import com.rantcrypto.cmc.api.snapshot.ListingsSnapshot;
+import com.rantcrypto.cmc.api.snapshot.ListingsSort;
+
+/**
+ * <p>Polls /cryptocurrency/listings/latest in the background and keeps the full listing in memory
+ * as a {@link ListingsSnapshot }, so /cryptocurrency/quotes/latest can be answered for any subset
+ * of listed cryptocurrencies, and /cryptocurrency/listings/latest for any combination of filters,
+ * sort and pagination, without an API call. One call per refresh interval replaces a call (and its
+ * credits) per request.</p>
+ *
+ * <p>The snapshot is disabled by default. Requests it cannot answer exactly as the CoinMarketCap API
+ * would (other convert, convert_id or aux options, unlisted cryptocurrencies, sort options the
+ * snapshot does not hold, or a snapshot older than <code>max-age</code>) are sent upstream as
+ * before.</p>
+ *
+ * <p>Every refresh publishes a new snapshot version (see {@link SnapshotService }). Metrics are
+ * tagged <code>snapshot=listings</code>.</p>
+ *
+ * @author Phillip Groves
+ */
+@Service
+public class ListingsSnapshotService extends SnapshotService<ListingsSnapshot> {
+
+	@Value("${com.rantcrypto.cmc.api.v1.snapshot.enabled:false}")
+	private Boolean SNAPSHOT_ENABLED;
+
+	@Value("${com.rantcrypto.cmc.api.v1.snapshot.refresh-interval:60}")
+	private Long SNAPSHOT_REFRESH_INTERVAL;
+
+	@Value("${com.rantcrypto.cmc.api.v1.snapshot.max-age:180}")
+	private Long SNAPSHOT_MAX_AGE;
+
+	@Value("${com.rantcrypto.cmc.api.v1.snapshot.limit:5000}")
+	private Long SNAPSHOT_LIMIT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.snapshot.convert:USD}")
+	private String SNAPSHOT_CONVERT;
+
+	@Value("${com.rantcrypto.cmc.api.v1.cryptocurrency.listings-latest-endpoint:/v1/cryptocurrency/listings/latest}")
+	private String CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT;
+
+
+	@Override
+	protected String getName() {
+		return "listings";
+	}
+
+	@Override
+	protected String getEndpoint() {
+		return CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT;
+	}
+
+	@Override
+	protected HashMap<String, String> getParams() {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("start", "1");
+		paramMap.put("limit", Long.toString(SNAPSHOT_LIMIT));
+		paramMap.put("convert", SNAPSHOT_CONVERT);
+		return paramMap;
+	}
+
+	@Override
+	protected ListingsSnapshot parse(String body, long version, long timestamp) throws IOException {
+		return ListingsSnapshot.parse(body, SNAPSHOT_CONVERT, version, timestamp, SNAPSHOT_LIMIT);
+	}
+
+	/**
+	 * Answers a /cryptocurrency/quotes/latest request from the snapshot. See
+	 * {@link CryptocurrencyService#getQuotesLatest(String, String, String, String, String, String, Boolean) }
+	 * for the parameters.
+	 *
+	 * @return The latest market quotes, or null if the request has to be sent upstream
+	 */
+	public ResponseEntity<Object> getQuotesLatest(String id, String slug, String symbol, String convert, String convertId,
+			String aux, Boolean skipInvalid) {
+		ListingsSnapshot current = getSnapshot(null, convert, convertId, aux);
+		String body = current != null ? current.getQuotesLatest(id, slug, symbol, Boolean.TRUE.equals(skipInvalid)) : null;
+
+		return getResponseEntity(body);
+	}
+
+	/**
+	 * Answers a /cryptocurrency/listings/latest request from the snapshot. See
+	 * {@link CryptocurrencyService#getListingsLatest } for the parameters.
+	 *
+	 * <p>A request with a snapshotVersion is answered from that version while it is retained, so
+	 * its pages stay consistent across refreshes.</p>
+	 *
+	 * @return A page of the filtered and sorted listing, 410 Gone if the requested version is no
+	 * longer retained, or null if the request has to be sent upstream
+	 */
+	public ResponseEntity<Object> getListingsLatest(Long start, Long limit, Double priceMin, Double priceMax, Double marketCapMin,
+			Double marketCapMax, Double volume24hMin, Double volume24hMax, Double circulatingSupplyMin, Double circulatingSupplyMax,
+			Double percentChange24hMin, Double percentChange24hMax, String convert, String convertId, String sort, String sortDir,
+			String cryptocurrencyType, String tag, String aux, Long snapshotVersion) {
+		if (snapshotVersion != null && getSnapshot(snapshotVersion) == null)
+			return getVersionGoneResponse(snapshotVersion);
+
+		ListingsSnapshot current = getSnapshot(snapshotVersion, convert, convertId, aux);
+		ListingsSort listingsSort = ListingsSort.of(sort);
+		ListingsFilter filter = ListingsFilter.of(priceMin, priceMax, marketCapMin, marketCapMax, volume24hMin, volume24hMax,
+				circulatingSupplyMin, circulatingSupplyMax, percentChange24hMin, percentChange24hMax, cryptocurrencyType, tag);
+		long first = start != null ? start : 1L;
+		long count = limit != null ? limit : 100L;
+		boolean validSortDir = isEmpty(sortDir) || sortDir.trim().equalsIgnoreCase("asc") || sortDir.trim().equalsIgnoreCase("desc");
+
+		// invalid options are sent upstream, which answers them with its own error
+		String body = null;
+		if (current != null && listingsSort != null && filter != null && validSortDir && first >= 1L && count >= 1L
+				&& count <= 5000L)
+			body = current.getListingsLatest(filter, listingsSort, listingsSort.isDescending(sortDir), first, count);
+
+		return getResponseEntity(body);
+	}
+
+	/**
+	 * @return The requested (or latest) snapshot if it holds quotes in the requested currency,
+	 * otherwise null
+	 */
+	private ListingsSnapshot getSnapshot(Long version, String convert, String convertId, String aux) {
+		ListingsSnapshot current = getSnapshot(version);
+
+		if (current == null || !isEmpty(convertId) || !isEmpty(aux)
+				|| (!isEmpty(convert) && !convert.trim().toUpperCase(Locale.ROOT).equals(current.getConvert())))
+			return null;
+		return current;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return Boolean.TRUE.equals(SNAPSHOT_ENABLED);
+	}
+
+	@Override
+	protected long getRefreshInterval() {
+		return SNAPSHOT_REFRESH_INTERVAL;
+	}
+
+	@Override
+	protected long getMaxAge() {
+		return SNAPSHOT_MAX_AGE;
+	}
+}
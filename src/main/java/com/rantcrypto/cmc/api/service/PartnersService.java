@@ -23,12 +23,18 @@ public class PartnersService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.partners.flipside-crypto-fcas-listings-latest-endpoint.cache-time:-1}") 
 	private Long PARTNERS_FLIPSIDE_CRYPTO_FCAS_LISTINGS_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.partners.flipside-crypto-fcas-listings-latest-endpoint.stale-time:-1}") 
+	private Long PARTNERS_FLIPSIDE_CRYPTO_FCAS_LISTINGS_LATEST_ENDPOINT_STALE_TIME;
+	
 	@Value("${com.rantcrypto.cmc.api.v1.partners.flipside-crypto-fcas-quotes-latest-endpoint:/v1/partners/flipside-crypto/fcas/quotes/latest}") 
 	private String PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT;
 	
 	@Value("${com.rantcrypto.cmc.api.v1.partners.flipside-crypto-fcas-quotes-latest-endpoint.cache-time:-1}") 
 	private Long PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.partners.flipside-crypto-fcas-quotes-latest-endpoint.stale-time:-1}") 
+	private Long PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT_STALE_TIME;
+	
 	
 	/**
 	 * <p>Returns a paginated list of FCAS scores for all cryptocurrencies currently supported by FCAS. FCAS ratings are on a 0-1000 point scale with a corresponding letter grade and is updated once a day at UTC midnight.</p>
@@ -62,7 +68,7 @@ public class PartnersService extends CoinMarketCapService {
 		paramMap.put("limit", (limit != null ? Long.toString(limit) : null));
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(PARTNERS_FLIPSIDE_CRYPTO_FCAS_LISTINGS_LATEST_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(PARTNERS_FLIPSIDE_CRYPTO_FCAS_LISTINGS_LATEST_ENDPOINT, paramMap, PARTNERS_FLIPSIDE_CRYPTO_FCAS_LISTINGS_LATEST_ENDPOINT_CACHE_TIME, PARTNERS_FLIPSIDE_CRYPTO_FCAS_LISTINGS_LATEST_ENDPOINT_STALE_TIME);
 	}
 
 	/**
@@ -99,6 +105,6 @@ public class PartnersService extends CoinMarketCapService {
 		paramMap.put("symbol", symbol);
 		paramMap.put("aux", aux);
 		
-		return super.getResponseFromEndpoint(PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT, paramMap);
+		return super.getEntityResponseFromEndpoint(PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT, paramMap, PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT_CACHE_TIME, PARTNERS_FLIPSIDE_CRYPTO_FCAS_QUOTES_LATEST_ENDPOINT_STALE_TIME);
 	}
 }
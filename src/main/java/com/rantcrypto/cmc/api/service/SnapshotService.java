@@ -0,0 +1,257 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.rantcrypto.cmc.api.ApiException;
+import com.rantcrypto.cmc.api.cache.CachedBody;
+import com.rantcrypto.cmc.api.snapshot.Snapshot;
+import com.rantcrypto.cmc.api.snapshot.SnapshotHistory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <p>Polls one CoinMarketCap endpoint in the background and publishes each response as a new
+ * {@link Snapshot } version. Snapshots are built off to the side and published to a
+ * {@link SnapshotHistory } with a single reference swap, so requests never block on a refresh and
+ * always read one consistent version.</p>
+ *
+ * <p>The last <code>snapshot.retained-versions</code> versions are kept, so a paginated request may
+ * pass the <code>snapshot_version</code> of its first page to read every page from the same
+ * version. A version that is no longer retained is answered with 410 Gone.</p>
+ *
+ * <p>Counts are published as <code>cmc.snapshot.hits</code>, <code>cmc.snapshot.fallbacks</code>
+ * and <code>cmc.snapshot.refreshes</code>, and the latest snapshot's age as
+ * <code>cmc.snapshot.age</code>, each tagged with the snapshot's name.</p>
+ *
+ * @param <T> Type of snapshot
+ *
+ * @author Phillip Groves
+ */
+public abstract class SnapshotService<T extends Snapshot> extends CoinMarketCapService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotService.class);
+
+	@Value("${com.rantcrypto.cmc.api.v1.snapshot.retained-versions:5}")
+	private Integer SNAPSHOT_RETAINED_VERSIONS;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final SnapshotHistory<T> history = new SnapshotHistory<T>();
+	private final AtomicLong lastVersion = new AtomicLong();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder fallbackCount = new LongAdder();
+	private final LongAdder refreshCount = new LongAdder();
+
+	private ScheduledExecutorService executor;
+
+
+	@PostConstruct
+	public void init() {
+		if (!isEnabled())
+			return;
+
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cmc-snapshot-" + getName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::refresh, 0L, getRefreshInterval(), TimeUnit.SECONDS);
+
+		if (meterRegistry != null) {
+			FunctionCounter.builder("cmc.snapshot.hits", hitCount, LongAdder::sum)
+					.description("Requests answered from the snapshot")
+					.tag("snapshot", getName())
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.snapshot.fallbacks", fallbackCount, LongAdder::sum)
+					.description("Requests the snapshot could not answer")
+					.tag("snapshot", getName())
+					.register(meterRegistry);
+			FunctionCounter.builder("cmc.snapshot.refreshes", refreshCount, LongAdder::sum)
+					.description("Successful refreshes of the snapshot")
+					.tag("snapshot", getName())
+					.register(meterRegistry);
+			Gauge.builder("cmc.snapshot.age", this, service -> service.getAge() / 1000D)
+					.description("Age of the latest snapshot")
+					.tag("snapshot", getName())
+					.baseUnit("seconds")
+					.register(meterRegistry);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (executor != null)
+			executor.shutdownNow();
+	}
+
+	/**
+	 * Fetches the endpoint and publishes the response as the latest snapshot. If the request fails,
+	 * the latest snapshot is kept until it is older than <code>max-age</code>.
+	 *
+	 * @return True if a snapshot was published
+	 */
+	public boolean refresh() {
+		try {
+			long now = System.currentTimeMillis();
+			ResponseEntity<Object> response = super.getResponseFromEndpoint(getEndpoint(), getParams());
+
+			if (response.getStatusCode() != HttpStatus.OK) {
+				LOGGER.warn("Refresh of the {} snapshot failed with {}", getName(), response.getStatusCode());
+				return false;
+			}
+
+			T snapshot = parse(response.getBody().toString(), lastVersion.incrementAndGet(), now);
+			history.publish(snapshot, SNAPSHOT_RETAINED_VERSIONS != null ? SNAPSHOT_RETAINED_VERSIONS : 1);
+			refreshCount.increment();
+			return true;
+		} catch (IOException | RuntimeException exception) {
+			LOGGER.warn("Refresh of the {} snapshot failed: {}", getName(), exception.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * @return The latest snapshot, or null if the snapshot is disabled, not fetched yet or older
+	 * than <code>max-age</code>
+	 */
+	public T getSnapshot() {
+		T latest = history.getLatest();
+		if (latest == null || System.currentTimeMillis() - latest.getTimestamp() > getMaxAge() * 1000L)
+			return null;
+		return latest;
+	}
+
+	/**
+	 * @param version Version a paginated request started with, may be null
+	 *
+	 * @return The snapshot with the version if it is retained, otherwise null. The latest snapshot
+	 * as {@link #getSnapshot() } if no version is given.
+	 */
+	public T getSnapshot(Long version) {
+		return version != null ? history.get(version) : getSnapshot();
+	}
+
+	/**
+	 * @return Name of the snapshot in thread names, metrics and logs
+	 */
+	protected abstract String getName();
+
+	/**
+	 * @return Endpoint the snapshot is fetched from
+	 */
+	protected abstract String getEndpoint();
+
+	/**
+	 * @return Query parameters the snapshot is fetched with
+	 */
+	protected abstract HashMap<String, String> getParams();
+
+	/**
+	 * @param body Successful response of the endpoint
+	 * @param version Version of the new snapshot
+	 * @param timestamp Time the response was fetched, in milliseconds since the epoch
+	 *
+	 * @return Snapshot of the response
+	 *
+	 * @throws IOException If the body cannot be parsed
+	 */
+	protected abstract T parse(String body, long version, long timestamp) throws IOException;
+
+	/**
+	 * @return True if the snapshot is enabled
+	 */
+	public abstract boolean isEnabled();
+
+	/**
+	 * @return Seconds between refreshes
+	 */
+	protected abstract long getRefreshInterval();
+
+	/**
+	 * @return Seconds after which a snapshot that could not be refreshed is no longer served
+	 */
+	protected abstract long getMaxAge();
+
+	/**
+	 * Counts a request answered from the snapshot, or sent upstream if there is no body.
+	 *
+	 * @param body JSON response built from the snapshot, may be null
+	 *
+	 * @return Successful response with the body, or null
+	 */
+	protected ResponseEntity<Object> getResponseEntity(String body) {
+		if (body == null) {
+			fallbackCount.increment();
+			return null;
+		}
+
+		hitCount.increment();
+		return super.getResponseEntity(CachedBody.onHeap(body));
+	}
+
+	/**
+	 * @param version Requested snapshot version
+	 *
+	 * @return Error 410 Gone, in the format of the CoinMarketCap API
+	 */
+	protected ResponseEntity<Object> getVersionGoneResponse(long version) {
+		ApiException exception = new ApiException((long) HttpStatus.GONE.value(),
+				"\"snapshot_version\" " + version + " is no longer available");
+		return new ResponseEntity<Object>(exception, new HttpHeaders(), HttpStatus.GONE);
+	}
+
+	/**
+	 * @return Age of the latest snapshot in milliseconds, or -1 if there is none
+	 */
+	public long getAge() {
+		T latest = history.getLatest();
+		return latest != null ? System.currentTimeMillis() - latest.getTimestamp() : -1L;
+	}
+
+	/**
+	 * @return Number of requests answered from the snapshot
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return Number of requests the snapshot could not answer
+	 */
+	public long getFallbackCount() {
+		return fallbackCount.sum();
+	}
+
+	/**
+	 * @return Number of successful refreshes
+	 */
+	public long getRefreshCount() {
+		return refreshCount.sum();
+	}
+
+	protected static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+}
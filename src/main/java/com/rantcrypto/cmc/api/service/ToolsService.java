@@ -4,6 +4,7 @@ package com.rantcrypto.cmc.api.service;
 
 import java.util.HashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,12 @@ public class ToolsService extends CoinMarketCapService {
 	@Value("${com.rantcrypto.cmc.api.v1.tools.price-conversion-endpoint.cache-time:-1}") 
 	private Long TOOLS_PRICE_CONVERSION_ENDPOINT_CACHE_TIME;
 	
+	@Value("${com.rantcrypto.cmc.api.v1.tools.price-conversion-endpoint.stale-time:-1}") 
+	private Long TOOLS_PRICE_CONVERSION_ENDPOINT_STALE_TIME;
+	
+	@Autowired(required = false)
+	private ConversionRatesService conversionRatesService;
+	
 	
 	/**
 	 * <p>Convert an amount of one cryptocurrency or fiat currency into one or more different currencies utilizing the latest market rate for each currency. You may optionally pass a historical timestamp as time to convert values based on historical rates (as your API plan supports).</p>
@@ -47,6 +54,7 @@ public class ToolsService extends CoinMarketCapService {
 	 * 
 	 * <p><b>Cache / Update frequency:</b> Every 60 seconds for the lastest cryptocurrency and fiat currency rates.</p>
 	 * <p><b>Plan credit use:</b> 1 call credit per call and 1 call credit per convert option beyond the first.</p>
+	 * <p>When conversion and the listings snapshot are enabled, conversions without a time are computed from the cached rates without using any credits (see {@link ConversionRatesService }).</p>
 	 * 
 	 * @param amount Required. An amount of currency to convert. Example: 10.43
 	 * @param id The CoinMarketCap currency ID of the base cryptocurrency or fiat to convert from. Example: "1"
@@ -59,6 +67,12 @@ public class ToolsService extends CoinMarketCapService {
 	 */
 	public ResponseEntity<Object> getPriceConversion(Double amount, String id, String symbol, String time, String convert,
 			String convertId) {
+		if (conversionRatesService != null && conversionRatesService.isEnabled() && (time == null || time.trim().isEmpty())) {
+			ResponseEntity<Object> convertedResponse = conversionRatesService.getPriceConversion(amount, id, symbol, convert, convertId);
+			if (convertedResponse != null)
+				return convertedResponse;
+		}
+		
 		HashMap<String, String> paramMap = new HashMap<String, String>();
 		paramMap.put("amount", (amount != null ? Double.toString(amount) : null));
 		paramMap.put("id", id);
@@ -67,6 +81,6 @@ public class ToolsService extends CoinMarketCapService {
 		paramMap.put("convert", convert);
 		paramMap.put("convert_id", convertId);
 		
-		return super.getResponseFromEndpoint(TOOLS_PRICE_CONVERSION_ENDPOINT, paramMap);
+		return super.getResponseFromEndpoint(TOOLS_PRICE_CONVERSION_ENDPOINT, paramMap, TOOLS_PRICE_CONVERSION_ENDPOINT_CACHE_TIME, TOOLS_PRICE_CONVERSION_ENDPOINT_STALE_TIME);
 	}
 }
@@ -0,0 +1,471 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>Column-wise copy of a JSON array of entries (e.g. the data of /cryptocurrency/listings/latest),
+ * indexed by the entry's position in the array. Numbers are held in primitive
+ * <code>double[]</code> columns (NaN for null), text in <code>String[]</code> columns and arrays of
+ * text (e.g. tags) in <code>String[][]</code> columns; equal strings and arrays are shared across
+ * entries. Other values (e.g. platform) are held as their JSON text. The fields of each entry's
+ * <code>quote</code> object for one currency are held as columns of their own.</p>
+ *
+ * <p>Columns are discovered from the entries, so fields CoinMarketCap adds later are kept and
+ * written back as well. Entries are written with their fields in the order they were first seen;
+ * a field an entry did not have is written as null.</p>
+ */
+public final class ColumnarTable {
+
+	private static final String QUOTE = "quote";
+	private static final long REFERENCE_BYTES = 8L;
+
+	private final int size;
+	private final String convert;
+	private final Map<String, Column> columns;
+	private final Map<String, Column> quoteColumns;
+
+	private ColumnarTable(int size, String convert, Map<String, Column> columns, Map<String, Column> quoteColumns) {
+		this.size = size;
+		this.convert = convert;
+		this.columns = columns;
+		this.quoteColumns = quoteColumns;
+	}
+
+	/**
+	 * @param entries JSON objects to copy
+	 * @param convert Currency of the entries' quote objects
+	 *
+	 * @return Table of the entries
+	 */
+	public static ColumnarTable of(List<JsonNode> entries, String convert) {
+		Set<String> fields = new LinkedHashSet<String>();
+		Set<String> quoteFields = new LinkedHashSet<String>();
+		for (JsonNode entry : entries) {
+			for (Iterator<String> names = entry.fieldNames(); names.hasNext();)
+				fields.add(names.next());
+			for (Iterator<String> names = entry.path(QUOTE).path(convert).fieldNames(); names.hasNext();)
+				quoteFields.add(names.next());
+		}
+
+		Map<String, String> strings = new HashMap<String, String>();
+		Map<List<String>, String[]> arrays = new HashMap<List<String>, String[]>();
+		Map<String, Column> columns = new LinkedHashMap<String, Column>();
+		Map<String, Column> quoteColumns = new LinkedHashMap<String, Column>();
+
+		for (String field : fields) {
+			if (field.equals(QUOTE))
+				columns.put(field, null);
+			else
+				columns.put(field, createColumn(field, entries, false, convert, strings, arrays));
+		}
+		for (String field : quoteFields)
+			quoteColumns.put(field, createColumn(field, entries, true, convert, strings, arrays));
+
+		return new ColumnarTable(entries.size(), convert, columns, quoteColumns);
+	}
+
+	/**
+	 * Adds a column holding the same number for every entry, unless the table has the field.
+	 *
+	 * @param field Name of the field
+	 * @param value Value of every entry
+	 */
+	void addConstant(String field, long value) {
+		if (columns.containsKey(field))
+			return;
+
+		double[] values = new double[size];
+		Arrays.fill(values, value);
+		columns.put(field, new NumberColumn(field, values));
+	}
+
+	/**
+	 * Writes an entry as a JSON object.
+	 *
+	 * @param generator Generator to write to
+	 * @param index Index of the entry
+	 *
+	 * @throws IOException If the generator fails
+	 */
+	public void write(JsonGenerator generator, int index) throws IOException {
+		generator.writeStartObject();
+		for (Map.Entry<String, Column> column : columns.entrySet()) {
+			if (column.getValue() != null) {
+				column.getValue().write(generator, index);
+				continue;
+			}
+
+			generator.writeObjectFieldStart(QUOTE);
+			generator.writeObjectFieldStart(convert);
+			for (Column quoteColumn : quoteColumns.values())
+				quoteColumn.write(generator, index);
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+		generator.writeEndObject();
+	}
+
+	/**
+	 * @return Number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Number of bytes held by the columns' arrays and the distinct strings and arrays they
+	 * refer to. References are counted as eight bytes and strings as two bytes per character, which
+	 * are their worst-case sizes; object headers are not counted.
+	 */
+	public long getWeight() {
+		Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		long weight = 0L;
+		for (Column column : columns.values()) {
+			if (column != null)
+				weight += column.getWeight(counted);
+		}
+		for (Column column : quoteColumns.values())
+			weight += column.getWeight(counted);
+		return weight;
+	}
+
+	/**
+	 * @param field Name of a field of the entries, or of their quote objects
+	 * @param quote True for a field of the quote objects
+	 *
+	 * @return The field's values (NaN for null) if it only holds numbers, otherwise null
+	 */
+	public double[] getNumbers(String field, boolean quote) {
+		Column column = (quote ? quoteColumns : columns).get(field);
+		return column instanceof NumberColumn ? ((NumberColumn) column).values : null;
+	}
+
+	/**
+	 * @param field Name of a field of the entries, or of their quote objects
+	 * @param quote True for a field of the quote objects
+	 *
+	 * @return The field's values if it only holds text, otherwise null
+	 */
+	public String[] getTexts(String field, boolean quote) {
+		Column column = (quote ? quoteColumns : columns).get(field);
+		return column instanceof TextColumn ? ((TextColumn) column).values : null;
+	}
+
+	/**
+	 * @param field Name of a field of the entries
+	 *
+	 * @return The field's values if it only holds arrays of text, otherwise null
+	 */
+	public String[][] getTextArrays(String field) {
+		Column column = columns.get(field);
+		return column instanceof TextArrayColumn ? ((TextArrayColumn) column).values : null;
+	}
+
+	/**
+	 * @param field Name of a field of the entries
+	 * @param index Index of an entry
+	 *
+	 * @return True if the entry has a non-null value for the field
+	 */
+	public boolean hasValue(String field, int index) {
+		Column column = columns.get(field);
+		return column != null && column.hasValue(index);
+	}
+
+	/**
+	 * Orders the entries by a field holding numbers or text. Text is compared ignoring case.
+	 * Entries without a value come last in either direction, and ties keep the table's order.
+	 *
+	 * @param field Name of a field of the entries, or of their quote objects
+	 * @param quote True for a field of the quote objects
+	 * @param descending True to order descending
+	 *
+	 * @return Indexes of the entries in order, in the table's order if the field holds neither
+	 * numbers nor text
+	 */
+	public int[] sortOrder(String field, boolean quote, boolean descending) {
+		double[] numbers = getNumbers(field, quote);
+		if (numbers != null) {
+			return sortOrder((first, second) -> {
+				boolean firstMissing = Double.isNaN(numbers[first]);
+				boolean secondMissing = Double.isNaN(numbers[second]);
+				if (firstMissing || secondMissing)
+					return Boolean.compare(firstMissing, secondMissing);
+				return descending ? Double.compare(numbers[second], numbers[first]) : Double.compare(numbers[first], numbers[second]);
+			});
+		}
+
+		String[] texts = getTexts(field, quote);
+		if (texts == null)
+			return sortOrder((first, second) -> 0);
+
+		String[] keys = new String[size];
+		for (int i = 0; i < size; i++)
+			keys[i] = texts[i] != null ? texts[i].toLowerCase(Locale.ROOT) : null;
+		return sortOrder((first, second) -> {
+			if (keys[first] == null || keys[second] == null)
+				return Boolean.compare(keys[first] == null, keys[second] == null);
+			return descending ? keys[second].compareTo(keys[first]) : keys[first].compareTo(keys[second]);
+		});
+	}
+
+	private int[] sortOrder(Comparator<Integer> comparator) {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		Arrays.sort(order, comparator.thenComparing(Comparator.naturalOrder()));
+
+		int[] sorted = new int[size];
+		for (int i = 0; i < size; i++)
+			sorted[i] = order[i];
+		return sorted;
+	}
+
+	private static Column createColumn(String field, List<JsonNode> entries, boolean quote, String convert,
+			Map<String, String> strings, Map<List<String>, String[]> arrays) {
+		List<JsonNode> values = new ArrayList<JsonNode>(entries.size());
+		boolean numbers = true;
+		boolean texts = true;
+		boolean textArrays = true;
+
+		for (JsonNode entry : entries) {
+			JsonNode value = quote ? entry.path(QUOTE).path(convert).path(field) : entry.path(field);
+			if (value.isNull() || value.isMissingNode())
+				value = null;
+			values.add(value);
+
+			if (value != null) {
+				numbers &= value.isNumber();
+				texts &= value.isTextual();
+				textArrays &= value.isArray() && isTextArray(value);
+			}
+		}
+
+		if (numbers) {
+			double[] column = new double[values.size()];
+			for (int i = 0; i < column.length; i++)
+				column[i] = values.get(i) != null ? values.get(i).asDouble() : Double.NaN;
+			return new NumberColumn(field, column);
+		}
+
+		String[] column = new String[values.size()];
+		if (texts) {
+			for (int i = 0; i < column.length; i++)
+				column[i] = values.get(i) != null ? intern(strings, values.get(i).asText()) : null;
+			return new TextColumn(field, column);
+		}
+
+		if (textArrays) {
+			String[][] arrayColumn = new String[values.size()][];
+			for (int i = 0; i < arrayColumn.length; i++)
+				arrayColumn[i] = values.get(i) != null ? intern(strings, arrays, values.get(i)) : null;
+			return new TextArrayColumn(field, arrayColumn);
+		}
+
+		for (int i = 0; i < column.length; i++)
+			column[i] = values.get(i) != null ? intern(strings, values.get(i).toString()) : null;
+		return new RawColumn(field, column);
+	}
+
+	private static boolean isTextArray(JsonNode array) {
+		for (JsonNode element : array) {
+			if (!element.isTextual())
+				return false;
+		}
+		return true;
+	}
+
+	private static String intern(Map<String, String> strings, String value) {
+		String interned = strings.putIfAbsent(value, value);
+		return interned != null ? interned : value;
+	}
+
+	private static String[] intern(Map<String, String> strings, Map<List<String>, String[]> arrays, JsonNode array) {
+		String[] values = new String[array.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = intern(strings, array.get(i).asText());
+
+		List<String> key = Arrays.asList(values);
+		String[] interned = arrays.putIfAbsent(key, values);
+		return interned != null ? interned : values;
+	}
+
+	private abstract static class Column {
+
+		// names are escaped once, not for every entry written
+		final SerializedString name;
+
+		Column(String name) {
+			this.name = new SerializedString(name);
+		}
+
+		abstract boolean hasValue(int index);
+
+		abstract void write(JsonGenerator generator, int index) throws IOException;
+
+		/**
+		 * @param counted Strings and arrays already counted by other columns, to add to
+		 *
+		 * @return Number of bytes held by the column that were not counted yet
+		 */
+		abstract long getWeight(Set<Object> counted);
+
+		static long getWeight(String[] values, Set<Object> counted) {
+			long weight = REFERENCE_BYTES * values.length;
+			for (String value : values) {
+				if (value != null && counted.add(value))
+					weight += 2L * value.length();
+			}
+			return weight;
+		}
+	}
+
+	private static final class NumberColumn extends Column {
+
+		// whole numbers up to 2^53 are exact as doubles, and are written without a fraction
+		private static final double MAX_EXACT = 9007199254740992D;
+
+		final double[] values;
+
+		NumberColumn(String name, double[] values) {
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		boolean hasValue(int index) {
+			return !Double.isNaN(values[index]);
+		}
+
+		@Override
+		void write(JsonGenerator generator, int index) throws IOException {
+			double value = values[index];
+			generator.writeFieldName(name);
+			if (Double.isNaN(value))
+				generator.writeNull();
+			else if (value == Math.rint(value) && Math.abs(value) <= MAX_EXACT)
+				generator.writeNumber((long) value);
+			else
+				generator.writeNumber(value);
+		}
+
+		@Override
+		long getWeight(Set<Object> counted) {
+			return 8L * values.length;
+		}
+	}
+
+	private static final class TextColumn extends Column {
+
+		final String[] values;
+
+		TextColumn(String name, String[] values) {
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		boolean hasValue(int index) {
+			return values[index] != null;
+		}
+
+		@Override
+		void write(JsonGenerator generator, int index) throws IOException {
+			generator.writeFieldName(name);
+			generator.writeString(values[index]);
+		}
+
+		@Override
+		long getWeight(Set<Object> counted) {
+			return getWeight(values, counted);
+		}
+	}
+
+	private static final class TextArrayColumn extends Column {
+
+		final String[][] values;
+
+		TextArrayColumn(String name, String[][] values) {
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		boolean hasValue(int index) {
+			return values[index] != null;
+		}
+
+		@Override
+		void write(JsonGenerator generator, int index) throws IOException {
+			String[] value = values[index];
+			generator.writeFieldName(name);
+			if (value == null) {
+				generator.writeNull();
+				return;
+			}
+
+			generator.writeStartArray();
+			for (String element : value)
+				generator.writeString(element);
+			generator.writeEndArray();
+		}
+
+		@Override
+		long getWeight(Set<Object> counted) {
+			long weight = REFERENCE_BYTES * values.length;
+			for (String[] value : values) {
+				if (value != null && counted.add(value))
+					weight += getWeight(value, counted);
+			}
+			return weight;
+		}
+	}
+
+	private static final class RawColumn extends Column {
+
+		final String[] values;
+
+		RawColumn(String name, String[] values) {
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		boolean hasValue(int index) {
+			return values[index] != null;
+		}
+
+		@Override
+		void write(JsonGenerator generator, int index) throws IOException {
+			generator.writeFieldName(name);
+			if (values[index] != null)
+				generator.writeRawValue(values[index]);
+			else
+				generator.writeNull();
+		}
+
+		@Override
+		long getWeight(Set<Object> counted) {
+			return getWeight(values, counted);
+		}
+	}
+}
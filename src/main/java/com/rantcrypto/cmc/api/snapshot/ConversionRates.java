@@ -0,0 +1,281 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * <p>Immutable snapshot of the cross rates between a base currency and other fiat or crypto
+ * currencies, derived from one /cryptocurrency/quotes/latest response of a reference asset quoted
+ * in every currency. One unit of the base currency is worth
+ * <code>price(currency) / price(base)</code> units of a currency.</p>
+ *
+ * <p>A quote in the base currency is converted by scaling its monetary fields (price, volumes and
+ * market caps) by the rate. Percent changes are adjusted by the change of the rate over the same
+ * period, taken from the reference asset's percent changes in both currencies:
+ * <code>(1 + change(base)) * (1 + change(reference, currency)) / (1 + change(reference, base)) - 1</code>.
+ * Other fields, such as <code>last_updated</code> and <code>market_cap_dominance</code>, are copied
+ * as they are.</p>
+ *
+ * <p>Together with a {@link ListingsSnapshot }, the rates also answer latest-rate
+ * /tools/price-conversion requests between any listed cryptocurrency and any currency the rates
+ * or the listing hold.</p>
+ */
+public final class ConversionRates extends Snapshot {
+
+	private static final Set<String> MONETARY_FIELDS = new HashSet<String>(Arrays.asList(
+			"price", "volume_24h", "volume_24h_reported", "volume_7d", "volume_7d_reported", "volume_30d",
+			"volume_30d_reported", "market_cap", "market_cap_by_total_supply", "fully_diluted_market_cap"));
+
+	private final String base;
+	private final Map<String, Double> rates;
+	private final Map<String, Map<String, Double>> changeFactors;
+	private final Map<String, String> lastUpdated;
+
+	private ConversionRates(String base, long version, long timestamp, Map<String, Double> rates,
+			Map<String, Map<String, Double>> changeFactors, Map<String, String> lastUpdated) {
+		super(version, timestamp);
+		this.base = base;
+		this.rates = rates;
+		this.changeFactors = changeFactors;
+		this.lastUpdated = lastUpdated;
+	}
+
+	/**
+	 * Parses a /cryptocurrency/quotes/latest response of the reference asset.
+	 *
+	 * @param body JSON response of /cryptocurrency/quotes/latest, requested by id
+	 * @param referenceId CoinMarketCap ID of the reference asset
+	 * @param base Symbol of the base currency (e.g. USD)
+	 * @param version Version of the snapshot
+	 * @param timestamp Time the quotes were fetched, in milliseconds since the epoch
+	 *
+	 * @return Snapshot of the rates
+	 *
+	 * @throws IOException If the body holds no positive price of the reference asset in the base
+	 * currency
+	 */
+	public static ConversionRates parse(String body, String referenceId, String base, long version, long timestamp) throws IOException {
+		String baseSymbol = base.trim().toUpperCase(Locale.ROOT);
+		JsonNode quote = OBJECT_MAPPER.readTree(body).path("data").path(referenceId).path("quote");
+		JsonNode baseQuote = quote.path(baseSymbol);
+		double basePrice = baseQuote.path("price").asDouble(Double.NaN);
+		if (!(basePrice > 0D))
+			throw new IOException("Quotes response has no " + baseSymbol + " price of " + referenceId);
+
+		Map<String, Double> rates = new HashMap<String, Double>();
+		Map<String, Map<String, Double>> changeFactors = new HashMap<String, Map<String, Double>>();
+		Map<String, String> lastUpdated = new HashMap<String, String>();
+		Iterator<Map.Entry<String, JsonNode>> currencies = quote.fields();
+		while (currencies.hasNext()) {
+			Map.Entry<String, JsonNode> currency = currencies.next();
+			double price = currency.getValue().path("price").asDouble(Double.NaN);
+			if (!(price > 0D))
+				continue;
+
+			Map<String, Double> factors = new HashMap<String, Double>();
+			Iterator<Map.Entry<String, JsonNode>> fields = currency.getValue().fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				JsonNode baseChange = baseQuote.path(field.getKey());
+				if (field.getKey().startsWith("percent_change_") && field.getValue().isNumber() && baseChange.isNumber())
+					factors.put(field.getKey(), (1D + field.getValue().asDouble() / 100D) / (1D + baseChange.asDouble() / 100D));
+			}
+
+			String symbol = currency.getKey().toUpperCase(Locale.ROOT);
+			rates.put(symbol, price / basePrice);
+			changeFactors.put(symbol, Collections.unmodifiableMap(factors));
+			if (currency.getValue().path("last_updated").isTextual())
+				lastUpdated.put(symbol, currency.getValue().path("last_updated").asText());
+		}
+		return new ConversionRates(baseSymbol, version, timestamp, rates, changeFactors, lastUpdated);
+	}
+
+	/**
+	 * @return Symbol of the base currency
+	 */
+	public String getBase() {
+		return base;
+	}
+
+	/**
+	 * @param currency Symbol of a currency
+	 *
+	 * @return Units of the currency one unit of the base currency is worth, or null if the rate is
+	 * not known
+	 */
+	public Double getRate(String currency) {
+		return rates.get(currency.toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * @param currencies Symbols of currencies, uppercase
+	 *
+	 * @return True if the rate of every currency is known
+	 */
+	public boolean supports(List<String> currencies) {
+		return rates.keySet().containsAll(currencies);
+	}
+
+	/**
+	 * Replaces the <code>quote</code> map of every entry of a response quoted in the base currency
+	 * (a /cryptocurrency/quotes/latest or /cryptocurrency/listings/latest response) with a map of
+	 * the given currencies, in the given order.
+	 *
+	 * @param body JSON response quoted in the base currency
+	 * @param currencies Symbols of the currencies to quote in, uppercase
+	 *
+	 * @return JSON response with the converted quotes, or null if an entry has no quote in the
+	 * base currency
+	 *
+	 * @throws IOException If the body is not JSON
+	 */
+	public String convert(String body, List<String> currencies) throws IOException {
+		JsonNode root = OBJECT_MAPPER.readTree(body);
+		JsonNode data = root.path("data");
+		if (!data.isContainerNode())
+			return null;
+
+		for (JsonNode entry : data) {
+			if (!convertEntry(entry, currencies))
+				return null;
+		}
+		return OBJECT_MAPPER.writeValueAsString(root);
+	}
+
+	/**
+	 * Builds a /tools/price-conversion response at the latest rates. The source must be a
+	 * cryptocurrency of the listing. A convert symbol is looked up in the rates only, since a fiat
+	 * symbol may also be the symbol of a token in the listing; a convert_id in the listing. As
+	 * upstream, quotes are keyed by the requested symbols or ids.
+	 *
+	 * @param listings Snapshot of the listing
+	 * @param amount Amount of the source currency
+	 * @param id CoinMarketCap ID of the source, may be null
+	 * @param symbol Symbol of the source, used if no id is given
+	 * @param convert Comma-separated symbols to convert to, may be null
+	 * @param convertId Comma-separated CoinMarketCap IDs to convert to, used if no convert is given
+	 *
+	 * @return JSON response, or null if the source or a currency to convert to is not known
+	 */
+	public String getPriceConversion(ListingsSnapshot listings, double amount, String id, String symbol, String convert,
+			String convertId) {
+		Double listingRate = rates.get(listings.getConvert());
+		int source = id != null && !id.trim().isEmpty() ? indexOf(listings, id) : listings.indexOfSymbol(symbol);
+		if (listingRate == null || source < 0 || !(listings.getPrice(source) > 0D))
+			return null;
+
+		// values of one unit of each currency in the base currency
+		double sourceValue = listings.getPrice(source) / listingRate;
+		boolean byId = (convert == null || convert.trim().isEmpty()) && convertId != null && !convertId.trim().isEmpty();
+		String targets = byId ? convertId : (convert == null || convert.trim().isEmpty() ? "USD" : convert);
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		Map<String, String> updated = new HashMap<String, String>();
+		for (String target : targets.split(",")) {
+			String key = byId ? target.trim() : target.trim().toUpperCase(Locale.ROOT);
+			Double rate = byId ? null : rates.get(key);
+			int index = byId ? indexOf(listings, key) : -1;
+			if (rate != null) {
+				values.put(key, 1D / rate);
+				updated.put(key, lastUpdated.get(key));
+			} else if (index >= 0 && listings.getPrice(index) > 0D) {
+				values.put(key, listings.getPrice(index) / listingRate);
+				updated.put(key, getText(listings, "last_updated", index));
+			} else {
+				return null;
+			}
+		}
+
+		String asOf = Instant.ofEpochMilli(getTimestamp()).toString();
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = startResponse(writer, null);
+			generator.writeStartObject();
+			generator.writeNumberField("id", listings.getId(source));
+			generator.writeStringField("symbol", getText(listings, "symbol", source));
+			generator.writeStringField("name", getText(listings, "name", source));
+			if (amount == Math.rint(amount) && Math.abs(amount) < 1e15)
+				generator.writeNumberField("amount", (long) amount);
+			else
+				generator.writeNumberField("amount", amount);
+			String sourceUpdated = getText(listings, "last_updated", source);
+			generator.writeStringField("last_updated", sourceUpdated != null ? sourceUpdated : asOf);
+			generator.writeObjectFieldStart("quote");
+			for (Map.Entry<String, Double> value : values.entrySet()) {
+				generator.writeObjectFieldStart(value.getKey());
+				generator.writeNumberField("price", amount * sourceValue / value.getValue());
+				String quoteUpdated = updated.get(value.getKey());
+				generator.writeStringField("last_updated", quoteUpdated != null ? quoteUpdated : asOf);
+				generator.writeEndObject();
+			}
+			generator.writeEndObject();
+			generator.writeEndObject();
+			return endResponse(generator, writer);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Snapshot response could not be written", exception);
+		}
+	}
+
+	private static int indexOf(ListingsSnapshot listings, String id) {
+		try {
+			return listings.indexOf(Long.parseLong(id.trim()));
+		} catch (NumberFormatException exception) {
+			return -1;
+		}
+	}
+
+	private static String getText(ListingsSnapshot listings, String field, int index) {
+		String[] texts = listings.getTable().getTexts(field, false);
+		return texts != null ? texts[index] : null;
+	}
+
+	private boolean convertEntry(JsonNode entry, List<String> currencies) {
+		JsonNode baseQuote = entry.path("quote").path(base);
+		if (!baseQuote.isObject())
+			return false;
+
+		ObjectNode quote = OBJECT_MAPPER.createObjectNode();
+		for (String currency : currencies)
+			quote.set(currency, currency.equals(base) ? baseQuote : convertQuote(baseQuote, currency));
+		((ObjectNode) entry).set("quote", quote);
+		return true;
+	}
+
+	private ObjectNode convertQuote(JsonNode baseQuote, String currency) {
+		double rate = rates.get(currency);
+		Map<String, Double> factors = changeFactors.get(currency);
+		ObjectNode quote = OBJECT_MAPPER.createObjectNode();
+
+		Iterator<Map.Entry<String, JsonNode>> fields = baseQuote.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			String name = field.getKey();
+			JsonNode value = field.getValue();
+			Double factor = factors.get(name.equals("volume_change_24h") ? "percent_change_24h" : name);
+
+			if (value.isNumber() && MONETARY_FIELDS.contains(name))
+				quote.put(name, value.asDouble() * rate);
+			else if (value.isNumber() && factor != null)
+				quote.put(name, ((1D + value.asDouble() / 100D) * factor - 1D) * 100D);
+			else
+				quote.set(name, value);
+		}
+		return quote;
+	}
+}
@@ -0,0 +1,219 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>Immutable snapshot of a /cryptocurrency/map response, indexed by CoinMarketCap ID, slug,
+ * symbol and token address. Every lookup is a single hash map access.</p>
+ *
+ * <p>Symbols are not unique (e.g. HOT is used by several cryptocurrencies). A symbol resolves to
+ * the cryptocurrency with the best market cap rank, as the CoinMarketCap API does; cryptocurrencies
+ * without a rank come last. Token addresses are compared ignoring case.</p>
+ *
+ * <p>The map also answers /cryptocurrency/map requests for the listing status it was fetched with,
+ * sorted by id or cmc_rank, paginated or filtered by symbol.</p>
+ */
+public final class CryptocurrencyMap extends Snapshot {
+
+	private final String listingStatus;
+	private final ColumnarTable table;
+	private final double[] ids;
+	private final Map<Long, Integer> byId;
+	private final Map<String, Integer> bySlug;
+	private final Map<String, Integer> bySymbol;
+	private final Map<String, Integer> byTokenAddress;
+	private final String[] symbols;
+	private final int[] byIdOrder;
+	private final int[] byRankOrder;
+
+	private CryptocurrencyMap(String listingStatus, long version, long timestamp, ColumnarTable table,
+			Map<String, Integer> byTokenAddress) {
+		super(version, timestamp);
+		int size = table.size();
+		this.listingStatus = listingStatus;
+		this.table = table;
+		this.byTokenAddress = byTokenAddress;
+		this.ids = table.getNumbers("id", false);
+		this.symbols = table.getTexts("symbol", false);
+		this.byId = new HashMap<Long, Integer>(size * 2);
+		this.bySlug = new HashMap<String, Integer>(size * 2);
+		this.bySymbol = new HashMap<String, Integer>(size * 2);
+		this.byIdOrder = table.sortOrder("id", false, false);
+		this.byRankOrder = table.sortOrder("rank", false, false);
+
+		String[] slugs = table.getTexts("slug", false);
+		for (int index = 0; index < size; index++) {
+			byId.put((long) ids[index], index);
+			if (slugs != null && slugs[index] != null)
+				bySlug.put(slugs[index].toLowerCase(Locale.ROOT), index);
+		}
+
+		// walking by rank, the first cryptocurrency with a symbol has the best rank
+		for (int index : byRankOrder) {
+			if (symbols != null && symbols[index] != null)
+				bySymbol.putIfAbsent(symbols[index].toUpperCase(Locale.ROOT), index);
+		}
+	}
+
+	/**
+	 * Parses a /cryptocurrency/map response.
+	 *
+	 * @param body JSON response of /cryptocurrency/map
+	 * @param listingStatus Listing status the map was requested with (e.g. active)
+	 * @param version Version of the snapshot
+	 * @param timestamp Time the map was fetched, in milliseconds since the epoch
+	 *
+	 * @return Snapshot of the map
+	 *
+	 * @throws IOException If the body is not a successful map response
+	 */
+	public static CryptocurrencyMap parse(String body, String listingStatus, long version, long timestamp) throws IOException {
+		JsonNode data = OBJECT_MAPPER.readTree(body).path("data");
+		if (!data.isArray())
+			throw new IOException("Map response has no data array");
+
+		List<JsonNode> entries = new ArrayList<JsonNode>(data.size());
+		Map<String, Integer> byTokenAddress = new HashMap<String, Integer>();
+		for (JsonNode entry : data) {
+			if (!entry.isObject() || !entry.path("id").canConvertToLong())
+				continue;
+
+			String tokenAddress = entry.path("platform").path("token_address").asText(null);
+			if (tokenAddress != null && !tokenAddress.isEmpty())
+				byTokenAddress.putIfAbsent(tokenAddress.toLowerCase(Locale.ROOT), entries.size());
+			entries.add(entry);
+		}
+
+		return new CryptocurrencyMap(normalize(listingStatus), version, timestamp, ColumnarTable.of(entries, null),
+				byTokenAddress);
+	}
+
+	/**
+	 * @param id CoinMarketCap ID
+	 *
+	 * @return True if the map holds the cryptocurrency
+	 */
+	public boolean contains(long id) {
+		return byId.containsKey(id);
+	}
+
+	/**
+	 * @param slug Slug of a cryptocurrency (e.g. bitcoin)
+	 *
+	 * @return CoinMarketCap ID of the cryptocurrency, or null if the slug is not in the map
+	 */
+	public Long resolveSlug(String slug) {
+		return getId(bySlug.get(slug.trim().toLowerCase(Locale.ROOT)));
+	}
+
+	/**
+	 * @param symbol Symbol of a cryptocurrency (e.g. BTC)
+	 *
+	 * @return CoinMarketCap ID of the cryptocurrency with the symbol and the best rank, or null if
+	 * the symbol is not in the map
+	 */
+	public Long resolveSymbol(String symbol) {
+		return getId(bySymbol.get(symbol.trim().toUpperCase(Locale.ROOT)));
+	}
+
+	/**
+	 * @param tokenAddress Contract address of a token on its platform
+	 *
+	 * @return CoinMarketCap ID of the token, or null if the address is not in the map
+	 */
+	public Long resolveTokenAddress(String tokenAddress) {
+		return getId(byTokenAddress.get(tokenAddress.trim().toLowerCase(Locale.ROOT)));
+	}
+
+	/**
+	 * Builds a /cryptocurrency/map response. As upstream, start and limit are ignored when symbols
+	 * are given, and every cryptocurrency with a given symbol is returned.
+	 *
+	 * @param sort Sort option, "id" or "cmc_rank"
+	 * @param start 1-based index of the first entry to return
+	 * @param limit Number of entries to return, may be null for all
+	 * @param symbols Comma-separated symbols, may be null
+	 *
+	 * @return JSON response
+	 */
+	public String getMap(String sort, long start, Long limit, String symbols) {
+		int[] order = "cmc_rank".equals(sort) ? byRankOrder : byIdOrder;
+		Set<String> requested = null;
+		if (symbols != null && !symbols.trim().isEmpty()) {
+			requested = new HashSet<String>();
+			for (String symbol : symbols.split(","))
+				requested.add(symbol.trim().toUpperCase(Locale.ROOT));
+		}
+
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = startResponse(writer, null);
+			generator.writeStartArray();
+			if (requested != null) {
+				for (int index : order) {
+					if (this.symbols != null && this.symbols[index] != null
+							&& requested.contains(this.symbols[index].toUpperCase(Locale.ROOT)))
+						table.write(generator, index);
+				}
+			} else {
+				long last = limit != null ? Math.min(start - 1L + limit, order.length) : order.length;
+				for (long i = start - 1L; i < last; i++)
+					table.write(generator, order[(int) i]);
+			}
+			generator.writeEndArray();
+			return endResponse(generator, writer);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Snapshot response could not be written", exception);
+		}
+	}
+
+	/**
+	 * @param listingStatus Value of the listing_status parameter, may be null
+	 *
+	 * @return True if the map was fetched with the same listing statuses
+	 */
+	public boolean hasListingStatus(String listingStatus) {
+		return this.listingStatus.equals(normalize(listingStatus));
+	}
+
+	/**
+	 * @return Number of cryptocurrencies in the map
+	 */
+	public int getSize() {
+		return table.size();
+	}
+
+	private Long getId(Integer index) {
+		return index != null ? Long.valueOf((long) ids[index]) : null;
+	}
+
+	/**
+	 * @return Sorted, lowercased listing statuses, "active" if none are given
+	 */
+	private static String normalize(String listingStatus) {
+		if (listingStatus == null || listingStatus.trim().isEmpty())
+			return "active";
+
+		List<String> statuses = new ArrayList<String>();
+		for (String status : listingStatus.split(",")) {
+			String value = status.trim().toLowerCase(Locale.ROOT);
+			if (!value.isEmpty() && !statuses.contains(value))
+				statuses.add(value);
+		}
+		statuses.sort(null);
+		return String.join(",", statuses);
+	}
+}
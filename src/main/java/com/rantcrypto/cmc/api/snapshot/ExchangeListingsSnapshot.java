@@ -0,0 +1,134 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>Immutable snapshot of an /exchange/listings/latest response. A snapshot answers
+ * /exchange/listings/latest requests for any page of the listing, sorted by any
+ * {@link ExchangeSort } option, in the same format as the CoinMarketCap API.</p>
+ *
+ * <p>As in a {@link ListingsSnapshot }, entries are held in a {@link ColumnarTable } and the order
+ * of every sort option is computed once when the snapshot is built.</p>
+ */
+public final class ExchangeListingsSnapshot extends Snapshot {
+
+	private final String convert;
+	private final boolean complete;
+	private final ColumnarTable table;
+	private final Map<ExchangeSort, int[]> ascending;
+	private final Map<ExchangeSort, int[]> descending;
+
+	private ExchangeListingsSnapshot(String convert, long version, long timestamp, boolean complete, ColumnarTable table) {
+		super(version, timestamp);
+		this.convert = convert;
+		this.complete = complete;
+		this.table = table;
+		this.ascending = new EnumMap<ExchangeSort, int[]>(ExchangeSort.class);
+		this.descending = new EnumMap<ExchangeSort, int[]>(ExchangeSort.class);
+		for (ExchangeSort sort : ExchangeSort.values()) {
+			ascending.put(sort, table.sortOrder(sort.getField(), sort.isQuote(), false));
+			descending.put(sort, table.sortOrder(sort.getField(), sort.isQuote(), true));
+		}
+	}
+
+	/**
+	 * Parses an /exchange/listings/latest response.
+	 *
+	 * @param body JSON response of /exchange/listings/latest
+	 * @param convert Currency the listing's quotes were requested in (e.g. USD)
+	 * @param version Version of the snapshot
+	 * @param timestamp Time the listing was fetched, in milliseconds since the epoch
+	 * @param limit Limit the listing was requested with
+	 *
+	 * @return Snapshot of the listing
+	 *
+	 * @throws IOException If the body is not a successful listings response
+	 */
+	public static ExchangeListingsSnapshot parse(String body, String convert, long version, long timestamp, long limit)
+			throws IOException {
+		JsonNode root = OBJECT_MAPPER.readTree(body);
+		JsonNode data = root.path("data");
+		if (!data.isArray())
+			throw new IOException("Exchange listings response has no data array");
+
+		List<JsonNode> entries = new ArrayList<JsonNode>(data.size());
+		for (JsonNode entry : data) {
+			if (entry.isObject() && entry.path("id").canConvertToLong())
+				entries.add(entry);
+		}
+
+		// the listing is complete if upstream had no more exchanges than were returned
+		JsonNode totalCount = root.path("status").path("total_count");
+		boolean complete = totalCount.canConvertToLong() ? totalCount.asLong() <= data.size() : data.size() < limit;
+
+		String currency = convert.toUpperCase(Locale.ROOT);
+		return new ExchangeListingsSnapshot(currency, version, timestamp, complete, ColumnarTable.of(entries, currency));
+	}
+
+	/**
+	 * Builds an /exchange/listings/latest response for one page of the sorted listing.
+	 *
+	 * <p>A snapshot of a listing that was cut off by its limit only holds the exchanges with the
+	 * highest volume, so it only answers requests sorted by descending volume_24h whose page it can
+	 * fill.</p>
+	 *
+	 * @param sort Sort option
+	 * @param descending True to sort descending
+	 * @param start 1-based index of the first entry to return
+	 * @param limit Number of entries to return
+	 *
+	 * @return JSON response, or null if the snapshot cannot answer the request
+	 */
+	public String getListingsLatest(ExchangeSort sort, boolean descending, long start, long limit) {
+		int[] order = (descending ? this.descending : this.ascending).get(sort);
+		int first = (int) Math.min(start - 1L, order.length);
+		int last = (int) Math.min(start - 1L + limit, order.length);
+
+		if (!complete && (sort != ExchangeSort.VOLUME_24H || !descending || last - first < limit))
+			return null;
+
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = startResponse(writer, complete ? Long.valueOf(order.length) : null);
+			generator.writeStartArray();
+			for (int i = first; i < last; i++)
+				table.write(generator, order[i]);
+			generator.writeEndArray();
+			return endResponse(generator, writer);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Snapshot response could not be written", exception);
+		}
+	}
+
+	/**
+	 * @return Currency the snapshot's quotes are in (e.g. USD)
+	 */
+	public String getConvert() {
+		return convert;
+	}
+
+	/**
+	 * @return True if the snapshot holds every listed exchange
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return Number of exchanges in the snapshot
+	 */
+	public int getSize() {
+		return table.size();
+	}
+}
@@ -0,0 +1,68 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.util.Locale;
+
+/**
+ * <p>Sort options of /exchange/listings/latest that an {@link ExchangeListingsSnapshot } can
+ * evaluate.</p>
+ */
+public enum ExchangeSort {
+
+	NAME("name", false),
+	VOLUME_24H("volume_24h", true),
+	VOLUME_24H_ADJUSTED("volume_24h_adjusted", true);
+
+	private final String field;
+	private final boolean quote;
+
+	private ExchangeSort(String field, boolean quote) {
+		this.field = field;
+		this.quote = quote;
+	}
+
+	/**
+	 * @param sort Value of the sort parameter, may be null
+	 *
+	 * @return Sort option for the value (volume_24h if it is empty), or null if the snapshot cannot
+	 * sort by it
+	 */
+	public static ExchangeSort of(String sort) {
+		if (sort == null || sort.trim().isEmpty())
+			return VOLUME_24H;
+
+		String name = sort.trim().toLowerCase(Locale.ROOT);
+		for (ExchangeSort value : values()) {
+			if (name.equals(value.getField()))
+				return value;
+		}
+		return null;
+	}
+
+	/**
+	 * @param sortDir Value of the sort_dir parameter, may be null
+	 *
+	 * @return True if the option is sorted descending. Name is sorted ascending and volumes
+	 * descending by default
+	 */
+	public boolean isDescending(String sortDir) {
+		if (sortDir == null || sortDir.trim().isEmpty())
+			return this != NAME;
+		return sortDir.trim().equalsIgnoreCase("desc");
+	}
+
+	/**
+	 * @return Name of the field this option sorts by, which is also the value of the sort parameter
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * @return True if the field is part of each entry's quote object
+	 */
+	public boolean isQuote() {
+		return quote;
+	}
+}
@@ -0,0 +1,133 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.util.Locale;
+
+/**
+ * <p>Filter options of /cryptocurrency/listings/latest, evaluated against the values a
+ * {@link ListingsSnapshot } extracts from its entries when it is built. Ranges are inclusive; an
+ * entry without a value for a bounded field does not match.</p>
+ */
+public final class ListingsFilter {
+
+	/**
+	 * Filter that matches every entry
+	 */
+	public static final ListingsFilter ALL = new ListingsFilter(null, null, null, null, null, null, null, null, null, null,
+			null, null);
+
+	private final Double priceMin;
+	private final Double priceMax;
+	private final Double marketCapMin;
+	private final Double marketCapMax;
+	private final Double volume24hMin;
+	private final Double volume24hMax;
+	private final Double circulatingSupplyMin;
+	private final Double circulatingSupplyMax;
+	private final Double percentChange24hMin;
+	private final Double percentChange24hMax;
+	private final Boolean tokens;
+	private final String tag;
+	private final boolean empty;
+
+	private ListingsFilter(Double priceMin, Double priceMax, Double marketCapMin, Double marketCapMax, Double volume24hMin,
+			Double volume24hMax, Double circulatingSupplyMin, Double circulatingSupplyMax, Double percentChange24hMin,
+			Double percentChange24hMax, Boolean tokens, String tag) {
+		this.priceMin = priceMin;
+		this.priceMax = priceMax;
+		this.marketCapMin = marketCapMin;
+		this.marketCapMax = marketCapMax;
+		this.volume24hMin = volume24hMin;
+		this.volume24hMax = volume24hMax;
+		this.circulatingSupplyMin = circulatingSupplyMin;
+		this.circulatingSupplyMax = circulatingSupplyMax;
+		this.percentChange24hMin = percentChange24hMin;
+		this.percentChange24hMax = percentChange24hMax;
+		this.tokens = tokens;
+		this.tag = tag;
+		this.empty = priceMin == null && priceMax == null && marketCapMin == null && marketCapMax == null
+				&& volume24hMin == null && volume24hMax == null && circulatingSupplyMin == null && circulatingSupplyMax == null
+				&& percentChange24hMin == null && percentChange24hMax == null && tokens == null && tag == null;
+	}
+
+	/**
+	 * Builds a filter from the parameters of /cryptocurrency/listings/latest. See
+	 * {@link com.rantcrypto.cmc.api.service.CryptocurrencyService#getListingsLatest } for the
+	 * parameters.
+	 *
+	 * @return Filter, or null if cryptocurrencyType or tag is not a valid option
+	 */
+	public static ListingsFilter of(Double priceMin, Double priceMax, Double marketCapMin, Double marketCapMax,
+			Double volume24hMin, Double volume24hMax, Double circulatingSupplyMin, Double circulatingSupplyMax,
+			Double percentChange24hMin, Double percentChange24hMax, String cryptocurrencyType, String tag) {
+		Boolean tokens = null;
+		if (cryptocurrencyType != null && !cryptocurrencyType.trim().isEmpty()) {
+			String type = cryptocurrencyType.trim().toLowerCase(Locale.ROOT);
+			if (type.equals("coins"))
+				tokens = Boolean.FALSE;
+			else if (type.equals("tokens"))
+				tokens = Boolean.TRUE;
+			else if (!type.equals("all"))
+				return null;
+		}
+
+		String tagName = null;
+		if (tag != null && !tag.trim().isEmpty()) {
+			tagName = tag.trim().toLowerCase(Locale.ROOT);
+			if (tagName.equals("all"))
+				tagName = null;
+			else if (!tagName.equals("defi") && !tagName.equals("filesharing"))
+				return null;
+		}
+
+		return new ListingsFilter(priceMin, priceMax, marketCapMin, marketCapMax, volume24hMin, volume24hMax,
+				circulatingSupplyMin, circulatingSupplyMax, percentChange24hMin, percentChange24hMax, tokens, tagName);
+	}
+
+	/**
+	 * @param snapshot Snapshot holding the entry
+	 * @param index Index of the entry in the snapshot
+	 *
+	 * @return True if the entry matches every option of this filter
+	 */
+	boolean matches(ListingsSnapshot snapshot, int index) {
+		if (empty)
+			return true;
+
+		if (!inRange(snapshot.prices[index], priceMin, priceMax)
+				|| !inRange(snapshot.marketCaps[index], marketCapMin, marketCapMax)
+				|| !inRange(snapshot.volumes24h[index], volume24hMin, volume24hMax)
+				|| !inRange(snapshot.circulatingSupplies[index], circulatingSupplyMin, circulatingSupplyMax)
+				|| !inRange(snapshot.percentChanges24h[index], percentChange24hMin, percentChange24hMax))
+			return false;
+
+		if (tokens != null && tokens.booleanValue() != snapshot.tokens[index])
+			return false;
+
+		return tag == null || hasTag(snapshot.tags[index]);
+	}
+
+	/**
+	 * @return True if this filter matches every entry
+	 */
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	private boolean hasTag(String[] tags) {
+		for (String entryTag : tags) {
+			if (tag.equals(entryTag))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean inRange(double value, Double min, Double max) {
+		if (min == null && max == null)
+			return true;
+		if (Double.isNaN(value))
+			return false;
+		return (min == null || value >= min) && (max == null || value <= max);
+	}
+}
@@ -0,0 +1,359 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>Immutable snapshot of a /cryptocurrency/listings/latest response, indexed by CoinMarketCap ID,
+ * slug and symbol. A snapshot answers /cryptocurrency/quotes/latest requests for any subset of its
+ * cryptocurrencies in the same format as the CoinMarketCap API.</p>
+ *
+ * <p>Symbols are not unique. As the CoinMarketCap API does, a symbol resolves to the cryptocurrency
+ * with the highest market cap (the lowest <code>cmc_rank</code>).</p>
+ *
+ * <p>Entries are held column-wise in a {@link ColumnarTable } rather than as JSON trees, and the
+ * order of every {@link ListingsSort } option in both directions is computed once when the snapshot
+ * is built. Requests are then answered by walking a precomputed order, filtering on primitive
+ * columns, and writing the matching entries straight from their columns.</p>
+ */
+public final class ListingsSnapshot extends Snapshot {
+
+	private final String convert;
+	private final boolean complete;
+	private final ColumnarTable table;
+	private final double[] ids;
+	private final long[] sortedIds;
+	private final int[] sortedIdIndexes;
+	private final Map<String, Integer> bySlug;
+	private final Map<String, Integer> bySymbol;
+	final double[] prices;
+	final double[] marketCaps;
+	final double[] volumes24h;
+	final double[] circulatingSupplies;
+	final double[] percentChanges24h;
+	final boolean[] tokens;
+	final String[][] tags;
+	private final Map<ListingsSort, int[]> ascending;
+	private final Map<ListingsSort, int[]> descending;
+
+	private ListingsSnapshot(String convert, long version, long timestamp, boolean complete, ColumnarTable table,
+			String[][] tags) {
+		super(version, timestamp);
+		int size = table.size();
+		this.convert = convert;
+		this.complete = complete;
+		this.table = table;
+		this.tags = tags;
+		this.ids = getNumbers(table, "id", false);
+		this.prices = getNumbers(table, "price", true);
+		this.marketCaps = getNumbers(table, "market_cap", true);
+		this.volumes24h = getNumbers(table, "volume_24h", true);
+		this.circulatingSupplies = getNumbers(table, "circulating_supply", false);
+		this.percentChanges24h = getNumbers(table, "percent_change_24h", true);
+		this.tokens = new boolean[size];
+		this.bySlug = new HashMap<String, Integer>(size * 2);
+		this.bySymbol = new HashMap<String, Integer>(size * 2);
+
+		double[] ranks = getNumbers(table, "cmc_rank", false);
+		String[] slugs = table.getTexts("slug", false);
+		String[] symbols = table.getTexts("symbol", false);
+
+		for (int index = 0; index < size; index++) {
+			tokens[index] = table.hasValue("platform", index);
+			if (slugs != null && slugs[index] != null)
+				bySlug.put(slugs[index].toLowerCase(Locale.ROOT), index);
+
+			if (symbols != null && symbols[index] != null) {
+				String symbol = symbols[index].toUpperCase(Locale.ROOT);
+				Integer current = bySymbol.get(symbol);
+				if (current == null || getRank(ranks, index) < getRank(ranks, current))
+					bySymbol.put(symbol, index);
+			}
+		}
+
+		// ids are looked up by binary search rather than through a map of boxed keys
+		this.sortedIdIndexes = table.sortOrder("id", false, false);
+		this.sortedIds = new long[size];
+		for (int i = 0; i < size; i++)
+			sortedIds[i] = (long) ids[sortedIdIndexes[i]];
+
+		this.ascending = new EnumMap<ListingsSort, int[]>(ListingsSort.class);
+		this.descending = new EnumMap<ListingsSort, int[]>(ListingsSort.class);
+		for (ListingsSort sort : ListingsSort.values()) {
+			ascending.put(sort, table.sortOrder(sort.getField(), sort.isQuote(), false));
+			descending.put(sort, table.sortOrder(sort.getField(), sort.isQuote(), true));
+		}
+	}
+
+	/**
+	 * Parses a /cryptocurrency/listings/latest response. Listed cryptocurrencies are active and not
+	 * fiat, so <code>is_active</code> and <code>is_fiat</code>, which quotes/latest includes by
+	 * default, are added to every entry.
+	 *
+	 * @param body JSON response of /cryptocurrency/listings/latest
+	 * @param convert Currency the listing's quotes were requested in (e.g. USD)
+	 * @param version Version of the snapshot
+	 * @param timestamp Time the listing was fetched, in milliseconds since the epoch
+	 * @param limit Limit the listing was requested with
+	 *
+	 * @return Snapshot of the listing
+	 *
+	 * @throws IOException If the body is not a successful listings response
+	 */
+	public static ListingsSnapshot parse(String body, String convert, long version, long timestamp, long limit) throws IOException {
+		JsonNode root = OBJECT_MAPPER.readTree(body);
+		JsonNode data = root.path("data");
+		if (!data.isArray())
+			throw new IOException("Listings response has no data array");
+
+		List<JsonNode> entries = new ArrayList<JsonNode>(data.size());
+		for (JsonNode entry : data) {
+			if (entry.isObject() && entry.path("id").canConvertToLong())
+				entries.add(entry);
+		}
+
+		String currency = convert.toUpperCase(Locale.ROOT);
+		ColumnarTable table = ColumnarTable.of(entries, currency);
+		table.addConstant("is_active", 1L);
+		table.addConstant("is_fiat", 0L);
+
+		// the listing is complete if upstream had no more cryptocurrencies than were returned
+		JsonNode totalCount = root.path("status").path("total_count");
+		boolean complete = totalCount.canConvertToLong() ? totalCount.asLong() <= data.size() : data.size() < limit;
+
+		return new ListingsSnapshot(currency, version, timestamp, complete, table, getTags(entries));
+	}
+
+	/**
+	 * Builds a /cryptocurrency/quotes/latest response for the given identifiers. As upstream,
+	 * entries requested by id or slug are keyed by id and entries requested by symbol are keyed by
+	 * symbol. Only one of ids, slugs and symbols is used, in that order.
+	 *
+	 * @param ids Comma-separated CoinMarketCap IDs, may be null
+	 * @param slugs Comma-separated slugs, may be null
+	 * @param symbols Comma-separated symbols, may be null
+	 * @param skipInvalid True to leave out identifiers that are not in the snapshot
+	 *
+	 * @return JSON response, or null if an identifier is not in the snapshot and skipInvalid is
+	 * false, or if no identifier was given
+	 */
+	public String getQuotesLatest(String ids, String slugs, String symbols, boolean skipInvalid) {
+		Map<String, Integer> data = new LinkedHashMap<String, Integer>();
+
+		if (!isEmpty(ids)) {
+			for (String id : ids.split(",")) {
+				int index;
+				try {
+					index = indexOf(Long.parseLong(id.trim()));
+				} catch (NumberFormatException exception) {
+					index = -1;
+				}
+				if (!putEntry(data, index, index >= 0 ? Long.toString(getId(index)) : null, skipInvalid))
+					return null;
+			}
+		} else if (!isEmpty(slugs)) {
+			for (String slug : slugs.split(",")) {
+				int index = indexOf(bySlug.get(slug.trim().toLowerCase(Locale.ROOT)));
+				if (!putEntry(data, index, index >= 0 ? Long.toString(getId(index)) : null, skipInvalid))
+					return null;
+			}
+		} else if (!isEmpty(symbols)) {
+			for (String symbol : symbols.split(",")) {
+				String key = symbol.trim().toUpperCase(Locale.ROOT);
+				if (!putEntry(data, indexOf(bySymbol.get(key)), key, skipInvalid))
+					return null;
+			}
+		} else {
+			return null;
+		}
+
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = startResponse(writer, null);
+			generator.writeStartObject();
+			for (Map.Entry<String, Integer> entry : data.entrySet()) {
+				generator.writeFieldName(entry.getKey());
+				table.write(generator, entry.getValue());
+			}
+			generator.writeEndObject();
+			return endResponse(generator, writer);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Snapshot response could not be written", exception);
+		}
+	}
+
+	/**
+	 * Builds a /cryptocurrency/listings/latest response for one page of the filtered and sorted
+	 * listing.
+	 *
+	 * <p>A snapshot of a listing that was cut off by its limit only holds the cryptocurrencies with
+	 * the highest market cap, so it only answers requests sorted by descending market cap whose page
+	 * it can fill. <code>total_count</code> is only reported for complete listings.</p>
+	 *
+	 * @param filter Filter options
+	 * @param sort Sort option
+	 * @param descending True to sort descending
+	 * @param start 1-based index of the first entry to return
+	 * @param limit Number of entries to return
+	 *
+	 * @return JSON response, or null if the snapshot cannot answer the request
+	 */
+	public String getListingsLatest(ListingsFilter filter, ListingsSort sort, boolean descending, long start, long limit) {
+		int[] order = (descending ? this.descending : this.ascending).get(sort);
+		int[] page = new int[(int) Math.min(limit, order.length)];
+		long matches = 0L;
+		int returned = 0;
+
+		for (int index : order) {
+			if (!filter.matches(this, index))
+				continue;
+
+			matches++;
+			if (matches >= start && returned < limit)
+				page[returned++] = index;
+			else if (returned >= limit && !complete)
+				break;
+		}
+
+		if (!complete && (sort != ListingsSort.MARKET_CAP || !descending || returned < limit))
+			return null;
+
+		try {
+			StringWriter writer = new StringWriter();
+			JsonGenerator generator = startResponse(writer, complete ? Long.valueOf(matches) : null);
+			generator.writeStartArray();
+			for (int i = 0; i < returned; i++)
+				table.write(generator, page[i]);
+			generator.writeEndArray();
+			return endResponse(generator, writer);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Snapshot response could not be written", exception);
+		}
+	}
+
+	/**
+	 * @return Currency the snapshot's quotes are in (e.g. USD)
+	 */
+	public String getConvert() {
+		return convert;
+	}
+
+	/**
+	 * @return True if the snapshot holds every listed cryptocurrency
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return Number of cryptocurrencies in the snapshot
+	 */
+	public int getSize() {
+		return table.size();
+	}
+
+	/**
+	 * @return Listing entries, column-wise
+	 */
+	public ColumnarTable getTable() {
+		return table;
+	}
+
+	/**
+	 * @param id CoinMarketCap ID
+	 *
+	 * @return Index of the cryptocurrency in the snapshot's table, or -1 if it is not listed
+	 */
+	public int indexOf(long id) {
+		int position = Arrays.binarySearch(sortedIds, id);
+		return position >= 0 ? sortedIdIndexes[position] : -1;
+	}
+
+	/**
+	 * @param symbol Symbol of a cryptocurrency
+	 *
+	 * @return Index of the cryptocurrency with the symbol and the highest market cap in the
+	 * snapshot's table, or -1 if it is not listed
+	 */
+	public int indexOfSymbol(String symbol) {
+		return indexOf(bySymbol.get(symbol.trim().toUpperCase(Locale.ROOT)));
+	}
+
+	/**
+	 * @param index Index of a cryptocurrency in the snapshot's table
+	 *
+	 * @return CoinMarketCap ID of the cryptocurrency
+	 */
+	public long getId(int index) {
+		return (long) ids[index];
+	}
+
+	/**
+	 * @param index Index of a cryptocurrency in the snapshot's table
+	 *
+	 * @return Price of the cryptocurrency in the snapshot's currency, NaN if it has none
+	 */
+	public double getPrice(int index) {
+		return prices[index];
+	}
+
+	private static int indexOf(Integer index) {
+		return index != null ? index : -1;
+	}
+
+	private static boolean putEntry(Map<String, Integer> data, int index, String key, boolean skipInvalid) {
+		if (index < 0)
+			return skipInvalid;
+		data.put(key, index);
+		return true;
+	}
+
+	private static double[] getNumbers(ColumnarTable table, String field, boolean quote) {
+		double[] values = table.getNumbers(field, quote);
+		if (values == null) {
+			values = new double[table.size()];
+			Arrays.fill(values, Double.NaN);
+		}
+		return values;
+	}
+
+	/**
+	 * @return Lowercased tag slugs of every entry; equal lists of tags share one array
+	 */
+	private static String[][] getTags(List<JsonNode> entries) {
+		Map<List<String>, String[]> shared = new HashMap<List<String>, String[]>();
+		String[][] tags = new String[entries.size()][];
+		for (int index = 0; index < tags.length; index++) {
+			JsonNode entryTags = entries.get(index).path("tags");
+			String[] names = new String[entryTags.size()];
+			for (int i = 0; i < names.length; i++) {
+				JsonNode tag = entryTags.get(i);
+				names[i] = (tag.isObject() ? tag.path("slug").asText() : tag.asText()).toLowerCase(Locale.ROOT).intern();
+			}
+			String[] existing = shared.putIfAbsent(Arrays.asList(names), names);
+			tags[index] = existing != null ? existing : names;
+		}
+		return tags;
+	}
+
+	private static double getRank(double[] ranks, int index) {
+		return Double.isNaN(ranks[index]) ? Double.MAX_VALUE : ranks[index];
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+}
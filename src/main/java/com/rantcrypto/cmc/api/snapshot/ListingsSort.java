@@ -0,0 +1,97 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.util.Locale;
+
+/**
+ * <p>Sort options of /cryptocurrency/listings/latest that a {@link ListingsSnapshot } can evaluate
+ * from the default listing fields. Options that need auxiliary fields the snapshot does not hold
+ * (e.g. <code>volume_7d</code>) or that CoinMarketCap computes differently
+ * (e.g. <code>market_cap_strict</code>) have no constant and are answered upstream.</p>
+ */
+public enum ListingsSort {
+
+	NAME("name", null, true),
+	SYMBOL("symbol", null, true),
+	DATE_ADDED("date_added", null, true),
+	MARKET_CAP(null, "market_cap", false),
+	PRICE(null, "price", false),
+	CIRCULATING_SUPPLY("circulating_supply", null, false),
+	TOTAL_SUPPLY("total_supply", null, false),
+	MAX_SUPPLY("max_supply", null, false),
+	NUM_MARKET_PAIRS("num_market_pairs", null, false),
+	VOLUME_24H(null, "volume_24h", false),
+	PERCENT_CHANGE_1H(null, "percent_change_1h", false),
+	PERCENT_CHANGE_24H(null, "percent_change_24h", false),
+	PERCENT_CHANGE_7D(null, "percent_change_7d", false);
+
+	private final String field;
+	private final String quoteField;
+	private final boolean text;
+
+	private ListingsSort(String field, String quoteField, boolean text) {
+		this.field = field;
+		this.quoteField = quoteField;
+		this.text = text;
+	}
+
+	/**
+	 * @param sort Value of the sort parameter, may be null
+	 *
+	 * @return Sort option for the value (market_cap if it is empty), or null if the snapshot cannot
+	 * sort by it
+	 */
+	public static ListingsSort of(String sort) {
+		if (sort == null || sort.trim().isEmpty())
+			return MARKET_CAP;
+
+		String name = sort.trim().toLowerCase(Locale.ROOT);
+		for (ListingsSort value : values()) {
+			if (name.equals(value.getName()))
+				return value;
+		}
+		return null;
+	}
+
+	/**
+	 * @return Value of the sort parameter for this option
+	 */
+	public String getName() {
+		return field != null ? field : quoteField;
+	}
+
+	/**
+	 * @return True if this option sorts text (name, symbol and ISO 8601 date_added) rather than
+	 * numbers
+	 */
+	public boolean isText() {
+		return text;
+	}
+
+	/**
+	 * @param sortDir Value of the sort_dir parameter, may be null
+	 *
+	 * @return True if the option is sorted descending. Name and symbol are sorted ascending and all
+	 * other options descending by default
+	 */
+	public boolean isDescending(String sortDir) {
+		if (sortDir == null || sortDir.trim().isEmpty())
+			return this != NAME && this != SYMBOL;
+		return sortDir.trim().equalsIgnoreCase("desc");
+	}
+
+	/**
+	 * @return Name of the field this option sorts by
+	 */
+	public String getField() {
+		return field != null ? field : quoteField;
+	}
+
+	/**
+	 * @return True if the field is part of each entry's quote object
+	 */
+	public boolean isQuote() {
+		return quoteField != null;
+	}
+}
@@ -0,0 +1,91 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>Immutable, versioned copy of one upstream response. A snapshot is built in full before it is
+ * published to a {@link SnapshotHistory }, and is never modified afterwards, so a request that
+ * holds a snapshot reads consistent data however often the snapshot is replaced.</p>
+ *
+ * <p>Responses built from a snapshot report its version and the time it was fetched as
+ * <code>snapshot_version</code> and <code>snapshot_as_of</code> in their <code>status</code>
+ * object. Paginated requests may pass the version back to read their next page from the same
+ * snapshot.</p>
+ */
+public abstract class Snapshot {
+
+	protected static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final long version;
+	private final long timestamp;
+
+	protected Snapshot(long version, long timestamp) {
+		this.version = version;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return Version of the snapshot, increasing with every snapshot published
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return Time the snapshot was fetched, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Starts a response in the format of the CoinMarketCap API: writes its <code>status</code>
+	 * object, with the snapshot's version and fetch time, and the <code>data</code> field name.
+	 *
+	 * @param writer Writer of the response
+	 * @param totalCount Total count of a paginated response, may be null
+	 *
+	 * @return Generator to write the data with, then to pass to
+	 * {@link #endResponse(JsonGenerator, StringWriter) }
+	 *
+	 * @throws IOException If the generator fails
+	 */
+	protected JsonGenerator startResponse(StringWriter writer, Long totalCount) throws IOException {
+		JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer);
+		generator.writeStartObject();
+		generator.writeObjectFieldStart("status");
+		generator.writeStringField("timestamp", Instant.ofEpochMilli(System.currentTimeMillis()).toString());
+		generator.writeNumberField("error_code", 0);
+		generator.writeNullField("error_message");
+		generator.writeNumberField("elapsed", 0);
+		generator.writeNumberField("credit_count", 0);
+		generator.writeNullField("notice");
+		if (totalCount != null)
+			generator.writeNumberField("total_count", totalCount.longValue());
+		generator.writeNumberField("snapshot_version", version);
+		generator.writeStringField("snapshot_as_of", Instant.ofEpochMilli(timestamp).toString());
+		generator.writeEndObject();
+		generator.writeFieldName("data");
+		return generator;
+	}
+
+	/**
+	 * Ends a response started with {@link #startResponse(StringWriter, Long) }.
+	 *
+	 * @return The response
+	 *
+	 * @throws IOException If the generator fails
+	 */
+	protected static String endResponse(JsonGenerator generator, StringWriter writer) throws IOException {
+		generator.writeEndObject();
+		generator.close();
+		return writer.toString();
+	}
+}
@@ -0,0 +1,66 @@
+/* https://pro.coinmarketcap.com/user-agreement-commercial */
+
+package com.rantcrypto.cmc.api.snapshot;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>The latest snapshots of one kind, newest first. Publishing a snapshot swaps a single reference
+ * to a new array of retained snapshots (copy-on-write), so readers never lock and never see a
+ * snapshot that is still being built. A request reads the reference once and uses the snapshot it
+ * got for its whole response.</p>
+ *
+ * <p>Older snapshots are retained so paginated requests can finish on the version they started
+ * with; beyond the number of snapshots to retain, the oldest snapshot is dropped.</p>
+ *
+ * @param <T> Type of snapshot
+ */
+public final class SnapshotHistory<T extends Snapshot> {
+
+	private final AtomicReference<Snapshot[]> snapshots = new AtomicReference<Snapshot[]>(new Snapshot[0]);
+
+	/**
+	 * Makes a fully built snapshot the latest.
+	 *
+	 * @param snapshot Snapshot to publish
+	 * @param retained Number of snapshots to retain, the published one included
+	 */
+	public void publish(T snapshot, int retained) {
+		snapshots.updateAndGet(current -> {
+			Snapshot[] next = new Snapshot[Math.max(1, Math.min(current.length + 1, retained))];
+			next[0] = snapshot;
+			System.arraycopy(current, 0, next, 1, next.length - 1);
+			return next;
+		});
+	}
+
+	/**
+	 * @return The latest snapshot, or null if none was published
+	 */
+	@SuppressWarnings("unchecked")
+	public T getLatest() {
+		Snapshot[] current = snapshots.get();
+		return current.length > 0 ? (T) current[0] : null;
+	}
+
+	/**
+	 * @param version Version of a snapshot
+	 *
+	 * @return The snapshot with the version, or null if it is not retained
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long version) {
+		for (Snapshot snapshot : snapshots.get()) {
+			if (snapshot.getVersion() == version)
+				return (T) snapshot;
+		}
+		return null;
+	}
+
+	/**
+	 * @return Number of retained snapshots
+	 */
+	public int size() {
+		return snapshots.get().length;
+	}
+}
@@ -0,0 +1,11 @@
+/**
+ * In-memory snapshots of CoinMarketCap market data. A snapshot is built from one upstream
+ * response (e.g. /cryptocurrency/listings/latest?limit=5000) and answers requests for any subset
+ * of its data without further API calls, as recommended in the
+ * <a href="https://coinmarketcap.com/api/documentation/v1/#section/Best-Practices">best practices</a>
+ * of the CoinMarketCap API.
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+package com.rantcrypto.cmc.api.snapshot;
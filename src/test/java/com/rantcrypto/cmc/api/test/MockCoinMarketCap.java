@@ -0,0 +1,45 @@
+package com.rantcrypto.cmc.api.test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.rantcrypto.cmc.api.cache.InFlightRequests;
+import com.rantcrypto.cmc.api.service.CoinMarketCapService;
+
+/**
+ * A mocked CoinMarketCap API. Services wired to it send their requests to its
+ * {@link MockRestServiceServer } instead of upstream.
+ */
+public final class MockCoinMarketCap {
+
+	public static final String BASE_URL = "https://sandbox-api.coinmarketcap.com";
+
+	private final RestTemplate restTemplate = new RestTemplate();
+	private final MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+
+	/**
+	 * @return Server to set the expected requests and their responses on
+	 */
+	public MockRestServiceServer getServer() {
+		return server;
+	}
+
+	/**
+	 * Sets the fields of a service that Spring would inject from the default properties and the
+	 * upstream client configuration. Endpoints, cache times and optional collaborators are left to
+	 * the test.
+	 *
+	 * @param service Service to wire
+	 *
+	 * @return The service
+	 */
+	public <T extends CoinMarketCapService> T wire(T service) {
+		ReflectionTestUtils.setField(service, "CMC_BASE_URL", BASE_URL);
+		ReflectionTestUtils.setField(service, "CMC_HEADER", "X-CMC_PRO_API_KEY");
+		ReflectionTestUtils.setField(service, "CMC_API_KEY", "test");
+		ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+		ReflectionTestUtils.setField(service, "inFlightRequests", new InFlightRequests());
+		return service;
+	}
+}
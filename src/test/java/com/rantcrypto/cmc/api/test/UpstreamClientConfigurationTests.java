@@ -0,0 +1,36 @@
+package com.rantcrypto.cmc.api.test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import com.rantcrypto.cmc.api.UpstreamClientConfiguration;
+
+public class UpstreamClientConfigurationTests {
+
+	@Test
+	public void testRestTemplateUsesPooledClient() throws Exception {
+		UpstreamClientConfiguration configuration = new UpstreamClientConfiguration();
+		ReflectionTestUtils.setField(configuration, "HTTP_MAX_CONNECTIONS", 10);
+		ReflectionTestUtils.setField(configuration, "HTTP_MAX_CONNECTIONS_PER_ROUTE", 5);
+		ReflectionTestUtils.setField(configuration, "HTTP_CONNECT_TIMEOUT", 1000);
+		ReflectionTestUtils.setField(configuration, "HTTP_CONNECTION_REQUEST_TIMEOUT", 1000);
+		ReflectionTestUtils.setField(configuration, "HTTP_READ_TIMEOUT", 1000);
+		ReflectionTestUtils.setField(configuration, "HTTP_KEEP_ALIVE_TIME", 1000L);
+		ReflectionTestUtils.setField(configuration, "HTTP_IDLE_EVICTION_TIME", 1000L);
+		ReflectionTestUtils.setField(configuration, "HTTP_VALIDATE_AFTER_INACTIVITY", 1000);
+
+		try (CloseableHttpClient httpClient = configuration.coinMarketCapHttpClient()) {
+			assertNotNull(httpClient);
+
+			// The RestTemplate should send every request through the pooled client
+			RestTemplate restTemplate = configuration.coinMarketCapRestTemplate(httpClient);
+			assertTrue(restTemplate.getRequestFactory() instanceof HttpComponentsClientHttpRequestFactory);
+		}
+	}
+}
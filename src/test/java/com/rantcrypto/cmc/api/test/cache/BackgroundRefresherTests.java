@@ -0,0 +1,88 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rantcrypto.cmc.api.cache.BackgroundRefresher;
+import com.rantcrypto.cmc.api.cache.CacheKey;
+
+public class BackgroundRefresherTests {
+
+	private BackgroundRefresher backgroundRefresher;
+
+	@BeforeEach
+	public void setup() {
+		this.backgroundRefresher = new BackgroundRefresher();
+		ReflectionTestUtils.setField(backgroundRefresher, "CACHE_REFRESH_THREADS", 2);
+		ReflectionTestUtils.setField(backgroundRefresher, "CACHE_REFRESH_QUEUE_SIZE", 10);
+		backgroundRefresher.init();
+	}
+
+	@AfterEach
+	public void teardown() {
+		backgroundRefresher.shutdown();
+	}
+
+	@Test
+	public void testOnlyOneRefreshPerKey() throws Exception {
+		CacheKey key = CacheKey.of("/v1/global-metrics/quotes/latest", null);
+		AtomicInteger refreshes = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+
+		Runnable refresh = () -> {
+			refreshes.incrementAndGet();
+			try {
+				release.await(10L, TimeUnit.SECONDS);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+			finished.countDown();
+		};
+
+		// every stale read asks for a refresh, but only the first one runs
+		for (int i = 0; i < 5; i++)
+			backgroundRefresher.refresh(key, refresh);
+		assertTrue(backgroundRefresher.isRefreshing(key));
+
+		release.countDown();
+		assertTrue(finished.await(10L, TimeUnit.SECONDS));
+
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (backgroundRefresher.isRefreshing(key) && System.currentTimeMillis() < deadline)
+			Thread.sleep(5L);
+
+		assertFalse(backgroundRefresher.isRefreshing(key));
+		assertEquals(1, refreshes.get());
+		assertEquals(1L, backgroundRefresher.getRefreshCount());
+		assertEquals(5L, backgroundRefresher.getStaleCount());
+	}
+
+	@Test
+	public void testFailedRefreshCanBeRetried() throws Exception {
+		CacheKey key = CacheKey.of("/v1/global-metrics/quotes/latest", null);
+		CountDownLatch retried = new CountDownLatch(1);
+
+		backgroundRefresher.refresh(key, () -> {
+			throw new IllegalStateException("upstream unavailable");
+		});
+
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (backgroundRefresher.isRefreshing(key) && System.currentTimeMillis() < deadline)
+			Thread.sleep(5L);
+
+		backgroundRefresher.refresh(key, retried::countDown);
+		assertTrue(retried.await(10L, TimeUnit.SECONDS));
+		assertEquals(2L, backgroundRefresher.getRefreshCount());
+	}
+}
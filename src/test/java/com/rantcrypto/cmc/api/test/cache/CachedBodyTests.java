@@ -0,0 +1,151 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.rantcrypto.cmc.api.cache.CachedBody;
+import com.rantcrypto.cmc.api.cache.CachedBodyHttpMessageConverter;
+
+public class CachedBodyTests {
+
+	private static final String BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1\":{\"name\":\"Bitcoin ₿\"}}}";
+
+	@Test
+	public void testOffHeapBodyIsHeldInDirectBuffer() {
+		CachedBody body = CachedBody.offHeap(BODY);
+
+		assertTrue(body.isOffHeap());
+		assertTrue(body.getBytes().isDirect());
+		assertEquals(BODY.getBytes(StandardCharsets.UTF_8).length, body.getWeight());
+		assertEquals(BODY, body.toString());
+	}
+
+	@Test
+	public void testOnHeapBodyKeepsString() {
+		CachedBody body = CachedBody.onHeap(BODY);
+
+		assertFalse(body.isOffHeap());
+		assertEquals(2L * BODY.length(), body.getWeight());
+		assertEquals(BODY, body.toString());
+	}
+
+	@Test
+	public void testCompressedBodyIsSmallerAndDecompresses() {
+		String body = repeat(BODY, 100);
+		CachedBody compressed = CachedBody.of(body, true, false);
+
+		assertTrue(compressed.isCompressed());
+		assertEquals("gzip", compressed.getContentEncoding());
+		assertTrue(compressed.getWeight() < body.getBytes(StandardCharsets.UTF_8).length / 10);
+		assertEquals(body.getBytes(StandardCharsets.UTF_8).length, compressed.getLength());
+		assertEquals(body, compressed.toString());
+		assertEquals(body, CachedBody.of(body, true, true).toString());
+	}
+
+	@Test
+	public void testConverterWritesCompressedBodyToGzipClients() throws Exception {
+		CachedBodyHttpMessageConverter converter = new CachedBodyHttpMessageConverter();
+		CachedBody body = CachedBody.of(repeat(BODY, 100), true, true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+		try {
+			MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+			converter.write(body, MediaType.APPLICATION_JSON, outputMessage);
+
+			// the stored bytes are sent as they are
+			byte[] expected = new byte[(int) body.getWeight()];
+			body.getBytes().get(expected);
+			assertArrayEquals(expected, outputMessage.getBodyAsBytes());
+			assertEquals("gzip", outputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+			assertEquals(body.getWeight(), outputMessage.getHeaders().getContentLength());
+			assertEquals(HttpHeaders.ACCEPT_ENCODING, outputMessage.getHeaders().getFirst(HttpHeaders.VARY));
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+
+	@Test
+	public void testConverterDecompressesBodyForOtherClients() throws Exception {
+		CachedBodyHttpMessageConverter converter = new CachedBodyHttpMessageConverter();
+		CachedBody body = CachedBody.of(BODY, true, false);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+		try {
+			MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+			converter.write(body, MediaType.APPLICATION_JSON, outputMessage);
+
+			assertEquals(BODY, outputMessage.getBodyAsString(StandardCharsets.UTF_8));
+			assertNull(outputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+			assertEquals(body.getLength(), outputMessage.getHeaders().getContentLength());
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+
+	@Test
+	public void testETagIgnoresStatusObject() {
+		String first = "{\"status\":{\"timestamp\":\"2020-09-01T00:00:00.000Z\",\"notice\":null},\"data\":{\"1\":{\"id\":1}}}";
+		String refreshed = "{\"status\":{\"timestamp\":\"2020-09-01T00:01:00.000Z\",\"notice\":\"}{\\\"\"},\"data\":{\"1\":{\"id\":1}}}";
+		String changed = "{\"status\":{\"timestamp\":\"2020-09-01T00:02:00.000Z\",\"notice\":null},\"data\":{\"1\":{\"id\":2}}}";
+
+		String eTag = CachedBody.onHeap(first).getETag();
+		assertTrue(eTag.startsWith("W/\"") && eTag.endsWith("\""));
+		assertEquals(eTag, CachedBody.onHeap(refreshed).getETag());
+		assertEquals(eTag, CachedBody.of(refreshed, true, true).getETag());
+		assertNotEquals(eTag, CachedBody.onHeap(changed).getETag());
+	}
+
+	@Test
+	public void testAcceptEncodingParsing() {
+		assertTrue(CachedBodyHttpMessageConverter.acceptsEncoding("gzip", "gzip"));
+		assertTrue(CachedBodyHttpMessageConverter.acceptsEncoding("deflate, GZIP;q=0.5", "gzip"));
+		assertTrue(CachedBodyHttpMessageConverter.acceptsEncoding("*", "gzip"));
+		assertFalse(CachedBodyHttpMessageConverter.acceptsEncoding("gzip;q=0", "gzip"));
+		assertFalse(CachedBodyHttpMessageConverter.acceptsEncoding("*, gzip;q=0", "gzip"));
+		assertFalse(CachedBodyHttpMessageConverter.acceptsEncoding("identity", "gzip"));
+		assertFalse(CachedBodyHttpMessageConverter.acceptsEncoding(null, "gzip"));
+	}
+
+	@Test
+	public void testConverterWritesOffHeapBodyUnchanged() throws Exception {
+		CachedBodyHttpMessageConverter converter = new CachedBodyHttpMessageConverter();
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		CachedBody body = CachedBody.offHeap(BODY);
+
+		assertTrue(converter.canWrite(CachedBody.class, MediaType.APPLICATION_JSON));
+		assertFalse(converter.canRead(CachedBody.class, MediaType.APPLICATION_JSON));
+
+		// writing twice must not consume the shared buffer
+		converter.write(body, MediaType.APPLICATION_JSON, outputMessage);
+		converter.write(body, MediaType.APPLICATION_JSON, new MockHttpOutputMessage());
+
+		assertEquals(BODY, outputMessage.getBodyAsString(StandardCharsets.UTF_8));
+		assertEquals(body.getWeight(), outputMessage.getHeaders().getContentLength());
+		assertEquals(MediaType.APPLICATION_JSON, outputMessage.getHeaders().getContentType());
+	}
+
+	private static String repeat(String text, int count) {
+		StringBuilder builder = new StringBuilder(text.length() * count);
+		for (int i = 0; i < count; i++)
+			builder.append(text);
+		return builder.toString();
+	}
+}
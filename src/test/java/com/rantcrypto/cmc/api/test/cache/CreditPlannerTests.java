@@ -0,0 +1,86 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.CreditPlanner;
+import com.rantcrypto.cmc.api.cache.CreditPlanner.CreditPlan;
+
+public class CreditPlannerTests {
+
+	private static final String INFO_ENDPOINT = "/v1/cryptocurrency/info";
+	private static final CacheKey GROUP_KEY = CacheKey.of(INFO_ENDPOINT, null);
+
+	@Test
+	public void testCreditsAreChargedPerStartedBlock() {
+		assertEquals(1L, CreditPlanner.getCredits(INFO_ENDPOINT, 1, 1));
+		assertEquals(1L, CreditPlanner.getCredits(INFO_ENDPOINT, 100, 1));
+		assertEquals(2L, CreditPlanner.getCredits(INFO_ENDPOINT, 101, 1));
+		assertEquals(4L, CreditPlanner.getCredits("/v1/cryptocurrency/quotes/latest", 101, 3));
+		assertEquals(1L, CreditPlanner.getCredits("/v1/cryptocurrency/listings/latest", 200, 1));
+		assertEquals(2L, CreditPlanner.getCredits("/v1/exchange/listings/latest", 200, 1));
+	}
+
+	@Test
+	public void testLastCreditIsPaddedWithEntitiesExpiringFirst() {
+		CreditPlanner creditPlanner = planner(false);
+		creditPlanner.touch(GROUP_KEY, ids(1, 250));
+		Map<String, Long> expiries = new HashMap<String, Long>();
+		for (int id = 1; id <= 250; id++)
+			expiries.put(Integer.toString(id), 1000L + id);
+
+		// 101 ids cost 2 credits, so 99 more ids are free
+		List<String> planned = creditPlanner.plan(INFO_ENDPOINT, GROUP_KEY, ids(151, 251), 1, id -> expiries.getOrDefault(id, 0L));
+
+		assertEquals(200, planned.size());
+		assertEquals("151", planned.get(0));
+		assertEquals("1", planned.get(101));
+		assertEquals("99", planned.get(199));
+		CreditPlan plan = creditPlanner.getPlans().get(0);
+		assertEquals(2L, plan.getCredits());
+		assertEquals(99, plan.getPaddedIds());
+		assertEquals(99L, creditPlanner.getPaddedCount());
+	}
+
+	@Test
+	public void testDryRunReportsPlansWithoutPadding() {
+		CreditPlanner creditPlanner = planner(true);
+		creditPlanner.touch(GROUP_KEY, ids(1, 100));
+
+		List<String> planned = creditPlanner.plan(INFO_ENDPOINT, GROUP_KEY, ids(101, 103), 1, id -> 0L);
+		creditPlanner.plan(INFO_ENDPOINT, GROUP_KEY, ids(101, 201), 1, id -> 0L);
+
+		assertEquals(ids(101, 103), planned);
+		List<CreditPlan> plans = creditPlanner.getPlans();
+		assertEquals(2, plans.size());
+		assertEquals(97, plans.get(0).getPaddedIds());
+		assertEquals(2L, plans.get(1).getCredits());
+		assertTrue(plans.get(0).toString().startsWith("Dry run: /v1/cryptocurrency/info for 3 ids costs 1 credits"));
+		assertEquals(3L, creditPlanner.getCreditCount());
+		assertEquals(0L, creditPlanner.getPaddedCount());
+	}
+
+	private static CreditPlanner planner(boolean dryRun) {
+		CreditPlanner creditPlanner = new CreditPlanner();
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_ENABLED", true);
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_DRY_RUN", dryRun);
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_RECENT_IDS", 1000);
+		return creditPlanner;
+	}
+
+	private static List<String> ids(int first, int last) {
+		List<String> ids = new ArrayList<String>();
+		for (int id = first; id <= last; id++)
+			ids.add(Integer.toString(id));
+		return ids;
+	}
+}
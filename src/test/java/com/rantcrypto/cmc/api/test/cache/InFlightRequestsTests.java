@@ -0,0 +1,106 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.InFlightRequests;
+
+public class InFlightRequestsTests {
+
+	private static final int CALLERS = 16;
+
+	@Test
+	public void testIdenticalConcurrentRequestsShareOneCall() throws Exception {
+		InFlightRequests inFlightRequests = new InFlightRequests();
+		CacheKey key = CacheKey.of("/v1/cryptocurrency/listings/latest", limitParams("200"));
+		AtomicInteger upstreamCalls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(executor.submit(() -> inFlightRequests.execute(key, () -> {
+					upstreamCalls.incrementAndGet();
+					awaitQuietly(release);
+					return "listings";
+				})));
+			}
+
+			// hold the first call open until every other caller is waiting on it
+			long deadline = System.currentTimeMillis() + 10000L;
+			while (inFlightRequests.getCoalescedCount() < CALLERS - 1 && System.currentTimeMillis() < deadline)
+				Thread.sleep(5L);
+			release.countDown();
+
+			for (Future<String> result : results)
+				assertEquals("listings", result.get(10L, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(1L, inFlightRequests.getSentCount());
+		assertEquals(CALLERS - 1, inFlightRequests.getCoalescedCount());
+	}
+
+	@Test
+	public void testDifferentRequestsAreNotCoalesced() {
+		InFlightRequests inFlightRequests = new InFlightRequests();
+
+		inFlightRequests.execute(CacheKey.of("/v1/cryptocurrency/listings/latest", limitParams("200")), () -> "a");
+		inFlightRequests.execute(CacheKey.of("/v1/cryptocurrency/listings/latest", limitParams("100")), () -> "b");
+
+		assertEquals(2L, inFlightRequests.getSentCount());
+		assertEquals(0L, inFlightRequests.getCoalescedCount());
+	}
+
+	@Test
+	public void testCompletedRequestIsNotReused() {
+		InFlightRequests inFlightRequests = new InFlightRequests();
+		CacheKey key = CacheKey.of("/v1/key/info", null);
+
+		assertEquals("first", inFlightRequests.execute(key, () -> "first"));
+		assertEquals("second", inFlightRequests.execute(key, () -> "second"));
+	}
+
+	@Test
+	public void testFailureIsRethrown() {
+		InFlightRequests inFlightRequests = new InFlightRequests();
+		CacheKey key = CacheKey.of("/v1/key/info", null);
+
+		assertThrows(IllegalStateException.class, () -> inFlightRequests.execute(key, () -> {
+			throw new IllegalStateException("upstream unavailable");
+		}));
+
+		// a failed request must not block the next one
+		assertEquals("ok", inFlightRequests.execute(key, () -> "ok"));
+	}
+
+	private static HashMap<String, String> limitParams(String limit) {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("limit", limit);
+		return paramMap;
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10L, TimeUnit.SECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.RequestBatcher;
+
+public class RequestBatcherTests {
+
+	private static final CacheKey KEY = CacheKey.of("/v1/cryptocurrency/quotes/latest", null);
+
+	@Test
+	public void testConcurrentRequestsShareOneBatch() throws Exception {
+		RequestBatcher requestBatcher = batcher(100);
+		List<List<String>> upstreamCalls = new CopyOnWriteArrayList<List<String>>();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (List<String> ids : Arrays.asList(Arrays.asList("1"), Arrays.asList("1027", "52"), Arrays.asList("52", "2"))) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return requestBatcher.execute(KEY, ids, 1000L, batchIds -> {
+						upstreamCalls.add(batchIds);
+						return String.join(",", batchIds);
+					}, result -> false);
+				}));
+			}
+			start.countDown();
+
+			// every caller receives the result of the whole batch
+			for (Future<String> result : results)
+				assertEquals(4, result.get(10L, TimeUnit.SECONDS).split(",").length);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, upstreamCalls.size());
+		assertEquals(1L, requestBatcher.getBatchCount());
+		assertEquals(2L, requestBatcher.getBatchedCount());
+	}
+
+	@Test
+	public void testFullBatchIsSentBeforeTheWindowEnds() {
+		RequestBatcher requestBatcher = batcher(2);
+		long start = System.currentTimeMillis();
+
+		String result = requestBatcher.execute(KEY, Arrays.asList("1", "1027"), 10000L, batchIds -> String.join(",", batchIds),
+				batchResult -> false);
+
+		assertEquals("1,1027", result);
+		assertEquals(true, System.currentTimeMillis() - start < 5000L);
+	}
+
+	@Test
+	public void testFailedBatchIsRetriedPerRequest() throws Exception {
+		RequestBatcher requestBatcher = batcher(100);
+		List<List<String>> upstreamCalls = Collections.synchronizedList(new ArrayList<List<String>>());
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> valid = executor.submit(() -> {
+				start.await();
+				return requestBatcher.execute(KEY, Arrays.asList("1"), 1000L, batchIds -> {
+					upstreamCalls.add(batchIds);
+					return batchIds.contains("-5") ? "400" : "200";
+				}, result -> !result.equals("200"));
+			});
+			Future<String> invalid = executor.submit(() -> {
+				start.await();
+				return requestBatcher.execute(KEY, Arrays.asList("-5"), 1000L, batchIds -> {
+					upstreamCalls.add(batchIds);
+					return batchIds.contains("-5") ? "400" : "200";
+				}, result -> !result.equals("200"));
+			});
+			start.countDown();
+
+			// an invalid id only fails the request that asked for it
+			assertEquals("200", valid.get(10L, TimeUnit.SECONDS));
+			assertEquals("400", invalid.get(10L, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(3, upstreamCalls.size());
+	}
+
+	@Test
+	public void testBatchingDisabledWithoutWindow() {
+		RequestBatcher requestBatcher = batcher(100);
+
+		assertEquals("1", requestBatcher.execute(KEY, Arrays.asList("1"), -1L, batchIds -> String.join(",", batchIds),
+				result -> false));
+		assertEquals(0L, requestBatcher.getBatchCount());
+	}
+
+	private static RequestBatcher batcher(int maxIds) {
+		RequestBatcher requestBatcher = new RequestBatcher();
+		ReflectionTestUtils.setField(requestBatcher, "BATCH_MAX_IDS", maxIds);
+		return requestBatcher;
+	}
+}
@@ -0,0 +1,126 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.RequestCanonicalizer;
+
+public class RequestCanonicalizerTests {
+
+	/**
+	 * Requests recorded from a dashboard, a portfolio tracker and a price bot sharing one wrapper.
+	 */
+	private static final String[] RECORDED_REQUESTS = {
+			"/v1/cryptocurrency/quotes/latest?id=1,1027",
+			"/v1/cryptocurrency/quotes/latest?id=1027,1",
+			"/v1/cryptocurrency/quotes/latest?id=1,1027",
+			"/v1/cryptocurrency/quotes/latest?id=1027,1",
+			"/v1/cryptocurrency/quotes/latest?id=1,1027&convert=USD",
+			"/v1/cryptocurrency/quotes/latest?id=1, 1027&skip_invalid=false",
+			"/v1/cryptocurrency/quotes/latest?id=1",
+			"/v1/cryptocurrency/quotes/latest?id=1&convert=USD",
+			"/v1/cryptocurrency/quotes/latest?id=1,1,1",
+			"/v1/cryptocurrency/quotes/latest?id=1027,1,52",
+			"/v1/cryptocurrency/quotes/latest?id=52,1,1027",
+			"/v1/cryptocurrency/quotes/latest?id=1,52,1027&convert=USD",
+			"/v1/cryptocurrency/quotes/latest?symbol=BTC,ETH",
+			"/v1/cryptocurrency/quotes/latest?symbol=ETH,BTC",
+			"/v1/cryptocurrency/quotes/latest?symbol=BTC,ETH&convert=EUR,USD",
+			"/v1/cryptocurrency/quotes/latest?symbol=ETH,BTC&convert=USD,EUR",
+			"/v1/cryptocurrency/quotes/latest?slug=bitcoin,ethereum",
+			"/v1/cryptocurrency/quotes/latest?slug=Ethereum,bitcoin",
+			"/v1/cryptocurrency/listings/latest",
+			"/v1/cryptocurrency/listings/latest?start=1&limit=100",
+			"/v1/cryptocurrency/listings/latest",
+			"/v1/cryptocurrency/listings/latest?start=1&limit=100",
+			"/v1/cryptocurrency/listings/latest?start=1&limit=100&sort=market_cap",
+			"/v1/cryptocurrency/listings/latest?limit=100&convert=USD",
+			"/v1/cryptocurrency/listings/latest?start=101&limit=100",
+			"/v1/cryptocurrency/listings/latest?start=101",
+			"/v1/cryptocurrency/listings/latest?cryptocurrency_type=all&tag=all",
+			"/v1/cryptocurrency/info?id=1,1027",
+			"/v1/cryptocurrency/info?id=1027,1&aux=urls,logo,description,tags,platform,date_added,notice",
+			"/v1/cryptocurrency/info?id=1027,1",
+			"/v1/cryptocurrency/map",
+			"/v1/cryptocurrency/map?listing_status=active",
+			"/v1/cryptocurrency/map?sort=id&start=1",
+			"/v1/cryptocurrency/market-pairs/latest?id=1",
+			"/v1/cryptocurrency/market-pairs/latest?id=1&start=1&limit=100&sort_dir=desc",
+			"/v1/cryptocurrency/ohlcv/historical?id=1&time_period=daily&count=10",
+			"/v1/cryptocurrency/ohlcv/historical?id=1",
+			"/v1/exchange/listings/latest?sort=volume_24h&market_type=all",
+			"/v1/exchange/listings/latest",
+			"/v1/global-metrics/quotes/latest?convert=USD",
+			"/v1/global-metrics/quotes/latest",
+			"/v1/global-metrics/quotes/latest?convert=USD",
+			"/v1/fiat/map?include_metals=false",
+			"/v1/fiat/map",
+			"/v1/tools/price-conversion?amount=10&id=1&convert=EUR,USD",
+			"/v1/tools/price-conversion?amount=10&id=1&convert=USD,EUR",
+			"/v1/cryptocurrency/price-performance-stats/latest?id=1&time_period=all_time",
+			"/v1/cryptocurrency/price-performance-stats/latest?id=1",
+			"/v1/cryptocurrency/price-performance-stats/latest?id=1&time_period=yesterday,all_time",
+			"/v1/cryptocurrency/price-performance-stats/latest?id=1&time_period=all_time,yesterday",
+	};
+
+	@Test
+	public void testListsAreSortedAndDefaultsDropped() {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("id", "1027, 1,1027");
+		paramMap.put("convert", "USD");
+		paramMap.put("aux", "is_fiat,num_market_pairs,cmc_rank,date_added,tags,platform,max_supply,circulating_supply,total_supply,is_active");
+		paramMap.put("skip_invalid", "true");
+		paramMap.put("convert_id", "");
+
+		LinkedHashMap<String, String> canonical = RequestCanonicalizer.canonicalize("/v1/cryptocurrency/quotes/latest", paramMap);
+
+		assertEquals("{id=1,1027, skip_invalid=true}", canonical.toString());
+		assertNull(RequestCanonicalizer.canonicalize("/v1/cryptocurrency/quotes/latest", null));
+	}
+
+	@Test
+	public void testSymbolsKeepTheirCaseAndUnknownEndpointsKeepTheirDefaults() {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("symbol", "eth,BTC");
+		paramMap.put("slug", "Bitcoin");
+		paramMap.put("limit", "100");
+
+		assertEquals("{limit=100, slug=bitcoin, symbol=BTC,eth}",
+				RequestCanonicalizer.canonicalize("/v2/cryptocurrency/quotes/latest", paramMap).toString());
+		assertEquals("{slug=bitcoin, symbol=BTC,eth}",
+				RequestCanonicalizer.canonicalize("/v1/cryptocurrency/listings/latest", paramMap).toString());
+	}
+
+	@Test
+	public void testRecordedRequestMixHitRate() {
+		Set<CacheKey> rawKeys = new HashSet<CacheKey>();
+		Set<CacheKey> canonicalKeys = new HashSet<CacheKey>();
+		for (String request : RECORDED_REQUESTS) {
+			CacheKey recorded = CacheKey.parse(request);
+			HashMap<String, String> paramMap = new HashMap<String, String>();
+			for (String param : recorded.getParams().split("&(?=[a-z_]+=)")) {
+				if (!param.isEmpty())
+					paramMap.put(param.substring(0, param.indexOf('=')), param.substring(param.indexOf('=') + 1));
+			}
+
+			rawKeys.add(CacheKey.of(recorded.getEndpoint(), paramMap));
+			canonicalKeys.add(CacheKey.of(recorded.getEndpoint(), RequestCanonicalizer.canonicalize(recorded.getEndpoint(), paramMap)));
+		}
+
+		// with an unbounded cache, every request but the first of each key is a hit
+		int requests = RECORDED_REQUESTS.length;
+		double rawHitRate = (requests - rawKeys.size()) * 100.0 / requests;
+		double canonicalHitRate = (requests - canonicalKeys.size()) * 100.0 / requests;
+		assertEquals(50, requests);
+		assertEquals(10.0, rawHitRate, 1e-9);
+		assertEquals(64.0, canonicalHitRate, 1e-9);
+	}
+}
@@ -0,0 +1,173 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.CachedResponse;
+import com.rantcrypto.cmc.api.cache.ResponseCache;
+
+public class ResponseCacheTests {
+
+	private ResponseCache responseCache;
+
+	@BeforeEach
+	public void setup() {
+		this.responseCache = new ResponseCache();
+		ReflectionTestUtils.setField(responseCache, "CACHE_MAX_BYTES", 1024L * 1024L);
+		ReflectionTestUtils.setField(responseCache, "CACHE_GZIP", false);
+		responseCache.init();
+	}
+
+	@Test
+	public void testKeyIgnoresParameterOrderAndEmptyValues() {
+		HashMap<String, String> firstParams = new HashMap<String, String>();
+		firstParams.put("id", "1");
+		firstParams.put("convert", "USD");
+		firstParams.put("aux", null);
+
+		HashMap<String, String> secondParams = new HashMap<String, String>();
+		secondParams.put("convert", "USD");
+		secondParams.put("slug", "");
+		secondParams.put("id", "1");
+
+		CacheKey firstKey = CacheKey.of("/v1/cryptocurrency/quotes/latest", firstParams);
+		CacheKey secondKey = CacheKey.of("/v1/cryptocurrency/quotes/latest", secondParams);
+
+		assertEquals(firstKey, secondKey);
+		assertEquals(firstKey.hashCode(), secondKey.hashCode());
+		assertEquals("/v1/cryptocurrency/quotes/latest?convert=USD&id=1", firstKey.toString());
+	}
+
+	@Test
+	public void testHitAndMissAreCounted() {
+		CacheKey key = CacheKey.of("/v1/key/info", null);
+		long now = System.currentTimeMillis();
+
+		assertNull(responseCache.get(key));
+
+		responseCache.put(key, new CachedResponse("{}", now, now + 60000L));
+		assertNotNull(responseCache.get(key));
+		assertEquals("{}", responseCache.get(key).getBody());
+
+		assertEquals(1L, responseCache.getStats().missCount());
+		assertEquals(2L, responseCache.getStats().hitCount());
+	}
+
+	@Test
+	public void testExpiredResponseIsNotServed() {
+		CacheKey key = CacheKey.of("/v1/key/info", null);
+		long now = System.currentTimeMillis();
+
+		responseCache.put(key, new CachedResponse("{}", now - 2000L, now - 1000L));
+		assertNull(responseCache.get(key));
+	}
+
+	@Test
+	public void testCacheIsBoundedByBytes() {
+		long now = System.currentTimeMillis();
+		String body = repeat('x', 16 * 1024);
+
+		// 200 responses of ~32 KB each cannot fit into 1 MB
+		for (int i = 0; i < 200; i++) {
+			HashMap<String, String> paramMap = new HashMap<String, String>();
+			paramMap.put("id", Integer.toString(i));
+			responseCache.put(CacheKey.of("/v1/cryptocurrency/info", paramMap),
+					new CachedResponse(body, now, now + 60000L));
+		}
+		responseCache.cleanUp();
+
+		assertTrue(responseCache.getSize() < 200L);
+		assertTrue(responseCache.getSize() * 2L * body.length() <= 1024L * 1024L);
+	}
+
+	@Test
+	public void testLargeOneOffResponsesDoNotEvictHotResponses() throws Exception {
+		long now = System.currentTimeMillis();
+		String hotBody = repeat('h', 2 * 1024);
+		String scanBody = repeat('s', 64 * 1024);
+
+		// 150 small, frequently read responses (~600 KB in total). Caffeine only tracks frequencies
+		// once the cache is half full, and drops reads that arrive faster than it records them, so
+		// the cache is filled first and reads are drained as they happen.
+		for (int i = 0; i < 150; i++)
+			responseCache.put(quotesKey(i), new CachedResponse(hotBody, now, now + 60000L));
+		for (int read = 0; read < 10; read++) {
+			for (int i = 0; i < 150; i++) {
+				assertNotNull(responseCache.get(quotesKey(i)));
+				responseCache.cleanUp();
+			}
+		}
+
+		// a scan of 100 large historical responses (~12 MB in total) that are never read again
+		for (int i = 0; i < 100; i++) {
+			HashMap<String, String> paramMap = new HashMap<String, String>();
+			paramMap.put("date", "2020-01-" + i);
+			responseCache.put(CacheKey.of("/v1/cryptocurrency/listings/historical", paramMap),
+					new CachedResponse(scanBody, now, now + 60000L));
+			responseCache.cleanUp();
+		}
+
+		for (int i = 0; i < 150; i++)
+			assertNotNull(responseCache.get(quotesKey(i)), "hot response " + i + " was evicted");
+		assertTrue(responseCache.getWeightedSize() <= 1024L * 1024L);
+
+		// removal notifications are delivered asynchronously
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (responseCache.getRejectionCount() == 0L && System.currentTimeMillis() < deadline)
+			Thread.sleep(5L);
+
+		assertTrue(responseCache.getSizeEvictionCount() > 0L);
+		assertTrue(responseCache.getRejectionCount() > 0L);
+		assertTrue(responseCache.getEvictedBytes() >= 2L * scanBody.length());
+	}
+
+	@Test
+	public void testOffHeapModeMovesBodiesOffHeap() {
+		ReflectionTestUtils.setField(responseCache, "CACHE_OFF_HEAP", true);
+		CacheKey key = CacheKey.of("/v1/key/info", null);
+		long now = System.currentTimeMillis();
+
+		responseCache.put(key, new CachedResponse("{\"data\":{}}", now, now + 60000L));
+
+		CachedResponse cached = responseCache.get(key);
+		assertTrue(cached.getCachedBody().isOffHeap());
+		assertEquals("{\"data\":{}}", cached.getBody());
+	}
+
+	@Test
+	public void testBodiesAreCompressedOnceWhenCached() {
+		ReflectionTestUtils.setField(responseCache, "CACHE_GZIP", true);
+		CacheKey key = CacheKey.of("/v1/cryptocurrency/listings/latest", null);
+		String body = repeat('x', 64 * 1024);
+		long now = System.currentTimeMillis();
+
+		responseCache.put(key, new CachedResponse(body, now, now + 60000L));
+
+		CachedResponse cached = responseCache.get(key);
+		assertTrue(cached.getCachedBody().isCompressed());
+		assertTrue(responseCache.getWeightedSize() < body.length() / 10);
+		assertEquals(body, cached.getBody());
+	}
+
+	private static CacheKey quotesKey(int id) {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("id", Integer.toString(id));
+		return CacheKey.of("/v1/cryptocurrency/quotes/latest", paramMap);
+	}
+
+	private static String repeat(char character, int count) {
+		StringBuilder builder = new StringBuilder(count);
+		for (int i = 0; i < count; i++)
+			builder.append(character);
+		return builder.toString();
+	}
+}
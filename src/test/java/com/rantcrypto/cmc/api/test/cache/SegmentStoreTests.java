@@ -0,0 +1,241 @@
+package com.rantcrypto.cmc.api.test.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.CachedResponse;
+import com.rantcrypto.cmc.api.cache.ResponseCache;
+import com.rantcrypto.cmc.api.cache.SegmentStore;
+
+public class SegmentStoreTests {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegmentStoreTests.class);
+	private static final String BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1\":{\"id\":1,\"name\":\"Bitcoin\"}}}";
+
+	@TempDir
+	public Path directory;
+
+	private SegmentStore segmentStore;
+
+	@AfterEach
+	public void teardown() {
+		if (segmentStore != null)
+			segmentStore.close();
+	}
+
+	@Test
+	public void testResponsesSurviveRestartWithRemainingTimes() {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(1024L * 1024L, 16L * 1024L * 1024L);
+		segmentStore.append(quotesKey(1), new CachedResponse(BODY, now, now + 60000L, now + 120000L));
+		segmentStore.append(quotesKey(2), new CachedResponse(BODY, now - 2000L, now - 1000L));
+		segmentStore.append(quotesKey(1), new CachedResponse(BODY.replace("Bitcoin", "BTC"), now, now + 30000L));
+		segmentStore.close();
+
+		this.segmentStore = openStore(1024L * 1024L, 16L * 1024L * 1024L);
+		CachedResponse restored = segmentStore.get(quotesKey(1));
+
+		// the newest record wins and keeps its original expiry; expired records are not restored
+		assertNotNull(restored);
+		assertEquals(BODY.replace("Bitcoin", "BTC"), restored.getBody());
+		assertEquals(now + 30000L, restored.getExpiresAt());
+		assertTrue(restored.getCachedBody().isOffHeap());
+		assertNull(segmentStore.get(quotesKey(2)));
+		assertEquals(1L, segmentStore.getSize());
+	}
+
+	@Test
+	public void testTornRecordIsIgnored() throws Exception {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(1024L * 1024L, 16L * 1024L * 1024L);
+		segmentStore.append(quotesKey(1), new CachedResponse(BODY, now, now + 60000L));
+		segmentStore.append(quotesKey(2), new CachedResponse(BODY, now, now + 60000L));
+		segmentStore.close();
+
+		// corrupt the last byte of the second record's body, as a crash mid-write would
+		File segment = directory.resolve("segment-00000001.dat").toFile();
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			long end = 0L;
+			while (end < file.length() && file.readInt() == 0x434D4352) {
+				int length = file.readInt();
+				end += length;
+				file.seek(end);
+			}
+			file.seek(end - 5L);
+			file.write('x');
+		}
+
+		this.segmentStore = openStore(1024L * 1024L, 16L * 1024L * 1024L);
+		assertNotNull(segmentStore.get(quotesKey(1)));
+		assertNull(segmentStore.get(quotesKey(2)));
+	}
+
+	@Test
+	public void testOldestSegmentIsDroppedBeyondMaxBytes() {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(4096L, 3L * 4096L);
+		String body = repeat('x', 1500);
+
+		for (int i = 0; i < 20; i++)
+			segmentStore.append(quotesKey(i), new CachedResponse(body, now, now + 60000L));
+
+		assertTrue(segmentStore.getSegmentCount() <= 3);
+		assertNull(segmentStore.get(quotesKey(0)));
+		assertNotNull(segmentStore.get(quotesKey(19)));
+		assertTrue(segmentStore.getDiskBytes() <= 3L * 4096L);
+	}
+
+	@Test
+	public void testRestartedCacheServesFirstHitFromDisk() {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(64L * 1024L * 1024L, 256L * 1024L * 1024L);
+		ResponseCache responseCache = openCache(segmentStore);
+		String body = repeat('x', 16 * 1024);
+		for (int i = 0; i < 1000; i++)
+			responseCache.put(quotesKey(i), new CachedResponse(body + i, now, now + 60000L));
+		segmentStore.close();
+
+		long start = System.nanoTime();
+		this.segmentStore = openStore(64L * 1024L * 1024L, 256L * 1024L * 1024L);
+		ResponseCache restartedCache = openCache(segmentStore);
+		CachedResponse firstHit = restartedCache.get(quotesKey(999));
+		long startupToFirstHit = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		LOGGER.debug("Restarted cache of 1000 responses served its first hit after {} ms", startupToFirstHit);
+		assertNotNull(firstHit);
+		assertEquals(body + 999, firstHit.getBody());
+		// the memory tier starts empty, so the hit was read from disk
+		assertEquals(0D, restartedCache.getHitRate(false));
+		assertEquals(1D, restartedCache.getHitRate(true));
+	}
+
+	@Test
+	public void testCompactionKeepsOnlyLiveRecords() {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(4096L, 64L * 4096L);
+		String body = repeat('x', 500);
+
+		// refreshing the same 4 responses over and over leaves mostly dead records behind
+		for (int round = 0; round < 30; round++) {
+			for (int i = 0; i < 4; i++)
+				segmentStore.append(quotesKey(i), new CachedResponse(body + round, now, now + 60000L));
+		}
+
+		assertTrue(segmentStore.getCompactionCount() > 0L);
+		assertTrue(segmentStore.getReclaimedBytes() > 0L);
+		assertTrue(segmentStore.getSegmentCount() <= 2);
+		for (int i = 0; i < 4; i++)
+			assertEquals(body + 29, segmentStore.get(quotesKey(i)).getBody());
+		segmentStore.close();
+
+		// compacted records survive a restart
+		this.segmentStore = openStore(4096L, 64L * 4096L);
+		for (int i = 0; i < 4; i++)
+			assertEquals(body + 29, segmentStore.get(quotesKey(i)).getBody());
+	}
+
+	@Test
+	public void testRecordsCompactedIntoANewSegmentLeaveRoomForTheAppend() {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(4096L, 64L * 4096L);
+
+		// refreshes of mixed sizes compact live records into the segment the next record needs
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 4; i++) {
+				String body = repeat(i == 3 ? 'y' : 'x', i == 3 ? 500 + 1000 * (round % 4) : 300) + round;
+				assertNotNull(segmentStore.append(quotesKey(i), new CachedResponse(body, now, now + 60000L)));
+				assertEquals(body, segmentStore.get(quotesKey(i)).getBody());
+			}
+		}
+		assertTrue(segmentStore.getCompactionCount() > 0L);
+	}
+
+	@Test
+	public void testDiskHitsArePromotedAndDroppedEvictionsRewritten() throws Exception {
+		long now = System.currentTimeMillis();
+		this.segmentStore = openStore(1024L * 1024L, 16L * 1024L * 1024L);
+		ResponseCache responseCache = openCache(segmentStore);
+		ReflectionTestUtils.setField(responseCache, "CACHE_MAX_BYTES", 256L * 1024L);
+		ReflectionTestUtils.setField(responseCache, "CACHE_GZIP", false);
+		responseCache.init();
+
+		// 200 responses of ~2 KB each only partly fit into the 256 KB memory tier
+		for (int i = 0; i < 200; i++)
+			responseCache.put(quotesKey(i), new CachedResponse(repeat('x', 1000) + i, now, now + 60000L));
+		responseCache.cleanUp();
+		assertTrue(responseCache.getSize() < 200L);
+		assertEquals(200L, segmentStore.getSize());
+
+		CacheKey coldKey = null;
+		for (int i = 0; i < 200 && coldKey == null; i++) {
+			if (responseCache.get(quotesKey(i)) != null && responseCache.getHitRate(true) > 0D)
+				coldKey = quotesKey(i);
+		}
+		assertNotNull(coldKey);
+
+		// the second disk read promotes the response to memory
+		assertNotNull(responseCache.get(coldKey));
+		assertEquals(1L, responseCache.getPromotionCount());
+		double diskHitRate = responseCache.getHitRate(true);
+		assertNotNull(responseCache.get(coldKey));
+		assertEquals(diskHitRate, responseCache.getHitRate(true));
+		assertTrue(responseCache.getHitRate(false) > 0D);
+
+		// responses evicted from memory are written back once the disk no longer holds them
+		segmentStore.clear();
+		for (int i = 200; i < 400; i++)
+			responseCache.put(quotesKey(i), new CachedResponse(repeat('y', 1000) + i, now, now + 60000L));
+		responseCache.cleanUp();
+
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (responseCache.getDemotionCount() == 0L && System.currentTimeMillis() < deadline)
+			Thread.sleep(5L);
+		assertTrue(responseCache.getDemotionCount() > 0L);
+	}
+
+	private SegmentStore openStore(long segmentBytes, long maxBytes) {
+		SegmentStore store = new SegmentStore();
+		ReflectionTestUtils.setField(store, "CACHE_DISK_PATH", directory.toString());
+		ReflectionTestUtils.setField(store, "CACHE_DISK_SEGMENT_BYTES", segmentBytes);
+		ReflectionTestUtils.setField(store, "CACHE_DISK_MAX_BYTES", maxBytes);
+		store.init();
+		return store;
+	}
+
+	private static ResponseCache openCache(SegmentStore segmentStore) {
+		ResponseCache responseCache = new ResponseCache();
+		ReflectionTestUtils.setField(responseCache, "CACHE_MAX_BYTES", 64L * 1024L * 1024L);
+		ReflectionTestUtils.setField(responseCache, "segmentStore", segmentStore);
+		responseCache.init();
+		return responseCache;
+	}
+
+	private static CacheKey quotesKey(int id) {
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("id", Integer.toString(id));
+		return CacheKey.of("/v1/cryptocurrency/quotes/latest", paramMap);
+	}
+
+	private static String repeat(char character, int count) {
+		StringBuilder builder = new StringBuilder(count);
+		for (int i = 0; i < count; i++)
+			builder.append(character);
+		return builder.toString();
+	}
+}
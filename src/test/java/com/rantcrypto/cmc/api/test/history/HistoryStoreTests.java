@@ -0,0 +1,399 @@
+package com.rantcrypto.cmc.api.test.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.history.HistoryStore;
+import com.rantcrypto.cmc.api.history.HistoryTime;
+import com.rantcrypto.cmc.api.history.RangePlan;
+import com.rantcrypto.cmc.api.service.CryptocurrencyService;
+import com.rantcrypto.cmc.api.test.MockCoinMarketCap;
+
+public class HistoryStoreTests {
+
+	private static final String BASE_URL = MockCoinMarketCap.BASE_URL;
+	private static final String QUOTES_HISTORICAL_ENDPOINT = "/v1/cryptocurrency/quotes/historical";
+	private static final String OHLCV_HISTORICAL_ENDPOINT = "/v1/cryptocurrency/ohlcv/historical";
+	private static final long FIVE_MINUTES = 5L * 60L * 1000L;
+	private static final long HOUR = 60L * 60L * 1000L;
+	private static final long DAY = 24L * HOUR;
+	private static final long START = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	public Path directory;
+
+	private HistoryStore historyStore;
+
+	@AfterEach
+	public void teardown() {
+		if (historyStore != null)
+			historyStore.close();
+	}
+
+	@Test
+	public void testCoveredRangesAreServedAfterRestart() throws Exception {
+		this.historyStore = openStore();
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T00:00:00Z", "2020-01-01T05:00:00Z"), quotesBody(START, 6));
+		assertEquals(6L, historyStore.getPointCount());
+		historyStore.close();
+
+		this.historyStore = openStore();
+		String body = historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, params("1577840400", "2020-01-01T03:00:00.000Z"));
+		assertNotNull(body);
+
+		JsonNode data = objectMapper.readTree(body).path("data");
+		assertEquals(1L, data.path("id").asLong());
+		assertEquals("Bitcoin", data.path("name").asText());
+		assertEquals(3, data.path("quotes").size());
+		assertEquals("2020-01-01T01:00:00Z", data.path("quotes").path(0).path("timestamp").asText());
+		assertEquals(7001D, data.path("quotes").path(0).path("quote").path("USD").path("price").asDouble(), 0D);
+		assertEquals(0, objectMapper.readTree(body).path("status").path("credit_count").asInt());
+
+		// the range was only fetched up to 05:00, and other intervals are other series
+		assertNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T00:00:00Z", "2020-01-01T06:00:00Z")));
+		Map<String, String> daily = params("2020-01-01T00:00:00Z", "2020-01-01T05:00:00Z");
+		daily.put("interval", "1d");
+		assertNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, daily));
+		assertEquals(1L, historyStore.getHitCount());
+		assertEquals(2L, historyStore.getMissCount());
+
+		// upstream would only return count points of the range
+		Map<String, String> counted = params("2020-01-01T00:00:00Z", "2020-01-01T05:00:00Z");
+		counted.put("count", "2");
+		assertNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, counted));
+	}
+
+	@Test
+	public void testUnsettledPointsAreNotStored() throws Exception {
+		this.historyStore = openStore();
+		long now = System.currentTimeMillis() / 1000L * 1000L;
+		// the last two points are within an interval and the settle time of now
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, params(Long.toString((now - 3L * HOUR) / 1000L), Long.toString(now / 1000L)),
+				quotesBody(now - 3L * HOUR, 4));
+
+		assertEquals(2L, historyStore.getPointCount());
+		assertNotNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, params(Long.toString((now - 3L * HOUR) / 1000L),
+				Long.toString((now - 2L * HOUR) / 1000L))));
+		assertNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, params(Long.toString((now - 3L * HOUR) / 1000L),
+				Long.toString(now / 1000L))));
+		assertEquals(Long.valueOf(START), HistoryTime.parse("2020-01-01"));
+		assertEquals(HOUR, HistoryTime.getMillis("hourly"));
+	}
+
+	@Test
+	public void testRepeatedRangeIsFetchedOnce() throws Exception {
+		this.historyStore = openStore();
+		MockCoinMarketCap coinMarketCap = new MockCoinMarketCap();
+		MockRestServiceServer mockServer = coinMarketCap.getServer();
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_HISTORICAL_ENDPOINT)))
+				.andRespond(withSuccess(quotesBody(START, 6), MediaType.APPLICATION_JSON));
+
+		CryptocurrencyService cryptocurrencyService = createService(coinMarketCap);
+		cryptocurrencyService.getQuotesHistorical("1", null, "2020-01-01T00:00:00Z", "2020-01-01T05:00:00Z", null, "1h", null, null, null);
+		ResponseEntity<Object> response = cryptocurrencyService.getQuotesHistorical("1", null, "2020-01-01T02:00:00Z",
+				"2020-01-01T04:00:00Z", null, "1h", null, null, null);
+
+		mockServer.verify();
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(3, objectMapper.readTree(response.getBody().toString()).path("data").path("quotes").size());
+		assertEquals(1L, historyStore.getHitCount());
+	}
+
+	@Test
+	public void testOnlyMissingSubRangesArePlanned() throws Exception {
+		this.historyStore = openStore();
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T00:00:00Z", "2020-01-01T05:00:00Z"), quotesBody(START, 6));
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T10:00:00Z", "2020-01-01T12:00:00Z"),
+				quotesBody(START + 10L * HOUR, 3));
+
+		RangePlan plan = historyStore.plan(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T03:00:00Z", "2020-01-01T15:00:00Z"));
+		assertEquals(2, plan.getRequests().size());
+		assertEquals("2020-01-01T05:00:00.001Z", plan.getRequests().get(0).get("time_start"));
+		assertEquals("2020-01-01T09:59:59.999Z", plan.getRequests().get(0).get("time_end"));
+		assertEquals("2020-01-01T12:00:00.001Z", plan.getRequests().get(1).get("time_start"));
+		assertEquals("2020-01-01T15:00:00Z", plan.getRequests().get(1).get("time_end"));
+		assertEquals("1h", plan.getRequests().get(1).get("interval"));
+
+		// nothing stored, or a count that limits the points, is sent as it is
+		assertNull(historyStore.plan(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-02T00:00:00Z", "2020-01-03T00:00:00Z")));
+		Map<String, String> counted = params("2020-01-01T03:00:00Z", "2020-01-01T15:00:00Z");
+		counted.put("count", "5");
+		assertNull(historyStore.plan(QUOTES_HISTORICAL_ENDPOINT, counted));
+
+		// no request asks for more points than upstream returns at once
+		Map<String, String> minutes = params("2020-01-01T00:00:00Z", "2020-01-01T01:00:00Z");
+		minutes.put("interval", "1m");
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, minutes, quotesBody(START, 0));
+		minutes.put("time_end", Instant.ofEpochMilli(START + 20000L * 60L * 1000L).toString());
+		plan = historyStore.plan(QUOTES_HISTORICAL_ENDPOINT, minutes);
+		assertEquals(2, plan.getRequests().size());
+		assertEquals("2020-01-01T01:00:00.001Z", plan.getRequests().get(0).get("time_start"));
+		assertEquals(Instant.ofEpochMilli(START + HOUR + 1L + 9999L * 60L * 1000L).toString(), plan.getRequests().get(0).get("time_end"));
+	}
+
+	@Test
+	public void testMissingSubRangesAreMergedIntoOneResponse() throws Exception {
+		this.historyStore = openStore();
+		MockCoinMarketCap coinMarketCap = new MockCoinMarketCap();
+		MockRestServiceServer mockServer = coinMarketCap.getServer();
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_HISTORICAL_ENDPOINT)))
+				.andRespond(withSuccess(quotesBody(START, 6), MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_HISTORICAL_ENDPOINT)))
+				.andExpect(queryParam("time_start", "2020-01-01T05:00:00.001Z"))
+				.andRespond(withSuccess(quotesBody(START + 6L * HOUR, 3), MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + OHLCV_HISTORICAL_ENDPOINT)))
+				.andRespond(withSuccess(ohlcvBody(START, 6), MediaType.APPLICATION_JSON));
+		// time_start is exclusive for OHLCV, so the gap after 05:00 is requested after the hour before it
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + OHLCV_HISTORICAL_ENDPOINT)))
+				.andExpect(queryParam("time_start", "2020-01-01T04:00:00.001Z"))
+				.andRespond(withSuccess(ohlcvBody(START + 5L * HOUR, 4), MediaType.APPLICATION_JSON));
+
+		CryptocurrencyService cryptocurrencyService = createService(coinMarketCap);
+		cryptocurrencyService.getQuotesHistorical("1", null, "2020-01-01T00:00:00Z", "2020-01-01T05:00:00Z", null, "1h", null, null, null);
+		ResponseEntity<Object> response = cryptocurrencyService.getQuotesHistorical("1", null, "2020-01-01T02:00:00Z",
+				"2020-01-01T08:00:00Z", null, "1h", null, null, null);
+		cryptocurrencyService.getOhlcvHistorical("1", null, null, "hourly", "2019-12-31T23:00:00Z", "2020-01-01T05:00:00Z", null,
+				"hourly", null, null, null);
+		ResponseEntity<Object> candleResponse = cryptocurrencyService.getOhlcvHistorical("1", null, null, "hourly",
+				"2020-01-01T01:00:00Z", "2020-01-01T08:00:00Z", null, "hourly", null, null, null);
+
+		mockServer.verify();
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		JsonNode root = objectMapper.readTree(response.getBody().toString());
+		assertEquals(1, root.path("status").path("credit_count").asInt());
+		assertEquals("Bitcoin", root.path("data").path("name").asText());
+		JsonNode quotes = root.path("data").path("quotes");
+		List<String> timestamps = Arrays.asList(quotes.path(0).path("timestamp").asText(), quotes.path(3).path("timestamp").asText(),
+				quotes.path(6).path("timestamp").asText());
+		assertEquals(7, quotes.size());
+		assertEquals(Arrays.asList("2020-01-01T02:00:00Z", "2020-01-01T05:00:00Z", "2020-01-01T08:00:00Z"), timestamps);
+		assertEquals(2L, historyStore.getGapCount());
+
+		// the whole range is stored now
+		assertNotNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T00:00:00Z", "2020-01-01T08:00:00Z")));
+
+		assertEquals(HttpStatus.OK, candleResponse.getStatusCode());
+		JsonNode candles = objectMapper.readTree(candleResponse.getBody().toString()).path("data").path("quotes");
+		assertEquals(7, candles.size());
+		assertEquals("2020-01-01T02:00:00Z", candles.path(0).path("time_open").asText());
+		assertEquals("2020-01-01T08:00:00Z", candles.path(6).path("time_open").asText());
+	}
+
+	@Test
+	public void testSmallBatchesAreCompactedIntoBlocks() throws Exception {
+		this.historyStore = openStore();
+		for (int hour = 0; hour < 20; hour++) {
+			String timeStart = Instant.ofEpochMilli(START + hour * HOUR).toString();
+			String timeEnd = Instant.ofEpochMilli(START + (hour + 1) * HOUR - 1L).toString();
+			historyStore.record(QUOTES_HISTORICAL_ENDPOINT, params(timeStart, timeEnd), quotesBody(START + hour * HOUR, 1));
+		}
+		historyStore.close();
+
+		this.historyStore = openStore();
+		String body = historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, params("2020-01-01T00:00:00Z", "2020-01-01T19:00:00Z"));
+		assertNotNull(body);
+		JsonNode quotes = objectMapper.readTree(body).path("data").path("quotes");
+		assertEquals(20, quotes.size());
+		assertEquals(7000D, quotes.path(19).path("quote").path("USD").path("price").asDouble(), 0D);
+		assertEquals("2020-01-01T19:00:00Z", quotes.path(19).path("timestamp").asText());
+
+		List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.filter(path -> path.getFileName().toString().startsWith("points-")).forEach(files::add);
+		}
+		assertEquals(1, files.size());
+		assertTrue(files.get(0).getFileName().toString().endsWith(".dat"));
+	}
+
+	@Test
+	public void testCoarserIntervalsAreAnsweredFromRollups() throws Exception {
+		this.historyStore = openStore("5m:7d,1h:90d,1d");
+		long day = System.currentTimeMillis() / DAY * DAY - 2L * DAY;
+		Map<String, String> minutes = params(iso(day), iso(day + DAY - 1L));
+		minutes.put("interval", "5m");
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, minutes, quotesBody(day, 288, FIVE_MINUTES));
+		assertEquals(25L, historyStore.getRollupCount());
+
+		Map<String, String> hourly = params(iso(day), iso(day + 23L * HOUR));
+		hourly.put("interval", "hourly");
+		JsonNode quotes = objectMapper.readTree(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, hourly)).path("data").path("quotes");
+		assertEquals(24, quotes.size());
+		assertEquals(7012D, quotes.path(1).path("quote").path("USD").path("price").asDouble(), 0D);
+		assertEquals(Instant.ofEpochMilli(day + HOUR).toString(), quotes.path(1).path("timestamp").asText());
+
+		Map<String, String> daily = params(iso(day), iso(day + DAY - 1L));
+		daily.put("interval", "1d");
+		quotes = objectMapper.readTree(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, daily)).path("data").path("quotes");
+		assertEquals(1, quotes.size());
+		assertEquals(7000D, quotes.path(0).path("quote").path("USD").path("price").asDouble(), 0D);
+		historyStore.close();
+
+		// rollups are stored like any series
+		this.historyStore = openStore("5m:7d,1h:90d,1d");
+		assertNotNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, hourly));
+	}
+
+	@Test
+	public void testHourlyCandlesRollUpIntoDailyCandles() throws Exception {
+		this.historyStore = openStore("5m:7d,1h:90d,1d");
+		long day = System.currentTimeMillis() / DAY * DAY - 2L * DAY;
+		StringBuilder candles = new StringBuilder();
+		for (int hour = 0; hour < 24; hour++) {
+			long open = day + hour * HOUR;
+			candles.append(hour > 0 ? "," : "").append("{\"time_open\":\"").append(Instant.ofEpochMilli(open))
+					.append("\",\"time_close\":\"").append(Instant.ofEpochMilli(open + HOUR - 1L))
+					.append("\",\"time_high\":\"").append(Instant.ofEpochMilli(open + 60000L))
+					.append("\",\"time_low\":\"").append(Instant.ofEpochMilli(open + 120000L))
+					.append("\",\"quote\":{\"USD\":{\"open\":").append(100 + hour).append(".5,\"high\":").append(hour == 7 ? 150.5 : 110.5 + hour)
+					.append(",\"low\":").append(hour == 13 ? 50.5 : 90.5 + hour).append(",\"close\":").append(101 + hour)
+					.append(".5,\"volume\":1000.5,\"market_cap\":").append(2000 + hour).append(".5,\"timestamp\":\"")
+					.append(Instant.ofEpochMilli(open + HOUR - 1L)).append("\"}}}");
+		}
+		// time_start is exclusive: the candle opening at the day is returned after the hour before it
+		Map<String, String> hourly = params(iso(day - HOUR), iso(day + DAY - 1L));
+		hourly.put("time_period", "hourly");
+		historyStore.record(OHLCV_HISTORICAL_ENDPOINT, hourly, "{\"status\":{\"error_code\":0},\"data\":{\"id\":1,\"name\":\"Bitcoin\","
+				+ "\"symbol\":\"BTC\",\"quotes\":[" + candles + "]}}");
+
+		// upstream returns no candle from a start to the same end, so neither does the store
+		Map<String, String> daily = params(iso(day), iso(day));
+		daily.put("interval", "daily");
+		assertNull(historyStore.getResponse(OHLCV_HISTORICAL_ENDPOINT, daily));
+
+		daily.put("time_start", iso(day - 1L));
+		JsonNode candle = objectMapper.readTree(historyStore.getResponse(OHLCV_HISTORICAL_ENDPOINT, daily)).path("data").path("quotes").path(0);
+		JsonNode quote = candle.path("quote").path("USD");
+		assertEquals(Instant.ofEpochMilli(day).toString(), candle.path("time_open").asText());
+		assertEquals(Instant.ofEpochMilli(day + DAY - 1L).toString(), candle.path("time_close").asText());
+		assertEquals(Instant.ofEpochMilli(day + 7L * HOUR + 60000L).toString(), candle.path("time_high").asText());
+		assertEquals(Instant.ofEpochMilli(day + 13L * HOUR + 120000L).toString(), candle.path("time_low").asText());
+		assertEquals(100.5D, quote.path("open").asDouble(), 0D);
+		assertEquals(150.5D, quote.path("high").asDouble(), 0D);
+		assertEquals(50.5D, quote.path("low").asDouble(), 0D);
+		assertEquals(124.5D, quote.path("close").asDouble(), 0D);
+		assertEquals(24012D, quote.path("volume").asDouble(), 0D);
+		assertEquals(2023.5D, quote.path("market_cap").asDouble(), 0D);
+		assertEquals(1, objectMapper.readTree(historyStore.getResponse(OHLCV_HISTORICAL_ENDPOINT, daily)).path("data").path("quotes").size());
+	}
+
+	@Test
+	public void testExpiredTiersAreDropped() throws Exception {
+		this.historyStore = openStore("5m:7d,1h:90d,1d");
+		Map<String, String> minutes = params("2020-01-01T00:00:00Z", "2020-01-01T23:59:59.999Z");
+		minutes.put("interval", "5m");
+		historyStore.record(QUOTES_HISTORICAL_ENDPOINT, minutes, quotesBody(START, 288, FIVE_MINUTES));
+
+		// older points were rolled up before they were dropped
+		assertNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, minutes));
+		minutes.put("interval", "1h");
+		assertNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, minutes));
+		minutes.put("interval", "1d");
+		assertNotNull(historyStore.getResponse(QUOTES_HISTORICAL_ENDPOINT, minutes));
+
+		List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.filter(path -> path.getFileName().toString().startsWith("points-")).forEach(files::add);
+		}
+		assertEquals(1, files.size());
+		assertTrue(files.get(0).toString().contains("rollup-1d"));
+	}
+
+	private CryptocurrencyService createService(MockCoinMarketCap coinMarketCap) {
+		CryptocurrencyService cryptocurrencyService = coinMarketCap.wire(new CryptocurrencyService());
+		ReflectionTestUtils.setField(cryptocurrencyService, "historyStore", historyStore);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT", QUOTES_HISTORICAL_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_HISTORICAL_ENDPOINT_CACHE_TIME", -1L);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT", OHLCV_HISTORICAL_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_OHLCV_HISTORICAL_ENDPOINT_CACHE_TIME", -1L);
+		return cryptocurrencyService;
+	}
+
+	private HistoryStore openStore() {
+		return openStore(null);
+	}
+
+	private HistoryStore openStore(String tiers) {
+		HistoryStore store = new HistoryStore();
+		ReflectionTestUtils.setField(store, "HISTORY_PATH", directory.toString());
+		ReflectionTestUtils.setField(store, "HISTORY_SETTLE_TIME", 300L);
+		ReflectionTestUtils.setField(store, "HISTORY_TIERS", tiers);
+		store.init();
+		return store;
+	}
+
+	private static String iso(long millis) {
+		return Instant.ofEpochMilli(millis).toString();
+	}
+
+	private static Map<String, String> params(String timeStart, String timeEnd) {
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		params.put("id", "1");
+		params.put("interval", "1h");
+		params.put("time_end", timeEnd);
+		params.put("time_start", timeStart);
+		return params;
+	}
+
+	private static String quotesBody(long start, int hours) {
+		return quotesBody(start, hours, HOUR);
+	}
+
+	private static String quotesBody(long start, int count, long step) {
+		StringBuilder quotes = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0)
+				quotes.append(',');
+			String timestamp = Instant.ofEpochMilli(start + i * step).toString();
+			quotes.append("{\"timestamp\":\"").append(timestamp).append("\",\"quote\":{\"USD\":{\"price\":")
+					.append(7000 + i).append(",\"timestamp\":\"").append(timestamp).append("\"}}}");
+		}
+		return "{\"status\":{\"error_code\":0,\"credit_count\":1},\"data\":{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\","
+				+ "\"quotes\":[" + quotes + "]}}";
+	}
+
+	private static String ohlcvBody(long start, int hours) {
+		StringBuilder candles = new StringBuilder();
+		for (int i = 0; i < hours; i++) {
+			if (i > 0)
+				candles.append(',');
+			long open = start + i * HOUR;
+			candles.append("{\"time_open\":\"").append(Instant.ofEpochMilli(open)).append("\",\"time_close\":\"")
+					.append(Instant.ofEpochMilli(open + HOUR - 1L)).append("\",\"quote\":{\"USD\":{\"open\":").append(7000 + i)
+					.append(",\"close\":").append(7001 + i).append(",\"timestamp\":\"").append(Instant.ofEpochMilli(open + HOUR - 1L))
+					.append("\"}}}");
+		}
+		return "{\"status\":{\"error_code\":0,\"credit_count\":1},\"data\":{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\","
+				+ "\"quotes\":[" + candles + "]}}";
+	}
+}
@@ -0,0 +1,88 @@
+package com.rantcrypto.cmc.api.test.history;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.history.PointBlock;
+
+/**
+ * Benchmark of the size and decoding speed of point blocks against JSON. It is not run by the
+ * build, since its name does not match the test includes; run it with
+ * <code>mvn test -Dtest=PointBlockBenchmark</code>.
+ */
+public class PointBlockBenchmark {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PointBlockBenchmark.class);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void benchmarkBlocksAgainstJson() throws Exception {
+		// 100 days of 5 minute quotes, in blocks of one day
+		List<String> quotes = PointBlockFixtures.quotes(28800, new Random(7L));
+		List<byte[]> blocks = new ArrayList<byte[]>();
+		long jsonBytes = 0L;
+		long blockBytes = 0L;
+		for (int from = 0; from < quotes.size(); from += 288) {
+			List<String> day = quotes.subList(from, from + 288);
+			byte[] block = PointBlockFixtures.encode(day);
+			assertNotNull(block);
+			blocks.add(block);
+			blockBytes += block.length;
+			for (String quote : day)
+				jsonBytes += quote.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		// warm up until both decoders are compiled
+		for (int i = 0; i < 5; i++) {
+			decodeBlocks(blocks);
+			parseJson(quotes);
+		}
+
+		long start = System.nanoTime();
+		int decoded = decodeBlocks(blocks);
+		long blockNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		int parsed = parseJson(quotes);
+		long jsonNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (byte[] block : blocks)
+			PointBlock.decodeTimes(block);
+		long timeNanos = System.nanoTime() - start;
+
+		LOGGER.info("{} 5 minute quotes took {} KiB as JSON and {} KiB in blocks ({}x); blocks decoded to JSON at {} points/s, "
+				+ "their times at {} points/s, and JSON parsed at {} points/s", quotes.size(), jsonBytes / 1024L, blockBytes / 1024L,
+				String.format("%.1f", (double) jsonBytes / blockBytes), rate(decoded, blockNanos), rate(quotes.size(), timeNanos),
+				rate(parsed, jsonNanos));
+	}
+
+	private static long rate(int points, long nanos) {
+		return points * TimeUnit.SECONDS.toNanos(1L) / Math.max(1L, nanos);
+	}
+
+	private static int decodeBlocks(List<byte[]> blocks) {
+		int points = 0;
+		for (byte[] block : blocks)
+			points += PointBlock.decode(block).size();
+		return points;
+	}
+
+	private int parseJson(List<String> quotes) throws Exception {
+		int points = 0;
+		for (String quote : quotes) {
+			if (objectMapper.readTree(quote).isObject())
+				points++;
+		}
+		return points;
+	}
+}
@@ -0,0 +1,72 @@
+package com.rantcrypto.cmc.api.test.history;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.history.PointBlock;
+
+/**
+ * Points as CoinMarketCap returns them, and their encoding into point blocks, shared by the point
+ * block tests and benchmark.
+ */
+final class PointBlockFixtures {
+
+	static final long FIVE_MINUTES = 5L * 60L * 1000L;
+	static final long START = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+	static final DateTimeFormatter CMC_TIME = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'")
+			.withZone(ZoneOffset.UTC);
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private PointBlockFixtures() {
+	}
+
+	/**
+	 * 5 minute quotes as CoinMarketCap returns them: times a few seconds after each interval, and
+	 * prices, volumes and market caps that follow a random walk.
+	 */
+	static List<String> quotes(int count, Random random) {
+		List<String> quotes = new ArrayList<String>();
+		double price = 7200D;
+		double volume = 18000000000D;
+		for (int i = 0; i < count; i++) {
+			price *= 1D + random.nextGaussian() * 0.002D;
+			volume *= 1D + random.nextGaussian() * 0.001D;
+			String timestamp = CMC_TIME.format(Instant.ofEpochMilli(START + i * FIVE_MINUTES + (60 + random.nextInt(30)) * 1000L));
+			quotes.add("{\"timestamp\":\"" + timestamp + "\",\"quote\":{\"USD\":{\"price\":" + Math.round(price * 1e8) / 1e8
+					+ ",\"volume_24h\":" + Math.round(volume * 1e4) / 1e4 + ",\"market_cap\":" + Math.round(price * 18100000D * 1e4) / 1e4
+					+ ",\"timestamp\":\"" + timestamp + "\"}}}");
+		}
+		return quotes;
+	}
+
+	/**
+	 * @return Block of the points, or null if they cannot be encoded
+	 */
+	static byte[] encode(List<String> points) throws IOException {
+		List<JsonNode> nodes = new ArrayList<JsonNode>();
+		for (String point : points)
+			nodes.add(OBJECT_MAPPER.readTree(point));
+		return PointBlock.encode(times(points), nodes);
+	}
+
+	/**
+	 * @return Times of the points, from their timestamp or time_open
+	 */
+	static long[] times(List<String> points) throws IOException {
+		long[] times = new long[points.size()];
+		for (int i = 0; i < times.length; i++) {
+			JsonNode point = OBJECT_MAPPER.readTree(points.get(i));
+			String time = point.has("timestamp") ? point.path("timestamp").asText() : point.path("time_open").asText();
+			times[i] = Instant.parse(time).toEpochMilli();
+		}
+		return times;
+	}
+}
@@ -0,0 +1,85 @@
+package com.rantcrypto.cmc.api.test.history;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.history.PointBlock;
+
+public class PointBlockTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testPointsDecodeToTheSameJson() throws Exception {
+		List<String> quotes = PointBlockFixtures.quotes(288, new Random(1L));
+		assertRoundTrip(quotes);
+
+		List<String> ohlcv = new ArrayList<String>();
+		for (int day = 0; day < 30; day++) {
+			long open = PointBlockFixtures.START + TimeUnit.DAYS.toMillis(day);
+			ohlcv.add("{\"time_open\":\"" + PointBlockFixtures.CMC_TIME.format(Instant.ofEpochMilli(open)) + "\",\"time_close\":\""
+					+ PointBlockFixtures.CMC_TIME.format(Instant.ofEpochMilli(open + TimeUnit.DAYS.toMillis(1L) - 1L)) + "\",\"quote\":{\"USD\":{"
+					+ "\"open\":" + (7200.5 + day) + ",\"high\":" + (7300 + day) + ",\"low\":" + (7100.25 - day)
+					+ ",\"close\":" + (7250.125 + day * 3) + ",\"volume\":" + (day == 3 ? "null" : Long.toString(18000000000L + day * 7L))
+					+ ",\"market_cap\":" + (130000000000.5 + day) + ",\"timestamp\":\""
+					+ Instant.ofEpochMilli(open + TimeUnit.DAYS.toMillis(1L) - 54000L) + "\"}}}");
+		}
+		assertRoundTrip(ohlcv);
+
+		// strings, booleans, arrays, empty objects and floating numbers that are whole
+		assertRoundTrip(Arrays.asList(
+				"{\"timestamp\":\"2020-01-01T00:00:00Z\",\"symbol\":\"BTC\",\"is_active\":true,\"tags\":[\"mineable\"],\"extra\":{},\"price\":1.0}",
+				"{\"timestamp\":\"2020-01-01T00:05:00Z\",\"symbol\":\"BTC\",\"is_active\":false,\"tags\":[],\"extra\":{},\"price\":2}",
+				"{\"timestamp\":\"2020-01-01T00:10:00Z\",\"symbol\":\"XBT\",\"is_active\":null,\"tags\":null,\"extra\":{},\"price\":null}"));
+	}
+
+	@Test
+	public void testPointsOfDifferentStructuresAreNotEncoded() throws Exception {
+		List<JsonNode> points = Arrays.asList(objectMapper.readTree("{\"timestamp\":\"2020-01-01T00:00:00Z\",\"price\":1.5}"),
+				objectMapper.readTree("{\"timestamp\":\"2020-01-01T00:05:00Z\",\"market_cap\":1.5}"));
+		assertNull(PointBlock.encode(new long[] { PointBlockFixtures.START, PointBlockFixtures.START + PointBlockFixtures.FIVE_MINUTES }, points));
+	}
+
+	@Test
+	public void testBlocksAreSmallerThanJson() throws Exception {
+		// 100 days of 5 minute quotes, in blocks of one day
+		List<String> quotes = PointBlockFixtures.quotes(28800, new Random(7L));
+		long jsonBytes = 0L;
+		long blockBytes = 0L;
+		for (int from = 0; from < quotes.size(); from += 288) {
+			List<String> day = quotes.subList(from, from + 288);
+			byte[] block = PointBlockFixtures.encode(day);
+			assertNotNull(block);
+			blockBytes += block.length;
+			for (String quote : day)
+				jsonBytes += quote.getBytes(StandardCharsets.UTF_8).length;
+		}
+		assertTrue(blockBytes * 4L < jsonBytes, "blocks took " + blockBytes + " bytes, JSON " + jsonBytes);
+	}
+
+	private void assertRoundTrip(List<String> points) throws Exception {
+		byte[] block = PointBlockFixtures.encode(points);
+		assertNotNull(block);
+
+		List<String> expected = new ArrayList<String>();
+		for (String point : points)
+			expected.add(objectMapper.writeValueAsString(objectMapper.readTree(point)));
+		assertEquals(expected, PointBlock.decode(block));
+		assertArrayEquals(PointBlockFixtures.times(points), PointBlock.decodeTimes(block));
+	}
+}
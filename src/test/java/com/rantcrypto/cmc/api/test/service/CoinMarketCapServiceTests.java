@@ -0,0 +1,392 @@
+package com.rantcrypto.cmc.api.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.cache.BackgroundRefresher;
+import com.rantcrypto.cmc.api.cache.CacheKey;
+import com.rantcrypto.cmc.api.cache.CachedBody;
+import com.rantcrypto.cmc.api.cache.CachedBodyHttpMessageConverter;
+import com.rantcrypto.cmc.api.cache.CachedResponse;
+import com.rantcrypto.cmc.api.cache.CreditPlanner;
+import com.rantcrypto.cmc.api.cache.RequestBatcher;
+import com.rantcrypto.cmc.api.cache.ResponseCache;
+import com.rantcrypto.cmc.api.controller.CryptocurrencyController;
+import com.rantcrypto.cmc.api.service.CryptocurrencyService;
+import com.rantcrypto.cmc.api.test.MockCoinMarketCap;
+
+/**
+ * Exercises the shared request path of every service against a mocked CoinMarketCap API, so
+ * these tests do not use any API credits.
+ */
+public class CoinMarketCapServiceTests {
+
+	private static final String BASE_URL = MockCoinMarketCap.BASE_URL;
+	private static final String QUOTES_LATEST_ENDPOINT = "/v1/cryptocurrency/quotes/latest";
+	private static final String QUOTES_LATEST_BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1\":{\"id\":1}}}";
+	private static final String INFO_ENDPOINT = "/v1/cryptocurrency/info";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockRestServiceServer mockServer;
+	private ResponseCache responseCache;
+	private BackgroundRefresher backgroundRefresher;
+	private CryptocurrencyService cryptocurrencyService;
+
+	@BeforeEach
+	public void setup() {
+		MockCoinMarketCap coinMarketCap = new MockCoinMarketCap();
+		this.mockServer = coinMarketCap.getServer();
+
+		this.responseCache = new ResponseCache();
+		ReflectionTestUtils.setField(responseCache, "CACHE_MAX_BYTES", 1024L * 1024L);
+		responseCache.init();
+
+		this.backgroundRefresher = new BackgroundRefresher();
+		ReflectionTestUtils.setField(backgroundRefresher, "CACHE_REFRESH_THREADS", 1);
+		ReflectionTestUtils.setField(backgroundRefresher, "CACHE_REFRESH_QUEUE_SIZE", 10);
+		backgroundRefresher.init();
+
+		this.cryptocurrencyService = coinMarketCap.wire(new CryptocurrencyService());
+		ReflectionTestUtils.setField(cryptocurrencyService, "responseCache", responseCache);
+		ReflectionTestUtils.setField(cryptocurrencyService, "backgroundRefresher", backgroundRefresher);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT", QUOTES_LATEST_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME", 60L);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_INFO_ENDPOINT", INFO_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_INFO_ENDPOINT_CACHE_TIME", 60L);
+	}
+
+	@AfterEach
+	public void teardown() {
+		backgroundRefresher.shutdown();
+	}
+
+	@Test
+	public void testRepeatedRequestIsServedFromCache() {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+
+		ResponseEntity<Object> first = cryptocurrencyService.getQuotesLatest("1", null, null, "USD", null, null, null);
+		ResponseEntity<Object> second = cryptocurrencyService.getQuotesLatest("1", null, null, "USD", null, null, null);
+
+		mockServer.verify();
+		assertEquals(HttpStatus.OK, second.getStatusCode());
+		assertEquals(first.getBody().toString(), second.getBody().toString());
+		assertEquals(1L, responseCache.getStats().hitCount());
+		assertEquals(1L, responseCache.getStats().missCount());
+	}
+
+	@Test
+	public void testEquivalentRequestsShareOneCacheEntry() {
+		mockServer.expect(once(), requestTo(BASE_URL + QUOTES_LATEST_ENDPOINT + "?id=1,1027&skip_invalid=true"))
+				.andRespond(withSuccess(infoBody(1, 1027), MediaType.APPLICATION_JSON));
+
+		cryptocurrencyService.getQuotesLatest("1027,1", null, null, "USD", null, null, true);
+		ResponseEntity<Object> reordered = cryptocurrencyService.getQuotesLatest("1,1027", null, null, null, null, null, true);
+
+		mockServer.verify();
+		assertEquals(HttpStatus.OK, reordered.getStatusCode());
+		// one hit per cached entity
+		assertEquals(2L, responseCache.getStats().hitCount());
+	}
+
+	@Test
+	public void testOverlappingRequestsOnlyFetchMissingEntities() throws Exception {
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=1,2,3"))
+				.andRespond(withSuccess(infoBody(1, 2, 3), MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=4"))
+				.andRespond(withSuccess(infoBody(4), MediaType.APPLICATION_JSON));
+
+		cryptocurrencyService.getInfo("1,2,3", null, null, null);
+		ResponseEntity<Object> overlapping = cryptocurrencyService.getInfo("2,3,4", null, null, null);
+		ResponseEntity<Object> cached = cryptocurrencyService.getInfo("4,1", null, null, null);
+
+		mockServer.verify();
+		JsonNode overlappingData = objectMapper.readTree(overlapping.getBody().toString()).path("data");
+		JsonNode cachedResponse = objectMapper.readTree(cached.getBody().toString());
+		assertEquals(3, overlappingData.size());
+		assertEquals("Asset 4", overlappingData.path("4").path("name").asText());
+		assertEquals("Asset 2", overlappingData.path("2").path("name").asText());
+		assertEquals(2, cachedResponse.path("data").size());
+		assertEquals(0L, cachedResponse.path("status").path("credit_count").asLong());
+	}
+
+	@Test
+	public void testConcurrentQuotesAreBatchedIntoOneCall() throws Exception {
+		RequestBatcher requestBatcher = new RequestBatcher();
+		ReflectionTestUtils.setField(requestBatcher, "BATCH_MAX_IDS", 3);
+		ReflectionTestUtils.setField(cryptocurrencyService, "requestBatcher", requestBatcher);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME", -1L);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_BATCH_WINDOW", 5000L);
+		mockServer.expect(once(), requestTo(BASE_URL + QUOTES_LATEST_ENDPOINT + "?id=1,1027,52"))
+				.andRespond(withSuccess(infoBody(1, 1027, 52), MediaType.APPLICATION_JSON));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<ResponseEntity<Object>> first = executor.submit(() -> cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null));
+			Thread.sleep(100L);
+			Future<ResponseEntity<Object>> second = executor.submit(() -> cryptocurrencyService.getQuotesLatest("1027,52", null, null, null, null, null, null));
+
+			// the batch is full with three ids, so it is sent before the window ends
+			JsonNode firstData = objectMapper.readTree(first.get(10L, TimeUnit.SECONDS).getBody().toString()).path("data");
+			JsonNode secondData = objectMapper.readTree(second.get(10L, TimeUnit.SECONDS).getBody().toString()).path("data");
+			assertEquals(1, firstData.size());
+			assertEquals("Asset 1", firstData.path("1").path("name").asText());
+			assertEquals(2, secondData.size());
+			assertEquals("Asset 52", secondData.path("52").path("name").asText());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		mockServer.verify();
+		assertEquals(1L, requestBatcher.getBatchedCount());
+	}
+
+	@Test
+	public void testLastCreditIsPaddedWithRecentIds() throws Exception {
+		CreditPlanner creditPlanner = new CreditPlanner();
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_ENABLED", true);
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_DRY_RUN", false);
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_RECENT_IDS", 1000);
+		ReflectionTestUtils.setField(cryptocurrencyService, "creditPlanner", creditPlanner);
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=1,2"))
+				.andRespond(withSuccess(infoBody(1, 2), MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=3,4,2,1"))
+				.andRespond(withSuccess(infoBody(3, 4, 2, 1), MediaType.APPLICATION_JSON));
+
+		cryptocurrencyService.getInfo("1,2", null, null, null);
+		ResponseEntity<Object> padded = cryptocurrencyService.getInfo("3,4", null, null, null);
+
+		// the padding refreshed ids 1 and 2 without extra credits, but is not returned
+		mockServer.verify();
+		assertEquals(2, objectMapper.readTree(padded.getBody().toString()).path("data").size());
+		assertEquals(2L, creditPlanner.getCreditCount());
+		assertEquals(2L, creditPlanner.getPaddedCount());
+	}
+
+	@Test
+	public void testInvalidIdsAreNotPaddedWith() throws Exception {
+		CreditPlanner creditPlanner = new CreditPlanner();
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_ENABLED", true);
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_DRY_RUN", false);
+		ReflectionTestUtils.setField(creditPlanner, "PACKING_RECENT_IDS", 1000);
+		ReflectionTestUtils.setField(cryptocurrencyService, "creditPlanner", creditPlanner);
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=98,99"))
+				.andRespond(withStatus(HttpStatus.BAD_REQUEST)
+						.contentType(MediaType.APPLICATION_JSON)
+						.body("{\"status\":{\"error_code\":400,\"error_message\":\"Invalid values for \\\"id\\\": \\\"98,99\\\"\"}}"));
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=1,2"))
+				.andRespond(withSuccess(infoBody(1, 2), MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=3,4,2,1"))
+				.andRespond(withStatus(HttpStatus.BAD_REQUEST)
+						.contentType(MediaType.APPLICATION_JSON)
+						.body("{\"status\":{\"error_code\":400}}"));
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=3,4"))
+				.andRespond(withSuccess(infoBody(3, 4), MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(BASE_URL + INFO_ENDPOINT + "?id=5,6,4,3"))
+				.andRespond(withSuccess(infoBody(5, 6, 4, 3), MediaType.APPLICATION_JSON));
+
+		// ids of a failed request are never padding candidates
+		assertEquals(HttpStatus.BAD_REQUEST, cryptocurrencyService.getInfo("98,99", null, null, null).getStatusCode());
+		cryptocurrencyService.getInfo("1,2", null, null, null);
+
+		// padding that fails a request is sent again without it, and is not padded with again
+		assertEquals(HttpStatus.OK, cryptocurrencyService.getInfo("3,4", null, null, null).getStatusCode());
+		assertEquals(HttpStatus.OK, cryptocurrencyService.getInfo("5,6", null, null, null).getStatusCode());
+
+		mockServer.verify();
+	}
+
+	@Test
+	public void testOverlappingWatchlistsHitRatio() {
+		// 20 watchlists of 10 assets each, drawn from 30 popular assets
+		Random random = new Random(7L);
+		List<String> watchlists = new ArrayList<String>();
+		for (int i = 0; i < 20; i++) {
+			TreeSet<Integer> ids = new TreeSet<Integer>();
+			while (ids.size() < 10)
+				ids.add(1 + random.nextInt(30));
+			StringBuilder watchlist = new StringBuilder();
+			for (Integer id : ids)
+				watchlist.append(watchlist.length() == 0 ? "" : ",").append(id);
+			watchlists.add(watchlist.toString());
+		}
+		mockServer.expect(manyTimes(), requestTo(startsWith(BASE_URL + INFO_ENDPOINT)))
+				.andRespond(request -> {
+					String query = request.getURI().getQuery();
+					String[] ids = query.substring(query.indexOf("id=") + 3).split("&")[0].split(",");
+					int[] values = new int[ids.length];
+					for (int i = 0; i < ids.length; i++)
+						values[i] = Integer.parseInt(ids[i]);
+					return withSuccess(infoBody(values), MediaType.APPLICATION_JSON).createResponse(request);
+				});
+
+		for (String watchlist : watchlists)
+			cryptocurrencyService.getInfo(watchlist, null, null, null);
+
+		// every watchlist is distinct, so whole responses would never be served from cache; per
+		// asset, only the first of the 200 lookups of each of the 30 assets misses
+		assertEquals(0.85D, responseCache.getStats().hitRate(), 1e-9);
+	}
+
+	@Test
+	public void testOffHeapResponseIsServedAsCachedBody() {
+		ReflectionTestUtils.setField(responseCache, "CACHE_OFF_HEAP", true);
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+
+		cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+		ResponseEntity<Object> cached = cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+
+		mockServer.verify();
+		assertTrue(cached.getBody() instanceof CachedBody);
+		assertEquals(QUOTES_LATEST_BODY, cached.getBody().toString());
+	}
+
+	@Test
+	public void testUnchangedResponseIsAnsweredWithNotModified() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+
+		CryptocurrencyController cryptocurrencyController = new CryptocurrencyController();
+		ReflectionTestUtils.setField(cryptocurrencyController, "cryptocurrencyService", cryptocurrencyService);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(cryptocurrencyController)
+				.setMessageConverters(new CachedBodyHttpMessageConverter(), new StringHttpMessageConverter())
+				.build();
+
+		MvcResult first = mockMvc.perform(get("/v1/cryptocurrency/quotes/latest").param("id", "1"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG))
+				.andReturn();
+		String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+		// the cached response is not sent again while it has not changed
+		mockMvc.perform(get("/v1/cryptocurrency/quotes/latest").param("id", "1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag))
+				.andExpect(content().string(""));
+
+		mockMvc.perform(get("/v1/cryptocurrency/quotes/latest").param("id", "1").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+				.andExpect(status().isOk())
+				.andExpect(content().string(QUOTES_LATEST_BODY));
+		mockServer.verify();
+	}
+
+	@Test
+	public void testCachingDisabledByDefault() {
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME", -1L);
+		mockServer.expect(times(2), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+
+		cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+		cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+
+		mockServer.verify();
+		assertEquals(0L, responseCache.getSize());
+	}
+
+	@Test
+	public void testErrorResponseIsNotCached() {
+		mockServer.expect(times(2), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS)
+						.contentType(MediaType.APPLICATION_JSON)
+						.body("{\"status\":{\"error_code\":1008}}"));
+
+		ResponseEntity<Object> first = cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+		cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+
+		mockServer.verify();
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, first.getStatusCode());
+	}
+
+	@Test
+	public void testStaleResponseIsServedWhileRefreshing() throws Exception {
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_STALE_TIME", 60L);
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+
+		// an expired response that may still be served stale
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("id", "1");
+		CacheKey cacheKey = CacheKey.of(QUOTES_LATEST_ENDPOINT, paramMap);
+		long now = System.currentTimeMillis();
+		responseCache.put(cacheKey, new CachedResponse("stale", now - 2000L, now - 1000L, now + 59000L));
+
+		ResponseEntity<Object> first = cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+		ResponseEntity<Object> second = cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+		assertEquals("stale", first.getBody().toString());
+
+		// the background refresh replaces the stale response exactly once
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (!QUOTES_LATEST_BODY.equals(responseCache.get(cacheKey).getBody()) && System.currentTimeMillis() < deadline)
+			Thread.sleep(5L);
+
+		mockServer.verify();
+		assertEquals(QUOTES_LATEST_BODY, responseCache.get(cacheKey).getBody());
+		assertEquals(HttpStatus.OK, second.getStatusCode());
+		assertEquals(1L, backgroundRefresher.getRefreshCount());
+	}
+
+	@Test
+	public void testExpiredResponseIsFetchedWithoutStaleTime() {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+
+		HashMap<String, String> paramMap = new HashMap<String, String>();
+		paramMap.put("id", "1");
+		long now = System.currentTimeMillis();
+		responseCache.put(CacheKey.of(QUOTES_LATEST_ENDPOINT, paramMap), new CachedResponse("expired", now - 2000L, now - 1000L));
+
+		ResponseEntity<Object> response = cryptocurrencyService.getQuotesLatest("1", null, null, null, null, null, null);
+
+		mockServer.verify();
+		assertEquals(QUOTES_LATEST_BODY, response.getBody());
+		assertEquals(0L, backgroundRefresher.getRefreshCount());
+	}
+
+	private static String infoBody(int... ids) {
+		StringBuilder body = new StringBuilder("{\"status\":{\"error_code\":0,\"credit_count\":1},\"data\":{");
+		for (int i = 0; i < ids.length; i++) {
+			body.append(i == 0 ? "" : ",").append('"').append(ids[i]).append("\":{\"id\":").append(ids[i])
+					.append(",\"name\":\"Asset ").append(ids[i]).append("\"}");
+		}
+		return body.append("}}").toString();
+	}
+}
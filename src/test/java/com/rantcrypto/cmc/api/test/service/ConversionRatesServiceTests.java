@@ -0,0 +1,172 @@
+package com.rantcrypto.cmc.api.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.service.ConversionRatesService;
+import com.rantcrypto.cmc.api.service.CryptocurrencyService;
+import com.rantcrypto.cmc.api.service.ListingsSnapshotService;
+import com.rantcrypto.cmc.api.service.ToolsService;
+import com.rantcrypto.cmc.api.test.MockCoinMarketCap;
+
+/**
+ * Converts quotes requested in the base currency and latest-rate price conversions with rates from
+ * a mocked /cryptocurrency/quotes/latest response.
+ */
+public class ConversionRatesServiceTests {
+
+	private static final String BASE_URL = MockCoinMarketCap.BASE_URL;
+	private static final String QUOTES_LATEST_ENDPOINT = "/v1/cryptocurrency/quotes/latest";
+	private static final String LISTINGS_LATEST_ENDPOINT = "/v1/cryptocurrency/listings/latest";
+	private static final String PRICE_CONVERSION_ENDPOINT = "/v1/tools/price-conversion";
+	private static final String RATES_BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1\":{\"id\":1,\"symbol\":\"BTC\",\"quote\":{"
+			+ "\"USD\":{\"price\":10000,\"percent_change_24h\":0},"
+			+ "\"EUR\":{\"price\":8000,\"percent_change_24h\":0},"
+			+ "\"BTC\":{\"price\":1,\"percent_change_24h\":0}}}}}";
+	private static final String QUOTES_BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1027\":{\"id\":1027,\"symbol\":\"ETH\",\"quote\":{"
+			+ "\"USD\":{\"price\":200,\"percent_change_24h\":5}}}}}";
+	private static final String LISTINGS_LATEST_BODY = "{\"status\":{\"error_code\":0},\"data\":["
+			+ "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"cmc_rank\":1,\"quote\":{\"USD\":{\"price\":10000}}},"
+			+ "{\"id\":1027,\"name\":\"Ethereum\",\"symbol\":\"ETH\",\"cmc_rank\":2,\"quote\":{\"USD\":{\"price\":200}}}"
+			+ "]}";
+	private static final String OK_BODY = "{\"status\":{\"error_code\":0},\"data\":{}}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockCoinMarketCap coinMarketCap;
+	private MockRestServiceServer mockServer;
+	private ConversionRatesService conversionRatesService;
+	private CryptocurrencyService cryptocurrencyService;
+
+	@BeforeEach
+	public void setup() {
+		this.coinMarketCap = new MockCoinMarketCap();
+		this.mockServer = coinMarketCap.getServer();
+
+		this.conversionRatesService = coinMarketCap.wire(new ConversionRatesService());
+		ReflectionTestUtils.setField(conversionRatesService, "CONVERSION_ENABLED", true);
+		ReflectionTestUtils.setField(conversionRatesService, "CONVERSION_MAX_AGE", 300L);
+		ReflectionTestUtils.setField(conversionRatesService, "CONVERSION_BASE", "USD");
+		ReflectionTestUtils.setField(conversionRatesService, "CONVERSION_CURRENCIES", "EUR,BTC");
+		ReflectionTestUtils.setField(conversionRatesService, "CONVERSION_REFERENCE_ID", "1");
+		ReflectionTestUtils.setField(conversionRatesService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT", QUOTES_LATEST_ENDPOINT);
+
+		this.cryptocurrencyService = coinMarketCap.wire(new CryptocurrencyService());
+		ReflectionTestUtils.setField(cryptocurrencyService, "conversionRatesService", conversionRatesService);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT", QUOTES_LATEST_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME", -1L);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_BATCH_WINDOW", -1L);
+	}
+
+	@Test
+	public void testExtraConvertOptionsAreComputedLocally() throws Exception {
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert=BTC,EUR,USD&id=1"))))
+				.andRespond(withSuccess(RATES_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("id=1027"), not(containsString("convert=")))))
+				.andRespond(withSuccess(QUOTES_BODY, MediaType.APPLICATION_JSON));
+		assertTrue(conversionRatesService.refresh());
+
+		JsonNode response = getResponse(cryptocurrencyService.getQuotesLatest("1027", null, null, "usd,EUR,BTC", null, null, null));
+
+		mockServer.verify();
+		JsonNode quote = response.path("data").path("1027").path("quote");
+		assertEquals(3, quote.size());
+		assertEquals(200D, quote.path("USD").path("price").asDouble(), 1e-9);
+		assertEquals(160D, quote.path("EUR").path("price").asDouble(), 1e-9);
+		assertEquals(0.02D, quote.path("BTC").path("price").asDouble(), 1e-9);
+		assertEquals(1L, conversionRatesService.getHitCount());
+	}
+
+	@Test
+	public void testSingleConvertOptionIsSentAsItIs() throws Exception {
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert=BTC,EUR,USD&id=1"))))
+				.andRespond(withSuccess(RATES_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert=EUR&id=1027"))))
+				.andRespond(withSuccess(QUOTES_BODY, MediaType.APPLICATION_JSON));
+		assertTrue(conversionRatesService.refresh());
+
+		// the first convert option is free, so CoinMarketCap's own quote is kept
+		cryptocurrencyService.getQuotesLatest("1027", null, null, "EUR", null, null, null);
+
+		mockServer.verify();
+		assertEquals(0L, conversionRatesService.getHitCount());
+		assertEquals(0L, conversionRatesService.getFallbackCount());
+	}
+
+	@Test
+	public void testUnsupportedCurrenciesAreSentUpstream() throws Exception {
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert=BTC,EUR,USD&id=1"))))
+				.andRespond(withSuccess(RATES_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert=EUR,GBP"))))
+				.andRespond(withSuccess(QUOTES_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert_id=2781"))))
+				.andRespond(withSuccess(QUOTES_BODY, MediaType.APPLICATION_JSON));
+		assertTrue(conversionRatesService.refresh());
+
+		cryptocurrencyService.getQuotesLatest("1027", null, null, "EUR,GBP", null, null, null);
+		cryptocurrencyService.getQuotesLatest("1027", null, null, null, "2781", null, null);
+
+		mockServer.verify();
+		assertEquals(0L, conversionRatesService.getHitCount());
+		assertEquals(1L, conversionRatesService.getFallbackCount());
+	}
+
+	@Test
+	public void testLatestPriceConversionsAreComputedLocally() throws Exception {
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT), containsString("convert=BTC,EUR,USD&id=1"))))
+				.andRespond(withSuccess(RATES_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + PRICE_CONVERSION_ENDPOINT), containsString("time=2020-01-01"))))
+				.andRespond(withSuccess(OK_BODY, MediaType.APPLICATION_JSON));
+
+		ListingsSnapshotService listingsSnapshotService = coinMarketCap.wire(new ListingsSnapshotService());
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_ENABLED", true);
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_MAX_AGE", 180L);
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_LIMIT", 5000L);
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_CONVERT", "USD");
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_RETAINED_VERSIONS", 2);
+		ReflectionTestUtils.setField(listingsSnapshotService, "CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT", LISTINGS_LATEST_ENDPOINT);
+		ReflectionTestUtils.setField(conversionRatesService, "listingsSnapshotService", listingsSnapshotService);
+
+		ToolsService toolsService = coinMarketCap.wire(new ToolsService());
+		ReflectionTestUtils.setField(toolsService, "conversionRatesService", conversionRatesService);
+		ReflectionTestUtils.setField(toolsService, "TOOLS_PRICE_CONVERSION_ENDPOINT", PRICE_CONVERSION_ENDPOINT);
+		ReflectionTestUtils.setField(toolsService, "TOOLS_PRICE_CONVERSION_ENDPOINT_CACHE_TIME", -1L);
+		assertTrue(conversionRatesService.refresh());
+		assertTrue(listingsSnapshotService.refresh());
+
+		JsonNode bySymbol = getResponse(toolsService.getPriceConversion(3D, null, "ETH", null, "EUR,BTC", null));
+		JsonNode byId = getResponse(toolsService.getPriceConversion(1D, "1", null, "", null, null));
+		// conversions at a historical time are sent upstream
+		toolsService.getPriceConversion(1D, "1", null, "2020-01-01", "EUR", null);
+
+		mockServer.verify();
+		assertEquals(480D, bySymbol.path("data").path("quote").path("EUR").path("price").asDouble(), 1e-9);
+		assertEquals(0.06D, bySymbol.path("data").path("quote").path("BTC").path("price").asDouble(), 1e-9);
+		assertEquals(10000D, byId.path("data").path("quote").path("USD").path("price").asDouble(), 1e-9);
+		assertEquals(2L, conversionRatesService.getHitCount());
+	}
+
+	private JsonNode getResponse(ResponseEntity<Object> response) throws Exception {
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		return objectMapper.readTree(response.getBody().toString());
+	}
+}
@@ -0,0 +1,110 @@
+package com.rantcrypto.cmc.api.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.service.CryptocurrencyResolverService;
+import com.rantcrypto.cmc.api.service.CryptocurrencyService;
+import com.rantcrypto.cmc.api.test.MockCoinMarketCap;
+
+/**
+ * Answers /cryptocurrency/map and resolves identifiers from a mocked /cryptocurrency/map response.
+ */
+public class CryptocurrencyResolverServiceTests {
+
+	private static final String BASE_URL = MockCoinMarketCap.BASE_URL;
+	private static final String MAP_ENDPOINT = "/v1/cryptocurrency/map";
+	private static final String INFO_ENDPOINT = "/v1/cryptocurrency/info";
+	private static final String MARKET_PAIRS_LATEST_ENDPOINT = "/v1/cryptocurrency/market-pairs/latest";
+	private static final String MAP_BODY = "{\"status\":{\"error_code\":0},\"data\":["
+			+ "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"slug\":\"bitcoin\",\"rank\":1},"
+			+ "{\"id\":1027,\"name\":\"Ethereum\",\"symbol\":\"ETH\",\"slug\":\"ethereum\",\"rank\":2},"
+			+ "{\"id\":2682,\"name\":\"Holo\",\"symbol\":\"HOT\",\"slug\":\"holo\",\"rank\":60},"
+			+ "{\"id\":2467,\"name\":\"Hydro Protocol\",\"symbol\":\"HOT\",\"slug\":\"hydro-protocol\",\"rank\":900}"
+			+ "]}";
+	private static final String OK_BODY = "{\"status\":{\"error_code\":0},\"data\":{}}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockRestServiceServer mockServer;
+	private CryptocurrencyResolverService cryptocurrencyResolverService;
+	private CryptocurrencyService cryptocurrencyService;
+
+	@BeforeEach
+	public void setup() {
+		MockCoinMarketCap coinMarketCap = new MockCoinMarketCap();
+		this.mockServer = coinMarketCap.getServer();
+
+		this.cryptocurrencyResolverService = coinMarketCap.wire(new CryptocurrencyResolverService());
+		ReflectionTestUtils.setField(cryptocurrencyResolverService, "RESOLVER_ENABLED", true);
+		ReflectionTestUtils.setField(cryptocurrencyResolverService, "RESOLVER_MAX_AGE", 86400L);
+		ReflectionTestUtils.setField(cryptocurrencyResolverService, "RESOLVER_LISTING_STATUS", "active");
+		ReflectionTestUtils.setField(cryptocurrencyResolverService, "CRYPTOCURRENCY_MAP_ENDPOINT", MAP_ENDPOINT);
+
+		this.cryptocurrencyService = coinMarketCap.wire(new CryptocurrencyService());
+		ReflectionTestUtils.setField(cryptocurrencyService, "cryptocurrencyResolverService", cryptocurrencyResolverService);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_INFO_ENDPOINT", INFO_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_INFO_ENDPOINT_CACHE_TIME", -1L);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT", MARKET_PAIRS_LATEST_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_MARKET_PAIRS_LATEST_ENDPOINT_CACHE_TIME", -1L);
+	}
+
+	@Test
+	public void testMapIsServedFromOneMapCall() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + MAP_ENDPOINT)))
+				.andRespond(withSuccess(MAP_BODY, MediaType.APPLICATION_JSON));
+		assertTrue(cryptocurrencyResolverService.refresh());
+
+		JsonNode firstPage = getResponse(cryptocurrencyService.getMap(null, 1L, 2L, null, null, null));
+		JsonNode bySymbol = getResponse(cryptocurrencyService.getMap("active", null, null, "cmc_rank", "HOT", null));
+
+		mockServer.verify();
+		assertEquals(2, firstPage.path("data").size());
+		assertEquals(1027L, firstPage.path("data").path(1).path("id").asLong());
+		assertEquals(2682L, bySymbol.path("data").path(0).path("id").asLong());
+		assertEquals(2467L, bySymbol.path("data").path(1).path("id").asLong());
+		assertEquals(2L, cryptocurrencyResolverService.getHitCount());
+	}
+
+	@Test
+	public void testSlugsAndSymbolsAreSentUpstreamAsIds() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + MAP_ENDPOINT)))
+				.andRespond(withSuccess(MAP_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + INFO_ENDPOINT), containsString("id=1,1027"), not(containsString("slug=")))))
+				.andRespond(withSuccess(OK_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + INFO_ENDPOINT), containsString("symbol=HOT"))))
+				.andRespond(withSuccess(OK_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(allOf(startsWith(BASE_URL + MARKET_PAIRS_LATEST_ENDPOINT), containsString("id=2682"), not(containsString("symbol=")))))
+				.andRespond(withSuccess(OK_BODY, MediaType.APPLICATION_JSON));
+		assertTrue(cryptocurrencyResolverService.refresh());
+
+		cryptocurrencyService.getInfo(null, "bitcoin,Ethereum", null, null);
+		// info is keyed by symbol when requested by symbol, so the symbol is kept
+		cryptocurrencyService.getInfo(null, null, "HOT", null);
+		cryptocurrencyService.getMarketPairsLatest(null, null, "hot", null, null, null, null, null, null, null, null, null, null, null);
+
+		mockServer.verify();
+	}
+
+	private JsonNode getResponse(ResponseEntity<Object> response) throws Exception {
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		return objectMapper.readTree(response.getBody().toString());
+	}
+}
@@ -0,0 +1,81 @@
+package com.rantcrypto.cmc.api.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.service.ExchangeService;
+import com.rantcrypto.cmc.api.service.ExchangeSnapshotService;
+import com.rantcrypto.cmc.api.test.MockCoinMarketCap;
+
+/**
+ * Answers /exchange/listings/latest from a mocked /exchange/listings/latest response.
+ */
+public class ExchangeSnapshotServiceTests {
+
+	private static final String BASE_URL = MockCoinMarketCap.BASE_URL;
+	private static final String LISTINGS_LATEST_ENDPOINT = "/v1/exchange/listings/latest";
+	private static final String LISTINGS_LATEST_BODY = "{\"status\":{\"error_code\":0},\"data\":["
+			+ "{\"id\":270,\"name\":\"Binance\",\"slug\":\"binance\",\"num_market_pairs\":900,\"quote\":{\"USD\":{\"volume_24h\":9000000000}}},"
+			+ "{\"id\":311,\"name\":\"OKEx\",\"slug\":\"okex\",\"num_market_pairs\":500,\"quote\":{\"USD\":{\"volume_24h\":3000000000}}},"
+			+ "{\"id\":89,\"name\":\"Coinbase Pro\",\"slug\":\"coinbase-pro\",\"num_market_pairs\":100,\"quote\":{\"USD\":{\"volume_24h\":400000000}}}"
+			+ "]}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockRestServiceServer mockServer;
+	private ExchangeSnapshotService exchangeSnapshotService;
+	private ExchangeService exchangeService;
+
+	@BeforeEach
+	public void setup() {
+		MockCoinMarketCap coinMarketCap = new MockCoinMarketCap();
+		this.mockServer = coinMarketCap.getServer();
+
+		this.exchangeSnapshotService = coinMarketCap.wire(new ExchangeSnapshotService());
+		ReflectionTestUtils.setField(exchangeSnapshotService, "EXCHANGE_SNAPSHOT_ENABLED", true);
+		ReflectionTestUtils.setField(exchangeSnapshotService, "EXCHANGE_SNAPSHOT_MAX_AGE", 180L);
+		ReflectionTestUtils.setField(exchangeSnapshotService, "EXCHANGE_SNAPSHOT_LIMIT", 5000L);
+		ReflectionTestUtils.setField(exchangeSnapshotService, "EXCHANGE_SNAPSHOT_CONVERT", "USD");
+		ReflectionTestUtils.setField(exchangeSnapshotService, "EXCHANGE_LISTINGS_LATEST_ENDPOINT", LISTINGS_LATEST_ENDPOINT);
+
+		this.exchangeService = new ExchangeService();
+		ReflectionTestUtils.setField(exchangeService, "exchangeSnapshotService", exchangeSnapshotService);
+	}
+
+	@Test
+	public void testListingsAreSortedAndPaginatedLocally() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		exchangeSnapshotService.refresh();
+
+		JsonNode byVolume = getResponse(exchangeService.getListingsLatest(2L, 2L, null, null, null, null, null, null, null));
+		JsonNode byName = getResponse(exchangeService.getListingsLatest(null, null, "name", null, "all", null, "usd", null, 1L));
+
+		mockServer.verify();
+		assertEquals(2, byVolume.path("data").size());
+		assertEquals(311L, byVolume.path("data").path(0).path("id").asLong());
+		assertEquals(3L, byVolume.path("status").path("total_count").asLong());
+		assertEquals(1L, byVolume.path("status").path("snapshot_version").asLong());
+		assertEquals("Binance", byName.path("data").path(0).path("name").asText());
+		assertEquals("OKEx", byName.path("data").path(2).path("name").asText());
+		assertEquals(2L, exchangeSnapshotService.getHitCount());
+	}
+
+	private JsonNode getResponse(ResponseEntity<Object> response) throws Exception {
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		return objectMapper.readTree(response.getBody().toString());
+	}
+}
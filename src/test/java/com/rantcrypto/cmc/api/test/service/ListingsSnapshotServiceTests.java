@@ -0,0 +1,198 @@
+package com.rantcrypto.cmc.api.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.service.CryptocurrencyService;
+import com.rantcrypto.cmc.api.service.ListingsSnapshotService;
+import com.rantcrypto.cmc.api.test.MockCoinMarketCap;
+
+/**
+ * Answers /cryptocurrency/quotes/latest and /cryptocurrency/listings/latest from a mocked
+ * /cryptocurrency/listings/latest response.
+ */
+public class ListingsSnapshotServiceTests {
+
+	private static final String BASE_URL = MockCoinMarketCap.BASE_URL;
+	private static final String LISTINGS_LATEST_ENDPOINT = "/v1/cryptocurrency/listings/latest";
+	private static final String QUOTES_LATEST_ENDPOINT = "/v1/cryptocurrency/quotes/latest";
+	private static final String LISTINGS_LATEST_BODY = "{\"status\":{\"error_code\":0},\"data\":["
+			+ "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"slug\":\"bitcoin\",\"cmc_rank\":1,\"quote\":{\"USD\":{\"price\":9000.5}}},"
+			+ "{\"id\":1027,\"name\":\"Ethereum\",\"symbol\":\"ETH\",\"slug\":\"ethereum\",\"cmc_rank\":2,\"quote\":{\"USD\":{\"price\":200.25}}},"
+			+ "{\"id\":2682,\"name\":\"Holo\",\"symbol\":\"HOT\",\"slug\":\"holo\",\"cmc_rank\":60,\"quote\":{\"USD\":{\"price\":0.001}}},"
+			+ "{\"id\":2467,\"name\":\"Hydro Protocol\",\"symbol\":\"HOT\",\"slug\":\"hydro-protocol\",\"cmc_rank\":900,\"quote\":{\"USD\":{\"price\":0.0001}}}"
+			+ "]}";
+	private static final String QUOTES_LATEST_BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1\":{\"id\":1}}}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockRestServiceServer mockServer;
+	private ListingsSnapshotService listingsSnapshotService;
+	private CryptocurrencyService cryptocurrencyService;
+
+	@BeforeEach
+	public void setup() {
+		MockCoinMarketCap coinMarketCap = new MockCoinMarketCap();
+		this.mockServer = coinMarketCap.getServer();
+
+		this.listingsSnapshotService = coinMarketCap.wire(new ListingsSnapshotService());
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_ENABLED", true);
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_MAX_AGE", 180L);
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_LIMIT", 5000L);
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_CONVERT", "USD");
+		ReflectionTestUtils.setField(listingsSnapshotService, "SNAPSHOT_RETAINED_VERSIONS", 2);
+		ReflectionTestUtils.setField(listingsSnapshotService, "CRYPTOCURRENCY_LISTINGS_LATEST_ENDPOINT", LISTINGS_LATEST_ENDPOINT);
+
+		this.cryptocurrencyService = coinMarketCap.wire(new CryptocurrencyService());
+		ReflectionTestUtils.setField(cryptocurrencyService, "listingsSnapshotService", listingsSnapshotService);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT", QUOTES_LATEST_ENDPOINT);
+		ReflectionTestUtils.setField(cryptocurrencyService, "CRYPTOCURRENCY_QUOTES_LATEST_ENDPOINT_CACHE_TIME", -1L);
+	}
+
+	@Test
+	public void testQuotesAreServedFromOneListingsCall() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		assertTrue(listingsSnapshotService.refresh());
+
+		JsonNode byId = getData(cryptocurrencyService.getQuotesLatest("1,1027", null, null, null, null, null, null));
+		JsonNode bySlug = getData(cryptocurrencyService.getQuotesLatest(null, "Ethereum", null, "usd", null, null, null));
+		JsonNode bySymbol = getData(cryptocurrencyService.getQuotesLatest(null, null, "btc,HOT", null, null, null, null));
+
+		// no request but the listing was sent upstream
+		mockServer.verify();
+		assertEquals(9000.5D, byId.path("1").path("quote").path("USD").path("price").asDouble());
+		assertEquals("ETH", byId.path("1027").path("symbol").asText());
+		assertEquals(1, byId.path("1027").path("is_active").asInt());
+		assertEquals(1027L, bySlug.path("1027").path("id").asLong());
+		assertEquals(1L, bySymbol.path("BTC").path("id").asLong());
+		assertEquals(3L, listingsSnapshotService.getHitCount());
+	}
+
+	@Test
+	public void testAmbiguousSymbolResolvesToHighestMarketCap() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		listingsSnapshotService.refresh();
+
+		JsonNode data = getData(cryptocurrencyService.getQuotesLatest(null, null, "HOT", null, null, null, null));
+
+		assertEquals(2682L, data.path("HOT").path("id").asLong());
+	}
+
+	@Test
+	public void testUnsupportedRequestsAreSentUpstream() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT + "?")))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + QUOTES_LATEST_ENDPOINT + "?")))
+				.andRespond(withSuccess(QUOTES_LATEST_BODY, MediaType.APPLICATION_JSON));
+		listingsSnapshotService.refresh();
+
+		// another currency, and a cryptocurrency that is not listed
+		cryptocurrencyService.getQuotesLatest("1", null, null, "EUR", null, null, null);
+		cryptocurrencyService.getQuotesLatest("1,5", null, null, null, null, null, null);
+
+		// unlisted cryptocurrencies may be skipped locally if the request allows it
+		JsonNode skipped = getData(cryptocurrencyService.getQuotesLatest("1,5", null, null, null, null, null, true));
+
+		mockServer.verify();
+		assertTrue(skipped.has("1"));
+		assertFalse(skipped.has("5"));
+		assertEquals(2L, listingsSnapshotService.getFallbackCount());
+	}
+
+	@Test
+	public void testListingsAreFilteredSortedAndPaginatedLocally() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		listingsSnapshotService.refresh();
+
+		JsonNode cheapest = getData(cryptocurrencyService.getListingsLatest(2L, 2L, null, 1000D, null, null, null, null, null,
+				null, null, null, "USD", null, "price", "asc", null, null, null, null));
+		JsonNode byName = getData(cryptocurrencyService.getListingsLatest(null, null, null, null, null, null, null, null, null,
+				null, null, null, null, null, "name", null, "all", "all", null, null));
+
+		mockServer.verify();
+		assertEquals(2, cheapest.size());
+		assertEquals(2682L, cheapest.path(0).path("id").asLong());
+		assertEquals(1027L, cheapest.path(1).path("id").asLong());
+		assertEquals("Bitcoin", byName.path(0).path("name").asText());
+		assertEquals("Hydro Protocol", byName.path(3).path("name").asText());
+		assertEquals(2L, listingsSnapshotService.getHitCount());
+	}
+
+	@Test
+	public void testFailedRefreshKeepsSnapshot() throws Exception {
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).body("{\"status\":{\"error_code\":1008}}"));
+
+		assertTrue(listingsSnapshotService.refresh());
+		assertFalse(listingsSnapshotService.refresh());
+
+		mockServer.verify();
+		assertEquals(1L, listingsSnapshotService.getRefreshCount());
+		assertEquals(4, listingsSnapshotService.getSnapshot().getSize());
+	}
+
+	@Test
+	public void testPagesArePinnedToOneSnapshotVersion() throws Exception {
+		String refreshedBody = LISTINGS_LATEST_BODY.replace("\"Bitcoin\"", "\"Bitcoin Refreshed\"");
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(LISTINGS_LATEST_BODY, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(refreshedBody, MediaType.APPLICATION_JSON));
+		mockServer.expect(once(), requestTo(startsWith(BASE_URL + LISTINGS_LATEST_ENDPOINT)))
+				.andRespond(withSuccess(refreshedBody, MediaType.APPLICATION_JSON));
+
+		listingsSnapshotService.refresh();
+		JsonNode firstPage = objectMapper.readTree(cryptocurrencyService.getListingsLatest(1L, 2L, null, null, null, null, null,
+				null, null, null, null, null, null, null, "name", null, null, null, null, null).getBody().toString());
+		long version = firstPage.path("status").path("snapshot_version").asLong();
+
+		// the listing is refreshed between the first and the second page
+		listingsSnapshotService.refresh();
+		JsonNode secondPage = getData(cryptocurrencyService.getListingsLatest(1L, 2L, null, null, null, null, null, null, null,
+				null, null, null, null, null, "name", null, null, null, null, version));
+		JsonNode latestPage = getData(cryptocurrencyService.getListingsLatest(1L, 2L, null, null, null, null, null, null, null,
+				null, null, null, null, null, "name", null, null, null, null, null));
+
+		// two versions are retained, so the first one is gone after another refresh
+		listingsSnapshotService.refresh();
+		ResponseEntity<Object> gone = cryptocurrencyService.getListingsLatest(3L, 2L, null, null, null, null, null, null, null,
+				null, null, null, null, null, "name", null, null, null, null, version);
+
+		mockServer.verify();
+		assertEquals(1L, version);
+		assertFalse(firstPage.path("status").path("snapshot_as_of").asText().isEmpty());
+		assertEquals("Bitcoin", secondPage.path(0).path("name").asText());
+		assertEquals("Bitcoin Refreshed", latestPage.path(0).path("name").asText());
+		assertEquals(HttpStatus.GONE, gone.getStatusCode());
+	}
+
+	private JsonNode getData(ResponseEntity<Object> response) throws Exception {
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		JsonNode root = objectMapper.readTree(response.getBody().toString());
+		assertEquals(0, root.path("status").path("error_code").asInt());
+		return root.path("data");
+	}
+}
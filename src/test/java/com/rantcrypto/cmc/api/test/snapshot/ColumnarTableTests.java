@@ -0,0 +1,77 @@
+package com.rantcrypto.cmc.api.test.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.snapshot.ColumnarTable;
+
+public class ColumnarTableTests {
+
+	private static final String ENTRIES = "["
+			+ "{\"id\":1,\"name\":\"Bitcoin\",\"tags\":[\"mineable\"],\"platform\":null,\"max_supply\":21000000,"
+			+ "\"quote\":{\"USD\":{\"price\":9000.5,\"volume_24h\":null}},\"last_updated\":\"2020-08-31T12:00:00.000Z\"},"
+			+ "{\"id\":825,\"name\":\"Tether\",\"tags\":[],\"platform\":{\"id\":1027,\"token_address\":\"0xdac1\"},\"max_supply\":null,"
+			+ "\"quote\":{\"USD\":{\"price\":1.0001,\"volume_24h\":42}},\"last_updated\":\"2020-08-31T12:00:00.000Z\"},"
+			+ "{\"id\":2,\"name\":\"Litecoin\",\"tags\":[\"mineable\"],\"max_supply\":84000000,"
+			+ "\"quote\":{\"USD\":{\"price\":60.25,\"volume_24h\":7.5}},\"last_updated\":\"2020-08-31T12:00:00.000Z\"}"
+			+ "]";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testEntriesAreWrittenBackFromTheirColumns() throws Exception {
+		List<JsonNode> entries = entries();
+		ColumnarTable table = ColumnarTable.of(entries, "USD");
+
+		assertEquals(entries.get(0), write(table, 0));
+		assertEquals(entries.get(1), write(table, 1));
+
+		// a field the entry did not have is written as null
+		assertTrue(write(table, 2).path("platform").isNull());
+		assertEquals(60.25D, write(table, 2).path("quote").path("USD").path("price").asDouble());
+	}
+
+	@Test
+	public void testValuesAreHeldInPrimitiveAndSharedColumns() throws Exception {
+		ColumnarTable table = ColumnarTable.of(entries(), "USD");
+
+		assertEquals(3, table.size());
+		assertEquals(825D, table.getNumbers("id", false)[1]);
+		assertTrue(Double.isNaN(table.getNumbers("volume_24h", true)[0]));
+		assertTrue(Double.isNaN(table.getNumbers("max_supply", false)[1]));
+		assertNull(table.getNumbers("name", false));
+		assertEquals("Tether", table.getTexts("name", false)[1]);
+		assertSame(table.getTexts("last_updated", false)[0], table.getTexts("last_updated", false)[2]);
+		assertSame(table.getTextArrays("tags")[0], table.getTextArrays("tags")[2]);
+		assertTrue(table.hasValue("platform", 1));
+		assertFalse(table.hasValue("platform", 0));
+		assertFalse(table.hasValue("platform", 2));
+	}
+
+	private List<JsonNode> entries() throws Exception {
+		List<JsonNode> entries = new ArrayList<JsonNode>();
+		for (JsonNode entry : objectMapper.readTree(ENTRIES))
+			entries.add(entry);
+		return entries;
+	}
+
+	private JsonNode write(ColumnarTable table, int index) throws Exception {
+		StringWriter writer = new StringWriter();
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+		table.write(generator, index);
+		generator.close();
+		return objectMapper.readTree(writer.toString());
+	}
+}
@@ -0,0 +1,118 @@
+package com.rantcrypto.cmc.api.test.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.snapshot.ConversionRates;
+import com.rantcrypto.cmc.api.snapshot.ListingsSnapshot;
+
+public class ConversionRatesTests {
+
+	private static final String RATES_BODY = "{\"status\":{\"error_code\":0},\"data\":{\"1\":{\"id\":1,\"symbol\":\"BTC\",\"quote\":{"
+			+ "\"USD\":{\"price\":10000,\"percent_change_24h\":10,\"percent_change_7d\":0},"
+			+ "\"EUR\":{\"price\":8000,\"percent_change_24h\":12.2,\"percent_change_7d\":0},"
+			+ "\"BTC\":{\"price\":1,\"percent_change_24h\":0,\"percent_change_7d\":0}}}}}";
+	private static final String QUOTES_BODY = "{\"status\":{\"error_code\":0,\"credit_count\":1},\"data\":{\"1027\":{\"id\":1027,\"symbol\":\"ETH\",\"quote\":{"
+			+ "\"USD\":{\"price\":200,\"volume_24h\":1000,\"percent_change_24h\":5,\"percent_change_7d\":-10,"
+			+ "\"market_cap\":20000000000,\"last_updated\":\"2020-09-01T00:00:00.000Z\"}}}}}";
+	private static final String LISTINGS_BODY = "{\"status\":{\"error_code\":0},\"data\":["
+			+ "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"cmc_rank\":1,\"last_updated\":\"2020-09-01T00:01:00.000Z\",\"quote\":{\"USD\":{\"price\":10000}}},"
+			+ "{\"id\":1027,\"name\":\"Ethereum\",\"symbol\":\"ETH\",\"cmc_rank\":2,\"last_updated\":\"2020-09-01T00:02:00.000Z\",\"quote\":{\"USD\":{\"price\":250}}}"
+			+ "]}";
+	private static final double DELTA = 1e-9;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testQuotesAreConvertedInRequestedOrder() throws Exception {
+		ConversionRates rates = ConversionRates.parse(RATES_BODY, "1", "usd", 1L, System.currentTimeMillis());
+
+		assertEquals("USD", rates.getBase());
+		assertEquals(0.8D, rates.getRate("eur"), DELTA);
+		assertTrue(rates.supports(Arrays.asList("EUR", "BTC")));
+		assertFalse(rates.supports(Arrays.asList("EUR", "GBP")));
+
+		JsonNode response = objectMapper.readTree(rates.convert(QUOTES_BODY, Arrays.asList("EUR", "USD", "BTC")));
+		JsonNode quote = response.path("data").path("1027").path("quote");
+		Iterator<String> currencies = quote.fieldNames();
+		assertEquals("EUR", currencies.next());
+		assertEquals("USD", currencies.next());
+		assertEquals("BTC", currencies.next());
+		assertFalse(currencies.hasNext());
+
+		assertEquals(1, response.path("status").path("credit_count").asInt());
+		assertEquals(200D, quote.path("USD").path("price").asDouble(), DELTA);
+		assertEquals(160D, quote.path("EUR").path("price").asDouble(), DELTA);
+		assertEquals(800D, quote.path("EUR").path("volume_24h").asDouble(), DELTA);
+		assertEquals(16000000000D, quote.path("EUR").path("market_cap").asDouble(), 1e-3);
+		assertEquals(0.02D, quote.path("BTC").path("price").asDouble(), DELTA);
+		// EUR gained 2% against USD over 24 hours: 1.05 * 1.122 / 1.1
+		assertEquals(7.1D, quote.path("EUR").path("percent_change_24h").asDouble(), DELTA);
+		assertEquals(-10D, quote.path("EUR").path("percent_change_7d").asDouble(), DELTA);
+		assertEquals(-100D / 22D, quote.path("BTC").path("percent_change_24h").asDouble(), DELTA);
+		assertEquals("2020-09-01T00:00:00.000Z", quote.path("BTC").path("last_updated").asText());
+	}
+
+	@Test
+	public void testListingsAreConvertedAndMissingBaseQuotesAreRejected() throws Exception {
+		ConversionRates rates = ConversionRates.parse(RATES_BODY, "1", "USD", 1L, System.currentTimeMillis());
+		String listingsBody = "{\"status\":{\"error_code\":0},\"data\":[{\"id\":1,\"quote\":{\"USD\":{\"price\":10000}}},"
+				+ "{\"id\":1027,\"quote\":{\"USD\":{\"price\":200}}}]}";
+
+		JsonNode listings = objectMapper.readTree(rates.convert(listingsBody, Arrays.asList("USD", "EUR")));
+		assertEquals(8000D, listings.path("data").path(0).path("quote").path("EUR").path("price").asDouble(), DELTA);
+		assertEquals(160D, listings.path("data").path(1).path("quote").path("EUR").path("price").asDouble(), DELTA);
+
+		assertNull(rates.convert(QUOTES_BODY.replace("\"USD\":", "\"GBP\":"), Arrays.asList("EUR")));
+		assertThrows(IOException.class, () -> ConversionRates.parse(RATES_BODY, "1", "GBP", 1L, System.currentTimeMillis()));
+	}
+
+	@Test
+	public void testPricesAreConvertedFromRatesAndListings() throws Exception {
+		ConversionRates rates = ConversionRates.parse(RATES_BODY, "1", "USD", 1L, System.currentTimeMillis());
+		ListingsSnapshot listings = ListingsSnapshot.parse(LISTINGS_BODY, "USD", 1L, System.currentTimeMillis(), 5000L);
+
+		JsonNode bySymbol = objectMapper.readTree(rates.getPriceConversion(listings, 2D, null, "eth", "EUR,btc,USD", null))
+				.path("data");
+		assertEquals(1027L, bySymbol.path("id").asLong());
+		assertEquals("Ethereum", bySymbol.path("name").asText());
+		assertEquals(2L, bySymbol.path("amount").asLong());
+		assertEquals("2020-09-01T00:02:00.000Z", bySymbol.path("last_updated").asText());
+		assertEquals(400D, bySymbol.path("quote").path("EUR").path("price").asDouble(), DELTA);
+		assertEquals(0.05D, bySymbol.path("quote").path("BTC").path("price").asDouble(), DELTA);
+		assertEquals(500D, bySymbol.path("quote").path("USD").path("price").asDouble(), DELTA);
+
+		// convert_id is looked up in the listing and keys the quotes by id
+		JsonNode byId = objectMapper.readTree(rates.getPriceConversion(listings, 0.5D, "1", null, null, "1027")).path("data");
+		assertEquals(20D, byId.path("quote").path("1027").path("price").asDouble(), DELTA);
+		assertEquals("2020-09-01T00:02:00.000Z", byId.path("quote").path("1027").path("last_updated").asText());
+
+		assertNull(rates.getPriceConversion(listings, 1D, null, "ETH", "CHF", null));
+		assertNull(rates.getPriceConversion(listings, 1D, "2781", null, "EUR", null));
+	}
+
+	@Test
+	public void testConvertSymbolsAreNotLookedUpInTheListing() throws Exception {
+		ConversionRates rates = ConversionRates.parse(RATES_BODY, "1", "USD", 1L, System.currentTimeMillis());
+		// a token whose symbol is also the symbol of a fiat currency the rates do not hold
+		ListingsSnapshot listings = ListingsSnapshot.parse(LISTINGS_BODY.replace("]}",
+				",{\"id\":5000,\"name\":\"Trias\",\"symbol\":\"TRY\",\"cmc_rank\":3,\"quote\":{\"USD\":{\"price\":2}}}]}"),
+				"USD", 1L, System.currentTimeMillis(), 5000L);
+
+		assertNull(rates.getPriceConversion(listings, 1D, null, "BTC", "TRY", null));
+		assertNull(rates.getPriceConversion(listings, 1D, null, "BTC", "EUR,ETH", null));
+		JsonNode byId = objectMapper.readTree(rates.getPriceConversion(listings, 1D, null, "BTC", null, "5000")).path("data");
+		assertEquals(5000D, byId.path("quote").path("5000").path("price").asDouble(), DELTA);
+	}
+}
@@ -0,0 +1,62 @@
+package com.rantcrypto.cmc.api.test.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.snapshot.CryptocurrencyMap;
+
+public class CryptocurrencyMapTests {
+
+	private static final String MAP_BODY = "{\"status\":{\"error_code\":0},\"data\":["
+			+ "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"slug\":\"bitcoin\",\"rank\":1,\"platform\":null},"
+			+ "{\"id\":2467,\"name\":\"Hydro Protocol\",\"symbol\":\"HOT\",\"slug\":\"hydro-protocol\",\"rank\":900,"
+			+ "\"platform\":{\"id\":1027,\"token_address\":\"0x9AF839687F6C94542AC5ECE2E317DAAE355493A1\"}},"
+			+ "{\"id\":2682,\"name\":\"Holo\",\"symbol\":\"HOT\",\"slug\":\"holo\",\"rank\":60,"
+			+ "\"platform\":{\"id\":1027,\"token_address\":\"0x6c6ee5e31d828de241282b9606c8e98ea48526e2\"}},"
+			+ "{\"id\":1027,\"name\":\"Ethereum\",\"symbol\":\"ETH\",\"slug\":\"ethereum\",\"rank\":2,\"platform\":null}"
+			+ "]}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testIdentifiersResolve() throws Exception {
+		CryptocurrencyMap map = CryptocurrencyMap.parse(MAP_BODY, null, 1L, System.currentTimeMillis());
+
+		assertEquals(4, map.getSize());
+		assertTrue(map.contains(1027L));
+		assertFalse(map.contains(3L));
+		assertEquals(Long.valueOf(1L), map.resolveSlug("Bitcoin"));
+		// HOT is used by two cryptocurrencies, the one with the better rank wins
+		assertEquals(Long.valueOf(2682L), map.resolveSymbol("hot"));
+		assertEquals(Long.valueOf(2467L), map.resolveTokenAddress("0x9af839687f6c94542ac5ece2e317daae355493a1"));
+		assertNull(map.resolveSlug("dogecoin"));
+		assertTrue(map.hasListingStatus("Active"));
+		assertFalse(map.hasListingStatus("active,inactive"));
+	}
+
+	@Test
+	public void testMapIsSortedPaginatedAndFiltered() throws Exception {
+		CryptocurrencyMap map = CryptocurrencyMap.parse(MAP_BODY, "active", 3L, System.currentTimeMillis());
+
+		JsonNode byId = objectMapper.readTree(map.getMap("id", 2L, 2L, null));
+		JsonNode byRank = objectMapper.readTree(map.getMap("cmc_rank", 1L, null, null));
+		JsonNode bySymbol = objectMapper.readTree(map.getMap("id", 3L, 1L, "hot"));
+
+		assertEquals(2, byId.path("data").size());
+		assertEquals(1027L, byId.path("data").path(0).path("id").asLong());
+		assertEquals(2467L, byId.path("data").path(1).path("id").asLong());
+		assertEquals("0x9AF839687F6C94542AC5ECE2E317DAAE355493A1",
+				byId.path("data").path(1).path("platform").path("token_address").asText());
+		assertEquals(3L, byId.path("status").path("snapshot_version").asLong());
+		assertEquals(1L, byRank.path("data").path(0).path("id").asLong());
+		assertEquals(2467L, byRank.path("data").path(3).path("id").asLong());
+		// start and limit are ignored when symbols are given
+		assertEquals(2, bySymbol.path("data").size());
+	}
+}
@@ -0,0 +1,131 @@
+package com.rantcrypto.cmc.api.test.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rantcrypto.cmc.api.snapshot.ListingsFilter;
+import com.rantcrypto.cmc.api.snapshot.ListingsSnapshot;
+import com.rantcrypto.cmc.api.snapshot.ListingsSort;
+
+public class ListingsSnapshotTests {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ListingsSnapshotTests.class);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testFiltersSortAndPaginationAreEvaluatedLocally() throws Exception {
+		ListingsSnapshot snapshot = ListingsSnapshot.parse(listing(500, 500), "USD", 1L, System.currentTimeMillis(), 5000L);
+		ListingsFilter filter = ListingsFilter.of(10D, 100D, null, null, null, null, null, null, null, null, "tokens", null);
+
+		JsonNode response = objectMapper.readTree(
+				snapshot.getListingsLatest(filter, ListingsSort.of("price"), false, 3L, 5L));
+		JsonNode data = response.path("data");
+
+		// tokens are the odd ids, priced at their id; the third to seventh cheapest from 10 on
+		assertEquals(5, data.size());
+		assertEquals(15D, data.path(0).path("quote").path("USD").path("price").asDouble());
+		assertEquals(23D, data.path(4).path("quote").path("USD").path("price").asDouble());
+		assertEquals(45L, response.path("status").path("total_count").asLong());
+		assertEquals(0, response.path("status").path("credit_count").asInt());
+	}
+
+	@Test
+	public void testTextSortsAscendingAndMissingValuesLast() throws Exception {
+		ListingsSnapshot snapshot = ListingsSnapshot.parse(listing(20, 20), "USD", 1L, System.currentTimeMillis(), 5000L);
+		ListingsSort name = ListingsSort.of("name");
+		ListingsSort maxSupply = ListingsSort.of("max_supply");
+
+		JsonNode byName = objectMapper.readTree(snapshot.getListingsLatest(ListingsFilter.ALL, name,
+				name.isDescending(null), 1L, 3L)).path("data");
+		JsonNode byMaxSupply = objectMapper.readTree(snapshot.getListingsLatest(ListingsFilter.ALL, maxSupply,
+				maxSupply.isDescending(null), 1L, 20L)).path("data");
+
+		assertEquals("Coin 1", byName.path(0).path("name").asText());
+		assertEquals("Coin 10", byName.path(1).path("name").asText());
+		assertEquals(19L, byMaxSupply.path(0).path("id").asLong());
+		assertTrue(byMaxSupply.path(19).path("max_supply").isNull());
+		assertNull(ListingsSort.of("volume_7d"));
+		assertNull(ListingsFilter.of(null, null, null, null, null, null, null, null, null, null, "nfts", null));
+	}
+
+	@Test
+	public void testTruncatedListingOnlyAnswersTopMarketCapPages() throws Exception {
+		ListingsSnapshot snapshot = ListingsSnapshot.parse(listing(100, 5000), "USD", 1L, System.currentTimeMillis(), 100L);
+
+		// cryptocurrencies beyond the snapshot have lower market caps, but any price
+		assertNotNull(snapshot.getListingsLatest(ListingsFilter.ALL, ListingsSort.MARKET_CAP, true, 1L, 100L));
+		assertNull(snapshot.getListingsLatest(ListingsFilter.ALL, ListingsSort.MARKET_CAP, true, 51L, 100L));
+		assertNull(snapshot.getListingsLatest(ListingsFilter.ALL, ListingsSort.PRICE, true, 1L, 10L));
+	}
+
+	@Test
+	public void testAnyParameterCombinationIsServed() throws Exception {
+		ListingsSnapshot snapshot = ListingsSnapshot.parse(listing(5000, 5000), "USD", 1L, System.currentTimeMillis(), 5000L);
+		ListingsFilter filter = ListingsFilter.of(1D, null, null, null, 1000D, null, null, null, -50D, 50D, "all", null);
+		ListingsSort[] sorts = ListingsSort.values();
+
+		// warm up until the response writer is compiled
+		for (int i = 0; i < 2000; i++)
+			snapshot.getListingsLatest(filter, sorts[i % sorts.length], i % 2 == 0, 1L + i % 100, 100L);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 1000; i++)
+			assertNotNull(snapshot.getListingsLatest(filter, sorts[i % sorts.length], i % 2 == 0, 1L + i % 100, 100L));
+		long averageMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000L;
+
+		// timing is reported, not asserted: it depends on the machine running the tests
+		LOGGER.debug("Filtered, sorted pages of a 5000 cryptocurrency listing took {} µs on average", averageMicros);
+	}
+
+	@Test
+	public void testColumnarSnapshotTakesLessMemoryThanItsJson() throws Exception {
+		String body = listing(5000, 5000);
+		ListingsSnapshot snapshot = ListingsSnapshot.parse(body, "USD", 1L, System.currentTimeMillis(), 5000L);
+
+		// a JSON tree takes several times the bytes of its text, so the text is the lower bound
+		long jsonBytes = body.getBytes(StandardCharsets.UTF_8).length;
+		long columnBytes = snapshot.getTable().getWeight();
+		assertEquals(5000, snapshot.getSize());
+		assertTrue(columnBytes < jsonBytes, "columns took " + columnBytes + " bytes, JSON " + jsonBytes);
+	}
+
+	/**
+	 * Listing of count cryptocurrencies out of total, ranked by id. Odd ids are tokens, every id has
+	 * its id as its price, and ids divisible by 5 have no max supply.
+	 */
+	private static String listing(int count, int total) {
+		StringBuilder builder = new StringBuilder("{\"status\":{\"error_code\":0,\"total_count\":" + total + "},\"data\":[");
+		for (int id = 1; id <= count; id++) {
+			if (id > 1)
+				builder.append(',');
+			builder.append("{\"id\":").append(id)
+					.append(",\"name\":\"Coin ").append(id)
+					.append("\",\"symbol\":\"C").append(id)
+					.append("\",\"slug\":\"coin-").append(id)
+					.append("\",\"cmc_rank\":").append(id)
+					.append(",\"date_added\":\"2020-01-01T00:00:00.000Z\"")
+					.append(",\"tags\":[").append(id % 3 == 0 ? "\"defi\"" : "").append(']')
+					.append(",\"platform\":").append(id % 2 == 1 ? "{\"id\":1027}" : "null")
+					.append(",\"circulating_supply\":").append(id * 1000)
+					.append(",\"max_supply\":").append(id % 5 == 0 ? "null" : Integer.toString(id * 2000))
+					.append(",\"quote\":{\"USD\":{\"price\":").append(id)
+					.append(",\"market_cap\":").append((count + 1 - id) * 1000000L)
+					.append(",\"volume_24h\":").append(id * 100)
+					.append(",\"percent_change_24h\":").append(id % 100 - 50)
+					.append("}}}");
+		}
+		return builder.append("]}").toString();
+	}
+}
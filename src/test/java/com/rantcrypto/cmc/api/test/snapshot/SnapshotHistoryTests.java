@@ -0,0 +1,67 @@
+package com.rantcrypto.cmc.api.test.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.rantcrypto.cmc.api.snapshot.ListingsSnapshot;
+import com.rantcrypto.cmc.api.snapshot.SnapshotHistory;
+
+public class SnapshotHistoryTests {
+
+	@Test
+	public void testOlderVersionsAreRetainedUpToTheLimit() throws Exception {
+		SnapshotHistory<ListingsSnapshot> history = new SnapshotHistory<ListingsSnapshot>();
+		assertNull(history.getLatest());
+
+		for (long version = 1L; version <= 4L; version++)
+			history.publish(snapshot(version), 3);
+
+		assertEquals(4L, history.getLatest().getVersion());
+		assertEquals(2L, history.get(2L).getVersion());
+		assertNull(history.get(1L));
+		assertEquals(3, history.size());
+	}
+
+	@Test
+	public void testReadersSeeOnlyPublishedVersionsInOrder() throws Exception {
+		SnapshotHistory<ListingsSnapshot> history = new SnapshotHistory<ListingsSnapshot>();
+		ListingsSnapshot[] snapshots = new ListingsSnapshot[50];
+		for (int i = 0; i < snapshots.length; i++)
+			snapshots[i] = snapshot(i + 1L);
+		history.publish(snapshots[0], 5);
+
+		AtomicBoolean publishing = new AtomicBoolean(true);
+		AtomicLong violations = new AtomicLong();
+		Thread reader = new Thread(() -> {
+			long lastSeen = 0L;
+			while (publishing.get()) {
+				ListingsSnapshot latest = history.getLatest();
+				// a reader never goes back to an older version, and every version it sees is whole
+				if (latest.getVersion() < lastSeen || latest.getSize() != 1)
+					violations.incrementAndGet();
+				lastSeen = latest.getVersion();
+			}
+		});
+		reader.start();
+		for (int i = 1; i < snapshots.length; i++)
+			history.publish(snapshots[i], 5);
+		publishing.set(false);
+		reader.join();
+
+		assertEquals(0L, violations.get());
+		assertEquals(50L, history.getLatest().getVersion());
+		assertTrue(history.get(46L) != null && history.get(45L) == null);
+	}
+
+	private static ListingsSnapshot snapshot(long version) throws Exception {
+		String body = "{\"status\":{\"error_code\":0},\"data\":[{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\","
+				+ "\"slug\":\"bitcoin\",\"cmc_rank\":1,\"quote\":{\"USD\":{\"price\":" + version + "}}}]}";
+		return ListingsSnapshot.parse(body, "USD", version, System.currentTimeMillis(), 5000L);
+	}
+}